@@ -0,0 +1,251 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * Corpus of documents used by the JTidy benchmarks. Documents are read once from the directory given by the
+ * <code>jtidy.corpus</code> system property (defaults to the JTidy test resources) and kept in memory, so that
+ * benchmarks only measure tidy itself and not file system access. Tidy is configured from the properties file given by
+ * the <code>jtidy.config</code> system property, if any, otherwise with <code>clean</code> and <code>quiet</code>
+ * enabled and warnings hidden.
+ * @version $Revision$ ($Author$)
+ */
+public final class BenchmarkCorpus
+{
+
+    /**
+     * Default corpus location, relative to the benchmarks module.
+     */
+    private static final String DEFAULT_CORPUS = "../src/test/resources";
+
+    /**
+     * Raw documents.
+     */
+    private final List<byte[]> documents = new ArrayList<byte[]>();
+
+    /**
+     * Total size of the corpus in bytes.
+     */
+    private long size;
+
+    /**
+     * Loads the corpus.
+     * @throws IOException in reading corpus files
+     */
+    public BenchmarkCorpus() throws IOException
+    {
+        final File dir = new File(System.getProperty("jtidy.corpus", DEFAULT_CORPUS));
+        final File[] files = dir.listFiles();
+        if (files == null)
+        {
+            throw new IOException("Corpus directory [" + dir.getAbsolutePath() + "] can't be read");
+        }
+        Arrays.sort(files);
+        for (final File file : files)
+        {
+            final String name = file.getName();
+            if (file.isFile() && (name.endsWith(".html") || name.endsWith(".xhtml")))
+            {
+                final byte[] doc = readFile(file);
+                this.documents.add(doc);
+                this.size += doc.length;
+            }
+        }
+        if (this.documents.isEmpty())
+        {
+            throw new IOException("No html documents found in [" + dir.getAbsolutePath() + "]");
+        }
+    }
+
+    /**
+     * Returns the corpus documents.
+     * @return list of documents
+     */
+    public List<byte[]> getDocuments()
+    {
+        return this.documents;
+    }
+
+    /**
+     * Returns the total corpus size.
+     * @return size in bytes
+     */
+    public long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Creates a new Tidy instance set up with the benchmark configuration, discarding all the messages.
+     * @return Tidy instance
+     * @throws IOException in reading the configuration file
+     */
+    public Tidy newTidy() throws IOException
+    {
+        final Tidy tidy = new Tidy();
+        final Properties props = new Properties();
+        final String config = System.getProperty("jtidy.config");
+        if (config != null)
+        {
+            final InputStream in = new FileInputStream(config);
+            try
+            {
+                props.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        else
+        {
+            props.setProperty("clean", "yes");
+            props.setProperty("quiet", "yes");
+            props.setProperty("show-warnings", "no");
+        }
+        tidy.setConfigurationFromProps(props);
+        tidy.setErrout(new PrintWriter(new NullWriter()));
+        return tidy;
+    }
+
+    /**
+     * Creates a Lexer for the given document, set up the same way <code>Tidy.parse()</code> does.
+     * @param tidy Tidy instance providing configuration and report
+     * @param doc document
+     * @return Lexer ready for tokenization or parsing
+     */
+    public static Lexer newLexer(final Tidy tidy, final byte[] doc)
+    {
+        final Configuration configuration = tidy.getConfiguration();
+        configuration.adjust();
+        final StreamIn streamIn = StreamInFactory.getStreamIn(configuration, new ByteArrayInputStream(doc));
+        final Lexer lexer = new Lexer(streamIn, configuration, configuration.report);
+        lexer.errout = tidy.getErrout();
+        streamIn.setLexer(lexer);
+        return lexer;
+    }
+
+    /**
+     * Reads a whole file.
+     * @param file file
+     * @return file content
+     * @throws IOException in reading the file
+     */
+    private static byte[] readFile(final File file) throws IOException
+    {
+        final byte[] content = new byte[(int) file.length()];
+        final InputStream in = new FileInputStream(file);
+        try
+        {
+            int pos = 0;
+            int read;
+            while (pos < content.length && (read = in.read(content, pos, content.length - pos)) > 0)
+            {
+                pos += read;
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return content;
+    }
+
+    /**
+     * Writer discarding everything, used for messages.
+     */
+    private static final class NullWriter extends Writer
+    {
+
+        /**
+         * @see java.io.Writer#write(char[], int, int)
+         */
+        @Override
+        public void write(final char[] cbuf, final int off, final int len)
+        {
+            // discard
+        }
+
+        /**
+         * @see java.io.Writer#flush()
+         */
+        @Override
+        public void flush()
+        {
+            // nothing to flush
+        }
+
+        /**
+         * @see java.io.Writer#close()
+         */
+        @Override
+        public void close()
+        {
+            // nothing to close
+        }
+    }
+}
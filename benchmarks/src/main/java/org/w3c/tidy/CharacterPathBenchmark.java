@@ -0,0 +1,165 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Benchmarks of the per-character UTF-8 paths. Each invocation processes one MB of characters (a mix of ASCII, Latin-1
+ * and other BMP characters), so with <code>-prof gc</code> the <code>gc.alloc.rate.norm</code> metric is the number of
+ * bytes allocated per MB, which is expected to be 0.
+ * <ul>
+ * <li><code>lexerAddCharToLexer</code>: <code>Lexer.addCharToLexer()</code>, reusing the lexer buffer</li>
+ * <li><code>pprintGetPutUTF8</code>: <code>PPrint.putUTF8()</code> followed by <code>PPrint.getUTF8()</code></li>
+ * </ul>
+ * @version $Revision$ ($Author$)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharacterPathBenchmark
+{
+
+    /**
+     * Number of characters processed per invocation.
+     */
+    private static final int MEGABYTE = 1024 * 1024;
+
+    /**
+     * characters to process.
+     */
+    private final int[] chars = new int[MEGABYTE];
+
+    /**
+     * lexer receiving the characters.
+     */
+    private Lexer lexer;
+
+    /**
+     * buffer used by the pretty printer methods.
+     */
+    private final byte[] buf = new byte[8];
+
+    /**
+     * char holder used by the pretty printer methods.
+     */
+    private final int[] ch = new int[1];
+
+    /**
+     * Builds the characters and the lexer.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final int[] sample = {'T', 'i', 'd', 'y', ' ', '<', 'p', '>', 0xE9, 0xA0, 0x20AC, 0x4E2D};
+        for (int i = 0; i < MEGABYTE; i++)
+        {
+            this.chars[i] = sample[i % sample.length];
+        }
+        final Report report = new Report();
+        this.lexer = new Lexer(null, new Configuration(report), report);
+    }
+
+    /**
+     * Appends the characters to the lexer buffer.
+     * @return buffer size, so that the work is not optimized away
+     */
+    @Benchmark
+    public int lexerAddCharToLexer()
+    {
+        for (int i = 0; i < MEGABYTE; i++)
+        {
+            // keep a single chunk, which is reused
+            if (this.lexer.lexsize > 4096)
+            {
+                this.lexer.lexsize = 0;
+            }
+            this.lexer.addCharToLexer(this.chars[i]);
+        }
+        return this.lexer.lexsize;
+    }
+
+    /**
+     * Encodes and decodes each character.
+     * @return sum of the decoded characters, so that the work is not optimized away
+     */
+    @Benchmark
+    public int pprintGetPutUTF8()
+    {
+        int sum = 0;
+        for (int i = 0; i < MEGABYTE; i++)
+        {
+            PPrint.putUTF8(this.buf, 0, this.chars[i]);
+            PPrint.getUTF8(this.buf, 0, this.ch);
+            sum += this.ch[0];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Per-stage JTidy benchmarks. Each benchmark processes the whole corpus once per invocation, so the reported
+ * throughput is in corpus passes per second; run with <code>-prof gc</code> to get the allocation rate of each stage
+ * (<code>gc.alloc.rate.norm</code> is the number of bytes allocated per corpus pass).
+ * <ul>
+ * <li><code>tidyParse</code>: complete <code>Tidy.parse()</code>, including pretty printing</li>
+ * <li><code>lexerGetToken</code>: tokenization only (<code>Lexer.getToken()</code>)</li>
+ * <li><code>parserParseDocument</code>: tokenization and tree building (<code>ParserImpl.parseDocument()</code>)</li>
+ * <li><code>cleanCleanDocument</code>: <code>Clean.cleanDocument()</code> on fresh copies of trees parsed once</li>
+ * <li><code>cleanFreshTrees</code>: the copies alone, without cleaning</li>
+ * <li><code>pprintPrintTree</code>: <code>PPrint.printTree()</code> on already parsed trees</li>
+ * </ul>
+ * Cleaning modifies the trees, so they are copied from compact copies before each invocation of
+ * <code>cleanCleanDocument</code>. JMH counts the allocations of this setup too: the allocation of the clean stage
+ * is the <code>gc.alloc.rate.norm</code> of <code>cleanCleanDocument</code> minus the one of
+ * <code>cleanFreshTrees</code>, which runs the same setup.
+ * @version $Revision$ ($Author$)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TidyStageBenchmark
+{
+
+    /**
+     * Corpus and Tidy instance shared by all the benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Corpus
+    {
+
+        /**
+         * documents.
+         */
+        BenchmarkCorpus corpus;
+
+        /**
+         * configured Tidy.
+         */
+        Tidy tidy;
+
+        /**
+         * Loads the corpus.
+         * @throws IOException in reading the corpus
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException
+        {
+            this.corpus = new BenchmarkCorpus();
+            this.tidy = this.corpus.newTidy();
+        }
+    }
+
+    /**
+     * Parsed trees, built once per trial. Used by benchmarks which don't modify the tree.
+     */
+    @State(Scope.Thread)
+    public static class ParsedTrees
+    {
+
+        /**
+         * lexers used to build the trees (needed by the pretty printer).
+         */
+        final List<Lexer> lexers = new ArrayList<Lexer>();
+
+        /**
+         * parsed trees.
+         */
+        final List<Node> documents = new ArrayList<Node>();
+
+        /**
+         * Parses all the documents in the corpus.
+         * @param corpus corpus
+         */
+        @Setup(Level.Trial)
+        public void setUp(final Corpus corpus)
+        {
+            parseAll(corpus, this.lexers, this.documents);
+        }
+    }
+
+    /**
+     * Parsed trees, copied again before each invocation since cleaning modifies them. The documents are parsed only
+     * once, so that the allocations of the parser are not counted in the invocations.
+     */
+    @State(Scope.Thread)
+    public static class FreshTrees
+    {
+
+        /**
+         * compact copies of the parsed trees.
+         */
+        final List<CompactNodeTree> parsed = new ArrayList<CompactNodeTree>();
+
+        /**
+         * lexers used by the cleaner, one per tree.
+         */
+        final List<Lexer> lexers = new ArrayList<Lexer>();
+
+        /**
+         * trees to clean.
+         */
+        final List<Node> documents = new ArrayList<Node>();
+
+        /**
+         * Parses all the documents in the corpus.
+         * @param corpus corpus
+         */
+        @Setup(Level.Trial)
+        public void parse(final Corpus corpus)
+        {
+            final List<Node> trees = new ArrayList<Node>();
+            parseAll(corpus, new ArrayList<Lexer>(), trees);
+            for (final Node tree : trees)
+            {
+                this.parsed.add(new CompactNodeTree(tree));
+            }
+        }
+
+        /**
+         * Copies the parsed trees, with new lexers since the cleaner adds style rules to them.
+         * @param corpus corpus
+         */
+        @Setup(Level.Invocation)
+        public void setUp(final Corpus corpus)
+        {
+            this.lexers.clear();
+            this.documents.clear();
+            for (final CompactNodeTree tree : this.parsed)
+            {
+                this.lexers.add(BenchmarkCorpus.newLexer(corpus.tidy, EMPTY));
+                this.documents.add(tree.toNode());
+            }
+        }
+    }
+
+    /**
+     * Input of the lexers used only by the cleaner.
+     */
+    static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Parses all the documents in the corpus.
+     * @param corpus corpus
+     * @param lexers filled with the lexers used
+     * @param documents filled with the parsed trees
+     */
+    static void parseAll(final Corpus corpus, final List<Lexer> lexers, final List<Node> documents)
+    {
+        for (final byte[] doc : corpus.corpus.getDocuments())
+        {
+            final Lexer lexer = BenchmarkCorpus.newLexer(corpus.tidy, doc);
+            lexers.add(lexer);
+            documents.add(ParserImpl.parseDocument(lexer));
+        }
+    }
+
+    /**
+     * Complete tidy run: parse, clean and pretty print.
+     * @param corpus corpus
+     * @param bh blackhole
+     */
+    @Benchmark
+    public void tidyParse(final Corpus corpus, final Blackhole bh)
+    {
+        final OutputStream out = new BlackholeOutputStream(bh);
+        for (final byte[] doc : corpus.corpus.getDocuments())
+        {
+            bh.consume(corpus.tidy.parse(new ByteArrayInputStream(doc), out));
+        }
+    }
+
+    /**
+     * Tokenization only.
+     * @param corpus corpus
+     * @param bh blackhole
+     */
+    @Benchmark
+    public void lexerGetToken(final Corpus corpus, final Blackhole bh)
+    {
+        for (final byte[] doc : corpus.corpus.getDocuments())
+        {
+            final Lexer lexer = BenchmarkCorpus.newLexer(corpus.tidy, doc);
+            Node token;
+            while ((token = lexer.getToken(Lexer.MIXED_CONTENT)) != null)
+            {
+                bh.consume(token);
+            }
+        }
+    }
+
+    /**
+     * Tokenization and tree building.
+     * @param corpus corpus
+     * @param bh blackhole
+     */
+    @Benchmark
+    public void parserParseDocument(final Corpus corpus, final Blackhole bh)
+    {
+        for (final byte[] doc : corpus.corpus.getDocuments())
+        {
+            bh.consume(ParserImpl.parseDocument(BenchmarkCorpus.newLexer(corpus.tidy, doc)));
+        }
+    }
+
+    /**
+     * Cleaning of parsed trees.
+     * @param corpus corpus
+     * @param trees freshly copied trees
+     */
+    @Benchmark
+    public void cleanCleanDocument(final Corpus corpus, final FreshTrees trees)
+    {
+        final Clean cleaner = new Clean(corpus.tidy.getConfiguration().tt);
+        for (int i = 0; i < trees.documents.size(); i++)
+        {
+            cleaner.cleanDocument(trees.lexers.get(i), trees.documents.get(i));
+        }
+    }
+
+    /**
+     * Copies of the parsed trees only, the baseline of <code>cleanCleanDocument</code>.
+     * @param trees freshly copied trees
+     * @param bh blackhole
+     */
+    @Benchmark
+    public void cleanFreshTrees(final FreshTrees trees, final Blackhole bh)
+    {
+        for (int i = 0; i < trees.documents.size(); i++)
+        {
+            bh.consume(trees.documents.get(i));
+        }
+    }
+
+    /**
+     * Pretty printing of parsed trees.
+     * @param corpus corpus
+     * @param trees parsed trees
+     * @param bh blackhole
+     */
+    @Benchmark
+    public void pprintPrintTree(final Corpus corpus, final ParsedTrees trees, final Blackhole bh)
+    {
+        final Configuration configuration = corpus.tidy.getConfiguration();
+        final Out out = OutFactory.getOut(configuration, new BlackholeOutputStream(bh));
+        for (int i = 0; i < trees.documents.size(); i++)
+        {
+            final PPrint pprint = new PPrint(configuration);
+            pprint.printTree(out, (short) 0, 0, trees.lexers.get(i), trees.documents.get(i));
+            pprint.flushLine(out, 0);
+        }
+        out.flush();
+    }
+
+    /**
+     * OutputStream feeding a blackhole, so that output is not optimized away and doesn't need to be stored.
+     */
+    private static final class BlackholeOutputStream extends OutputStream
+    {
+
+        /**
+         * blackhole.
+         */
+        private final Blackhole bh;
+
+        /**
+         * Instantiates a new BlackholeOutputStream.
+         * @param bh blackhole
+         */
+        BlackholeOutputStream(final Blackhole bh)
+        {
+            this.bh = bh;
+        }
+
+        /**
+         * @see java.io.OutputStream#write(int)
+         */
+        @Override
+        public void write(final int b)
+        {
+            this.bh.consume(b);
+        }
+
+        /**
+         * @see java.io.OutputStream#write(byte[], int, int)
+         */
+        @Override
+        public void write(final byte[] b, final int off, final int len)
+        {
+            this.bh.consume(b);
+            this.bh.consume(len);
+        }
+    }
+}
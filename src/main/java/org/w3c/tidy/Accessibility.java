@@ -1,5 +1,11 @@
 package org.w3c.tidy;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /*********************************************************************
 * AccessibilityChecks
 *
@@ -20,11 +26,134 @@ package org.w3c.tidy;
 * Modifications by : Terry Teague (TRT)
 *
 * Reference document: http://www.w3.org/TR/WAI-WEBCONTENT/
+*
+* All the checks are made in a single traversal of the document.  The
+* checks applied to a node are looked up by its tag, and each check can
+* be disabled with the 'accessibility-skip-checks' option.
 *********************************************************************/
 
 
 public class Accessibility {
 
+	/* The individual checks, named as in the 'accessibility-skip-checks' option */
+	enum Check {
+		SCRIPT_KEYBOARD_ACCESSIBLE("script-keyboard-accessible"),
+		STYLE_ATTRIBUTE("style-attribute"),
+		DOCTYPE("doctype"),
+		STYLE_SHEETS("style-sheets"),
+		COLOR_CONTRAST("color-contrast"),
+		META_DATA("meta-data"),
+		ANCHOR("anchor"),
+		FLICKER("flicker"),
+		COLOR_AVAILABLE("color-available"),
+		IMAGE("image"),
+		MAP_LINKS("map-links"),
+		AREA("area"),
+		DEPRECATED("deprecated"),
+		PROGRAMMATIC_OBJECTS("programmatic-objects"),
+		DYNAMIC_CONTENT("dynamic-content"),
+		ACCESSIBLE_COMPATIBLE("accessible-compatible"),
+		APPLET("applet"),
+		OBJECT("object"),
+		FRAME("frame"),
+		IFRAME("iframe"),
+		SCRIPT("script"),
+		TABLE("table"),
+		ASCII_ART("ascii-art"),
+		LABEL("label"),
+		INPUT_LABEL("input-label"),
+		INPUT_ATTRIBUTES("input-attributes"),
+		FRAMESET("frameset"),
+		HEADER_NESTING("header-nesting"),
+		PARAGRAPH_HEADER("paragraph-header"),
+		HTML_LANG("html-lang"),
+		BLINK("blink"),
+		MARQUEE("marquee"),
+		LINK("link"),
+		STYLE("style"),
+		EMBED("embed"),
+		TH("th"),
+		LIST_USAGE("list-usage");
+
+		private final String name;
+
+		private Check(final String name) {
+			this.name = name;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		static Check forName(final String name) {
+			for (final Check check : values()) {
+				if (check.name.equalsIgnoreCase(name)) {
+					return check;
+				}
+			}
+			return null;
+		}
+	}
+
+	/* Checks applied to the elements of each tag, in the order they are made */
+	private static final Map<TagId, Check[]> TAG_CHECKS = new EnumMap<TagId, Check[]>(TagId.class);
+
+	static {
+		register(new Check[] {Check.COLOR_CONTRAST}, TagId.BODY);
+		register(new Check[] {Check.META_DATA}, TagId.HEAD);
+		register(new Check[] {Check.ANCHOR}, TagId.A);
+		register(new Check[] {Check.FLICKER, Check.COLOR_AVAILABLE, Check.IMAGE}, TagId.IMG);
+		register(new Check[] {Check.MAP_LINKS}, TagId.MAP);
+		register(new Check[] {Check.AREA}, TagId.AREA);
+		register(new Check[] {Check.DEPRECATED, Check.PROGRAMMATIC_OBJECTS, Check.DYNAMIC_CONTENT,
+				Check.ACCESSIBLE_COMPATIBLE, Check.FLICKER, Check.COLOR_AVAILABLE, Check.APPLET}, TagId.APPLET);
+		register(new Check[] {Check.PROGRAMMATIC_OBJECTS, Check.DYNAMIC_CONTENT, Check.ACCESSIBLE_COMPATIBLE,
+				Check.FLICKER, Check.COLOR_AVAILABLE, Check.OBJECT}, TagId.OBJECT);
+		register(new Check[] {Check.FRAME}, TagId.FRAME);
+		register(new Check[] {Check.IFRAME}, TagId.IFRAME);
+		register(new Check[] {Check.DYNAMIC_CONTENT, Check.PROGRAMMATIC_OBJECTS, Check.ACCESSIBLE_COMPATIBLE,
+				Check.FLICKER, Check.COLOR_AVAILABLE, Check.SCRIPT}, TagId.SCRIPT);
+		register(new Check[] {Check.COLOR_CONTRAST, Check.TABLE}, TagId.TABLE);
+		register(new Check[] {Check.ASCII_ART}, TagId.PRE, TagId.XMP);
+		register(new Check[] {Check.LABEL}, TagId.LABEL);
+		register(new Check[] {Check.COLOR_AVAILABLE, Check.INPUT_LABEL, Check.INPUT_ATTRIBUTES}, TagId.INPUT);
+		register(new Check[] {Check.FRAMESET}, TagId.FRAMESET);
+		register(new Check[] {Check.HEADER_NESTING}, TagId.H1, TagId.H2, TagId.H3, TagId.H4, TagId.H5, TagId.H6);
+		register(new Check[] {Check.PARAGRAPH_HEADER}, TagId.P);
+		register(new Check[] {Check.HTML_LANG}, TagId.HTML);
+		register(new Check[] {Check.BLINK}, TagId.BLINK);
+		register(new Check[] {Check.MARQUEE}, TagId.MARQUEE);
+		register(new Check[] {Check.LINK}, TagId.LINK);
+		register(new Check[] {Check.COLOR_CONTRAST, Check.STYLE}, TagId.STYLE);
+		register(new Check[] {Check.EMBED, Check.PROGRAMMATIC_OBJECTS, Check.ACCESSIBLE_COMPATIBLE, Check.FLICKER},
+				TagId.EMBED);
+		/* Deprecated HTML if the following tags are found in the document */
+		register(new Check[] {Check.DEPRECATED}, TagId.BASEFONT, TagId.CENTER, TagId.ISINDEX, TagId.U, TagId.FONT,
+				TagId.DIR, TagId.S, TagId.STRIKE, TagId.MENU);
+		register(new Check[] {Check.TH}, TagId.TH);
+		register(new Check[] {Check.LIST_USAGE}, TagId.LI, TagId.OL, TagId.UL);
+	}
+
+	private static void register(final Check[] checks, final TagId... tags) {
+		for (final TagId tag : tags) {
+			TAG_CHECKS.put(tag, checks);
+		}
+	}
+
+	/* A message held back until the messages of the previous phases are reported */
+	private static final class Message {
+		/* null for the html table algorithm message */
+		private final AccessErrorCode code;
+		private final Node node;
+		private final boolean error;
+
+		private Message(final AccessErrorCode code, final Node node, final boolean error) {
+			this.code = code;
+			this.node = node;
+			this.error = error;
+		}
+	}
+
 //	private static final int TEXTBUF_SIZE = 128;
 
 	/* List of possible image types */
@@ -88,8 +217,6 @@ public class Accessibility {
 	private int hasCheckedLongDesc;
 
 	private int checkedHeaders;
-	private int listElements;
-	private int otherListElements;
 
 	/* For 'USEMAP' identifier */
 	//private boolean hasUseMap;
@@ -108,6 +235,21 @@ public class Accessibility {
 	private boolean hasInvalidColumnHeader;
 	private int forID;
 
+	/* Checks disabled by configuration, and the time spent in each check in nanoseconds */
+	private final boolean disabled[] = new boolean[Check.values().length];
+	private final long times[] = new long[Check.values().length];
+
+	/* Set once a node using stylesheets has been found */
+	private boolean styleSheetsPresent;
+
+	/* Messages of the 'STYLE' attribute check and of the element checks, reported after the traversal
+	** in the order the separate document walks used to report them.  'messages' is the list of the
+	** current check, null to report directly.
+	*/
+	private final List<Message> styleAttributeMessages = new ArrayList<Message>();
+	private final List<Message> elementMessages = new ArrayList<Message>();
+	private List<Message> messages;
+
 	/*
 		GetFileExtension takes a path and returns the extension
 		portion of the path (if any).
@@ -270,9 +412,9 @@ public class Accessibility {
 	*******************************************************/
 
 	private String textFromOneNode(final Lexer lexer, final Node node) {
-		if (node != null) {
+		if (node != null && node.textarray != null) {
 			/* Copy contents of a text node */
-			return TidyUtils.getString(lexer.lexbuf, node.start, node.end - node.start);
+			return TidyUtils.getString(node.textarray, node.start, node.end - node.start);
 		}
 		return "";
 	}
@@ -289,7 +431,7 @@ public class Accessibility {
 	private void getTextNode(final Lexer lexer, final Node node) {
 		if (node.isText()) {
 			/* Retrieves each character found within the text node */
-			textNode.append(TidyUtils.getString(lexer.lexbuf, node.start, node.end - node.start));
+			textNode.append(TidyUtils.getString(node.textarray, node.start, node.end - node.start));
 		}
 	}
 
@@ -338,19 +480,19 @@ public class Accessibility {
 		if (level1Enabled()) {
 			switch (node.getId()) {
 			case IMG:
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_IMAGE);
+				accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_IMAGE);
 				break;
 			case APPLET:
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_APPLET);
+				accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_APPLET);
 				break;
 			case OBJECT:
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_OBJECT);
+				accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_OBJECT);
 				break;
 			case SCRIPT:
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_SCRIPT);
+				accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_SCRIPT);
 				break;
 			case INPUT:
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_INPUT);
+				accessWarning(lexer, node, AccessErrorCode.INFORMATION_NOT_CONVEYED_INPUT);
 				break;
 			}
 		}
@@ -411,7 +553,7 @@ public class Accessibility {
 					final int rgbFG[] = {0, 0, 0};  /* Black text */
 
 					if (getRgb(av.value, rgbFG) && !compareColors(rgbBG, rgbFG)) {
-						lexer.report.accessWarning(lexer, node, errcode);
+						accessWarning(lexer, node, errcode);
 					}
 				}
 			}
@@ -537,19 +679,19 @@ public class Accessibility {
 						}
 						else if (av.value.length() > 150) {
 							hasAlt = true;
-							lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_TOO_LONG);
+							accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_TOO_LONG);
 						}
 						else if (isImage(av.value)) {
 							hasAlt = true;
-							lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_FILENAME);
+							accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_FILENAME);
 						}
 						else if (isPlaceholderAlt(av.value)) {
 							hasAlt = true;
-							lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_PLACEHOLDER);
+							accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_PLACEHOLDER);
 						}
 						else if (endsWithBytes(av.value)) {
 							hasAlt = true;
-							lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_FILE_SIZE);
+							accessWarning(lexer, node, AccessErrorCode.IMG_ALT_SUSPICIOUS_FILE_SIZE);
 						}
 					}
 				}
@@ -654,25 +796,25 @@ public class Accessibility {
 			}
 
 			if (!hasAlt) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.IMG_MISSING_ALT);
+				accessError(lexer, node, AccessErrorCode.IMG_MISSING_ALT);
 			}
 			if (!hasLongDesc && hasValidHeight && (hasValidWidthHR || hasValidWidthBullet)) {
 				hasTriggeredMissingLongDesc = true;
 			}
 			if (!hasTriggeredMissingLongDesc) {
 				if (hasDLINK && !hasLongDesc) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_MISSING_LONGDESC);
+					accessWarning(lexer, node, AccessErrorCode.IMG_MISSING_LONGDESC);
 				}
 				if (hasLongDesc && !hasDLINK) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_MISSING_DLINK);
+					accessWarning(lexer, node, AccessErrorCode.IMG_MISSING_DLINK);
 				}
 				if (!hasLongDesc && !hasDLINK) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_MISSING_LONGDESC_DLINK);
+					accessWarning(lexer, node, AccessErrorCode.IMG_MISSING_LONGDESC_DLINK);
 				}
 			}
 			if (hasIsMap) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.IMAGE_MAP_SERVER_SIDE_REQUIRES_CONVERSION);
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.IMG_MAP_SERVER_REQUIRES_TEXT_LINKS);
+				accessError(lexer, node, AccessErrorCode.IMAGE_MAP_SERVER_SIDE_REQUIRES_CONVERSION);
+				accessWarning(lexer, node, AccessErrorCode.IMG_MAP_SERVER_REQUIRES_TEXT_LINKS);
 			}
 		}
 	}
@@ -724,7 +866,7 @@ public class Accessibility {
 				}
 			}
 			if (!hasDescription && !hasAlt) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.APPLET_MISSING_ALT);
+				accessError(lexer, node, AccessErrorCode.APPLET_MISSING_ALT);
 			}
 		}
 	}
@@ -772,7 +914,7 @@ public class Accessibility {
 			}
 
 			if (!hasAlt && !hasDescription) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.OBJECT_MISSING_ALT);
+				accessError(lexer, node, AccessErrorCode.OBJECT_MISSING_ALT);
 			}
 		}
 	}
@@ -782,16 +924,15 @@ public class Accessibility {
 	* CheckMissingStyleSheets
 	*
 	* Ensures that stylesheets are used to control the presentation.
+	* Called for each node until one using stylesheets is found.
 	***************************************************************/
 
-	private static boolean checkMissingStyleSheets(final Node node) {
-		boolean sspresent = false;
-
-		for (Node content = node.content; !sspresent && content != null; content = content.next) {
-			sspresent = content.is(TagId.LINK) || content.is(TagId.STYLE) || content.is(TagId.FONT)
-					|| content.is(TagId.BASEFONT);
+	private void checkMissingStyleSheets(final Node node) {
+		if (level2Enabled()) {
+			boolean sspresent = node.is(TagId.LINK) || node.is(TagId.STYLE) || node.is(TagId.FONT)
+					|| node.is(TagId.BASEFONT);
 
-			for (AttVal av = content.attributes; !sspresent && av != null; av = av.next) {
+			for (AttVal av = node.attributes; !sspresent && av != null; av = av.next) {
 				sspresent = av.is(AttrId.STYLE) || av.is(AttrId.TEXT) || av.is(AttrId.VLINK) || av.is(AttrId.ALINK)
 						|| av.is(AttrId.LINK);
 
@@ -799,12 +940,8 @@ public class Accessibility {
 					sspresent = av.valueIs("stylesheet");
 				}
 			}
-
-			if (!sspresent) {
-				sspresent = checkMissingStyleSheets(content);
-			}
+			styleSheetsPresent = sspresent;
 		}
-		return sspresent;
 	}
 
 
@@ -834,7 +971,7 @@ public class Accessibility {
 				/* Checks for valid 'SRC' value within the frame element */
 				else if (av.is(AttrId.SRC)) {
 					if (hasValue(av) && !isValidSrcExtension(av.value)) {
-						lexer.report.accessError(lexer, node, AccessErrorCode.FRAME_SRC_INVALID);
+						accessError(lexer, node, AccessErrorCode.FRAME_SRC_INVALID);
 					}
 				}
 
@@ -846,23 +983,23 @@ public class Accessibility {
 					if (!hasTitle) {
 						if (av.value == null || av.value.length() == 0) {
 							hasTitle = true;
-							lexer.report.accessError(lexer, node, AccessErrorCode.FRAME_TITLE_INVALID_NULL);
+							accessError(lexer, node, AccessErrorCode.FRAME_TITLE_INVALID_NULL);
 						}
 						else {
 							if (isWhitespace(av.value) && av.value.length() > 0) {
 								hasTitle = true;
-								lexer.report.accessError(lexer, node, AccessErrorCode.FRAME_TITLE_INVALID_SPACES);
+								accessError(lexer, node, AccessErrorCode.FRAME_TITLE_INVALID_SPACES);
 							}
 						}
 					}
 				}
 			}
 			if (!hasTitle) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.FRAME_MISSING_TITLE);
+				accessError(lexer, node, AccessErrorCode.FRAME_MISSING_TITLE);
 			}
 			if (numFrames == 3 && hasCheckedLongDesc < 3) {
 				numFrames = 0;
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.FRAME_MISSING_LONGDESC);
+				accessWarning(lexer, node, AccessErrorCode.FRAME_MISSING_LONGDESC);
 			}
 		}
 	}
@@ -881,7 +1018,7 @@ public class Accessibility {
 			final AttVal av = node.getAttrById(AttrId.SRC);
 			if (hasValue(av)) {
 				if (!isValidSrcExtension(av.value)) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.FRAME_SRC_INVALID);
+					accessError(lexer, node, AccessErrorCode.FRAME_SRC_INVALID);
 				}
 			}
 		}
@@ -911,7 +1048,7 @@ public class Accessibility {
 
 						/* Checks to see if multimedia is used */
 						if (isValidMediaExtension(av.value)) {
-							lexer.report.accessError(lexer, node, AccessErrorCode.MULTIMEDIA_REQUIRES_TEXT);
+							accessError(lexer, node, AccessErrorCode.MULTIMEDIA_REQUIRES_TEXT);
 						}
 						/*
 							Checks for validity of sound file, and checks to see if
@@ -934,7 +1071,7 @@ public class Accessibility {
 
 								/* Must contain text description of sound file */
 								if (!hasDescription) {
-									lexer.report.accessError(lexer, node, errcode);
+									accessError(lexer, node, errcode);
 								}
 							}
 						}
@@ -946,10 +1083,10 @@ public class Accessibility {
 				/* Checks 'TARGET' attribute for validity if it exists */
 				if (av.is(AttrId.TARGET)) {
 					if (av.valueIs("_new")) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_NEW);
+						accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_NEW);
 					}
 					else if (av.valueIs("_blank")) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_BLANK);
+						accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_BLANK);
 					}
 				}
 			}
@@ -963,20 +1100,20 @@ public class Accessibility {
 						hasTriggeredLink = true;
 					}
 					if (word.equals("click here")) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_NOT_MEANINGFUL_CLICK_HERE);
+						accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_NOT_MEANINGFUL_CLICK_HERE);
 					}
 					if (hasTriggeredLink == false) {
 						if (word.length() < 6) {
-							lexer.report.accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_NOT_MEANINGFUL);
+							accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_NOT_MEANINGFUL);
 						}
 					}
 					if (word.length() > 60) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_TOO_LONG);
+						accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_TOO_LONG);
 					}
 				}
 			}
 			if (node.content == null) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_MISSING);
+				accessWarning(lexer, node, AccessErrorCode.LINK_TEXT_MISSING);
 			}
 		}
 	}
@@ -1014,10 +1151,10 @@ public class Accessibility {
 			if (level2Enabled()) {
 				if (av.is(AttrId.TARGET)) {
 					if (av.valueIs("_new")) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_NEW);
+						accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_NEW);
 					}
 					else if (av.valueIs("_blank")) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_BLANK);
+						accessWarning(lexer, node, AccessErrorCode.NEW_WINDOWS_REQUIRE_WARNING_BLANK);
 					}
 				}
 			}
@@ -1026,7 +1163,7 @@ public class Accessibility {
 		if (level1Enabled()) {
 			/* AREA must contain alt text */
 			if (!hasAlt) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.AREA_MISSING_ALT);
+				accessError(lexer, node, AccessErrorCode.AREA_MISSING_ALT);
 			}
 		}
 	}
@@ -1043,7 +1180,7 @@ public class Accessibility {
 		if (level1Enabled()) {
 			/* NOSCRIPT element must appear immediately following SCRIPT element */
 			if (node.next == null || !node.next.is(TagId.NOSCRIPT)) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_MISSING_NOSCRIPT);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_MISSING_NOSCRIPT);
 			}
 		}
 	}
@@ -1144,11 +1281,11 @@ public class Accessibility {
 					}
 					if (av.value == null || av.value.length() == 0) {
 						hasAbbr = true;
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.TABLE_MAY_REQUIRE_HEADER_ABBR_NULL);
+						accessWarning(lexer, node, AccessErrorCode.TABLE_MAY_REQUIRE_HEADER_ABBR_NULL);
 					}
 					if (isWhitespace(av.value) && av.value.length() > 0) {
 						hasAbbr = true;
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.TABLE_MAY_REQUIRE_HEADER_ABBR_SPACES);
+						accessWarning(lexer, node, AccessErrorCode.TABLE_MAY_REQUIRE_HEADER_ABBR_SPACES);
 					}
 				}
 			}
@@ -1159,7 +1296,7 @@ public class Accessibility {
 			if (word != null && !isWhitespace(word)) {
 				/* Must have 'ABBR' attribute if header is > 15 characters */
 				if (word.length() > 15 && !hasAbbr) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.TABLE_MAY_REQUIRE_HEADER_ABBR);
+					accessWarning(lexer, node, AccessErrorCode.TABLE_MAY_REQUIRE_HEADER_ABBR);
 				}
 			}
 		}
@@ -1220,12 +1357,12 @@ public class Accessibility {
 				}
 				/* Displays HTML 4 Table Algorithm when multiple column of headers used */
 				if (!validColSpanRows) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.DATA_TABLE_REQUIRE_MARKUP_ROW_HEADERS);
-					lexer.report.displayHTMLTableAlgorithm(lexer);
+					accessWarning(lexer, node, AccessErrorCode.DATA_TABLE_REQUIRE_MARKUP_ROW_HEADERS);
+					displayHTMLTableAlgorithm(lexer);
 				}
 				if (!validColSpanColumns) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.DATA_TABLE_REQUIRE_MARKUP_COLUMN_HEADERS);
-					lexer.report.displayHTMLTableAlgorithm(lexer);
+					accessWarning(lexer, node, AccessErrorCode.DATA_TABLE_REQUIRE_MARKUP_COLUMN_HEADERS);
+					displayHTMLTableAlgorithm(lexer);
 				}
 			}
 		}
@@ -1252,23 +1389,23 @@ public class Accessibility {
 					if (hasValue(av)) {
 						hasSummary = true;
 						if (av.contains("summary") && av.contains("table")) {
-							lexer.report.accessError(lexer, node, AccessErrorCode.TABLE_SUMMARY_INVALID_PLACEHOLDER);
+							accessError(lexer, node, AccessErrorCode.TABLE_SUMMARY_INVALID_PLACEHOLDER);
 						}
 					}
 					if (av.value == null || av.value.length() == 0) {
 						hasSummary = true;
-						lexer.report.accessError(lexer, node, AccessErrorCode.TABLE_SUMMARY_INVALID_NULL);
+						accessError(lexer, node, AccessErrorCode.TABLE_SUMMARY_INVALID_NULL);
 					}
 					else if (isWhitespace(av.value) && av.value.length() > 0) {
 						hasSummary = true;
-						lexer.report.accessError(lexer, node, AccessErrorCode.TABLE_SUMMARY_INVALID_SPACES);
+						accessError(lexer, node, AccessErrorCode.TABLE_SUMMARY_INVALID_SPACES);
 					}
 				}
 			}
 
 			/* TABLE must have content. */
 			if (node.content == null) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS);
+				accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS);
 				return;
 			}
 		}
@@ -1292,7 +1429,7 @@ public class Accessibility {
 				}
 			}
 			if (!hasCaption) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.TABLE_MISSING_CAPTION);
+				accessError(lexer, node, AccessErrorCode.TABLE_MISSING_CAPTION);
 			}
 		}
 
@@ -1318,7 +1455,7 @@ public class Accessibility {
 		if (level3Enabled()) {
 			/* Suppress warning for missing 'SUMMARY for HTML 2.0 and HTML 3.2 */
 			if (!hasSummary) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.TABLE_MISSING_SUMMARY);
+				accessError(lexer, node, AccessErrorCode.TABLE_MISSING_SUMMARY);
 			}
 		}
 
@@ -1334,25 +1471,25 @@ public class Accessibility {
 				}
 
 				if (numTR == 1) {
-					lexer.report.accessWarning(lexer, node, AccessErrorCode.LAYOUT_TABLES_LINEARIZE_PROPERLY);
+					accessWarning(lexer, node, AccessErrorCode.LAYOUT_TABLES_LINEARIZE_PROPERLY);
 				}
 			}
 			if (hasTH) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.LAYOUT_TABLE_INVALID_MARKUP);
+				accessWarning(lexer, node, AccessErrorCode.LAYOUT_TABLE_INVALID_MARKUP);
 			}
 		}
 
 		if (level1Enabled()) {
 			if (checkedHeaders == 2) {
 				if (!hasValidRowHeaders && !hasValidColumnHeaders && !hasInvalidRowHeader && !hasInvalidColumnHeader) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS);
+					accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS);
 				}
 				if (!hasValidRowHeaders && hasInvalidRowHeader) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS_ROW);
+					accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS_ROW);
 				}
 
 				if (!hasValidColumnHeaders && hasInvalidColumnHeader) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS_COLUMN);
+					accessError(lexer, node, AccessErrorCode.DATA_TABLE_MISSING_HEADERS_COLUMN);
 				}
 			}
 		}
@@ -1381,18 +1518,19 @@ public class Accessibility {
 			   Checks the text within the PRE and XMP tags to see if ascii
 			   art is present
 			*/
+			final byte[] text = node.content.textarray;
 			for (int i = node.content.start + 1; i < node.content.end; i++) {
 				matchingCount = 0;
 
 				/* Counts the number of lines of text */
-				if (lexer.lexbuf[i] == '\n') {
+				if (text[i] == '\n') {
 					newLines++;
 				}
-				compareLetter = (char) lexer.lexbuf[i];
+				compareLetter = (char) text[i];
 
 				/* Counts consecutive character matches */
-				for (int x = i; x < i + 5; x++) {
-					if (lexer.lexbuf[x] == compareLetter) {
+				for (int x = i; x < i + 5 && x < text.length; x++) {
+					if (text[x] == compareLetter) {
 						matchingCount++;
 					}
 					else {
@@ -1455,9 +1593,9 @@ public class Accessibility {
 			}
 
 			if (IsAscii) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.ASCII_REQUIRES_DESCRIPTION);
+				accessError(lexer, node, AccessErrorCode.ASCII_REQUIRES_DESCRIPTION);
 				if (level3Enabled() && hasSkipOverLink < 2) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.SKIPOVER_ASCII_ART);
+					accessError(lexer, node, AccessErrorCode.SKIPOVER_ASCII_ART);
 				}
 			}
 		}
@@ -1473,13 +1611,13 @@ public class Accessibility {
 
 	private void checkFormControls(final Lexer lexer, final Node node) {
 		if (!hasValidFor && hasValidId) {
-			lexer.report.accessError(lexer, node, AccessErrorCode.ASSOCIATE_LABELS_EXPLICITLY_FOR);
+			accessError(lexer, node, AccessErrorCode.ASSOCIATE_LABELS_EXPLICITLY_FOR);
 		}
 		if (!hasValidId && hasValidFor) {
-			lexer.report.accessError(lexer, node, AccessErrorCode.ASSOCIATE_LABELS_EXPLICITLY_ID);
+			accessError(lexer, node, AccessErrorCode.ASSOCIATE_LABELS_EXPLICITLY_ID);
 		}
 		if (!hasValidId && !hasValidFor) {
-			lexer.report.accessError(lexer, node, AccessErrorCode.ASSOCIATE_LABELS_EXPLICITLY);
+			accessError(lexer, node, AccessErrorCode.ASSOCIATE_LABELS_EXPLICITLY);
 		}
 	}
 
@@ -1557,7 +1695,7 @@ public class Accessibility {
 			}
 		}
 		if (mustHaveAlt && !hasAlt) {
-			lexer.report.accessError(lexer, node, AccessErrorCode.IMG_BUTTON_MISSING_ALT);
+			accessError(lexer, node, AccessErrorCode.IMG_BUTTON_MISSING_ALT);
 		}
 	}
 
@@ -1575,7 +1713,7 @@ public class Accessibility {
 
 		if (level1Enabled()) {
 			if ((lexer.badAccess & Report.INVALID_LINK_NOFRAMES) != 0) {
-			   lexer.report.accessError(lexer, node, AccessErrorCode.NOFRAMES_INVALID_LINK);
+			   accessError(lexer, node, AccessErrorCode.NOFRAMES_INVALID_LINK);
 			   lexer.badAccess &= ~Report.INVALID_LINK_NOFRAMES; /* emit only once */
 			}
 			for (Node temp = node.content; temp != null ; temp = temp.next) {
@@ -1587,20 +1725,20 @@ public class Accessibility {
 						if (para.content.isText()) {
 							final String word = textFromOneNode(lexer, para.content);
 							if (word != null && word.contains("browser")) {
-								lexer.report.accessError(lexer, para, AccessErrorCode.NOFRAMES_INVALID_CONTENT);
+								accessError(lexer, para, AccessErrorCode.NOFRAMES_INVALID_CONTENT);
 							}
 						}
 					}
 					else if (temp.content == null) {
-						lexer.report.accessError(lexer, temp, AccessErrorCode.NOFRAMES_INVALID_NO_VALUE);
+						accessError(lexer, temp, AccessErrorCode.NOFRAMES_INVALID_NO_VALUE);
 					}
 					else if (temp.content != null && isWhitespace(textFromOneNode(lexer, temp.content))) {
-						lexer.report.accessError(lexer, temp, AccessErrorCode.NOFRAMES_INVALID_NO_VALUE);
+						accessError(lexer, temp, AccessErrorCode.NOFRAMES_INVALID_NO_VALUE);
 					}
 				}
 			}
 			if (!hasNoFrames) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.FRAME_MISSING_NOFRAMES);
+				accessError(lexer, node, AccessErrorCode.FRAME_MISSING_NOFRAMES);
 			}
 		}
 	}
@@ -1653,10 +1791,10 @@ public class Accessibility {
 				}
 			}
 			if (!isValidIncrease) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.HEADERS_IMPROPERLY_NESTED);
+				accessWarning(lexer, node, AccessErrorCode.HEADERS_IMPROPERLY_NESTED);
 			}
 			if (needsDescription) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.HEADER_USED_FORMAT_TEXT);
+				accessWarning(lexer, node, AccessErrorCode.HEADER_USED_FORMAT_TEXT);
 			}
 		}
 	}
@@ -1688,13 +1826,13 @@ public class Accessibility {
 				}
 				if (!isNotHeader) {
 					if (node.content.is(TagId.STRONG)) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.POTENTIAL_HEADER_BOLD);
+						accessWarning(lexer, node, AccessErrorCode.POTENTIAL_HEADER_BOLD);
 					}
 					if (node.content.is(TagId.U)) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.POTENTIAL_HEADER_UNDERLINE);
+						accessWarning(lexer, node, AccessErrorCode.POTENTIAL_HEADER_UNDERLINE);
 					}
 					if (node.content.is(TagId.EM)) {
-						lexer.report.accessWarning(lexer, node, AccessErrorCode.POTENTIAL_HEADER_ITALICS);
+						accessWarning(lexer, node, AccessErrorCode.POTENTIAL_HEADER_ITALICS);
 					}
 				}
 			}
@@ -1713,7 +1851,7 @@ public class Accessibility {
 		if (level1Enabled()) {
 			final AttVal av = node.getAttrById(AttrId.SRC);
 			if (hasValue(av) && isValidMediaExtension(av.value)) {
-				 lexer.report.accessError(lexer, node, AccessErrorCode.MULTIMEDIA_REQUIRES_TEXT);
+				 accessError(lexer, node, AccessErrorCode.MULTIMEDIA_REQUIRES_TEXT);
 			}
 		}
 	}
@@ -1733,11 +1871,11 @@ public class Accessibility {
 			if (av != null) {
 				validLang = true;
 				if (!hasValue(av)) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.LANGUAGE_INVALID);
+					accessError(lexer, node, AccessErrorCode.LANGUAGE_INVALID);
 				}
 			}
 			if (!validLang) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.LANGUAGE_NOT_IDENTIFIED);
+				accessError(lexer, node, AccessErrorCode.LANGUAGE_NOT_IDENTIFIED);
 			}
 		}
 	}
@@ -1756,7 +1894,7 @@ public class Accessibility {
 			if (node.content.isText()) {
 				final String word = textFromOneNode(lexer, node.content);
 				if (!isWhitespace(word)) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.REMOVE_BLINK_MARQUEE);
+					accessError(lexer, node, AccessErrorCode.REMOVE_BLINK_MARQUEE);
 				}
 			}
 		}
@@ -1776,7 +1914,7 @@ public class Accessibility {
 			if (node.isText()) {
 				final String word = textFromOneNode(lexer, node.content);
 				if (!isWhitespace(word)) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.REMOVE_BLINK_MARQUEE);
+					accessError(lexer, node, AccessErrorCode.REMOVE_BLINK_MARQUEE);
 				}
 			}
 		}
@@ -1807,7 +1945,7 @@ public class Accessibility {
 				}
 			}
 			if (hasRel && hasType) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.STYLESHEETS_REQUIRE_TESTING_LINK);
+				accessWarning(lexer, node, AccessErrorCode.STYLESHEETS_REQUIRE_TESTING_LINK);
 			}
 		}
 	}
@@ -1822,7 +1960,7 @@ public class Accessibility {
 
 	private void checkStyle(final Lexer lexer, final Node node) {
 		if (level1Enabled()) {
-			lexer.report.accessWarning(lexer, node, AccessErrorCode.STYLESHEETS_REQUIRE_TESTING_STYLE_ELEMENT);
+			accessWarning(lexer, node, AccessErrorCode.STYLESHEETS_REQUIRE_TESTING_STYLE_ELEMENT);
 		}
 	}
 
@@ -1847,7 +1985,7 @@ public class Accessibility {
 				msgcode = AccessErrorCode.TEXT_EQUIVALENTS_REQUIRE_UPDATING_OBJECT;
 			}
 			if (msgcode != null) {
-				lexer.report.accessWarning(lexer, node, msgcode);
+				accessWarning(lexer, node, msgcode);
 			}
 		}
 	}
@@ -1878,7 +2016,7 @@ public class Accessibility {
 				break;
 			}
 			if (msgcode != null) {
-				lexer.report.accessWarning(lexer, node, msgcode);
+				accessWarning(lexer, node, msgcode);
 			}
 		}
 	}
@@ -1908,7 +2046,7 @@ public class Accessibility {
 				break;
 			}
 			if (msgcode != null) {
-				lexer.report.accessWarning(lexer, node, msgcode);
+				accessWarning(lexer, node, msgcode);
 			}
 		}
 	}
@@ -1948,7 +2086,7 @@ public class Accessibility {
 				break;
 			}
 			if (msgcode != null) {
-				lexer.report.accessWarning(lexer, node, msgcode);
+				accessWarning(lexer, node, msgcode);
 			}
 		}
 	}
@@ -1998,7 +2136,7 @@ public class Accessibility {
 				break;
 			}
 			if (msgcode != null) {
-				lexer.report.accessError(lexer, node, msgcode);
+				accessError(lexer, node, msgcode);
 			}
 		}
 	}
@@ -2061,27 +2199,22 @@ public class Accessibility {
 				}
 			}
 			if (hasOnMouseDown == 1) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_DOWN);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_DOWN);
 			}
 			if (hasOnMouseUp == 1) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_UP);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_UP);
 			}
 			if (hasOnClick == 1) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_CLICK);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_CLICK);
 			}
 			if (hasOnMouseOut == 1) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_OUT);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_OUT);
 			}
 			if (hasOnMouseOver == 1) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_OVER);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_OVER);
 			}
 			if (hasOnMouseMove == 1) {
-				lexer.report.accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_MOVE);
-			}
-			/* Recursively check all child nodes.
-			 */
-			for (Node content = node.content; content != null; content = content.next) {
-				checkScriptKeyboardAccessible(lexer, content);
+				accessError(lexer, node, AccessErrorCode.SCRIPT_NOT_KEYBOARD_ACCESSIBLE_ON_MOUSE_MOVE);
 			}
 		}
 	}
@@ -2110,7 +2243,7 @@ public class Accessibility {
 						/* Must not have an auto-refresh */
 						if (av.valueIs("refresh")) {
 							hasHttpEquiv = true;
-							lexer.report.accessError(lexer, node, AccessErrorCode.REMOVE_AUTO_REFRESH);
+							accessError(lexer, node, AccessErrorCode.REMOVE_AUTO_REFRESH);
 						}
 					}
 
@@ -2120,14 +2253,14 @@ public class Accessibility {
 						/* If the value is not an integer, then it must not be a URL */
 						if (av.value.startsWith("http:")) {
 							hasContent = true;
-							lexer.report.accessError(lexer, node, AccessErrorCode.REMOVE_AUTO_REDIRECT);
+							accessError(lexer, node, AccessErrorCode.REMOVE_AUTO_REDIRECT);
 						}
 					}
 				}
 
 				if (hasContent || hasHttpEquiv) {
 					hasMetaData = true;
-					lexer.report.accessError(lexer, node, AccessErrorCode.METADATA_MISSING_REDIRECT_AUTOREFRESH);
+					accessError(lexer, node, AccessErrorCode.METADATA_MISSING_REDIRECT_AUTOREFRESH);
 				}
 				else {
 					if (containsAttr && !hasContent && !hasHttpEquiv) {
@@ -2172,7 +2305,7 @@ public class Accessibility {
 
 	private void metaDataPresent(final Lexer lexer, final Node node) {
 		if (level2Enabled()) {
-			lexer.report.accessError(lexer, node, AccessErrorCode.METADATA_MISSING);
+			accessError(lexer, node, AccessErrorCode.METADATA_MISSING);
 		}
 	}
 
@@ -2196,7 +2329,7 @@ public class Accessibility {
 				}
 			}
 			if (dtNode == null) {
-				lexer.report.accessError(lexer, lexer.root, AccessErrorCode.DOCTYPE_MISSING);
+				accessError(lexer, lexer.root, AccessErrorCode.DOCTYPE_MISSING);
 			}
 		}
 	}
@@ -2239,7 +2372,7 @@ public class Accessibility {
 				/* Checks for 'HREF' attribute */
 				final AttVal href = child.getAttrById(AttrId.HREF);
 				if (hasValue(href) && !findLinkA(lexer.root, href.value)) {
-					lexer.report.accessError(lexer, node, AccessErrorCode.IMG_MAP_CLIENT_MISSING_TEXT_LINKS);
+					accessError(lexer, node, AccessErrorCode.IMG_MAP_CLIENT_MISSING_TEXT_LINKS);
 				}
 			}
 		}
@@ -2258,35 +2391,9 @@ public class Accessibility {
 			/* Must not contain 'STYLE' attribute */
 			final AttVal style = node.getAttrById(AttrId.STYLE);
 			if (hasValue(style)) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.STYLESHEETS_REQUIRE_TESTING_STYLE_ATTR);
+				accessWarning(lexer, node, AccessErrorCode.STYLESHEETS_REQUIRE_TESTING_STYLE_ATTR);
 			}
 		}
-
-		/* Recursively check all child nodes.
-		*/
-		for (Node content = node.content; content != null; content = content.next) {
-			checkForStyleAttribute(lexer, content);
-		}
-	}
-
-
-	/*****************************************************
-	* CheckForListElements
-	*
-	* Checks document for list elements (<ol>, <ul>, <li>)
-	*****************************************************/
-
-	private void checkForListElements(final Lexer lexer, Node node) {
-		if (node.is(TagId.LI)) {
-			listElements++;
-		}
-		else if (node.is(TagId.OL) || node.is(TagId.UL)) {
-			otherListElements++;
-		}
-
-		for (node = node.content; node != null; node = node.next) {
-			checkForListElements(lexer, node);
-		}
 	}
 
 
@@ -2318,10 +2425,10 @@ public class Accessibility {
 			** IFF OL/UL node is implicit
 			*/
 			if (!node.content.is(TagId.LI)) {
-				lexer.report.accessWarning(lexer, node, msgcode);
+				accessWarning(lexer, node, msgcode);
 			}
 			else if (node.implicit) {  /* if a tidy added node */
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.LIST_USAGE_INVALID_LI);
+				accessWarning(lexer, node, AccessErrorCode.LIST_USAGE_INVALID_LI);
 			}
 		}
 		else if (node.is(TagId.LI)) {
@@ -2334,13 +2441,13 @@ public class Accessibility {
 			** warning LIST_USAGE_INVALID_OL tests
 			*/
 			if (node.parent == null || !node.parent.is(TagId.OL) && !node.parent.is(TagId.UL)) {
-				lexer.report.accessWarning(lexer, node, AccessErrorCode.LIST_USAGE_INVALID_LI);
+				accessWarning(lexer, node, AccessErrorCode.LIST_USAGE_INVALID_LI);
 			}
 			else if (node.implicit && node.parent != null && (node.parent.is(TagId.OL) || node.parent.is(TagId.UL))) {
 				/* if tidy added LI node, then */
 				msgcode = node.parent.is(TagId.UL) ?
 						AccessErrorCode.LIST_USAGE_INVALID_UL : AccessErrorCode.LIST_USAGE_INVALID_OL;
-				lexer.report.accessWarning(lexer, node, msgcode);
+				accessWarning(lexer, node, msgcode);
 			}
 		}
 	}
@@ -2354,181 +2461,252 @@ public class Accessibility {
 	************************************************************/
 
 	private void accessibilityCheckNode(final Lexer lexer, final Node node) {
-		/* Check BODY for color contrast */
-		if (node.is(TagId.BODY)) {
-			checkColorContrast(lexer, node);
+		/* Checks all elements for script accessibility */
+		messages = null;
+		apply(Check.SCRIPT_KEYBOARD_ACCESSIBLE, lexer, node);
+
+		/* Checks all elements for the use of 'STYLE' attribute */
+		messages = styleAttributeMessages;
+		apply(Check.STYLE_ATTRIBUTE, lexer, node);
+
+		/* Checks to see if stylesheets are used to control the layout */
+		if (!styleSheetsPresent) {
+			apply(Check.STYLE_SHEETS, lexer, node);
+		}
+
+		final Check[] checks = TAG_CHECKS.get(node.getId());
+		if (checks != null) {
+			messages = elementMessages;
+			for (final Check check : checks) {
+				apply(check, lexer, node);
+			}
+		}
+
+		/* Recursively check all child nodes.
+		*/
+		for (Node content = node.content; content != null; content = content.next) {
+			accessibilityCheckNode(lexer, content);
 		}
-		/* Checks document for MetaData */
-		else if (node.is(TagId.HEAD)) {
+	}
+
+	private void apply(final Check check, final Lexer lexer, final Node node) {
+		if (disabled[check.ordinal()]) {
+			return;
+		}
+		final long start = System.nanoTime();
+		switch (check) {
+		case SCRIPT_KEYBOARD_ACCESSIBLE:
+			checkScriptKeyboardAccessible(lexer, node);
+			break;
+		case STYLE_ATTRIBUTE:
+			checkForStyleAttribute(lexer, node);
+			break;
+		case DOCTYPE:
+			checkDocType(lexer);
+			break;
+		case STYLE_SHEETS:
+			checkMissingStyleSheets(node);
+			break;
+		case COLOR_CONTRAST:
+			checkColorContrast(lexer, node);
+			break;
+		case META_DATA:
 			if (!checkMetaData(lexer, node, false)) {
 				metaDataPresent(lexer, node);
 			}
-		}
-		/* Check the ANCHOR tag */
-		else if (node.is(TagId.A)) {
+			break;
+		case ANCHOR:
 			checkAnchorAccess(lexer, node);
-		}
-		/* Check the IMAGE tag */
-		else if (node.is(TagId.IMG)) {
+			break;
+		case FLICKER:
 			checkFlicker(lexer, node);
+			break;
+		case COLOR_AVAILABLE:
 			checkColorAvailable(lexer, node);
+			break;
+		case IMAGE:
 			checkImage(lexer, node);
-		}
-		/* Checks MAP for client-side text links */
-		else if (node.is(TagId.MAP)) {
+			break;
+		case MAP_LINKS:
 			checkMapLinks(lexer, node);
-		}
-		/* Check the AREA tag */
-		else if (node.is(TagId.AREA)) {
+			break;
+		case AREA:
 			checkArea(lexer, node);
-		}
-		/* Check the APPLET tag */
-		else if (node.is(TagId.APPLET)) {
+			break;
+		case DEPRECATED:
 			checkDeprecated(lexer, node);
+			break;
+		case PROGRAMMATIC_OBJECTS:
 			programmaticObjects(lexer, node);
+			break;
+		case DYNAMIC_CONTENT:
 			dynamicContent(lexer, node);
+			break;
+		case ACCESSIBLE_COMPATIBLE:
 			accessibleCompatible(lexer, node);
-			checkFlicker(lexer, node);
-			checkColorAvailable(lexer, node);
+			break;
+		case APPLET:
 			checkApplet(lexer, node);
-		}
-		/* Check the OBJECT tag */
-		else if (node.is(TagId.OBJECT)) {
-			programmaticObjects(lexer, node);
-			dynamicContent(lexer, node);
-			accessibleCompatible(lexer, node);
-			checkFlicker(lexer, node);
-			checkColorAvailable(lexer, node);
+			break;
+		case OBJECT:
 			checkObject(lexer, node);
-		}
-		/* Check the FRAME tag */
-		else if (node.is(TagId.FRAME)) {
+			break;
+		case FRAME:
 			checkFrame(lexer, node);
-		}
-		/* Check the IFRAME tag */
-		else if (node.is(TagId.IFRAME)) {
+			break;
+		case IFRAME:
 			checkIFrame(lexer, node);
-		}
-		/* Check the SCRIPT tag */
-		else if (node.is(TagId.SCRIPT)) {
-			dynamicContent(lexer, node);
-			programmaticObjects(lexer, node);
-			accessibleCompatible(lexer, node);
-			checkFlicker(lexer, node);
-			checkColorAvailable(lexer, node);
+			break;
+		case SCRIPT:
 			checkScriptAcc(lexer, node);
-		}
-		/* Check the TABLE tag */
-		else if (node.is(TagId.TABLE)) {
-			checkColorContrast(lexer, node);
+			break;
+		case TABLE:
 			checkTable(lexer, node);
-		}
-		/* Check the PRE for ASCII art */
-		else if (node.is(TagId.PRE) || node.is(TagId.XMP)) {
+			break;
+		case ASCII_ART:
 			checkASCII(lexer, node);
-		}
-		/* Check the LABEL tag */
-		else if (node.is(TagId.LABEL)) {
+			break;
+		case LABEL:
 			checkLabel(lexer, node);
-		}
-		/* Check INPUT tag for validity */
-		else if (node.is(TagId.INPUT)) {
-			checkColorAvailable(lexer, node);
+			break;
+		case INPUT_LABEL:
 			checkInputLabel(lexer, node);
+			break;
+		case INPUT_ATTRIBUTES:
 			checkInputAttributes(lexer, node);
-		}
-		/* Checks FRAMESET element for NOFRAME section */
-		else if (node.is(TagId.FRAMESET)) {
+			break;
+		case FRAMESET:
 			checkFrameSet(lexer, node);
-		}
-		/* Checks for header elements for valid header increase */
-		else if (node.isHeader()) {
+			break;
+		case HEADER_NESTING:
 			checkHeaderNesting(lexer, node);
-		}
-		/* Checks P element to ensure that it is not a header */
-		else if (node.is(TagId.P)) {
+			break;
+		case PARAGRAPH_HEADER:
 			checkParagraphHeader(lexer, node);
-		}
-		/* Checks HTML element for valid 'LANG' */
-		else if (node.is(TagId.HTML)) {
+			break;
+		case HTML_LANG:
 			checkHTMLAccess(lexer, node);
-		}
-		/* Checks BLINK for any blinking text */
-		else if (node.is(TagId.BLINK)) {
+			break;
+		case BLINK:
 			checkBlink(lexer, node);
-		}
-		/* Checks MARQUEE for any MARQUEE text */
-		else if (node.is(TagId.MARQUEE)) {
+			break;
+		case MARQUEE:
 			checkMarquee(lexer, node);
-		}
-		/* Checks LINK for 'REL' attribute */
-		else if (node.is(TagId.LINK)) {
+			break;
+		case LINK:
 			checkLink(lexer, node);
-		}
-		/* Checks to see if STYLE is used */
-		else if (node.is(TagId.STYLE)) {
-			checkColorContrast(lexer, node);
+			break;
+		case STYLE:
 			checkStyle(lexer, node);
-		}
-		/* Checks to see if EMBED is used */
-		else if (node.is(TagId.EMBED)) {
+			break;
+		case EMBED:
 			checkEmbed(lexer, node);
-			programmaticObjects(lexer, node);
-			accessibleCompatible(lexer, node);
-			checkFlicker(lexer, node);
+			break;
+		case TH:
+			checkTH(lexer, node);
+			break;
+		case LIST_USAGE:
+			checkListUsage(lexer, node);
+			break;
 		}
-		/* Deprecated HTML if the following tags are found in the document */
-		else if (node.is(TagId.BASEFONT) || node.is(TagId.CENTER) || node.is(TagId.ISINDEX) || node.is(TagId.U)
-				|| node.is(TagId.FONT) || node.is(TagId.DIR) || node.is(TagId.S) || node.is(TagId.STRIKE)
-				|| node.is(TagId.MENU)) {
-			checkDeprecated(lexer, node);
+		times[check.ordinal()] += System.nanoTime() - start;
+	}
+
+	private void accessWarning(final Lexer lexer, final Node node, final AccessErrorCode code) {
+		if (messages == null) {
+			lexer.report.accessWarning(lexer, node, code);
 		}
-		/* Checks for 'ABBR' attribute if needed */
-		else if (node.is(TagId.TH)) {
-			checkTH(lexer, node);
+		else {
+			messages.add(new Message(code, node, false));
 		}
-		/* Ensures that lists are properly used */
-		else if (node.is(TagId.LI) || node.is(TagId.OL) || node.is(TagId.UL)) {
-			checkListUsage(lexer, node);
+	}
+
+	private void accessError(final Lexer lexer, final Node node, final AccessErrorCode code) {
+		if (messages == null) {
+			lexer.report.accessError(lexer, node, code);
 		}
-		/* Recursively check all child nodes.
-		*/
-		for (Node content = node.content; content != null; content = content.next) {
-			accessibilityCheckNode(lexer, content);
+		else {
+			messages.add(new Message(code, node, true));
+		}
+	}
+
+	private void displayHTMLTableAlgorithm(final Lexer lexer) {
+		if (messages == null) {
+			lexer.report.displayHTMLTableAlgorithm(lexer);
+		}
+		else {
+			messages.add(new Message(null, null, false));
 		}
 	}
 
+	private static void report(final Lexer lexer, final List<Message> messages) {
+		for (final Message message : messages) {
+			if (message.code == null) {
+				lexer.report.displayHTMLTableAlgorithm(lexer);
+			}
+			else if (message.error) {
+				lexer.report.accessError(lexer, message.node, message.code);
+			}
+			else {
+				lexer.report.accessWarning(lexer, message.node, message.code);
+			}
+		}
+	}
+
+	/* Returns the time spent in each check, in nanoseconds, by check name */
+	Map<String, Long> getCheckTimes() {
+		final Map<String, Long> checkTimes = new LinkedHashMap<String, Long>();
+		for (final Check check : Check.values()) {
+			checkTimes.put(check.getName(), Long.valueOf(times[check.ordinal()]));
+		}
+		return checkTimes;
+	}
+
 	protected static void check(final Lexer lexer) {
-		new Accessibility().runChecks(lexer);
+		final Accessibility accessibility = new Accessibility();
+		accessibility.runChecks(lexer);
+		lexer.accessibilityCheckTimes = accessibility.getCheckTimes();
 	}
 
 	private void runChecks(final Lexer lexer) {
 		/* Initialize */
 		level = lexer.configuration.getAccessibilityCheckLevel();
+		final String disabledChecks = lexer.configuration.getAccessibilitySkipChecks();
+		if (disabledChecks != null) {
+			for (final String name : disabledChecks.split("[\\s,]+")) {
+				final Check check = Check.forName(name);
+				if (check != null) {
+					disabled[check.ordinal()] = true;
+				}
+			}
+		}
 
 		/* Hello there, ladies and gentlemen... */
 		lexer.report.accessibilityHelloMessage(lexer);
 
-		/* Checks all elements for script accessibility */
-		checkScriptKeyboardAccessible(lexer, lexer.root);
+		/* Applies all the checks to each node in document */
+		try {
+			accessibilityCheckNode(lexer, lexer.root);
+		}
+		catch (final RuntimeException e) {
+			/* Don't lose the messages of the nodes checked so far */
+			messages = null;
+			report(lexer, styleAttributeMessages);
+			report(lexer, elementMessages);
+			throw e;
+		}
+		messages = null;
 
-		/* Checks entire document for the use of 'STYLE' attribute */
-		checkForStyleAttribute(lexer, lexer.root);
+		report(lexer, styleAttributeMessages);
 
 		/* Checks for '!DOCTYPE' */
-		checkDocType(lexer);
+		apply(Check.DOCTYPE, lexer, lexer.root);
 
-		/* Checks to see if stylesheets are used to control the layout */
-		if (level2Enabled() && ! checkMissingStyleSheets(lexer.root)) {
-			lexer.report.accessWarning(lexer, lexer.root, AccessErrorCode.STYLE_SHEET_CONTROL_PRESENTATION);
+		/* Reports if stylesheets are not used to control the layout */
+		if (level2Enabled() && !disabled[Check.STYLE_SHEETS.ordinal()] && !styleSheetsPresent) {
+			accessWarning(lexer, lexer.root, AccessErrorCode.STYLE_SHEET_CONTROL_PRESENTATION);
 		}
 
-		/* Check to see if any list elements are found within the document */
-		checkForListElements(lexer, lexer.root);
-
-		/* Recursively apply all remaining checks to
-		** each node in document.
-		*/
-		accessibilityCheckNode(lexer, lexer.root);
+		report(lexer, elementMessages);
 	}
 }
@@ -53,7 +53,6 @@
  */
 package org.w3c.tidy;
 
-import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -274,7 +273,7 @@ public final class AttrCheckImpl
                 // find \
                 if (c == '\\') {
                     backslashFound = true;
-                } else if (c > 0x7e || c <= 0x20 || c == '<' || c == '>') {
+                } else if (UriEncoder.isIllegal(c)) {
                     ++escapeCount;
                 }
             }
@@ -286,24 +285,7 @@ public final class AttrCheckImpl
 
             // non-ascii chars found, fix them
             if (lexer.configuration.isFixUri() && escapeCount > 0) {
-                final StringBuilder dest = new StringBuilder(p.length() + escapeCount * 2);
-
-                for (int i = 0; i < p.length(); ++i) {
-                    final char c = p.charAt(i);
-                    if (c > 0x7e || c <= 0x20 || c == '<' || c == '>') {
-                    	try {
-							for (final byte b : String.valueOf(c).getBytes("UTF-8")) {
-								dest.append(String.format("%%%02X", b));
-							}
-						} catch (final UnsupportedEncodingException e) {
-							throw new RuntimeException(e);
-						}
-                    } else {
-                        dest.append(c);
-                    }
-                }
-
-                attval.value = dest.toString();
+                attval.value = lexer.getUriEncoder().encode(p);
             }
             if (backslashFound) {
                 if (lexer.configuration.isFixBackslash() && !isJavascript) {
@@ -53,7 +53,7 @@
  */
 package org.w3c.tidy;
 
-import java.util.Hashtable;
+import java.util.HashMap;
 import java.util.Map;
 
 import static org.w3c.tidy.Versions.*;
@@ -70,7 +70,7 @@ public class AttributeTable
     /**
      * attribute table instance.
      */
-    private static AttributeTable defaultAttributeTable;
+    private static final AttributeTable defaultAttributeTable;
 
     /**
      * all the known attributes.
@@ -243,9 +243,36 @@ public class AttributeTable
     };
 
     /**
-     * Map containing all the installed attributes.
+     * Names of the known attributes, indexed by their position in ATTRS.
      */
-    private final Map<String, Attribute> attributeHashtable = new Hashtable<String, Attribute>();
+    private static final NameIndex ATTRIBUTE_NAMES;
+
+    static
+    {
+        final String[] names = new String[ATTRS.length];
+        for (int i = 0; i < ATTRS.length; i++)
+        {
+            names[i] = ATTRS[i].getName();
+        }
+        ATTRIBUTE_NAMES = new NameIndex(names);
+
+        // built eagerly, so that the default table can be safely shared by tidy instances running in other threads
+        defaultAttributeTable = new AttributeTable();
+        for (int i = 0; i < ATTRS.length; i++)
+        {
+            defaultAttributeTable.install(ATTRS[i]);
+        }
+    }
+
+    /**
+     * Installed attributes with a known name, indexed by their position in ATTRS.
+     */
+    private final Attribute[] knownAttributes = new Attribute[ATTRIBUTE_NAMES.size()];
+
+    /**
+     * Installed attributes with other names.
+     */
+    private final Map<String, Attribute> otherAttributes = new HashMap<String, Attribute>();
 
     /**
      * lookup an installed Attribute.
@@ -254,17 +281,61 @@ public class AttributeTable
      */
     public Attribute lookup(final String name)
     {
-        return attributeHashtable.get(name);
+        final int index = ATTRIBUTE_NAMES.indexOf(name);
+        if (index != -1)
+        {
+            return knownAttributes[index];
+        }
+        return otherAttributes.isEmpty() ? null : otherAttributes.get(name);
     }
 
     /**
-     * installs a new Attribute.
+     * lookup an installed Attribute by its name, held in a byte buffer. Known attributes are found without building a
+     * string.
+     * @param buf buffer
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return Attribute or null if the attribute is not found
+     */
+    Attribute lookup(final byte[] buf, final int start, final int end)
+    {
+        final int index = ATTRIBUTE_NAMES.indexOf(buf, start, end);
+        if (index != -1)
+        {
+            return knownAttributes[index];
+        }
+        return otherAttributes.isEmpty() ? null : otherAttributes.get(TidyUtils.getString(buf, start, end - start));
+    }
+
+    /**
+     * Returns the canonical instance of a known attribute name held in a byte buffer.
+     * @param buf buffer
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return attribute name, or null if the name is not the name of a known attribute
+     */
+    static String knownName(final byte[] buf, final int start, final int end)
+    {
+        final int index = ATTRIBUTE_NAMES.indexOf(buf, start, end);
+        return index == -1 ? null : ATTRIBUTE_NAMES.getName(index);
+    }
+
+    /**
+     * installs a new Attribute. The known attributes are installed once when the class is loaded, the table is not
+     * meant to be modified afterwards while documents are parsed.
      * @param attr Atribute
      * @return installed Attribute
      */
     public Attribute install(final Attribute attr)
     {
-        return attributeHashtable.put(attr.getName(), attr);
+        final int index = ATTRIBUTE_NAMES.indexOf(attr.getName());
+        if (index != -1)
+        {
+            final Attribute old = knownAttributes[index];
+            knownAttributes[index] = attr;
+            return old;
+        }
+        return otherAttributes.put(attr.getName(), attr);
     }
 
     /**
@@ -317,14 +388,6 @@ public class AttributeTable
      */
     public static AttributeTable getDefaultAttributeTable()
     {
-        if (defaultAttributeTable == null)
-        {
-            defaultAttributeTable = new AttributeTable();
-            for (int i = 0; i < ATTRS.length; i++)
-            {
-                defaultAttributeTable.install(ATTRS[i]);
-            }
-        }
         return defaultAttributeTable;
     }
 
@@ -0,0 +1,466 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * Multi-file mode of the command line interface. Arguments can be files, directories (all the html files they
+ * contain, recursively) or glob patterns such as <code>site/&#42;&#42;/&#42;.html</code>. Files are tidied in parallel
+ * with a {@link TidyBatch}, and written back to the input files, to an output directory (keeping paths relative to
+ * the directory or pattern base), or not at all when only messages are needed.
+ * @version $Revision$ ($Author$)
+ */
+final class BatchCommand
+{
+
+    /**
+     * Extensions of the files picked from directories.
+     */
+    private static final String[] HTML_EXTENSIONS = {".html", ".htm", ".xhtml"};
+
+    /**
+     * Tidy instance holding the command line configuration.
+     */
+    private final Tidy tidy;
+
+    /**
+     * Number of threads.
+     */
+    private final int threads;
+
+    /**
+     * Output directory, <code>null</code> if files are written back or not written.
+     */
+    private final File outputDirectory;
+
+    /**
+     * Input files.
+     */
+    private final List<File> files = new ArrayList<File>();
+
+    /**
+     * Paths of the input files relative to the directory or pattern they come from, used for the output files.
+     */
+    private final List<String> relativePaths = new ArrayList<String>();
+
+    /**
+     * Creates the command.
+     * @param tidy Tidy instance holding the command line configuration
+     * @param threads number of threads
+     * @param outputDirectory output directory, <code>null</code> if files are written back or not written
+     */
+    BatchCommand(final Tidy tidy, final int threads, final String outputDirectory)
+    {
+        this.tidy = tidy;
+        this.threads = threads;
+        this.outputDirectory = outputDirectory != null ? new File(outputDirectory) : null;
+    }
+
+    /**
+     * Is the argument something only the multi-file mode can handle?
+     * @param arg command line argument
+     * @return <code>true</code> if the argument is a directory or a glob pattern
+     */
+    static boolean isMultiFileArgument(final String arg)
+    {
+        return isGlob(arg) || new File(arg).isDirectory();
+    }
+
+    /**
+     * Does the string contain glob wildcards?
+     * @param s string
+     * @return <code>true</code> if <code>s</code> contains <code>*</code> or <code>?</code>
+     */
+    private static boolean isGlob(final String s)
+    {
+        return s.indexOf('*') != -1 || s.indexOf('?') != -1;
+    }
+
+    /**
+     * Adds the files named by a command line argument.
+     * @param arg file, directory or glob pattern
+     */
+    void addArgument(final String arg)
+    {
+        final String path = arg.replace(File.separatorChar, '/');
+        if (isGlob(path))
+        {
+            // base directory is made of the segments before the first wildcard
+            final int wildcard = Math.min(
+                path.indexOf('*') == -1 ? path.length() : path.indexOf('*'),
+                path.indexOf('?') == -1 ? path.length() : path.indexOf('?'));
+            final int slash = path.lastIndexOf('/', wildcard);
+            final File base = new File(slash == -1 ? "." : path.substring(0, slash + 1));
+            addFiles(base, "", globToPattern(path.substring(slash + 1)));
+        }
+        else
+        {
+            final File file = new File(arg);
+            if (file.isDirectory())
+            {
+                addFiles(file, "", null);
+            }
+            else
+            {
+                this.files.add(file);
+                this.relativePaths.add(file.getName());
+            }
+        }
+    }
+
+    /**
+     * Adds the files of a directory, recursively, in name order.
+     * @param directory directory
+     * @param prefix path of the directory relative to the base directory
+     * @param pattern pattern the relative paths must match, <code>null</code> to pick html files
+     */
+    private void addFiles(final File directory, final String prefix, final Pattern pattern)
+    {
+        final String[] names = directory.list();
+        if (names == null)
+        {
+            return;
+        }
+        Arrays.sort(names);
+        for (int i = 0; i < names.length; i++)
+        {
+            final File file = new File(directory, names[i]);
+            final String relativePath = prefix + names[i];
+            if (file.isDirectory())
+            {
+                addFiles(file, relativePath + "/", pattern);
+            }
+            else if (pattern != null ? pattern.matcher(relativePath).matches() : isHtml(names[i]))
+            {
+                this.files.add(file);
+                this.relativePaths.add(relativePath);
+            }
+        }
+    }
+
+    /**
+     * Has the file an html extension?
+     * @param name file name
+     * @return <code>true</code> if the file is an html file
+     */
+    private static boolean isHtml(final String name)
+    {
+        final String lowerCaseName = name.toLowerCase();
+        for (int i = 0; i < HTML_EXTENSIONS.length; i++)
+        {
+            if (lowerCaseName.endsWith(HTML_EXTENSIONS[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a glob pattern to a regular expression. <code>*</code> and <code>?</code> don't match across
+     * directories, <code>&#42;&#42;</code> matches any number of directories.
+     * @param glob glob pattern, using <code>/</code> as separator
+     * @return compiled pattern
+     */
+    static Pattern globToPattern(final String glob)
+    {
+        final StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++)
+        {
+            final char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*')
+            {
+                i++;
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '/')
+                {
+                    i++;
+                    regex.append("(.*/)?");
+                }
+                else
+                {
+                    regex.append(".*");
+                }
+            }
+            else if (c == '*')
+            {
+                regex.append("[^/]*");
+            }
+            else if (c == '?')
+            {
+                regex.append("[^/]");
+            }
+            else if ("\\.[]{}()+-^$|".indexOf(c) != -1)
+            {
+                regex.append('\\').append(c);
+            }
+            else
+            {
+                regex.append(c);
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Checks that no two input files are written to the same file of the output directory, which happens with files
+     * of the same name given as arguments or with overlapping directories.
+     * @param errout error output
+     * @param report report used for the command line messages
+     * @return <code>true</code> if every input file has its own output file
+     */
+    private boolean checkOutputFiles(final PrintWriter errout, final Report report)
+    {
+        boolean unique = true;
+        final Map<File, File> inputsByOutput = new HashMap<File, File>();
+        for (int i = 0; i < this.files.size(); i++)
+        {
+            final File output = new File(this.outputDirectory, this.relativePaths.get(i)).getAbsoluteFile();
+            final File other = inputsByOutput.put(output, this.files.get(i));
+            if (other != null)
+            {
+                report.duplicateOutputFile(errout, this.files.get(i).getPath(), other.getPath(), output.getPath());
+                unique = false;
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Tidies the files, printing their messages in argument order as they complete, followed by a summary.
+     * @param errout error output
+     * @param report report used for the command line messages
+     * @return run summary, or <code>null</code> if nothing was tidied because input files would have been written to
+     * the same output file
+     */
+    TidyBatch.Summary run(final PrintWriter errout, final Report report)
+    {
+        if (this.outputDirectory != null && !checkOutputFiles(errout, report))
+        {
+            errout.flush();
+            return null;
+        }
+
+        final Configuration configuration = this.tidy.getConfiguration();
+        final boolean writeback = configuration.isWriteback();
+
+        final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>(this.files.size());
+        final Map<TidyBatch.Input, File> outputs = new IdentityHashMap<TidyBatch.Input, File>();
+        for (int i = 0; i < this.files.size(); i++)
+        {
+            final File file = this.files.get(i);
+            final TidyBatch.Input input = writeback ? readFully(file) : TidyBatch.Input.of(file);
+            inputs.add(input);
+            if (this.outputDirectory != null)
+            {
+                outputs.put(input, new File(this.outputDirectory, this.relativePaths.get(i)));
+            }
+            else if (writeback)
+            {
+                outputs.put(input, file);
+            }
+        }
+
+        final TidyBatch batch = new TidyBatch(new TidyEngine(this.tidy), this.threads);
+        if (!outputs.isEmpty())
+        {
+            batch.setOutput(new TidyBatch.Output()
+            {
+
+                public OutputStream open(final TidyBatch.Input input) throws IOException
+                {
+                    return new FileOutput(outputs.get(input));
+                }
+            });
+        }
+
+        final TidyBatch.Summary summary;
+        try
+        {
+            summary = batch.run(inputs, new TidyBatch.ResultListener()
+            {
+
+                public void resultReceived(final TidyBatch.Result result)
+                {
+                    errout.print(result.getMessages());
+                    final Throwable failure = result.getFailure();
+                    if (failure instanceof IOException)
+                    {
+                        report.unknownFile(errout, result.getInput().getName());
+                    }
+                    else if (failure != null)
+                    {
+                        throw new RuntimeException(failure);
+                    }
+                }
+            });
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        if (!configuration.isQuiet())
+        {
+            report.batchSummary(errout, summary);
+        }
+        errout.flush();
+        return summary;
+    }
+
+    /**
+     * Returns an input which reads the whole file before parsing, so that it can be overwritten by the output.
+     * @param file input file
+     * @return input
+     */
+    private static TidyBatch.Input readFully(final File file)
+    {
+        return new TidyBatch.Input(file.getPath())
+        {
+
+            @Override
+            public long getSize()
+            {
+                return file.length();
+            }
+
+            @Override
+            protected void parse(final Tidy session, final OutputStream out) throws IOException
+            {
+                final ByteArrayOutputStream content = new ByteArrayOutputStream((int) file.length());
+                final InputStream in = new FileInputStream(file);
+                try
+                {
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1)
+                    {
+                        content.write(buffer, 0, read);
+                    }
+                }
+                finally
+                {
+                    in.close();
+                }
+                session.parse(new ByteArrayInputStream(content.toByteArray()), out);
+            }
+        };
+    }
+
+    /**
+     * Output collected in memory and written to its file when closed, so that a file is not truncated before it has
+     * been read. Nothing is written when tidy produced no output, for example because of errors or because the input
+     * couldn't be read: in that case an existing file is left untouched.
+     */
+    private static final class FileOutput extends ByteArrayOutputStream
+    {
+
+        /**
+         * destination file.
+         */
+        private final File file;
+
+        /**
+         * Creates the output.
+         * @param file destination file
+         */
+        FileOutput(final File file)
+        {
+            this.file = file;
+        }
+
+        /**
+         * @see java.io.ByteArrayOutputStream#close()
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if (size() == 0)
+            {
+                return;
+            }
+            final File parent = this.file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+            {
+                throw new IOException("Can't create directory " + parent);
+            }
+            final OutputStream out = new FileOutputStream(this.file);
+            try
+            {
+                writeTo(out);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+    }
+}
@@ -1685,60 +1685,67 @@ public class Clean
      * simplifies <b><b>... </b> ... </b> etc.
      * @param node root Node
      */
-    public void nestedEmphasis(Node node)
+    public void nestedEmphasis(final Node node)
     {
-        final Node[] o = new Node[1];
-        Node next;
+        new CleanPipeline().add(nestedEmphasisHandler()).run(node);
+    }
 
-        while (node != null)
+    /**
+     * Returns the handler performing {@link #nestedEmphasis(Node)} in a pipeline.
+     * @return handler
+     */
+    CleanPipeline.Handler nestedEmphasisHandler()
+    {
+        return new CleanPipeline.Handler()
         {
-            next = node.next;
-
-            if ((node.is(TagId.B) || node.is(TagId.I))
-                && node.parent != null
-                && node.parent.tag == node.tag)
-            {
-                // strip redundant inner element
-                o[0] = next;
-                discardContainer(node, o);
-                next = o[0];
-                node = next;
-                continue;
-            }
 
-            if (node.content != null)
+            @Override
+            Node enter(final Node node)
             {
-                nestedEmphasis(node.content);
+                if ((node.is(TagId.B) || node.is(TagId.I)) && node.parent != null && node.parent.tag == node.tag)
+                {
+                    // strip redundant inner element
+                    final Node[] o = new Node[]{node.next};
+                    discardContainer(node, o);
+                    return o[0];
+                }
+                return node;
             }
-
-            node = next;
-        }
+        };
     }
 
     /**
      * Replace i by em and b by strong.
      * @param node root Node
      */
-    public void emFromI(Node node)
+    public void emFromI(final Node node)
     {
-        while (node != null)
+        new CleanPipeline().add(emFromIHandler()).run(node);
+    }
+
+    /**
+     * Returns the handler performing {@link #emFromI(Node)} in a pipeline. Elements are renamed when they are left, so
+     * that handlers looking at the parent of a node still see the original name.
+     * @return handler
+     */
+    CleanPipeline.Handler emFromIHandler()
+    {
+        return new CleanPipeline.Handler()
         {
-            if (node.is(TagId.I))
-            {
-            	renameElem(node, TagId.EM);
-            }
-            else if (node.is(TagId.B))
-            {
-            	renameElem(node, TagId.STRONG);
-            }
 
-            if (node.content != null)
+            @Override
+            void leave(final Node node)
             {
-                emFromI(node.content);
+                if (node.is(TagId.I))
+                {
+                    renameElem(node, TagId.EM);
+                }
+                else if (node.is(TagId.B))
+                {
+                    renameElem(node, TagId.STRONG);
+                }
             }
-
-            node = node.next;
-        }
+        };
     }
 
     /**
@@ -1746,27 +1753,41 @@ public class Clean
      * implicit li. This is recursively replaced by an implicit blockquote.
      * @param node root Node
      */
-    public void list2BQ(Node node)
+    public void list2BQ(final Node node)
     {
-        while (node != null)
+        new CleanPipeline().add(list2BQHandler(null)).run(node);
+    }
+
+    /**
+     * Returns the handler performing {@link #list2BQ(Node)} in a pipeline.
+     * @param implicitBlockquotes if not null, set to true when an implicit blockquote is found, as only those need
+     * {@link #bQ2Div(Node)}
+     * @return handler
+     */
+    CleanPipeline.Handler list2BQHandler(final boolean[] implicitBlockquotes)
+    {
+        return new CleanPipeline.Handler()
         {
-            if (node.content != null)
-            {
-                list2BQ(node.content);
-            }
 
-            if (node.tag != null
-                && node.tag.getParser() == ParserImpl.LIST
-                && node.hasOneChild()
-                && node.content.implicit)
+            @Override
+            void leave(final Node node)
             {
-                stripOnlyChild(node);
-                renameElem(node, TagId.BLOCKQUOTE);
-                node.implicit = true;
-            }
+                if (node.tag != null
+                    && node.tag.getParser() == ParserImpl.LIST
+                    && node.hasOneChild()
+                    && node.content.implicit)
+                {
+                    stripOnlyChild(node);
+                    renameElem(node, TagId.BLOCKQUOTE);
+                    node.implicit = true;
+                }
 
-            node = node.next;
-        }
+                if (implicitBlockquotes != null && node.implicit && node.is(TagId.BLOCKQUOTE))
+                {
+                    implicitBlockquotes[0] = true;
+                }
+            }
+        };
     }
 
     /**
@@ -1774,36 +1795,64 @@ public class Clean
      * the indent set to match the nesting depth.
      * @param node root Node
      */
-    public void bQ2Div(Node node)
+    public void bQ2Div(final Node node)
     {
-        while (node != null)
+        new CleanPipeline().add(bQ2DivHandler()).run(node);
+    }
+
+    /**
+     * Returns the handler performing {@link #bQ2Div(Node)} in a pipeline.
+     * @return handler
+     */
+    CleanPipeline.Handler bQ2DivHandler()
+    {
+        return new CleanPipeline.Handler()
         {
-            if (node.is(TagId.BLOCKQUOTE) && node.implicit)
-            {
-                int indent = 1;
 
-                while (node.hasOneChild() && node.content.is(TagId.BLOCKQUOTE) && node.implicit)
+            @Override
+            Node enter(final Node node)
+            {
+                if (node.is(TagId.BLOCKQUOTE) && node.implicit)
                 {
-                    ++indent;
-                    stripOnlyChild(node);
-                }
+                    int indent = 1;
 
-                if (node.content != null)
-                {
-                    bQ2Div(node.content);
-                }
+                    while (node.hasOneChild() && node.content.is(TagId.BLOCKQUOTE) && node.implicit)
+                    {
+                        ++indent;
+                        stripOnlyChild(node);
+                    }
 
-                final String indentBuf = "margin-left: " + 2 * indent + "em";
+                    final String indentBuf = "margin-left: " + 2 * indent + "em";
 
-                renameElem(node, TagId.DIV);
-                addStyleProperty(node, indentBuf);
-            }
-            else if (node.content != null)
-            {
-                bQ2Div(node.content);
+                    renameElem(node, TagId.DIV);
+                    addStyleProperty(node, indentBuf);
+                }
+                return node;
             }
+        };
+    }
 
-            node = node.next;
+    /**
+     * Runs {@link #nestedEmphasis(Node)}, {@link #list2BQ(Node)}, {@link #bQ2Div(Node)} and, if requested,
+     * {@link #emFromI(Node)} on a document. The first two and the last one share a single traversal; bQ2Div needs the
+     * blockquotes list2BQ creates, so it gets a second one, only if there are implicit blockquotes.
+     * @param doc document
+     * @param logicalEmphasis replace i by em and b by strong
+     */
+    void cleanStructure(final Node doc, final boolean logicalEmphasis)
+    {
+        final boolean[] implicitBlockquotes = new boolean[1];
+        final CleanPipeline pipeline = new CleanPipeline();
+        pipeline.add(nestedEmphasisHandler()).add(list2BQHandler(implicitBlockquotes));
+        if (logicalEmphasis)
+        {
+            pipeline.add(emFromIHandler());
+        }
+        pipeline.run(doc);
+
+        if (implicitBlockquotes[0])
+        {
+            bQ2Div(doc);
         }
     }
 
@@ -2105,7 +2154,7 @@ public class Clean
                 return false;
             }
 
-            if (node.end - node.start == 1 && lexer.lexbuf[node.start] == ' ')
+            if (node.end - node.start == 1 && node.textarray[node.start] == ' ')
             {
                 return true;
             }
@@ -2114,7 +2163,7 @@ public class Clean
             {
                 final int[] c = new int[1];
 
-                PPrint.getUTF8(lexer.lexbuf, node.start, c);
+                PPrint.getUTF8(node.textarray, node.start, c);
 
                 if (c[0] == 160)
                 {
@@ -2440,46 +2489,56 @@ public class Clean
       'xml:lang' and 'lang' are desired, for XHTML 1.1 only 'xml:lang'
       is desired and for HTML 4.01 only 'lang' is desired.
     */
-    protected static void fixLanguageInformation(final Lexer lexer, Node node,
+    protected static void fixLanguageInformation(final Lexer lexer, final Node node,
     		final boolean wantXmlLang, final boolean wantLang) {
-        while (node != null) {
-            final Node next = node.next;
-            /* todo: report modifications made here to the report system */
-            if (node.isElement()) {
-                final AttVal lang = node.getAttrById(AttrId.LANG);
-                final AttVal xmlLang = node.getAttrById(AttrId.XML_LANG);
-
-                if (lang != null && xmlLang != null) {
-                    /*
-                      todo: check whether both attributes are in sync,
-                      here or elsewhere, where elsewhere is probably
-                      preferable.
-                      AD - March 2005: not mandatory according the standards.
-                    */
-                }
-                else if (lang != null && wantXmlLang) {
-                	if ((node.getAttributeVersions(AttrId.XML_LANG) & lexer.versionEmitted) != 0) {
-                        node.repairAttrValue("xml:lang", lang.value);
+        new CleanPipeline().add(fixLanguageInformationHandler(lexer, wantXmlLang, wantLang)).run(node);
+    }
+
+    /**
+     * Returns the handler performing {@link #fixLanguageInformation(Lexer, Node, boolean, boolean)} in a pipeline.
+     * @param lexer Lexer
+     * @param wantXmlLang add xml:lang where lang is present
+     * @param wantLang add lang where xml:lang is present
+     * @return handler
+     */
+    static CleanPipeline.Handler fixLanguageInformationHandler(final Lexer lexer,
+    		final boolean wantXmlLang, final boolean wantLang) {
+        return new CleanPipeline.Handler() {
+            @Override
+            Node enter(final Node node) {
+                /* todo: report modifications made here to the report system */
+                if (node.isElement()) {
+                    final AttVal lang = node.getAttrById(AttrId.LANG);
+                    final AttVal xmlLang = node.getAttrById(AttrId.XML_LANG);
+
+                    if (lang != null && xmlLang != null) {
+                        /*
+                          todo: check whether both attributes are in sync,
+                          here or elsewhere, where elsewhere is probably
+                          preferable.
+                          AD - March 2005: not mandatory according the standards.
+                        */
                     }
-                }
-                else if (xmlLang != null && wantLang) {
-                	if ((node.getAttributeVersions(AttrId.LANG) & lexer.versionEmitted) != 0) {
-                		node.repairAttrValue("lang", xmlLang.value);
+                    else if (lang != null && wantXmlLang) {
+                    	if ((node.getAttributeVersions(AttrId.XML_LANG) & lexer.versionEmitted) != 0) {
+                            node.repairAttrValue("xml:lang", lang.value);
+                        }
+                    }
+                    else if (xmlLang != null && wantLang) {
+                    	if ((node.getAttributeVersions(AttrId.LANG) & lexer.versionEmitted) != 0) {
+                    		node.repairAttrValue("lang", xmlLang.value);
+                        }
+                    }
+                    if (lang != null && !wantLang) {
+                    	node.removeAttribute(lang);
+                    }
+                    if (xmlLang != null && !wantXmlLang) {
+                    	node.removeAttribute(xmlLang);
                     }
                 }
-                if (lang != null && !wantLang) {
-                	node.removeAttribute(lang);
-                }
-                if (xmlLang != null && !wantXmlLang) {
-                	node.removeAttribute(xmlLang);
-                }
-            }
-
-            if (node.content != null) {
-                fixLanguageInformation(lexer, node.content, wantXmlLang, wantLang);
+                return node;
             }
-            node = next;
-        }
+        };
     }
     
     /*
@@ -2501,87 +2560,98 @@ public class Clean
         }
     }
     
-    protected void fixAnchors(final Lexer lexer, Node node, final boolean wantName, final boolean wantId) {
-        Node next;
-
-        while (node != null) {
-            next = node.next;
-
-            if (node.isAnchorElement()) {
-                final AttVal name = node.getAttrById(AttrId.NAME);
-                final AttVal id = node.getAttrById(AttrId.ID);
-                final boolean hadName = name != null;
-                final boolean hadId = id != null;
-                boolean IdEmitted = false;
-                boolean NameEmitted = false;
-
-                /* todo: how are empty name/id attributes handled? */
-
-                if (name != null && id != null) {
-                	final boolean NameHasValue = name.hasValue();
-                	final boolean IdHasValue = id.hasValue();
-                    if (NameHasValue != IdHasValue || NameHasValue && IdHasValue &&
-                        !name.value.equals(id.value)) {
-                        lexer.report.attrError(lexer, node, name, ErrorCode.ID_NAME_MISMATCH);
-                    }
-                } else if (name != null && wantId) {
-                    if ((node.getAttributeVersions(AttrId.ID) & lexer.versionEmitted) != 0) {
-                        if (TidyUtils.isValidHTMLID(name.value)) {
-                            node.repairAttrValue("id", name.value);
-                            IdEmitted = true;
-                        } else {
-                            lexer.report.attrError(lexer, node, name, ErrorCode.INVALID_XML_ID);
+    protected void fixAnchors(final Lexer lexer, final Node node, final boolean wantName, final boolean wantId) {
+        new CleanPipeline().add(fixAnchorsHandler(lexer, wantName, wantId)).run(node);
+    }
+
+    /**
+     * Returns the handler performing {@link #fixAnchors(Lexer, Node, boolean, boolean)} in a pipeline.
+     * @param lexer Lexer
+     * @param wantName anchors should have a name attribute
+     * @param wantId anchors should have an id attribute
+     * @return handler
+     */
+    CleanPipeline.Handler fixAnchorsHandler(final Lexer lexer, final boolean wantName, final boolean wantId) {
+        return new CleanPipeline.Handler() {
+            @Override
+            Node enter(final Node node) {
+                if (node.isAnchorElement()) {
+                    final AttVal name = node.getAttrById(AttrId.NAME);
+                    final AttVal id = node.getAttrById(AttrId.ID);
+                    final boolean hadName = name != null;
+                    final boolean hadId = id != null;
+                    boolean IdEmitted = false;
+                    boolean NameEmitted = false;
+
+                    /* todo: how are empty name/id attributes handled? */
+
+                    if (name != null && id != null) {
+                    	final boolean NameHasValue = name.hasValue();
+                    	final boolean IdHasValue = id.hasValue();
+                        if (NameHasValue != IdHasValue || NameHasValue && IdHasValue &&
+                            !name.value.equals(id.value)) {
+                            lexer.report.attrError(lexer, node, name, ErrorCode.ID_NAME_MISMATCH);
+                        }
+                    } else if (name != null && wantId) {
+                        if ((node.getAttributeVersions(AttrId.ID) & lexer.versionEmitted) != 0) {
+                            if (TidyUtils.isValidHTMLID(name.value)) {
+                                node.repairAttrValue("id", name.value);
+                                IdEmitted = true;
+                            } else {
+                                lexer.report.attrError(lexer, node, name, ErrorCode.INVALID_XML_ID);
+                            }
+                         }
+                    } else if (id != null && wantName) {
+                        if ((node.getAttributeVersions(AttrId.NAME) & lexer.versionEmitted) != 0) {
+                            /* todo: do not assume id is valid */
+                            node.repairAttrValue("name", id.value);
+                            NameEmitted = true;
                         }
-                     }
-                } else if (id != null && wantName) {
-                    if ((node.getAttributeVersions(AttrId.NAME) & lexer.versionEmitted) != 0) {
-                        /* todo: do not assume id is valid */
-                        node.repairAttrValue("name", id.value);
-                        NameEmitted = true;
                     }
-                }
 
-                if (id != null && !wantId
-                    /* make sure that Name has been emitted if requested */
-                    && (hadName || !wantName || NameEmitted)) {
-                    node.removeAttribute(id);
-                }
-                if (name != null && !wantName
-                    /* make sure that Id has been emitted if requested */
-                    && (hadId || !wantId || IdEmitted)) {
-                	node.removeAttribute(name);
-                }
-                if (node.getAttrById(AttrId.NAME) == null &&
-                    node.getAttrById(AttrId.ID) == null) {
-                    tt.removeAnchorByNode(node);
+                    if (id != null && !wantId
+                        /* make sure that Name has been emitted if requested */
+                        && (hadName || !wantName || NameEmitted)) {
+                        node.removeAttribute(id);
+                    }
+                    if (name != null && !wantName
+                        /* make sure that Id has been emitted if requested */
+                        && (hadId || !wantId || IdEmitted)) {
+                    	node.removeAttribute(name);
+                    }
+                    if (node.getAttrById(AttrId.NAME) == null &&
+                        node.getAttrById(AttrId.ID) == null) {
+                        tt.removeAnchorByNode(node);
+                    }
                 }
+                return node;
             }
-            if (node.content != null) {
-                fixAnchors(lexer, node.content, wantName, wantId);
-            }
-            node = next;
-        }
+        };
     }
     
-    protected static void wbrToSpace(final Lexer lexer, Node node) {
-        Node next;
-
-        while (node != null) {
-            next = node.next;
-
-            if (node.is(TagId.WBR)) {
-                final Node text = lexer.newLiteralTextNode(" ");
-                node.insertNodeAfterElement(text);
-                node.removeNode();
-                node = next;
-                continue;
-            }
+    protected static void wbrToSpace(final Lexer lexer, final Node node) {
+        new CleanPipeline().add(wbrToSpaceHandler(lexer)).run(node);
+    }
 
-            if (node.content != null) {
-                wbrToSpace(lexer, node.content);
+    /**
+     * Returns the handler performing {@link #wbrToSpace(Lexer, Node)} in a pipeline.
+     * @param lexer Lexer
+     * @return handler
+     */
+    static CleanPipeline.Handler wbrToSpaceHandler(final Lexer lexer) {
+        return new CleanPipeline.Handler() {
+            @Override
+            Node enter(final Node node) {
+                if (node.is(TagId.WBR)) {
+                    final Node next = node.next;
+                    final Node text = lexer.newLiteralTextNode(" ");
+                    node.insertNodeAfterElement(text);
+                    node.removeNode();
+                    return next;
+                }
+                return node;
             }
-            node = next;
-        }
+        };
     }
 
 	public static void verifyHTTPEquiv(final Lexer lexer, final Node head) {
@@ -0,0 +1,165 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies several node transformations in a single depth-first traversal of a document. Each transformation
+ * registers as a {@link Handler}; for every node the handlers are called in their registration order, so the result is
+ * the same as running the transformations one after the other, as long as a transformation only depends on the part
+ * of the tree the previous ones have already processed: the node itself and its ancestors when entering a node, its
+ * whole subtree when leaving it.
+ * @version $Revision$ ($Author$)
+ */
+final class CleanPipeline
+{
+
+    /**
+     * A node transformation.
+     */
+    abstract static class Handler
+    {
+
+        /**
+         * Called when the traversal reaches a node, before its content.
+         * @param node node
+         * @return <code>node</code> to go on with its content, or the node the traversal must continue with (at the
+         * same level, possibly <code>null</code>) if the handler removed or replaced <code>node</code>; in this case
+         * the following handlers are not called for <code>node</code>
+         */
+        Node enter(final Node node)
+        {
+            return node;
+        }
+
+        /**
+         * Called after the content of a node has been traversed.
+         * @param node node
+         */
+        void leave(final Node node)
+        {
+            // nothing to do by default
+        }
+    }
+
+    /**
+     * registered handlers.
+     */
+    private final List<Handler> handlers = new ArrayList<Handler>();
+
+    /**
+     * Registers a handler, called after the handlers already registered.
+     * @param handler handler
+     * @return this pipeline
+     */
+    CleanPipeline add(final Handler handler)
+    {
+        handlers.add(handler);
+        return this;
+    }
+
+    /**
+     * Returns true if no handler has been registered.
+     * @return true if the pipeline is empty
+     */
+    boolean isEmpty()
+    {
+        return handlers.isEmpty();
+    }
+
+    /**
+     * Runs all the handlers on a node, its following siblings and all their descendants.
+     * @param node first node
+     */
+    void run(final Node node)
+    {
+        if (!handlers.isEmpty())
+        {
+            traverse(node, handlers.toArray(new Handler[handlers.size()]));
+        }
+    }
+
+    private static void traverse(Node node, final Handler[] all)
+    {
+        while (node != null)
+        {
+            final Node next = node.next;
+
+            Node replacement = node;
+            for (int i = 0; i < all.length && replacement == node; i++)
+            {
+                replacement = all[i].enter(node);
+            }
+            if (replacement != node)
+            {
+                node = replacement;
+                continue;
+            }
+
+            if (node.content != null)
+            {
+                traverse(node.content, all);
+            }
+
+            for (int i = 0; i < all.length; i++)
+            {
+                all[i].leave(node);
+            }
+
+            node = next;
+        }
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.DOMException;
+
+/**
+ * Read-only copy of a document, stored in parallel arrays instead of linked Node objects. Nodes are numbered breadth
+ * first, so the children of a node have consecutive numbers and can be accessed by position in constant time; the
+ * document itself is node 0. Names and values are kept in a pool of distinct strings. The DOM views of the nodes
+ * are created on first access and then reused, so that the same node is always represented by the same object.
+ * @version $Revision$ ($Author$)
+ */
+final class CompactDOM
+{
+
+    /**
+     * marks a missing node or string.
+     */
+    static final int NONE = -1;
+
+    /**
+     * DOM node type of each node.
+     */
+    final short[] types;
+
+    /**
+     * parent of each node, NONE for the document.
+     */
+    final int[] parents;
+
+    /**
+     * first child of each node.
+     */
+    final int[] firstChildren;
+
+    /**
+     * number of children of each node.
+     */
+    final int[] childCounts;
+
+    /**
+     * name of each node in the string pool: element name, doctype name, processing instruction target.
+     */
+    final int[] names;
+
+    /**
+     * value of each node in the string pool: text, comment, processing instruction data.
+     */
+    final int[] values;
+
+    /**
+     * first attribute of each node.
+     */
+    final int[] firstAttributes;
+
+    /**
+     * number of attributes of each node.
+     */
+    final int[] attributeCounts;
+
+    /**
+     * name of each attribute in the string pool.
+     */
+    final int[] attributeNames;
+
+    /**
+     * value of each attribute in the string pool.
+     */
+    final int[] attributeValues;
+
+    /**
+     * pool of distinct strings.
+     */
+    final String[] strings;
+
+    /**
+     * DOM views of the nodes, created on first access.
+     */
+    private final org.w3c.dom.Node[] views;
+
+    /**
+     * DOM views of the attributes, created on first access.
+     */
+    private org.w3c.dom.Attr[] attributeViews;
+
+    /**
+     * Copies a document.
+     * @param root root node of a parsed document
+     */
+    CompactDOM(final Node root)
+    {
+        int nodeCount = 1;
+        int attributeCount = 0;
+        Node node = root.content;
+        while (node != null)
+        {
+            if (isSupported(node))
+            {
+                nodeCount++;
+                attributeCount += countAttributes(node);
+            }
+            node = nextInDocument(root, node, isSupported(node));
+        }
+
+        types = new short[nodeCount];
+        parents = new int[nodeCount];
+        firstChildren = new int[nodeCount];
+        childCounts = new int[nodeCount];
+        names = new int[nodeCount];
+        values = new int[nodeCount];
+        firstAttributes = new int[nodeCount];
+        attributeCounts = new int[nodeCount];
+        attributeNames = new int[attributeCount];
+        attributeValues = new int[attributeCount];
+        views = new org.w3c.dom.Node[nodeCount];
+
+        final Map<String, Integer> pool = new HashMap<String, Integer>();
+        final List<String> poolStrings = new ArrayList<String>();
+
+        // breadth first numbering: the queue is the array of source nodes itself
+        final Node[] sources = new Node[nodeCount];
+        sources[0] = root;
+        types[0] = org.w3c.dom.Node.DOCUMENT_NODE;
+        parents[0] = NONE;
+        names[0] = NONE;
+        values[0] = NONE;
+        int added = 1;
+        int attributesAdded = 0;
+        for (int i = 0; i < nodeCount; i++)
+        {
+            firstChildren[i] = added;
+            for (Node child = sources[i].content; child != null; child = child.next)
+            {
+                if (!isSupported(child))
+                {
+                    continue;
+                }
+                sources[added] = child;
+                parents[added] = i;
+                firstAttributes[added] = attributesAdded;
+                attributesAdded = copy(child, added, attributesAdded, pool, poolStrings);
+                added++;
+            }
+            childCounts[i] = added - firstChildren[i];
+            sources[i] = null;
+        }
+        strings = poolStrings.toArray(new String[poolStrings.size()]);
+    }
+
+    /**
+     * Copies the name, value and attributes of a node.
+     * @param node source node
+     * @param index number of the node
+     * @param attributeIndex number of the first attribute of the node
+     * @param pool string pool being built
+     * @param poolStrings strings of the pool, by number
+     * @return number of the first attribute of the next node
+     */
+    private int copy(final Node node, final int index, final int attributeIndex, final Map<String, Integer> pool,
+        final List<String> poolStrings)
+    {
+        int name = NONE;
+        int value = NONE;
+        short type;
+        switch (node.type)
+        {
+            case StartTag :
+            case StartEndTag :
+                type = org.w3c.dom.Node.ELEMENT_NODE;
+                name = intern(node.element, pool, poolStrings);
+                break;
+            case TextNode :
+                type = org.w3c.dom.Node.TEXT_NODE;
+                value = intern(getText(node), pool, poolStrings);
+                break;
+            case CDATATag :
+                type = org.w3c.dom.Node.CDATA_SECTION_NODE;
+                value = intern(getText(node), pool, poolStrings);
+                break;
+            case CommentTag :
+                type = org.w3c.dom.Node.COMMENT_NODE;
+                value = intern(getText(node), pool, poolStrings);
+                break;
+            case ProcInsTag :
+                type = org.w3c.dom.Node.PROCESSING_INSTRUCTION_NODE;
+                String text = getText(node);
+                if (text.endsWith("?"))
+                {
+                    text = text.substring(0, text.length() - 1);
+                }
+                int split = 0;
+                while (split < text.length() && !Character.isWhitespace(text.charAt(split)))
+                {
+                    split++;
+                }
+                name = intern(text.substring(0, split), pool, poolStrings);
+                value = intern(text.substring(split).trim(), pool, poolStrings);
+                break;
+            default :
+                type = org.w3c.dom.Node.DOCUMENT_TYPE_NODE;
+                name = intern(node.element != null ? node.element : getText(node), pool, poolStrings);
+                break;
+        }
+        types[index] = type;
+        names[index] = name;
+        values[index] = value;
+
+        int count = 0;
+        for (AttVal attr = node.attributes; attr != null; attr = attr.next)
+        {
+            if (attr.attribute != null)
+            {
+                attributeNames[attributeIndex + count] = intern(attr.attribute, pool, poolStrings);
+                attributeValues[attributeIndex + count] = intern(
+                    attr.value == null ? attr.attribute : attr.value,
+                    pool,
+                    poolStrings);
+                count++;
+            }
+        }
+        attributeCounts[index] = count;
+        return attributeIndex + count;
+    }
+
+    /**
+     * Returns the number of a string in the pool, adding it if needed.
+     * @param s string
+     * @param pool string pool being built
+     * @param poolStrings strings of the pool, by number
+     * @return number of the string
+     */
+    private static int intern(final String s, final Map<String, Integer> pool, final List<String> poolStrings)
+    {
+        final Integer known = pool.get(s);
+        if (known != null)
+        {
+            return known.intValue();
+        }
+        pool.put(s, Integer.valueOf(poolStrings.size()));
+        poolStrings.add(s);
+        return poolStrings.size() - 1;
+    }
+
+    private static String getText(final Node node)
+    {
+        return TidyUtils.getString(node.textarray, node.start, node.end - node.start);
+    }
+
+    /**
+     * Returns true if the node has a DOM counterpart. Marked sections, server side scripts and the xml declaration
+     * are left out.
+     * @param node node
+     * @return true if the node is copied
+     */
+    private static boolean isSupported(final Node node)
+    {
+        switch (node.type)
+        {
+            case StartTag :
+            case StartEndTag :
+            case TextNode :
+            case CDATATag :
+            case CommentTag :
+            case ProcInsTag :
+            case DocTypeTag :
+                return true;
+            default :
+                return false;
+        }
+    }
+
+    private static int countAttributes(final Node node)
+    {
+        int count = 0;
+        for (AttVal attr = node.attributes; attr != null; attr = attr.next)
+        {
+            if (attr.attribute != null)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the node following a node in document order, without recursion.
+     * @param root root of the traversal
+     * @param node current node
+     * @param descend false to skip the content of the current node
+     * @return next node, null at the end of the document
+     */
+    private static Node nextInDocument(final Node root, Node node, final boolean descend)
+    {
+        if (descend && node.content != null)
+        {
+            return node.content;
+        }
+        while (node != root && node.next == null)
+        {
+            node = node.parent;
+        }
+        return node == root ? null : node.next;
+    }
+
+    /**
+     * Returns a string of the pool.
+     * @param index number of the string, or NONE
+     * @return string, null for NONE
+     */
+    String getString(final int index)
+    {
+        return index == NONE ? null : strings[index];
+    }
+
+    /**
+     * Returns the DOM view of the document.
+     * @return DOM document
+     */
+    org.w3c.dom.Document getDocument()
+    {
+        return (org.w3c.dom.Document) getNode(0);
+    }
+
+    /**
+     * Returns the DOM view of a node.
+     * @param index number of the node, or NONE
+     * @return DOM node, null for NONE
+     */
+    org.w3c.dom.Node getNode(final int index)
+    {
+        if (index == NONE)
+        {
+            return null;
+        }
+        org.w3c.dom.Node view = views[index];
+        if (view == null)
+        {
+            switch (types[index])
+            {
+                case org.w3c.dom.Node.DOCUMENT_NODE :
+                    view = new CompactDOMDocumentImpl(this);
+                    break;
+                case org.w3c.dom.Node.ELEMENT_NODE :
+                    view = new CompactDOMElementImpl(this, index);
+                    break;
+                case org.w3c.dom.Node.TEXT_NODE :
+                    view = new CompactDOMTextImpl(this, index);
+                    break;
+                case org.w3c.dom.Node.CDATA_SECTION_NODE :
+                    view = new CompactDOMCDATASectionImpl(this, index);
+                    break;
+                case org.w3c.dom.Node.COMMENT_NODE :
+                    view = new CompactDOMCommentImpl(this, index);
+                    break;
+                case org.w3c.dom.Node.PROCESSING_INSTRUCTION_NODE :
+                    view = new CompactDOMProcessingInstructionImpl(this, index);
+                    break;
+                default :
+                    view = new CompactDOMDocumentTypeImpl(this, index);
+                    break;
+            }
+            views[index] = view;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the DOM view of an attribute.
+     * @param owner number of the element
+     * @param index number of the attribute
+     * @return DOM attribute
+     */
+    org.w3c.dom.Attr getAttribute(final int owner, final int index)
+    {
+        if (attributeViews == null)
+        {
+            attributeViews = new org.w3c.dom.Attr[attributeNames.length];
+        }
+        org.w3c.dom.Attr view = attributeViews[index];
+        if (view == null)
+        {
+            view = new CompactDOMAttrImpl(this, owner, index);
+            attributeViews[index] = view;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the number of an attribute of a node.
+     * @param node number of the node
+     * @param name attribute name
+     * @return number of the attribute, NONE if the node has no such attribute
+     */
+    int findAttribute(final int node, final String name)
+    {
+        final int end = firstAttributes[node] + attributeCounts[node];
+        for (int i = firstAttributes[node]; i < end; i++)
+        {
+            if (strings[attributeNames[i]].equals(name))
+            {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the elements with a given name among the descendants of a node, in document order.
+     * @param root number of the node
+     * @param name element name, "*" for all the elements
+     * @return list of element numbers
+     */
+    org.w3c.dom.NodeList getElementsByTagName(final int root, final String name)
+    {
+        final boolean all = "*".equals(name);
+        int[] found = new int[8];
+        int count = 0;
+        int[] stack = new int[Math.max(16, childCounts[root])];
+        int top = pushChildren(stack, 0, root);
+        while (top > 0)
+        {
+            final int node = stack[--top];
+            if (types[node] != org.w3c.dom.Node.ELEMENT_NODE)
+            {
+                continue;
+            }
+            if (all || strings[names[node]].equals(name))
+            {
+                if (count == found.length)
+                {
+                    found = copyOf(found, count * 2);
+                }
+                found[count++] = node;
+            }
+            if (top + childCounts[node] > stack.length)
+            {
+                stack = copyOf(stack, Math.max(stack.length * 2, top + childCounts[node]));
+            }
+            top = pushChildren(stack, top, node);
+        }
+        return new CompactDOMNodeListImpl(this, found, 0, count);
+    }
+
+    /**
+     * Appends the text of the descendants of a node, in document order.
+     * @param root number of the node
+     * @param text buffer
+     */
+    void getTextContent(final int root, final StringBuilder text)
+    {
+        final int end = firstChildren[root] + childCounts[root];
+        for (int i = firstChildren[root]; i < end; i++)
+        {
+            switch (types[i])
+            {
+                case org.w3c.dom.Node.TEXT_NODE :
+                case org.w3c.dom.Node.CDATA_SECTION_NODE :
+                    text.append(strings[values[i]]);
+                    break;
+                case org.w3c.dom.Node.ELEMENT_NODE :
+                    getTextContent(i, text);
+                    break;
+                default :
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Pushes the children of a node on a stack, last child first, so that they are popped in document order.
+     * @param stack stack, large enough
+     * @param top current size of the stack
+     * @param node number of the node
+     * @return new size of the stack
+     */
+    private int pushChildren(final int[] stack, final int top, final int node)
+    {
+        final int first = firstChildren[node];
+        final int count = childCounts[node];
+        for (int i = 0; i < count; i++)
+        {
+            stack[top + i] = first + count - 1 - i;
+        }
+        return top + count;
+    }
+
+    private static int[] copyOf(final int[] array, final int length)
+    {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Returns the exception thrown by all the methods which would modify the document.
+     * @return DOMException
+     */
+    static DOMException readOnly()
+    {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR, "Node is read only");
+    }
+
+    /**
+     * Returns the exception thrown by the methods which are not supported.
+     * @return DOMException
+     */
+    static DOMException notSupported()
+    {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR, "DOM method not supported");
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Read-only DOM view of an attribute of a {@link CompactDOM}. The index of the view is the number of the attribute.
+ * @version $Revision$ ($Author$)
+ */
+final class CompactDOMAttrImpl extends CompactDOMNodeImpl implements org.w3c.dom.Attr
+{
+
+    /**
+     * number of the element.
+     */
+    private final int owner;
+
+    /**
+     * Instantiates a new view.
+     * @param dom document store
+     * @param owner number of the element
+     * @param index number of the attribute
+     */
+    CompactDOMAttrImpl(final CompactDOM dom, final int owner, final int index)
+    {
+        super(dom, index);
+        this.owner = owner;
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#getName()
+     */
+    public String getName()
+    {
+        return dom.strings[dom.attributeNames[index]];
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#getValue()
+     */
+    public String getValue()
+    {
+        return dom.strings[dom.attributeValues[index]];
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#setValue(java.lang.String)
+     */
+    public void setValue(final String value)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#getSpecified()
+     */
+    public boolean getSpecified()
+    {
+        return true;
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#getOwnerElement()
+     */
+    public org.w3c.dom.Element getOwnerElement()
+    {
+        return (org.w3c.dom.Element) dom.getNode(owner);
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#getSchemaTypeInfo()
+     */
+    public TypeInfo getSchemaTypeInfo()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Attr#isId()
+     */
+    public boolean isId()
+    {
+        return "id".equals(getName());
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeName()
+     */
+    @Override
+    public String getNodeName()
+    {
+        return getName();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getLocalName()
+     */
+    @Override
+    public String getLocalName()
+    {
+        return getName();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeValue()
+     */
+    @Override
+    public String getNodeValue()
+    {
+        return getValue();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getTextContent()
+     */
+    @Override
+    public String getTextContent()
+    {
+        return getValue();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeType()
+     */
+    @Override
+    public short getNodeType()
+    {
+        return org.w3c.dom.Node.ATTRIBUTE_NODE;
+    }
+
+    /**
+     * Attributes are not children in the DOM, and do not have parents.
+     * @see org.w3c.dom.Node#getParentNode()
+     */
+    @Override
+    public org.w3c.dom.Node getParentNode()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getChildNodes()
+     */
+    @Override
+    public org.w3c.dom.NodeList getChildNodes()
+    {
+        return new CompactDOMNodeListImpl(dom, null, 0, 0);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getFirstChild()
+     */
+    @Override
+    public org.w3c.dom.Node getFirstChild()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getLastChild()
+     */
+    @Override
+    public org.w3c.dom.Node getLastChild()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getPreviousSibling()
+     */
+    @Override
+    public org.w3c.dom.Node getPreviousSibling()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNextSibling()
+     */
+    @Override
+    public org.w3c.dom.Node getNextSibling()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#hasChildNodes()
+     */
+    @Override
+    public boolean hasChildNodes()
+    {
+        return false;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+/**
+ * Read-only map of the attributes of an element of a {@link CompactDOM}.
+ * @version $Revision$ ($Author$)
+ */
+final class CompactDOMAttrMapImpl implements org.w3c.dom.NamedNodeMap
+{
+
+    /**
+     * document store.
+     */
+    private final CompactDOM dom;
+
+    /**
+     * number of the element.
+     */
+    private final int owner;
+
+    /**
+     * Instantiates a new map.
+     * @param dom document store
+     * @param owner number of the element
+     */
+    CompactDOMAttrMapImpl(final CompactDOM dom, final int owner)
+    {
+        this.dom = dom;
+        this.owner = owner;
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#getNamedItem(java.lang.String)
+     */
+    public org.w3c.dom.Node getNamedItem(final String name)
+    {
+        final int attribute = dom.findAttribute(owner, name);
+        return attribute == CompactDOM.NONE ? null : dom.getAttribute(owner, attribute);
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#item(int)
+     */
+    public org.w3c.dom.Node item(final int index)
+    {
+        if (index < 0 || index >= dom.attributeCounts[owner])
+        {
+            return null;
+        }
+        return dom.getAttribute(owner, dom.firstAttributes[owner] + index);
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#getLength()
+     */
+    public int getLength()
+    {
+        return dom.attributeCounts[owner];
+    }
+
+    /**
+     * Attributes have no namespace: returns the attribute named localName if namespaceURI is null.
+     * @see org.w3c.dom.NamedNodeMap#getNamedItemNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.Node getNamedItemNS(final String namespaceURI, final String localName)
+    {
+        return namespaceURI == null ? getNamedItem(localName) : null;
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#setNamedItem(org.w3c.dom.Node)
+     */
+    public org.w3c.dom.Node setNamedItem(final org.w3c.dom.Node arg)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#removeNamedItem(java.lang.String)
+     */
+    public org.w3c.dom.Node removeNamedItem(final String name)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#setNamedItemNS(org.w3c.dom.Node)
+     */
+    public org.w3c.dom.Node setNamedItemNS(final org.w3c.dom.Node arg)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.NamedNodeMap#removeNamedItemNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.Node removeNamedItemNS(final String namespaceURI, final String localName)
+    {
+        throw CompactDOM.readOnly();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import org.w3c.dom.DOMException;
+
+/**
+ * Read-only DOM view of a text, CDATA section or comment of a {@link CompactDOM}.
+ * @version $Revision$ ($Author$)
+ */
+abstract class CompactDOMCharacterDataImpl extends CompactDOMNodeImpl implements org.w3c.dom.CharacterData
+{
+
+    /**
+     * Instantiates a new view.
+     * @param dom document store
+     * @param index number of the node
+     */
+    protected CompactDOMCharacterDataImpl(final CompactDOM dom, final int index)
+    {
+        super(dom, index);
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#getData()
+     */
+    public String getData()
+    {
+        return getNodeValue();
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#getLength()
+     */
+    public int getLength()
+    {
+        return getData().length();
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#substringData(int, int)
+     */
+    public String substringData(final int offset, final int count) throws DOMException
+    {
+        final String data = getData();
+        if (offset < 0 || offset > data.length() || count < 0)
+        {
+            throw new DOMException(DOMException.INDEX_SIZE_ERR, "Invalid offset or count");
+        }
+        return data.substring(offset, Math.min(offset + count, data.length()));
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#setData(java.lang.String)
+     */
+    public void setData(final String data) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#appendData(java.lang.String)
+     */
+    public void appendData(final String arg) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#insertData(int, java.lang.String)
+     */
+    public void insertData(final int offset, final String arg) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#deleteData(int, int)
+     */
+    public void deleteData(final int offset, final int count) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.CharacterData#replaceData(int, int, java.lang.String)
+     */
+    public void replaceData(final int offset, final int count, final String arg) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMException;
+
+/**
+ * Read-only DOM view of the document of a {@link CompactDOM}. The create methods throw a DOMException with code
+ * NO_MODIFICATION_ALLOWED_ERR, since the nodes they return could not be inserted anyway.
+ * @version $Revision$ ($Author$)
+ */
+final class CompactDOMDocumentImpl extends CompactDOMNodeImpl implements org.w3c.dom.Document
+{
+
+    /**
+     * Instantiates a new view.
+     * @param dom document store
+     */
+    CompactDOMDocumentImpl(final CompactDOM dom)
+    {
+        super(dom, 0);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeName()
+     */
+    @Override
+    public String getNodeName()
+    {
+        return "#document";
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getOwnerDocument()
+     */
+    @Override
+    public org.w3c.dom.Document getOwnerDocument()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getTextContent()
+     */
+    @Override
+    public String getTextContent()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getDoctype()
+     */
+    public org.w3c.dom.DocumentType getDoctype()
+    {
+        return (org.w3c.dom.DocumentType) findChild(org.w3c.dom.Node.DOCUMENT_TYPE_NODE);
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getDocumentElement()
+     */
+    public org.w3c.dom.Element getDocumentElement()
+    {
+        return (org.w3c.dom.Element) findChild(org.w3c.dom.Node.ELEMENT_NODE);
+    }
+
+    /**
+     * Returns the first child of the document with a given type.
+     * @param type DOM node type
+     * @return child, null if not found
+     */
+    private org.w3c.dom.Node findChild(final short type)
+    {
+        final int end = dom.firstChildren[0] + dom.childCounts[0];
+        for (int i = dom.firstChildren[0]; i < end; i++)
+        {
+            if (dom.types[i] == type)
+            {
+                return dom.getNode(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getElementsByTagName(java.lang.String)
+     */
+    public org.w3c.dom.NodeList getElementsByTagName(final String tagname)
+    {
+        return dom.getElementsByTagName(0, tagname);
+    }
+
+    /**
+     * Elements have no namespace: returns the elements named localName if namespaceURI is null.
+     * @see org.w3c.dom.Document#getElementsByTagNameNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.NodeList getElementsByTagNameNS(final String namespaceURI, final String localName)
+    {
+        if (namespaceURI != null && !"*".equals(namespaceURI))
+        {
+            return new CompactDOMNodeListImpl(dom, null, 0, 0);
+        }
+        return getElementsByTagName(localName);
+    }
+
+    /**
+     * Returns the first element with the given id attribute, in document order.
+     * @see org.w3c.dom.Document#getElementById(java.lang.String)
+     */
+    public org.w3c.dom.Element getElementById(final String elementId)
+    {
+        final org.w3c.dom.NodeList elements = getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++)
+        {
+            final org.w3c.dom.Element element = (org.w3c.dom.Element) elements.item(i);
+            if (elementId.equals(element.getAttribute("id")))
+            {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @todo DOM level 2 getImplementation() Not implemented. Throws NOT_SUPPORTED_ERR.
+     * @see org.w3c.dom.Document#getImplementation()
+     */
+    public org.w3c.dom.DOMImplementation getImplementation()
+    {
+        throw CompactDOM.notSupported();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createElement(java.lang.String)
+     */
+    public org.w3c.dom.Element createElement(final String tagName) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createDocumentFragment()
+     */
+    public org.w3c.dom.DocumentFragment createDocumentFragment()
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createTextNode(java.lang.String)
+     */
+    public org.w3c.dom.Text createTextNode(final String data)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createComment(java.lang.String)
+     */
+    public org.w3c.dom.Comment createComment(final String data)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createCDATASection(java.lang.String)
+     */
+    public org.w3c.dom.CDATASection createCDATASection(final String data) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createProcessingInstruction(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.ProcessingInstruction createProcessingInstruction(final String target, final String data)
+        throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createAttribute(java.lang.String)
+     */
+    public org.w3c.dom.Attr createAttribute(final String name) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createEntityReference(java.lang.String)
+     */
+    public org.w3c.dom.EntityReference createEntityReference(final String name) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#importNode(org.w3c.dom.Node, boolean)
+     */
+    public org.w3c.dom.Node importNode(final org.w3c.dom.Node importedNode, final boolean deep) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createAttributeNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.Attr createAttributeNS(final String namespaceURI, final String qualifiedName)
+        throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#createElementNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.Element createElementNS(final String namespaceURI, final String qualifiedName)
+        throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#adoptNode(org.w3c.dom.Node)
+     */
+    public org.w3c.dom.Node adoptNode(final org.w3c.dom.Node source) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#renameNode(org.w3c.dom.Node, java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.Node renameNode(final org.w3c.dom.Node n, final String namespaceURI, final String qualifiedName)
+        throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#normalizeDocument()
+     */
+    public void normalizeDocument()
+    {
+        // do nothing
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getDocumentURI()
+     */
+    public String getDocumentURI()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#setDocumentURI(java.lang.String)
+     */
+    public void setDocumentURI(final String documentURI)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getDomConfig()
+     */
+    public DOMConfiguration getDomConfig()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getInputEncoding()
+     */
+    public String getInputEncoding()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getXmlEncoding()
+     */
+    public String getXmlEncoding()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getXmlStandalone()
+     */
+    public boolean getXmlStandalone()
+    {
+        return false;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#setXmlStandalone(boolean)
+     */
+    public void setXmlStandalone(final boolean xmlStandalone) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getXmlVersion()
+     */
+    public String getXmlVersion()
+    {
+        return "1.0";
+    }
+
+    /**
+     * @see org.w3c.dom.Document#setXmlVersion(java.lang.String)
+     */
+    public void setXmlVersion(final String xmlVersion) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Document#getStrictErrorChecking()
+     */
+    public boolean getStrictErrorChecking()
+    {
+        return true;
+    }
+
+    /**
+     * @see org.w3c.dom.Document#setStrictErrorChecking(boolean)
+     */
+    public void setStrictErrorChecking(final boolean strictErrorChecking)
+    {
+        throw CompactDOM.readOnly();
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.TypeInfo;
+
+/**
+ * Read-only DOM view of an element of a {@link CompactDOM}.
+ * @version $Revision$ ($Author$)
+ */
+final class CompactDOMElementImpl extends CompactDOMNodeImpl implements org.w3c.dom.Element
+{
+
+    /**
+     * Instantiates a new view.
+     * @param dom document store
+     * @param index number of the element
+     */
+    CompactDOMElementImpl(final CompactDOM dom, final int index)
+    {
+        super(dom, index);
+    }
+
+    /**
+     * @see org.w3c.dom.Element#getTagName()
+     */
+    public String getTagName()
+    {
+        return getNodeName();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getLocalName()
+     */
+    @Override
+    public String getLocalName()
+    {
+        return getNodeName();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#getAttribute(java.lang.String)
+     */
+    public String getAttribute(final String name)
+    {
+        final int attribute = dom.findAttribute(index, name);
+        return attribute == CompactDOM.NONE ? "" : dom.strings[dom.attributeValues[attribute]];
+    }
+
+    /**
+     * @see org.w3c.dom.Element#getAttributeNode(java.lang.String)
+     */
+    public org.w3c.dom.Attr getAttributeNode(final String name)
+    {
+        final int attribute = dom.findAttribute(index, name);
+        return attribute == CompactDOM.NONE ? null : dom.getAttribute(index, attribute);
+    }
+
+    /**
+     * @see org.w3c.dom.Element#hasAttribute(java.lang.String)
+     */
+    public boolean hasAttribute(final String name)
+    {
+        return dom.findAttribute(index, name) != CompactDOM.NONE;
+    }
+
+    /**
+     * Attributes have no namespace: returns the attribute named localName if namespaceURI is null.
+     * @see org.w3c.dom.Element#getAttributeNS(java.lang.String, java.lang.String)
+     */
+    public String getAttributeNS(final String namespaceURI, final String localName)
+    {
+        return namespaceURI == null ? getAttribute(localName) : "";
+    }
+
+    /**
+     * Attributes have no namespace: returns the attribute named localName if namespaceURI is null.
+     * @see org.w3c.dom.Element#getAttributeNodeNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.Attr getAttributeNodeNS(final String namespaceURI, final String localName)
+    {
+        return namespaceURI == null ? getAttributeNode(localName) : null;
+    }
+
+    /**
+     * Attributes have no namespace: checks the attribute named localName if namespaceURI is null.
+     * @see org.w3c.dom.Element#hasAttributeNS(java.lang.String, java.lang.String)
+     */
+    public boolean hasAttributeNS(final String namespaceURI, final String localName)
+    {
+        return namespaceURI == null && hasAttribute(localName);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getAttributes()
+     */
+    @Override
+    public org.w3c.dom.NamedNodeMap getAttributes()
+    {
+        return new CompactDOMAttrMapImpl(dom, index);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#hasAttributes()
+     */
+    @Override
+    public boolean hasAttributes()
+    {
+        return dom.attributeCounts[index] != 0;
+    }
+
+    /**
+     * @see org.w3c.dom.Element#getElementsByTagName(java.lang.String)
+     */
+    public org.w3c.dom.NodeList getElementsByTagName(final String name)
+    {
+        return dom.getElementsByTagName(index, name);
+    }
+
+    /**
+     * Elements have no namespace: returns the elements named localName if namespaceURI is null.
+     * @see org.w3c.dom.Element#getElementsByTagNameNS(java.lang.String, java.lang.String)
+     */
+    public org.w3c.dom.NodeList getElementsByTagNameNS(final String namespaceURI, final String localName)
+    {
+        if (namespaceURI != null && !"*".equals(namespaceURI))
+        {
+            return new CompactDOMNodeListImpl(dom, null, 0, 0);
+        }
+        return getElementsByTagName(localName);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getTextContent()
+     */
+    @Override
+    public String getTextContent()
+    {
+        final StringBuilder text = new StringBuilder();
+        dom.getTextContent(index, text);
+        return text.toString();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#getSchemaTypeInfo()
+     */
+    public TypeInfo getSchemaTypeInfo()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setAttribute(java.lang.String, java.lang.String)
+     */
+    public void setAttribute(final String name, final String value) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#removeAttribute(java.lang.String)
+     */
+    public void removeAttribute(final String name) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setAttributeNode(org.w3c.dom.Attr)
+     */
+    public org.w3c.dom.Attr setAttributeNode(final org.w3c.dom.Attr newAttr) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#removeAttributeNode(org.w3c.dom.Attr)
+     */
+    public org.w3c.dom.Attr removeAttributeNode(final org.w3c.dom.Attr oldAttr) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setAttributeNS(java.lang.String, java.lang.String, java.lang.String)
+     */
+    public void setAttributeNS(final String namespaceURI, final String qualifiedName, final String value)
+        throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#removeAttributeNS(java.lang.String, java.lang.String)
+     */
+    public void removeAttributeNS(final String namespaceURI, final String localName) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setAttributeNodeNS(org.w3c.dom.Attr)
+     */
+    public org.w3c.dom.Attr setAttributeNodeNS(final org.w3c.dom.Attr newAttr) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setIdAttribute(java.lang.String, boolean)
+     */
+    public void setIdAttribute(final String name, final boolean isId) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setIdAttributeNS(java.lang.String, java.lang.String, boolean)
+     */
+    public void setIdAttributeNS(final String namespaceURI, final String localName, final boolean isId)
+        throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Element#setIdAttributeNode(org.w3c.dom.Attr, boolean)
+     */
+    public void setIdAttributeNode(final org.w3c.dom.Attr idAttr, final boolean isId) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+}
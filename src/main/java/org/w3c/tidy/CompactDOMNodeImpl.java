@@ -0,0 +1,398 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.UserDataHandler;
+
+/**
+ * Read-only DOM view of a node of a {@link CompactDOM}. All the methods which would modify the document throw a
+ * DOMException with code NO_MODIFICATION_ALLOWED_ERR.
+ * @version $Revision$ ($Author$)
+ */
+abstract class CompactDOMNodeImpl implements org.w3c.dom.Node
+{
+
+    /**
+     * document store.
+     */
+    protected final CompactDOM dom;
+
+    /**
+     * number of the node in the store.
+     */
+    protected final int index;
+
+    /**
+     * Instantiates a new view.
+     * @param dom document store
+     * @param index number of the node
+     */
+    protected CompactDOMNodeImpl(final CompactDOM dom, final int index)
+    {
+        this.dom = dom;
+        this.index = index;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeName
+     */
+    public String getNodeName()
+    {
+        return dom.getString(dom.names[index]);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeValue
+     */
+    public String getNodeValue()
+    {
+        return dom.getString(dom.values[index]);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#setNodeValue
+     */
+    public void setNodeValue(final String nodeValue)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNodeType
+     */
+    public short getNodeType()
+    {
+        return dom.types[index];
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getParentNode
+     */
+    public org.w3c.dom.Node getParentNode()
+    {
+        return dom.getNode(dom.parents[index]);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getChildNodes
+     */
+    public org.w3c.dom.NodeList getChildNodes()
+    {
+        return new CompactDOMNodeListImpl(dom, null, dom.firstChildren[index], dom.childCounts[index]);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getFirstChild
+     */
+    public org.w3c.dom.Node getFirstChild()
+    {
+        return dom.childCounts[index] == 0 ? null : dom.getNode(dom.firstChildren[index]);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getLastChild
+     */
+    public org.w3c.dom.Node getLastChild()
+    {
+        final int count = dom.childCounts[index];
+        return count == 0 ? null : dom.getNode(dom.firstChildren[index] + count - 1);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getPreviousSibling
+     */
+    public org.w3c.dom.Node getPreviousSibling()
+    {
+        final int parent = dom.parents[index];
+        if (parent == CompactDOM.NONE || index == dom.firstChildren[parent])
+        {
+            return null;
+        }
+        return dom.getNode(index - 1);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNextSibling
+     */
+    public org.w3c.dom.Node getNextSibling()
+    {
+        final int parent = dom.parents[index];
+        if (parent == CompactDOM.NONE || index + 1 == dom.firstChildren[parent] + dom.childCounts[parent])
+        {
+            return null;
+        }
+        return dom.getNode(index + 1);
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getAttributes
+     */
+    public org.w3c.dom.NamedNodeMap getAttributes()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getOwnerDocument
+     */
+    public org.w3c.dom.Document getOwnerDocument()
+    {
+        return dom.getDocument();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#insertBefore
+     */
+    public org.w3c.dom.Node insertBefore(final org.w3c.dom.Node newChild, final org.w3c.dom.Node refChild)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#replaceChild
+     */
+    public org.w3c.dom.Node replaceChild(final org.w3c.dom.Node newChild, final org.w3c.dom.Node oldChild)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#removeChild
+     */
+    public org.w3c.dom.Node removeChild(final org.w3c.dom.Node oldChild)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#appendChild
+     */
+    public org.w3c.dom.Node appendChild(final org.w3c.dom.Node newChild)
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#hasChildNodes
+     */
+    public boolean hasChildNodes()
+    {
+        return dom.childCounts[index] != 0;
+    }
+
+    /**
+     * @todo cloneNode() Not implemented. Throws NOT_SUPPORTED_ERR.
+     * @see org.w3c.dom.Node#cloneNode(boolean)
+     */
+    public org.w3c.dom.Node cloneNode(final boolean deep)
+    {
+        throw CompactDOM.notSupported();
+    }
+
+    /**
+     * Do nothing: text nodes are never adjacent or empty in a tidied document.
+     * @see org.w3c.dom.Node#normalize
+     */
+    public void normalize()
+    {
+        // do nothing
+    }
+
+    /**
+     * @see org.w3c.dom.Node#isSupported(java.lang.String, java.lang.String)
+     */
+    public boolean isSupported(final String feature, final String version)
+    {
+        return false;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getNamespaceURI()
+     */
+    public String getNamespaceURI()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getPrefix()
+     */
+    public String getPrefix()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#setPrefix(java.lang.String)
+     */
+    public void setPrefix(final String prefix) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getLocalName()
+     */
+    public String getLocalName()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#hasAttributes
+     */
+    public boolean hasAttributes()
+    {
+        return false;
+    }
+
+    /**
+     * @todo DOM level 3 compareDocumentPosition() Not implemented.
+     * @see org.w3c.dom.Node#compareDocumentPosition(org.w3c.dom.Node)
+     */
+    public short compareDocumentPosition(final org.w3c.dom.Node other) throws DOMException
+    {
+        throw CompactDOM.notSupported();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getBaseURI()
+     */
+    public String getBaseURI()
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getFeature(java.lang.String, java.lang.String)
+     */
+    public Object getFeature(final String feature, final String version)
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getTextContent()
+     */
+    public String getTextContent() throws DOMException
+    {
+        return getNodeValue();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#setTextContent(java.lang.String)
+     */
+    public void setTextContent(final String textContent) throws DOMException
+    {
+        throw CompactDOM.readOnly();
+    }
+
+    /**
+     * @see org.w3c.dom.Node#isSameNode(org.w3c.dom.Node)
+     */
+    public boolean isSameNode(final org.w3c.dom.Node other)
+    {
+        return this == other;
+    }
+
+    /**
+     * @todo DOM level 3 isEqualNode() Only compares identity.
+     * @see org.w3c.dom.Node#isEqualNode(org.w3c.dom.Node)
+     */
+    public boolean isEqualNode(final org.w3c.dom.Node arg)
+    {
+        return this == arg;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#isDefaultNamespace(java.lang.String)
+     */
+    public boolean isDefaultNamespace(final String namespaceURI)
+    {
+        return false;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#lookupNamespaceURI(java.lang.String)
+     */
+    public String lookupNamespaceURI(final String prefix)
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#lookupPrefix(java.lang.String)
+     */
+    public String lookupPrefix(final String namespaceURI)
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#getUserData(java.lang.String)
+     */
+    public Object getUserData(final String key)
+    {
+        return null;
+    }
+
+    /**
+     * @see org.w3c.dom.Node#setUserData(java.lang.String, java.lang.Object, org.w3c.dom.UserDataHandler)
+     */
+    public Object setUserData(final String key, final Object data, final UserDataHandler handler)
+    {
+        throw CompactDOM.readOnly();
+    }
+}
@@ -0,0 +1,535 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.w3c.tidy.Node.NodeType;
+
+/**
+ * Compact copy of a tidy Node tree, for applications which keep many parsed documents alive. The nodes are numbered
+ * in document order and stored in parallel arrays, linked by the number of their parent.
+ * Text spans are copied to a single byte array, attributes are ranges of a shared attribute table, and names, values,
+ * tag and attribute definitions are pooled. The copy doesn't keep the lexer buffer reachable, unlike the tree it is
+ * made from.
+ * <p>
+ * {@link #toNode()} rebuilds an equivalent Node tree, which can be printed or used through the Node and DOM APIs.
+ * </p>
+ * @version $Revision$ ($Author$)
+ */
+public final class CompactNodeTree
+{
+
+    /**
+     * marks a missing node, string or definition.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * flag for Node.closed.
+     */
+    private static final byte CLOSED = 1;
+
+    /**
+     * flag for Node.implicit.
+     */
+    private static final byte IMPLICIT = 2;
+
+    /**
+     * flag for Node.linebreak.
+     */
+    private static final byte LINEBREAK = 4;
+
+    /**
+     * node types, by ordinal.
+     */
+    private static final NodeType[] NODE_TYPES = NodeType.values();
+
+    /**
+     * number of nodes of the tree; the asp and php nodes of attributes follow them.
+     */
+    private final int treeSize;
+
+    /**
+     * ordinal of the type of each node.
+     */
+    private final byte[] types;
+
+    /**
+     * closed, implicit and linebreak flags of each node.
+     */
+    private final byte[] flags;
+
+    /**
+     * parent of each node.
+     */
+    private final int[] parents;
+
+    /**
+     * element name of each node, in strings.
+     */
+    private final int[] elements;
+
+    /**
+     * tag of each node, in tags.
+     */
+    private final int[] nodeTags;
+
+    /**
+     * original tag of each node, in tags.
+     */
+    private final int[] wasTags;
+
+    /**
+     * source line of each node.
+     */
+    private final int[] lines;
+
+    /**
+     * source column of each node.
+     */
+    private final int[] columns;
+
+    /**
+     * source offset of each node.
+     */
+    private final int[] offsets;
+
+    /**
+     * start of the text of each node in text, the text ending at the start of the following node.
+     */
+    private final int[] textStarts;
+
+    /**
+     * text of all the nodes.
+     */
+    private final byte[] text;
+
+    /**
+     * first attribute of each node, the attributes ending at the first attribute of the following node.
+     */
+    private final int[] attributeStarts;
+
+    /**
+     * name of each attribute, in strings.
+     */
+    private final int[] attributeNames;
+
+    /**
+     * value of each attribute, in strings.
+     */
+    private final int[] attributeValues;
+
+    /**
+     * definition of each attribute, in attributeDefinitions.
+     */
+    private final int[] attributeDicts;
+
+    /**
+     * asp or php node of each attribute.
+     */
+    private final int[] attributeNodes;
+
+    /**
+     * delimiter of each attribute value.
+     */
+    private final char[] attributeDelims;
+
+    /**
+     * pooled names and values.
+     */
+    private final String[] strings;
+
+    /**
+     * pooled tag definitions.
+     */
+    private final Dict[] tags;
+
+    /**
+     * pooled attribute definitions.
+     */
+    private final Attribute[] attributeDefinitions;
+
+    /**
+     * Copies a Node tree.
+     * @param root root of the tree, usually the document node returned by Tidy.parse
+     */
+    public CompactNodeTree(final Node root)
+    {
+        // count the nodes, the attributes, their asp and php nodes and the text
+        int nodeCount = 0;
+        int attributeCount = 0;
+        int specialCount = 0;
+        int textLength = 0;
+        for (Node node = root; node != null; node = nextInTree(root, node))
+        {
+            nodeCount++;
+            textLength += textLength(node);
+            for (AttVal attr = node.attributes; attr != null; attr = attr.next)
+            {
+                attributeCount++;
+                if (attr.asp != null || attr.php != null)
+                {
+                    specialCount++;
+                    textLength += textLength(attr.asp != null ? attr.asp : attr.php);
+                }
+            }
+        }
+
+        treeSize = nodeCount;
+        final int size = nodeCount + specialCount;
+        types = new byte[size];
+        flags = new byte[size];
+        parents = new int[size];
+        elements = new int[size];
+        nodeTags = new int[size];
+        wasTags = new int[size];
+        lines = new int[size];
+        columns = new int[size];
+        offsets = new int[size];
+        textStarts = new int[size + 1];
+        text = new byte[textLength];
+        attributeStarts = new int[nodeCount + 1];
+        attributeNames = new int[attributeCount];
+        attributeValues = new int[attributeCount];
+        attributeDicts = new int[attributeCount];
+        attributeNodes = new int[attributeCount];
+        attributeDelims = new char[attributeCount];
+
+        final Pools pools = new Pools();
+        final Node[] specials = new Node[specialCount];
+        int specialsAdded = 0;
+        int textAdded = 0;
+        int attributesAdded = 0;
+
+        int count = 0;
+        int parent = NONE;
+        Node node = root;
+        while (true)
+        {
+            final int index = count++;
+            textAdded = copyNode(node, index, parent, textAdded, pools);
+
+            attributeStarts[index] = attributesAdded;
+            for (AttVal attr = node.attributes; attr != null; attr = attr.next)
+            {
+                attributeNames[attributesAdded] = pools.string(attr.attribute);
+                attributeValues[attributesAdded] = pools.string(attr.value);
+                attributeDicts[attributesAdded] = pools.attribute(attr.dict);
+                attributeDelims[attributesAdded] = (char) attr.delim;
+                if (attr.asp != null || attr.php != null)
+                {
+                    specials[specialsAdded] = attr.asp != null ? attr.asp : attr.php;
+                    attributeNodes[attributesAdded] = nodeCount + specialsAdded++;
+                }
+                else
+                {
+                    attributeNodes[attributesAdded] = NONE;
+                }
+                attributesAdded++;
+            }
+
+            if (node.content != null)
+            {
+                parent = index;
+                node = node.content;
+                continue;
+            }
+
+            int current = index;
+            while (node != root && node.next == null)
+            {
+                node = node.parent;
+                current = parents[current];
+            }
+            if (node == root)
+            {
+                break;
+            }
+            node = node.next;
+            parent = parents[current];
+        }
+        attributeStarts[nodeCount] = attributesAdded;
+
+        for (int i = 0; i < specialCount; i++)
+        {
+            final int index = nodeCount + i;
+            textAdded = copyNode(specials[i], index, NONE, textAdded, pools);
+        }
+        textStarts[size] = textAdded;
+
+        strings = new String[pools.strings.size()];
+        for (final Map.Entry<String, Integer> entry : pools.strings.entrySet())
+        {
+            strings[entry.getValue().intValue()] = entry.getKey();
+        }
+        tags = new Dict[pools.tags.size()];
+        for (final Map.Entry<Dict, Integer> entry : pools.tags.entrySet())
+        {
+            tags[entry.getValue().intValue()] = entry.getKey();
+        }
+        attributeDefinitions = new Attribute[pools.attributes.size()];
+        for (final Map.Entry<Attribute, Integer> entry : pools.attributes.entrySet())
+        {
+            attributeDefinitions[entry.getValue().intValue()] = entry.getKey();
+        }
+    }
+
+    /**
+     * Copies the fields of a node, except its attributes.
+     * @param node source node
+     * @param index number of the node
+     * @param parent number of the parent node
+     * @param textAdded length of the text copied so far
+     * @param pools pools being built
+     * @return length of the text copied, including the text of the node
+     */
+    private int copyNode(final Node node, final int index, final int parent, final int textAdded, final Pools pools)
+    {
+        types[index] = (byte) node.type.ordinal();
+        flags[index] = (byte) ((node.closed ? CLOSED : 0) | (node.implicit ? IMPLICIT : 0)
+            | (node.linebreak ? LINEBREAK : 0));
+        parents[index] = parent;
+        elements[index] = pools.string(node.element);
+        nodeTags[index] = pools.tag(node.tag);
+        wasTags[index] = pools.tag(node.was);
+        lines[index] = node.line;
+        columns[index] = node.column;
+        offsets[index] = node.offset;
+        textStarts[index] = textAdded;
+        final int length = textLength(node);
+        if (length > 0)
+        {
+            System.arraycopy(node.textarray, node.start, text, textAdded, length);
+        }
+        return textAdded + length;
+    }
+
+    /**
+     * Returns the length of the text span of a node.
+     * @param node node
+     * @return length, 0 if the node has no text
+     */
+    private static int textLength(final Node node)
+    {
+        return node.textarray != null && node.end > node.start ? node.end - node.start : 0;
+    }
+
+    /**
+     * Returns the node following a node in document order, without recursion.
+     * @param root root of the tree
+     * @param node current node
+     * @return next node, null at the end of the tree
+     */
+    private static Node nextInTree(final Node root, Node node)
+    {
+        if (node.content != null)
+        {
+            return node.content;
+        }
+        while (node != root && node.next == null)
+        {
+            node = node.parent;
+        }
+        return node == root ? null : node.next;
+    }
+
+    /**
+     * Returns the number of nodes of the tree.
+     * @return number of nodes, including the root
+     */
+    public int getNodeCount()
+    {
+        return treeSize;
+    }
+
+    /**
+     * Rebuilds the Node tree. Each call returns a new tree.
+     * @return root of the tree
+     */
+    public Node toNode()
+    {
+        final Node[] nodes = new Node[types.length];
+        for (int i = 0; i < nodes.length; i++)
+        {
+            nodes[i] = newNode(i);
+        }
+
+        for (int i = 1; i < treeSize; i++)
+        {
+            final Node parent = nodes[parents[i]];
+            final Node node = nodes[i];
+            node.parent = parent;
+            if (parent.content == null)
+            {
+                parent.content = node;
+            }
+            else
+            {
+                parent.last.next = node;
+                node.prev = parent.last;
+            }
+            parent.last = node;
+        }
+
+        for (int i = 0; i < treeSize; i++)
+        {
+            // attributes are linked from the last one
+            AttVal attributes = null;
+            for (int a = attributeStarts[i + 1] - 1; a >= attributeStarts[i]; a--)
+            {
+                Node asp = null;
+                Node php = null;
+                if (attributeNodes[a] != NONE)
+                {
+                    final Node special = nodes[attributeNodes[a]];
+                    if (special.type == NodeType.PhpTag)
+                    {
+                        php = special;
+                    }
+                    else
+                    {
+                        asp = special;
+                    }
+                }
+                attributes = new AttVal(
+                    attributes,
+                    attributeDicts[a] == NONE ? null : attributeDefinitions[attributeDicts[a]],
+                    asp,
+                    php,
+                    attributeDelims[a],
+                    getString(attributeNames[a]),
+                    getString(attributeValues[a]));
+            }
+            nodes[i].attributes = attributes;
+        }
+        return nodes[0];
+    }
+
+    /**
+     * Creates a node without links.
+     * @param index number of the node
+     * @return new node
+     */
+    private Node newNode(final int index)
+    {
+        final Node node = new Node(NODE_TYPES[types[index]], text, textStarts[index], textStarts[index + 1]);
+        node.closed = (flags[index] & CLOSED) != 0;
+        node.implicit = (flags[index] & IMPLICIT) != 0;
+        node.linebreak = (flags[index] & LINEBREAK) != 0;
+        node.element = getString(elements[index]);
+        node.tag = nodeTags[index] == NONE ? null : tags[nodeTags[index]];
+        node.was = wasTags[index] == NONE ? null : tags[wasTags[index]];
+        node.line = lines[index];
+        node.column = columns[index];
+        node.offset = offsets[index];
+        return node;
+    }
+
+    private String getString(final int index)
+    {
+        return index == NONE ? null : strings[index];
+    }
+
+    /**
+     * Pools built while copying a tree.
+     */
+    private static final class Pools
+    {
+
+        /**
+         * distinct strings, by value.
+         */
+        final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        /**
+         * distinct tag definitions.
+         */
+        final Map<Dict, Integer> tags = new IdentityHashMap<Dict, Integer>();
+
+        /**
+         * distinct attribute definitions.
+         */
+        final Map<Attribute, Integer> attributes = new IdentityHashMap<Attribute, Integer>();
+
+        int string(final String s)
+        {
+            return s == null ? NONE : number(strings, s);
+        }
+
+        int tag(final Dict tag)
+        {
+            return tag == null ? NONE : number(tags, tag);
+        }
+
+        int attribute(final Attribute attribute)
+        {
+            return attribute == null ? NONE : number(attributes, attribute);
+        }
+
+        private static <T> int number(final Map<T, Integer> pool, final T value)
+        {
+            final Integer known = pool.get(value);
+            if (known != null)
+            {
+                return known.intValue();
+            }
+            final int number = pool.size();
+            pool.put(value, Integer.valueOf(number));
+            return number;
+        }
+    }
+}
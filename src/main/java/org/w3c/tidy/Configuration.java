@@ -333,6 +333,23 @@ public class Configuration implements Serializable
         this.report = report;
     }
 
+    /**
+     * Instantiates a new Configuration copying all the option values of the given one. The TagTable is not copied and
+     * must be set by the caller.
+     * @param source configuration to copy
+     * @param report Report instance
+     */
+    protected Configuration(final Configuration source, final Report report)
+    {
+        this.report = report;
+        this.options.putAll(source.options);
+        this.properties.putAll(source.properties);
+        this.trimEmpty = source.trimEmpty;
+        this.replacementCharEncoding = source.replacementCharEncoding;
+        this.definedTags = source.definedTags;
+        this.rawOut = source.rawOut;
+    }
+
     /**
      * adds configuration Properties.
      * @param p Properties
@@ -1163,6 +1180,38 @@ public class Configuration implements Serializable
 		return getInt(Option.ShowErrors);
 	}
 
+	protected void setAbortErrorCount(final int abortErrorCount) {
+		set(Option.AbortErrorCount, abortErrorCount);
+	}
+
+	protected int getAbortErrorCount() {
+		return getInt(Option.AbortErrorCount);
+	}
+
+	protected void setAbortWarningCount(final int abortWarningCount) {
+		set(Option.AbortWarningCount, abortWarningCount);
+	}
+
+	protected int getAbortWarningCount() {
+		return getInt(Option.AbortWarningCount);
+	}
+
+	protected void setAbortNodeCount(final int abortNodeCount) {
+		set(Option.AbortNodeCount, abortNodeCount);
+	}
+
+	protected int getAbortNodeCount() {
+		return getInt(Option.AbortNodeCount);
+	}
+
+	protected void setAbortNestingDepth(final int abortNestingDepth) {
+		set(Option.AbortNestingDepth, abortNestingDepth);
+	}
+
+	protected int getAbortNestingDepth() {
+		return getInt(Option.AbortNestingDepth);
+	}
+
 	protected void setAsciiChars(final boolean asciiChars) {
 		set(Option.AsciiChars, asciiChars);
 	}
@@ -1250,6 +1299,14 @@ public class Configuration implements Serializable
 	protected int getAccessibilityCheckLevel() {
 		return getInt(Option.AccessibilityCheckLevel);
 	}
+
+	protected void setAccessibilitySkipChecks(final String accessibilitySkipChecks) {
+		set(Option.AccessibilitySkipChecks, accessibilitySkipChecks);
+	}
+
+	protected String getAccessibilitySkipChecks() {
+		return getString(Option.AccessibilitySkipChecks);
+	}
 	
 	protected void setVertSpace(final boolean vertSpace) {
 		set(Option.VertSpace, vertSpace);
@@ -1291,6 +1348,14 @@ public class Configuration implements Serializable
 		return (TriState) getOptionEnum(Option.MergeSpans);
 	}
 
+	protected void setCheckNodeIntegrity(final boolean checkNodeIntegrity) {
+		set(Option.CheckNodeIntegrity, checkNodeIntegrity);
+	}
+
+	protected boolean isCheckNodeIntegrity() {
+		return getBool(Option.CheckNodeIntegrity);
+	}
+
 	protected void setTidyCompat(final boolean tidyCompat) {
 		set(Option.TidyCompat, tidyCompat);
 	}
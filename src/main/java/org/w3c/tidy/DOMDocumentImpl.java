@@ -53,6 +53,12 @@
  */
 package org.w3c.tidy;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.w3c.dom.DOMConfiguration;
 import org.w3c.dom.DOMException;
 import org.w3c.tidy.Node.NodeType;
@@ -72,6 +78,17 @@ public class DOMDocumentImpl extends DOMNodeImpl implements org.w3c.dom.Document
      */
     private final TagTable tt;
 
+    /**
+     * Elements of the document by tag name, "*" for all the elements. Built on first use and kept until the document
+     * is modified through the DOM.
+     */
+    private Map<String, List<Node>> elementsByTagName;
+
+    /**
+     * Structure version of the DOM when elementsByTagName was built.
+     */
+    private int elementsByTagNameVersion;
+
     /**
      * Instantiates a new Dom document with a default tag table.
      * @param adaptee tidy Node
@@ -244,6 +261,40 @@ public class DOMDocumentImpl extends DOMNodeImpl implements org.w3c.dom.Document
         return new DOMNodeListByTagNameImpl(this.adaptee, tagname);
     }
 
+    /**
+     * Returns the elements of the document with a given tag name, from an index of all the elements built by a single
+     * traversal of the document.
+     * @param tagName tag name, "*" for all the elements
+     * @return elements in document order
+     */
+    List<Node> getElementsByTagNameIndex(final String tagName)
+    {
+        final int current = getStructureVersion();
+        if (elementsByTagName == null || elementsByTagNameVersion != current)
+        {
+            elementsByTagNameVersion = current;
+            elementsByTagName = new HashMap<String, List<Node>>();
+            final List<Node> all = new ArrayList<Node>();
+            for (Node node = adaptee; node != null; node = DOMNodeListByTagNameImpl.nextInSubtree(adaptee, node))
+            {
+                if (DOMNodeListByTagNameImpl.isElement(node))
+                {
+                    all.add(node);
+                    List<Node> named = elementsByTagName.get(node.element);
+                    if (named == null)
+                    {
+                        named = new ArrayList<Node>();
+                        elementsByTagName.put(node.element, named);
+                    }
+                    named.add(node);
+                }
+            }
+            elementsByTagName.put("*", all);
+        }
+        final List<Node> elements = elementsByTagName.get(tagName);
+        return elements != null ? elements : Collections.<Node> emptyList();
+    }
+
     /**
      * @todo DOM level 2 importNode() Not supported. Throws NOT_SUPPORTED_ERR.
      * @see org.w3c.dom.Document#importNode(org.w3c.dom.Node, boolean)
@@ -54,6 +54,7 @@
 
 package org.w3c.tidy;
 
+
 import org.w3c.dom.DOMException;
 import org.w3c.dom.UserDataHandler;
 import org.w3c.tidy.Node.NodeType;
@@ -73,6 +74,12 @@ public class DOMNodeImpl implements org.w3c.dom.Node
      */
     protected Node adaptee;
 
+    /**
+     * Counts the structural modifications made through the DOM to the tree this node is the top of, usually a
+     * document. Cached lists of elements of the tree are collected again when it changes.
+     */
+    private int structureVersion;
+
     /**
      * Intantiates a new DOM node.
      * @param adaptee wrapped Tidy node
@@ -82,6 +89,45 @@ public class DOMNodeImpl implements org.w3c.dom.Node
         this.adaptee = adaptee;
     }
 
+    /**
+     * Returns the number of structural modifications made through the DOM so far to the tree this node is the top of.
+     * @return structure version
+     */
+    int getStructureVersion()
+    {
+        return structureVersion;
+    }
+
+    /**
+     * Returns the top of the tree containing a node: the document, or the outermost ancestor of a node which is not
+     * part of a document.
+     * @param node node
+     * @return adapter of the top node
+     */
+    static DOMNodeImpl getTreeTop(final Node node)
+    {
+        Node top = node;
+        while (top.parent != null)
+        {
+            top = top.parent;
+        }
+        return (DOMNodeImpl) top.getAdapter();
+    }
+
+    /**
+     * Records a structural modification of the tree of this node, and of the tree a moved node comes from.
+     * @param previousTree top of the tree of the moved node before the modification
+     */
+    private void structureChanged(final DOMNodeImpl previousTree)
+    {
+        final DOMNodeImpl tree = getTreeTop(this.adaptee);
+        tree.structureVersion++;
+        if (previousTree != null && previousTree != tree)
+        {
+            previousTree.structureVersion++;
+        }
+    }
+
     /**
      * @see org.w3c.dom.Node#getNodeValue
      */
@@ -296,6 +342,7 @@ public class DOMNodeImpl implements org.w3c.dom.Node
                 throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "newChild cannot be a child of this node");
             }
         }
+        final DOMNodeImpl previousTree = getTreeTop(newCh.adaptee);
         newCh.adaptee.removeNode();
         if (refChild == null) {
             this.adaptee.insertNodeAtEnd(newCh.adaptee);
@@ -310,6 +357,7 @@ public class DOMNodeImpl implements org.w3c.dom.Node
             }
             Node.insertNodeBeforeElement(refCh.adaptee, newCh.adaptee);
         }
+        structureChanged(previousTree);
         return newChild;
     }
 
@@ -353,6 +401,7 @@ public class DOMNodeImpl implements org.w3c.dom.Node
         {
             this.adaptee.setType(NodeType.StartEndTag);
         }
+        structureChanged(null);
 
         return oldChild;
     }
@@ -396,12 +445,14 @@ public class DOMNodeImpl implements org.w3c.dom.Node
                 throw new DOMException(DOMException.HIERARCHY_REQUEST_ERR, "newChild cannot be a child of this node");
             }
         }
+        final DOMNodeImpl previousTree = getTreeTop(newCh.adaptee);
         this.adaptee.insertNodeAtEnd(newCh.adaptee);
 
         if (this.adaptee.type == NodeType.StartEndTag)
         {
             this.adaptee.setType(NodeType.StartTag);
         }
+        structureChanged(previousTree);
 
         return newChild;
     }
@@ -54,6 +54,10 @@
 
 package org.w3c.tidy;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.w3c.tidy.Node.NodeType;
 
 /**
@@ -78,19 +82,20 @@ public class DOMNodeListByTagNameImpl implements org.w3c.dom.NodeList
     private final String tagName;
 
     /**
-     * Current index.
+     * Matching nodes, in document order. Collected on first access and kept until the document is modified through
+     * the DOM.
      */
-    private int currIndex;
+    private List<Node> items;
 
     /**
-     * Max index (number of nodes).
+     * Top of the tree containing the first node when items were collected.
      */
-    private int maxIndex;
+    private DOMNodeImpl tree;
 
     /**
-     * Current node.
+     * Structure version of the tree when items were collected.
      */
-    private Node currNode;
+    private int version;
 
     /**
      * Instantiates a new DOMNodeListByTagName.
@@ -108,13 +113,10 @@ public class DOMNodeListByTagNameImpl implements org.w3c.dom.NodeList
      */
     public org.w3c.dom.Node item(final int index)
     {
-        currIndex = 0;
-        maxIndex = index;
-        preTraverse(first);
-
-        if (currIndex > maxIndex && currNode != null)
+        final List<Node> nodes = getItems();
+        if (index >= 0 && index < nodes.size())
         {
-            return currNode.getAdapter();
+            return nodes.get(index).getAdapter();
         }
 
         return null;
@@ -125,42 +127,71 @@ public class DOMNodeListByTagNameImpl implements org.w3c.dom.NodeList
      */
     public int getLength()
     {
-        currIndex = 0;
-        maxIndex = Integer.MAX_VALUE;
-        preTraverse(first);
-        return currIndex;
+        return getItems().size();
     }
 
     /**
-     * Traverse the node list.
-     * @param node Node
+     * Returns the matching nodes, collecting them again if their tree has been modified since the last call. The lists of
+     * a whole document share the tag name index of the document.
+     * @return matching nodes
      */
-    protected void preTraverse(Node node)
+    private List<Node> getItems()
     {
-        if (node == null)
+        if (first == null)
         {
-            return;
+            return Collections.emptyList();
         }
-
-        if (node.type == NodeType.StartTag || node.type == NodeType.StartEndTag)
+        final DOMNodeImpl currentTree = DOMNodeImpl.getTreeTop(first);
+        final int current = currentTree.getStructureVersion();
+        if (items == null || tree != currentTree || version != current)
         {
-            if (currIndex <= maxIndex && (tagName.equals("*") || tagName.equals(node.element)))
+            tree = currentTree;
+            version = current;
+            if (first.type == NodeType.RootNode)
+            {
+                items = ((DOMDocumentImpl) first.getAdapter()).getElementsByTagNameIndex(tagName);
+            }
+            else
             {
-                currIndex += 1;
-                currNode = node;
+                items = new ArrayList<Node>();
+                for (Node node = first; node != null; node = nextInSubtree(first, node))
+                {
+                    if (isElement(node) && (tagName.equals("*") || tagName.equals(node.element)))
+                    {
+                        items.add(node);
+                    }
+                }
             }
         }
-        if (currIndex > maxIndex)
+        return items;
+    }
+
+    /**
+     * Returns true if the node is an element.
+     * @param node Node
+     * @return true for start tags and empty elements
+     */
+    static boolean isElement(final Node node)
+    {
+        return node.type == NodeType.StartTag || node.type == NodeType.StartEndTag;
+    }
+
+    /**
+     * Returns the node following a node in a pre-order traversal of a subtree, without recursion.
+     * @param root root of the subtree
+     * @param node current node
+     * @return next node, null at the end of the subtree
+     */
+    static Node nextInSubtree(final Node root, Node node)
+    {
+        if (node.content != null)
         {
-            return;
+            return node.content;
         }
-
-        node = node.content;
-        while (node != null)
+        while (node != root && node.next == null)
         {
-            preTraverse(node);
-            node = node.next;
+            node = node.parent;
         }
+        return node == root ? null : node.next;
     }
-
-}
\ No newline at end of file
+}
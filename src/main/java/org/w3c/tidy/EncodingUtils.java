@@ -167,6 +167,11 @@ public final class EncodingUtils
      */
     private static final int UTF8_NOT_A_CHAR = 0xFFFF;
 
+    /**
+     * replacement char for invalid UTF-8 sequences.
+     */
+    static final int UTF8_REPLACEMENT_CHAR = 0xFFFD;
+
     /**
      * Mapping for Windows Western character set (128-159) to Unicode.
      */
@@ -805,7 +810,109 @@ public final class EncodingUtils
             n = n << 6 | buf[startInSuccessorBytesArray + i - 1] & 0x3F;
         }
 
-        if (!hasError && (n == UTF8_BYTE_SWAP_NOT_A_CHAR || n == UTF8_NOT_A_CHAR))
+        if (!hasError)
+        {
+            hasError = isInvalidUTF8(n, bytes, firstByte, buf, startInSuccessorBytesArray);
+        }
+
+        count[0] = bytes;
+
+        c[0] = n;
+
+        // n = 0xFFFD;
+        // replacement char - do this in the caller
+        return hasError;
+
+    }
+
+    /**
+     * Decodes a UTF-8 byte sequence stored in an array, without allocating. Invalid or truncated sequences are decoded
+     * as the replacement char 0xFFFD.
+     * @param buf array containing the byte sequence
+     * @param start offset of the first byte in buf
+     * @return the decoded char in the low 32 bits, the number of bytes read in the high 32 bits
+     */
+    static long decodeUTF8BytesToChar(final byte[] buf, final int start)
+    {
+        final int firstByte = buf[start] & 0xFF;
+        int n;
+        int bytes;
+        boolean hasError = false;
+
+        if (firstByte <= 0x7F) // 0XXX XXXX one byte
+        {
+            return 1L << 32 | firstByte;
+        }
+        else if ((firstByte & 0xE0) == 0xC0) /* 110X XXXX two bytes */
+        {
+            n = firstByte & 31;
+            bytes = 2;
+        }
+        else if ((firstByte & 0xF0) == 0xE0) /* 1110 XXXX three bytes */
+        {
+            n = firstByte & 15;
+            bytes = 3;
+        }
+        else if ((firstByte & 0xF8) == 0xF0) /* 1111 0XXX four bytes */
+        {
+            n = firstByte & 7;
+            bytes = 4;
+        }
+        else if ((firstByte & 0xFC) == 0xF8) /* 1111 10XX five bytes */
+        {
+            n = firstByte & 3;
+            bytes = 5;
+            hasError = true;
+        }
+        else if ((firstByte & 0xFE) == 0xFC) /* 1111 110X six bytes */
+        {
+            n = firstByte & 1;
+            bytes = 6;
+            hasError = true;
+        }
+        else
+        {
+            // not a valid first byte of a UTF-8 sequence
+            n = firstByte;
+            bytes = 1;
+            hasError = true;
+        }
+
+        for (int i = 1; i < bytes; ++i)
+        {
+            // successor bytes should have the form 10XX XXXX
+            if (start + i >= buf.length || (buf[start + i] & 0xC0) != 0x80)
+            {
+                hasError = true;
+                bytes = i;
+                break;
+            }
+            n = n << 6 | buf[start + i] & 0x3F;
+        }
+
+        if (!hasError)
+        {
+            hasError = isInvalidUTF8(n, bytes, firstByte, buf, start + 1);
+        }
+
+        return (long) bytes << 32 | (hasError ? UTF8_REPLACEMENT_CHAR : n);
+    }
+
+    /**
+     * Checks a decoded UTF-8 sequence for invalid chars and overlong or otherwise malformed byte sequences.
+     * @param n decoded char
+     * @param bytes length of the byte sequence
+     * @param firstByte first byte of the sequence
+     * @param successorBytes array containing the successor bytes
+     * @param startInSuccessorBytesArray offset of the successor bytes in successorBytes
+     * @return <code>true</code> if error
+     */
+    private static boolean isInvalidUTF8(final int n, final int bytes, final int firstByte, final byte[] successorBytes,
+        final int startInSuccessorBytesArray)
+    {
+        boolean hasError = false;
+
+        if (n == UTF8_BYTE_SWAP_NOT_A_CHAR || n == UTF8_NOT_A_CHAR)
         {
             hasError = true;
         }
@@ -835,7 +942,7 @@ public final class EncodingUtils
             {
                 hasError = true; // assume error until proven otherwise
 
-                for (i = lo; i <= hi; i++)
+                for (int i = lo; i <= hi; i++)
                 {
                     int tempCount;
                     char theByte; //unsigned
@@ -848,7 +955,7 @@ public final class EncodingUtils
                         }
                         else
                         {
-                            theByte = (char) buf[startInSuccessorBytesArray + tempCount - 1];
+                            theByte = (char) successorBytes[startInSuccessorBytesArray + tempCount - 1];
                         }
                         if (theByte >= VALID_UTF8[i].validBytes[(tempCount * 2)]
                             && theByte <= VALID_UTF8[i].validBytes[tempCount * 2 + 1])
@@ -864,14 +971,7 @@ public final class EncodingUtils
             }
         }
 
-        count[0] = bytes;
-
-        c[0] = n;
-
-        // n = 0xFFFD;
-        // replacement char - do this in the caller
         return hasError;
-
     }
 
     /**
@@ -884,33 +984,56 @@ public final class EncodingUtils
      */
     static boolean encodeCharToUTF8Bytes(final int c, final byte[] encodebuf, final PutBytes putter, final int[] count)
     {
-        int bytes = 0;
+        final byte[] buf = encodebuf != null ? encodebuf : new byte[10];
 
-        byte[] buf = new byte[10];
+        final int result = encodeCharToUTF8Bytes(c, buf, 0);
+        final int bytes = Math.abs(result);
+        boolean hasError = result <= 0;
 
-        if (encodebuf != null)
+        if (!hasError && putter != null) // don't output invalid UTF-8 byte sequence to a stream
         {
-            buf = encodebuf;
+            final int[] tempCount = new int[]{bytes};
+            putter.doPut(buf, tempCount);
+
+            if (tempCount[0] < bytes)
+            {
+                hasError = true;
+            }
         }
 
+        count[0] = bytes;
+        return hasError;
+    }
+
+    /**
+     * Encodes a char as UTF-8 directly into an array, without allocating.
+     * @param c char to encode
+     * @param buf destination array, which must have room for up to 6 bytes after offset
+     * @param offset offset of the first byte in buf
+     * @return the number of bytes written, or its negation if the char can't be encoded as valid UTF-8 (the bytes
+     * written must then be replaced by the caller)
+     */
+    static int encodeCharToUTF8Bytes(final int c, final byte[] buf, final int offset)
+    {
+        int bytes = 0;
         boolean hasError = false;
 
         if (c <= 0x7F) // 0XXX XXXX one byte
         {
-            buf[0] = (byte) c;
+            buf[offset] = (byte) c;
             bytes = 1;
         }
         else if (c <= 0x7FF) // 110X XXXX two bytes
         {
-            buf[0] = (byte) (0xC0 | c >> 6);
-            buf[1] = (byte) (0x80 | c & 0x3F);
+            buf[offset] = (byte) (0xC0 | c >> 6);
+            buf[offset + 1] = (byte) (0x80 | c & 0x3F);
             bytes = 2;
         }
         else if (c <= 0xFFFF) // 1110 XXXX three bytes
         {
-            buf[0] = (byte) (0xE0 | c >> 12);
-            buf[1] = (byte) (0x80 | c >> 6 & 0x3F);
-            buf[2] = (byte) (0x80 | c & 0x3F);
+            buf[offset] = (byte) (0xE0 | c >> 12);
+            buf[offset + 1] = (byte) (0x80 | c >> 6 & 0x3F);
+            buf[offset + 2] = (byte) (0x80 | c & 0x3F);
             bytes = 3;
             if (c == UTF8_BYTE_SWAP_NOT_A_CHAR || c == UTF8_NOT_A_CHAR)
             {
@@ -924,10 +1047,10 @@ public final class EncodingUtils
         }
         else if (c <= 0x1FFFFF) // 1111 0XXX four bytes
         {
-            buf[0] = (byte) (0xF0 | c >> 18);
-            buf[1] = (byte) (0x80 | c >> 12 & 0x3F);
-            buf[2] = (byte) (0x80 | c >> 6 & 0x3F);
-            buf[3] = (byte) (0x80 | c & 0x3F);
+            buf[offset] = (byte) (0xF0 | c >> 18);
+            buf[offset + 1] = (byte) (0x80 | c >> 12 & 0x3F);
+            buf[offset + 2] = (byte) (0x80 | c >> 6 & 0x3F);
+            buf[offset + 3] = (byte) (0x80 | c & 0x3F);
             bytes = 4;
             if (c > MAX_UTF8_FROM_UCS4)
             {
@@ -936,22 +1059,22 @@ public final class EncodingUtils
         }
         else if (c <= 0x3FFFFFF) // 1111 10XX five bytes
         {
-            buf[0] = (byte) (0xF8 | c >> 24);
-            buf[1] = (byte) (0x80 | c >> 18);
-            buf[2] = (byte) (0x80 | c >> 12 & 0x3F);
-            buf[3] = (byte) (0x80 | c >> 6 & 0x3F);
-            buf[4] = (byte) (0x80 | c & 0x3F);
+            buf[offset] = (byte) (0xF8 | c >> 24);
+            buf[offset + 1] = (byte) (0x80 | c >> 18);
+            buf[offset + 2] = (byte) (0x80 | c >> 12 & 0x3F);
+            buf[offset + 3] = (byte) (0x80 | c >> 6 & 0x3F);
+            buf[offset + 4] = (byte) (0x80 | c & 0x3F);
             bytes = 5;
             hasError = true;
         }
         else if (c <= 0x7FFFFFFF) // 1111 110X six bytes
         {
-            buf[0] = (byte) (0xFC | c >> 30);
-            buf[1] = (byte) (0x80 | c >> 24 & 0x3F);
-            buf[2] = (byte) (0x80 | c >> 18 & 0x3F);
-            buf[3] = (byte) (0x80 | c >> 12 & 0x3F);
-            buf[4] = (byte) (0x80 | c >> 6 & 0x3F);
-            buf[5] = (byte) (0x80 | c & 0x3F);
+            buf[offset] = (byte) (0xFC | c >> 30);
+            buf[offset + 1] = (byte) (0x80 | c >> 24 & 0x3F);
+            buf[offset + 2] = (byte) (0x80 | c >> 18 & 0x3F);
+            buf[offset + 3] = (byte) (0x80 | c >> 12 & 0x3F);
+            buf[offset + 4] = (byte) (0x80 | c >> 6 & 0x3F);
+            buf[offset + 5] = (byte) (0x80 | c & 0x3F);
             bytes = 6;
             hasError = true;
         }
@@ -960,19 +1083,7 @@ public final class EncodingUtils
             hasError = true;
         }
 
-        if (!hasError && putter != null) // don't output invalid UTF-8 byte sequence to a stream
-        {
-            final int[] tempCount = new int[]{bytes};
-            putter.doPut(buf, tempCount);
-
-            if (tempCount[0] < bytes)
-            {
-                hasError = true;
-            }
-        }
-
-        count[0] = bytes;
-        return hasError;
+        return hasError ? -bytes : bytes;
     }
 
     /**
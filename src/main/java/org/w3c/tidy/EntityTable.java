@@ -57,6 +57,7 @@ import static org.w3c.tidy.Versions.VERS_ALL;
 import static org.w3c.tidy.Versions.VERS_FROM40;
 import static org.w3c.tidy.Versions.VERS_XML;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -73,7 +74,7 @@ public final class EntityTable
     /**
      * the default entity table.
      */
-    private static EntityTable defaultEntityTable;
+    private static final EntityTable defaultEntityTable;
 
     /**
      * Known entities.
@@ -340,11 +341,77 @@ public final class EntityTable
         new Entity("rsaquo", VERS_FROM40, 8250),
         new Entity("euro", VERS_FROM40, 8364)};
 
+    static
+    {
+        // built eagerly, so that the default table can be safely shared by tidy instances running in other threads
+        defaultEntityTable = new EntityTable();
+        for (int i = 0; i < entities.length; i++)
+        {
+            defaultEntityTable.install(entities[i]);
+        }
+    }
+
+    /**
+     * Initial state for {@link #nextState(int, int)}: no character of the name read yet.
+     */
+    public static final int ROOT_STATE = 0;
+
+    /**
+     * State returned by {@link #nextState(int, int)} when no entity name starts with the characters read so far.
+     */
+    public static final int NO_STATE = -1;
+
+    /**
+     * Start of the second range indexed by the reverse lookup: general punctuation, arrows and mathematical symbols.
+     */
+    private static final int SYMBOL_START = 0x2000;
+
     /**
      * Entity map.
      */
     private final Map<String, Entity> entityMap = new HashMap<String, Entity>();
 
+    /**
+     * Entity names for the codes below 1024 (latin-1, latin extended, greek).
+     */
+    private final String[] latinNames = new String[0x400];
+
+    /**
+     * Entity names for the codes from SYMBOL_START to SYMBOL_START + 2047.
+     */
+    private final String[] symbolNames = new String[0x800];
+
+    /**
+     * Entity names for the codes outside both indexed ranges.
+     */
+    private final Map<Integer, String> otherNames = new HashMap<Integer, String>();
+
+    /**
+     * Transitions of the entity name trie, as an open addressing hash table from state and character (see
+     * {@link #transitionKey(int, int)}) to the next state. Empty slots hold -1.
+     */
+    private int[] transitionKeys = newTransitionKeys(512);
+
+    /**
+     * Target states of the transitions, parallel to transitionKeys.
+     */
+    private int[] transitionStates = new int[512];
+
+    /**
+     * Number of transitions.
+     */
+    private int transitionCount;
+
+    /**
+     * Entity whose name ends in a trie state, indexed by state.
+     */
+    private Entity[] stateEntities = new Entity[512];
+
+    /**
+     * Number of trie states, including the root.
+     */
+    private int stateCount = 1;
+
     /**
      * use getDefaultEntityTable to get an entity table instance.
      */
@@ -360,9 +427,160 @@ public final class EntityTable
      */
     private Entity install(final Entity ent)
     {
+        installCode(ent.getCode(), ent.getName());
+        installName(ent);
         return this.entityMap.put(ent.getName(), ent);
     }
 
+    /**
+     * Adds an entity to the reverse lookup. The first entity installed for a code is the one returned by
+     * {@link #entityName(short)}.
+     * @param code entity code
+     * @param name entity name
+     */
+    private void installCode(final int code, final String name)
+    {
+        if (code >= 0 && code < latinNames.length)
+        {
+            if (latinNames[code] == null)
+            {
+                latinNames[code] = name;
+            }
+        }
+        else if (code >= SYMBOL_START && code < SYMBOL_START + symbolNames.length)
+        {
+            if (symbolNames[code - SYMBOL_START] == null)
+            {
+                symbolNames[code - SYMBOL_START] = name;
+            }
+        }
+        else if (!otherNames.containsKey(code))
+        {
+            otherNames.put(code, name);
+        }
+    }
+
+    /**
+     * Adds the name of an entity to the trie.
+     * @param ent entity
+     */
+    private void installName(final Entity ent)
+    {
+        final String name = ent.getName();
+        int state = ROOT_STATE;
+        for (int i = 0; i < name.length(); i++)
+        {
+            final int c = name.charAt(i);
+            int next = nextState(state, c);
+            if (next == NO_STATE)
+            {
+                next = stateCount++;
+                if (next == stateEntities.length)
+                {
+                    final Entity[] grown = new Entity[stateEntities.length * 2];
+                    System.arraycopy(stateEntities, 0, grown, 0, stateEntities.length);
+                    stateEntities = grown;
+                }
+                addTransition(transitionKey(state, c), next);
+            }
+            state = next;
+        }
+        stateEntities[state] = ent;
+    }
+
+    /**
+     * Adds a transition to the trie, growing the hash table when it gets half full.
+     * @param key transition key
+     * @param state target state
+     */
+    private void addTransition(final int key, final int state)
+    {
+        if (2 * (transitionCount + 1) > transitionKeys.length)
+        {
+            final int[] oldKeys = transitionKeys;
+            final int[] oldStates = transitionStates;
+            transitionKeys = newTransitionKeys(oldKeys.length * 2);
+            transitionStates = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++)
+            {
+                if (oldKeys[i] != -1)
+                {
+                    putTransition(oldKeys[i], oldStates[i]);
+                }
+            }
+        }
+        putTransition(key, state);
+        transitionCount++;
+    }
+
+    private void putTransition(final int key, final int state)
+    {
+        final int mask = transitionKeys.length - 1;
+        int i = hash(key) & mask;
+        while (transitionKeys[i] != -1)
+        {
+            i = (i + 1) & mask;
+        }
+        transitionKeys[i] = key;
+        transitionStates[i] = state;
+    }
+
+    private static int[] newTransitionKeys(final int size)
+    {
+        final int[] keys = new int[size];
+        Arrays.fill(keys, -1);
+        return keys;
+    }
+
+    private static int transitionKey(final int state, final int c)
+    {
+        return state << 16 | c;
+    }
+
+    private static int hash(final int key)
+    {
+        final int h = key * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * Advances the entity name trie by one character, so that entity names can be looked up while they are read,
+     * without building a string for them.
+     * @param state current state, {@link #ROOT_STATE} before the first character of the name
+     * @param c next character of the name
+     * @return next state, or {@link #NO_STATE} if no entity name starts with the characters read
+     */
+    public int nextState(final int state, final int c)
+    {
+        if (state == NO_STATE || c > 0xFFFF)
+        {
+            return NO_STATE;
+        }
+        final int key = transitionKey(state, c);
+        final int mask = transitionKeys.length - 1;
+        int i = hash(key) & mask;
+        int k;
+        while ((k = transitionKeys[i]) != -1)
+        {
+            if (k == key)
+            {
+                return transitionStates[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_STATE;
+    }
+
+    /**
+     * Returns the entity whose name has been read to get to the given state.
+     * @param state state returned by {@link #nextState(int, int)}
+     * @return entity, or null if the characters read are not (exactly) the name of an entity
+     */
+    public Entity entityAt(final int state)
+    {
+        return state == NO_STATE ? null : stateEntities[state];
+    }
+
     /**
      * Lookup an entity by its name.
      * @param name entity name
@@ -410,16 +628,15 @@ public final class EntityTable
      */
     public String entityName(final short code)
     {
-        String name = null;
-        for (final Entity ent : entityMap.values())
+        if (code >= 0 && code < latinNames.length)
         {
-            if (ent.getCode() == code)
-            {
-                name = ent.getName();
-                break;
-            }
+            return latinNames[code];
+        }
+        if (code >= SYMBOL_START && code < SYMBOL_START + symbolNames.length)
+        {
+            return symbolNames[code - SYMBOL_START];
         }
-        return name;
+        return otherNames.isEmpty() ? null : otherNames.get(Integer.valueOf(code));
     }
 
     /**
@@ -428,14 +645,6 @@ public final class EntityTable
      */
     public static EntityTable getDefaultEntityTable()
     {
-        if (defaultEntityTable == null)
-        {
-            defaultEntityTable = new EntityTable();
-            for (int i = 0; i < entities.length; i++)
-            {
-                defaultEntityTable.install(entities[i]);
-            }
-        }
         return defaultEntityTable;
     }
 
@@ -432,6 +432,11 @@ public enum ErrorCode implements IErrorCode {
     
     PREVIOUS_LOCATION(88),
 
+    /**
+     * parsing aborted because a parse limit was exceeded.
+     */
+    PARSE_ABORTED(89),
+
     /**
      * Constant used for reporting of given doctype.
      */
@@ -0,0 +1,573 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.w3c.tidy.Node.NodeType;
+
+
+/**
+ * Incremental re-tidy of a document which is edited repeatedly. The source and the parsed tree are kept between
+ * edits; for an edit the innermost block element enclosing the changed range (found walking down from
+ * <code>body</code>) is re-parsed on its own and spliced into the existing tree, while the rest of the tree is reused.
+ * <p>
+ * The block is re-parsed in a small document which reproduces the chain of its ancestors, using a new session of the
+ * same {@link TidyEngine}, so that the same cleaning rules apply. Whenever the result could differ from tidying the
+ * whole edited document, the whole document is parsed again instead: e.g. if the edit is not enclosed by a block
+ * with a following sibling, if the re-parsed block reports warnings or errors (missing end tags may affect the
+ * following content), if it changes the set of anchors or the HTML versions the document conforms to, or if the
+ * configuration uses document level cleaning (<code>clean</code>, <code>drop-font-tags</code>,
+ * <code>word-2000</code>) or XML input.
+ * </p>
+ * <p>
+ * Offsets are character offsets in the source text. Messages are not reported: use {@link Tidy} to get a full
+ * report of a document.
+ * </p>
+ *
+ * <pre>
+ * final IncrementalTidy doc = new IncrementalTidy(engine, html);
+ * doc.edit(offset, length, "new text");
+ * doc.print(out);
+ * </pre>
+ *
+ * @version $Revision$ ($Author$)
+ */
+public final class IncrementalTidy
+{
+
+    /**
+     * Start of the document used to re-parse a block.
+     */
+    private static final String FRAGMENT_PREFIX = "<html><head><title></title></head><body>";
+
+    /**
+     * End of the document used to re-parse a block.
+     */
+    private static final String FRAGMENT_SUFFIX = "</body></html>";
+
+    /**
+     * Engine creating the sessions.
+     */
+    private final TidyEngine engine;
+
+    /**
+     * Current source text.
+     */
+    private String source;
+
+    /**
+     * Session which parsed the whole document, used for printing.
+     */
+    private Tidy session;
+
+    /**
+     * Current document tree.
+     */
+    private Node document;
+
+    /**
+     * Start of the first line with a warning or an error, which may affect the following content: e.g. an inline
+     * element which is not closed is inferred again in the following blocks.
+     */
+    private int problemOffset;
+
+    /**
+     * Parses a document.
+     * @param engine engine creating the sessions
+     * @param source source text
+     */
+    public IncrementalTidy(final TidyEngine engine, final String source)
+    {
+        this.engine = engine;
+        this.source = source;
+        parseDocument();
+    }
+
+    /**
+     * Getter for the current source text, including all the edits.
+     * @return source text
+     */
+    public String getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Getter for the current document tree.
+     * @return document node, <code>null</code> if tidy gave up on the document
+     */
+    public Node getDocument()
+    {
+        return document;
+    }
+
+    /**
+     * Replaces a range of the source text and updates the tree.
+     * @param offset start of the replaced range
+     * @param length length of the replaced range
+     * @param replacement new text
+     * @return <code>true</code> if only the enclosing block has been re-parsed, <code>false</code> if the whole
+     * document has been parsed again
+     */
+    public boolean edit(final int offset, final int length, final String replacement)
+    {
+        if (offset < 0 || length < 0 || offset + length > source.length())
+        {
+            throw new IndexOutOfBoundsException("Invalid range " + offset + "+" + length + " for length "
+                + source.length());
+        }
+
+        final String previous = source;
+        source = previous.substring(0, offset) + replacement + previous.substring(offset + length);
+
+        final Node block = isIncremental() ? findBlock(previous, offset, offset + length) : null;
+        if (block != null && retidyBlock(previous, block, replacement.length() - length))
+        {
+            if (problemOffset != Integer.MAX_VALUE)
+            {
+                problemOffset += replacement.length() - length;
+            }
+            return true;
+        }
+
+        parseDocument();
+        return false;
+    }
+
+    /**
+     * Pretty-prints the current document. Unlike <code>Tidy.parse()</code>, the document is printed even if it
+     * contains errors.
+     * @param out output stream
+     */
+    public void print(final OutputStream out)
+    {
+        if (document != null)
+        {
+            session.printDocument(document, OutFactory.getOut(session.getConfiguration(), out));
+        }
+    }
+
+    /**
+     * Pretty-prints the current document. Unlike <code>Tidy.parse()</code>, the document is printed even if it
+     * contains errors.
+     * @param out writer
+     */
+    public void print(final Writer out)
+    {
+        if (document != null)
+        {
+            session.printDocument(document, OutFactory.getOut(session.getConfiguration(), out));
+        }
+    }
+
+    /**
+     * Parses the whole source text.
+     */
+    private void parseDocument()
+    {
+        final ProblemListener listener = new ProblemListener(1);
+        session = engine.newSession();
+        session.setErrout(new PrintWriter(new StringWriter()));
+        session.setShowWarnings(true);
+        session.setShowErrors(Integer.MAX_VALUE);
+        session.setMessageListener(listener);
+        document = session.parse(new StringReader(source), (OutputStream) null);
+
+        problemOffset = Integer.MAX_VALUE;
+        if (listener.firstLine != Integer.MAX_VALUE)
+        {
+            problemOffset = 0;
+            for (int line = 1; line < listener.firstLine; line++)
+            {
+                final int newline = source.indexOf('\n', problemOffset);
+                if (newline < 0)
+                {
+                    break;
+                }
+                problemOffset = newline + 1;
+            }
+        }
+    }
+
+    /**
+     * Can blocks be re-parsed on their own with the current configuration?
+     * @return <code>true</code> if the cleaning rules only have local effects
+     */
+    private boolean isIncremental()
+    {
+        final Configuration configuration = session.getConfiguration();
+        return document != null
+            && !configuration.isXmlTags()
+            && !configuration.isMakeClean()
+            && !configuration.isDropFontTags()
+            && !configuration.isWord2000();
+    }
+
+    /**
+     * Finds the innermost block element enclosing a range of the source text. The block must start with its own start
+     * tag and must be followed by a sibling starting with a tag, so that its source is delimited, and no warning or
+     * error must have been reported up to the end of the block.
+     * @param text source text the tree has been built from
+     * @param start start of the range
+     * @param end end of the range
+     * @return block element, <code>null</code> if there is none
+     */
+    private Node findBlock(final String text, final int start, final int end)
+    {
+        final Node body = document.findBody();
+        Node block = null;
+        Node node = body != null ? body.content : null;
+
+        while (node != null)
+        {
+            // move to the child which may contain the range
+            while (node.next != null && node.next.offset <= start)
+            {
+                node = node.next;
+            }
+
+            if (node.offset <= start
+                && node.next != null
+                && end <= node.next.offset
+                && node.next.offset <= problemOffset
+                && (node.next.next == null || node.next.offset < node.next.next.offset)
+                && !node.implicit
+                && node.tag != null
+                && !node.hasCM(Dict.CM_INLINE)
+                && startsWithTag(text, node)
+                && startsWithTag(text, node.next))
+            {
+                block = node;
+            }
+            node = node.content;
+        }
+        return block;
+    }
+
+    /**
+     * Checks that a node has been created from a tag found at its offset in the source text.
+     * @param text source text
+     * @param node node
+     * @return <code>true</code> if the node offset points to its own tag
+     */
+    private static boolean startsWithTag(final String text, final Node node)
+    {
+        final int offset = node.offset;
+        if (offset < 0 || offset >= text.length() || text.charAt(offset) != '<')
+        {
+            return false;
+        }
+        if (node.type == NodeType.CommentTag)
+        {
+            return text.startsWith("<!--", offset);
+        }
+        if (node.type != NodeType.StartTag && node.type != NodeType.StartEndTag || node.element == null)
+        {
+            return false;
+        }
+
+        final int end = offset + 1 + node.element.length();
+        return text.regionMatches(true, offset + 1, node.element, 0, node.element.length())
+            && end < text.length()
+            && !TidyUtils.isNamechar(text.charAt(end));
+    }
+
+    /**
+     * Re-parses a block and replaces it in the tree.
+     * @param previous source text before the edit
+     * @param block block enclosing the edit
+     * @param delta change of the source length
+     * @return <code>true</code> if the block has been replaced, <code>false</code> if the whole document has to be
+     * parsed again
+     */
+    private boolean retidyBlock(final String previous, final Node block, final int delta)
+    {
+        final List<Node> ancestors = new ArrayList<Node>();
+        for (Node parent = block.parent; parent != null && !parent.is(TagId.BODY); parent = parent.parent)
+        {
+            ancestors.add(0, parent);
+        }
+
+        final StringBuilder prefix = new StringBuilder(FRAGMENT_PREFIX);
+        final StringBuilder suffix = new StringBuilder();
+        for (final Node ancestor : ancestors)
+        {
+            prefix.append('<').append(ancestor.element).append('>');
+            suffix.insert(0, "</" + ancestor.element + ">");
+        }
+        // keep the block on its own lines, so that messages about it can be told apart
+        prefix.append('\n');
+        suffix.append(FRAGMENT_SUFFIX);
+
+        final int start = block.offset;
+        final int end = block.next.offset;
+
+        final Fragment edited = new Fragment(prefix + source.substring(start, end + delta) + suffix);
+        final Node replacement = edited.findBlock(ancestors);
+        if (replacement == null || !edited.clean)
+        {
+            return false;
+        }
+        // a block without end tag was closed by the following sibling, which must still be the case
+        if (!replacement.closed && (block.closed || !replacement.element.equals(block.element)))
+        {
+            return false;
+        }
+        if (!getAnchors(block, new HashSet<String>()).equals(getAnchors(replacement, new HashSet<String>())))
+        {
+            return false;
+        }
+
+        // the doctype depends on the versions allowed by all the elements and attributes, which don't change if the
+        // block allows the same versions as before, or fewer ones which still include those allowed by the document
+        final Fragment original = new Fragment(prefix + previous.substring(start, end) + suffix);
+        final int versions = session.getLexer().versions;
+        if (original.versions != edited.versions
+            && ((original.versions & edited.versions) != edited.versions || (edited.versions & versions) != versions))
+        {
+            return false;
+        }
+
+        replacement.removeNode();
+        Node.insertNodeBeforeElement(block, replacement);
+        block.removeNode();
+
+        shiftOffsets(replacement, start - prefix.length());
+        for (Node node = replacement; node != null; node = node.parent)
+        {
+            for (Node sibling = node.next; sibling != null; sibling = sibling.next)
+            {
+                shiftOffsets(sibling, delta);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the values of the id and name attributes in a subtree.
+     * @param node root of the subtree
+     * @param anchors set receiving the values
+     * @return anchors
+     */
+    private static Set<String> getAnchors(final Node node, final Set<String> anchors)
+    {
+        for (AttVal attr = node.attributes; attr != null; attr = attr.next)
+        {
+            if (attr.is(AttrId.ID) || attr.is(AttrId.NAME))
+            {
+                anchors.add(attr.attribute + '=' + attr.value);
+            }
+        }
+        for (Node child = node.content; child != null; child = child.next)
+        {
+            getAnchors(child, anchors);
+        }
+        return anchors;
+    }
+
+    /**
+     * Moves the source offsets of a subtree.
+     * @param node root of the subtree
+     * @param delta offset change
+     */
+    private static void shiftOffsets(final Node node, final int delta)
+    {
+        node.offset += delta;
+        for (Node child = node.content; child != null; child = child.next)
+        {
+            shiftOffsets(child, delta);
+        }
+    }
+
+    /**
+     * Records the first line with a warning or an error. Messages about the document structure, such as a missing
+     * doctype or title or an implicit body, are ignored: they don't depend on the content of the blocks.
+     */
+    private static final class ProblemListener implements TidyMessageListener
+    {
+
+        /**
+         * Lines before this one are ignored.
+         */
+        private final int fromLine;
+
+        /**
+         * First line with a warning or an error, <code>Integer.MAX_VALUE</code> if none.
+         */
+        int firstLine = Integer.MAX_VALUE;
+
+        /**
+         * Instantiates a new listener.
+         * @param fromLine first line to watch
+         */
+        ProblemListener(final int fromLine)
+        {
+            this.fromLine = fromLine;
+        }
+
+        /**
+         * @see org.w3c.tidy.TidyMessageListener#messageReceived(org.w3c.tidy.TidyMessage)
+         */
+        public void messageReceived(final TidyMessage message)
+        {
+            final TidyMessage.Level level = message.getLevel();
+            if (message.getLine() >= fromLine
+                && (level == TidyMessage.Level.WARNING || level == TidyMessage.Level.ERROR)
+                && !isDocumentLevel(message))
+            {
+                firstLine = Math.min(firstLine, message.getLine());
+            }
+        }
+
+        /**
+         * Is the message about the document structure?
+         * @param message message
+         * @return <code>true</code> for a missing doctype or title, or for an implicit html, head or body element
+         */
+        private static boolean isDocumentLevel(final TidyMessage message)
+        {
+            final int code = message.getErrorCode();
+            if (code == ErrorCode.MISSING_DOCTYPE.code() || code == ErrorCode.MISSING_TITLE_ELEMENT.code())
+            {
+                return true;
+            }
+            if (code == ErrorCode.INSERTING_TAG.code())
+            {
+                final Object[] arguments = message.getArguments();
+                final Object element = arguments != null && arguments.length > 0 ? arguments[0] : null;
+                return "html".equals(element) || "head".equals(element) || "body".equals(element);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A block parsed in a document of its own.
+     */
+    private final class Fragment
+    {
+
+        /**
+         * Parsed document.
+         */
+        final Node root;
+
+        /**
+         * HTML versions allowed by the content.
+         */
+        final int versions;
+
+        /**
+         * Did the block parse without warnings and errors?
+         */
+        final boolean clean;
+
+        /**
+         * Parses a fragment document.
+         * @param text document source
+         */
+        Fragment(final String text)
+        {
+            final Tidy fragmentSession = engine.newSession();
+            fragmentSession.setErrout(new PrintWriter(new StringWriter()));
+            fragmentSession.setShowWarnings(true);
+            fragmentSession.setShowErrors(Integer.MAX_VALUE);
+            // the prefix is on the first line
+            final ProblemListener listener = new ProblemListener(2);
+            fragmentSession.setMessageListener(listener);
+            root = fragmentSession.parse(new StringReader(text), (OutputStream) null);
+            versions = fragmentSession.getLexer().versions;
+            clean = listener.firstLine == Integer.MAX_VALUE;
+        }
+
+        /**
+         * Finds the re-parsed block, which must be the only child of the reproduced ancestors.
+         * @param ancestors ancestors of the original block, outermost first
+         * @return block, <code>null</code> if the fragment has been parsed differently
+         */
+        Node findBlock(final List<Node> ancestors)
+        {
+            Node node = root != null ? root.findBody() : null;
+            for (final Node ancestor : ancestors)
+            {
+                node = getOnlyChild(node);
+                if (node == null || !ancestor.element.equals(node.element))
+                {
+                    return null;
+                }
+            }
+            node = getOnlyChild(node);
+            return node != null && node.isElement() ? node : null;
+        }
+
+        /**
+         * Returns the only child of a node.
+         * @param node parent node, may be <code>null</code>
+         * @return only child, <code>null</code> if there are no or many children
+         */
+        private Node getOnlyChild(final Node node)
+        {
+            return node != null && node.content != null && node.content.next == null ? node.content : null;
+        }
+    }
+}
@@ -78,9 +78,8 @@ import static org.w3c.tidy.Versions.XB10;
 import static org.w3c.tidy.Versions.XH11;
 
 import java.io.PrintWriter;
-import java.util.List;
+import java.util.Map;
 import java.util.Stack;
-import java.util.Vector;
 
 import org.w3c.tidy.Node.NodeType;
 import org.w3c.tidy.Options.DoctypeModes;
@@ -266,6 +265,11 @@ public class Lexer
      */
     protected int columns;
 
+    /**
+     * source offset at start of current token.
+     */
+    protected int offset;
+
     /**
      * used to collapse contiguous white space.
      */
@@ -336,8 +340,14 @@ public class Lexer
     protected Node itoken;
 
     /**
-     * Lexer character buffer parse tree nodes span onto this buffer which contains the concatenated text contents of
-     * all of the elements. Lexsize must be reset for each file. Byte buffer of UTF-8 chars.
+     * Size of a lexer text chunk. A new chunk is started at a token boundary once the current one holds at least this
+     * many bytes.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Current lexer text chunk. Parse tree nodes span onto the chunk referenced by their <code>textarray</code>, which
+     * contains the concatenated text contents of the elements lexed while it was current. Byte buffer of UTF-8 chars.
      */
     protected byte[] lexbuf;
 
@@ -401,10 +411,6 @@ public class Lexer
      */
     protected Node root;
 
-    /**
-     * node list.
-     */
-    private final List<Node> nodeList;
     
     protected String givenDoctype;
     
@@ -413,6 +419,46 @@ public class Lexer
      */
     private int classNum;
 
+    /**
+     * canonical tag and attribute names.
+     */
+    private final NameCache names = new NameCache();
+
+    /**
+     * encoder of the URIs fixed by the url attribute check, created on first use.
+     */
+    private UriEncoder uriEncoder;
+
+    /**
+     * time spent in each accessibility check in nanoseconds, by check name; null if the checks were not run.
+     */
+    Map<String, Long> accessibilityCheckTimes;
+
+    /**
+     * root of the document being parsed, kept as partial result if parsing is aborted.
+     */
+    Node document;
+
+    /**
+     * parse limits of the configuration, checked between startLimits() and stopLimits(); 0 for no limit.
+     */
+    private int maxErrors;
+
+    private int maxWarnings;
+
+    private int maxNodes;
+
+    private int maxDepth;
+
+    private boolean checkLimits;
+
+    /**
+     * number of nodes created and current element nesting depth since startLimits().
+     */
+    private int nodeCount;
+
+    private int depth;
+
     /**
      * Instantiates a new Lexer.
      * @param in StreamIn
@@ -431,24 +477,24 @@ public class Lexer
         this.insert = -1;
         this.istack = new Stack<IStack>();
         this.configuration = configuration;
-        this.nodeList = new Vector<Node>();
     }
 
     /**
-     * Creates a new node and add it to nodelist.
+     * Creates a new node.
      * @return Node
      */
     public Node newNode()
     {
         final Node node = new Node();
-        this.nodeList.add(node);
+        countNode();
         node.line = lines;
         node.column = columns;
+        node.offset = offset;
         return node;
     }
 
     /**
-     * Creates a new node and add it to nodelist.
+     * Creates a new node.
      * @param type node type
      * @param textarray array of bytes contained in the Node
      * @param start start position
@@ -458,9 +504,10 @@ public class Lexer
     public Node newNode(final NodeType type, final byte[] textarray, final int start, final int end)
     {
         final Node node = new Node(type, textarray, start, end);
-        this.nodeList.add(node);
+        countNode();
         node.line = lines;
         node.column = columns;
+        node.offset = offset;
         return node;
     }
     
@@ -475,7 +522,7 @@ public class Lexer
     }
 
     /**
-     * Creates a new node and add it to nodelist.
+     * Creates a new node.
      * @param type node type
      * @param textarray array of bytes contained in the Node
      * @param start start position
@@ -486,75 +533,36 @@ public class Lexer
     public Node newNode(final NodeType type, final byte[] textarray, final int start, final int end, final String element)
     {
         final Node node = new Node(type, textarray, start, end, element, this.configuration.tt);
-        this.nodeList.add(node);
+        countNode();
         node.line = lines;
         node.column = columns;
+        node.offset = offset;
         return node;
     }
 
     /**
-     * Clones a node and add it to node list.
+     * Clones a node.
      * @param node Node
      * @return cloned Node
      */
     public Node cloneNode(final Node node)
     {
         final Node cnode = node.cloneNode(false);
+        countNode();
         cnode.line = lines;
         cnode.column = columns;
-        this.nodeList.add(cnode);
-        for (AttVal att = cnode.attributes; att != null; att = att.next)
-        {
-            if (att.asp != null)
-            {
-                this.nodeList.add(att.asp);
-            }
-            if (att.php != null)
-            {
-                this.nodeList.add(att.php);
-            }
-        }
+        cnode.offset = offset;
         return cnode;
     }
 
     /**
-     * Clones an attribute value and add eventual asp or php node to node list.
+     * Clones an attribute value, including eventual asp or php nodes.
      * @param attrs original AttVal
      * @return cloned AttVal
      */
     public AttVal cloneAttributes(final AttVal attrs)
     {
-        final AttVal cattrs = (AttVal) attrs.clone();
-        for (AttVal att = cattrs; att != null; att = att.next)
-        {
-            if (att.asp != null)
-            {
-                this.nodeList.add(att.asp);
-            }
-            if (att.php != null)
-            {
-                this.nodeList.add(att.php);
-            }
-        }
-        return cattrs;
-    }
-
-    /**
-     * Update <code>oldtextarray</code> in the current nodes.
-     * @param oldtextarray previous text array
-     * @param newtextarray new text array
-     */
-    protected void updateNodeTextArrays(final byte[] oldtextarray, final byte[] newtextarray)
-    {
-        Node node;
-        for (int i = 0; i < this.nodeList.size(); i++)
-        {
-            node = this.nodeList.get(i);
-            if (node.textarray == oldtextarray)
-            {
-                node.textarray = newtextarray;
-            }
-        }
+        return (AttVal) attrs.clone();
     }
 
     /**
@@ -565,9 +573,9 @@ public class Lexer
     {
         final Node node = newNode();
 
-        node.textarray = this.lexbuf;
         node.start = this.lexsize;
         addCharToLexer('\n');
+        node.textarray = this.lexbuf;
         node.end = this.lexsize;
         return node;
     }
@@ -582,18 +590,53 @@ public class Lexer
     }
 
     /**
-     * Adds a byte to lexer buffer.
+     * Returns the source offset of the next character, when the input stream keeps track of it.
+     * @return offset of the next character to be read, -1 if unknown
+     */
+    private int getSourceOffset()
+    {
+        return this.in instanceof StreamInJavaImpl ? ((StreamInJavaImpl) this.in).getOffset() : -1;
+    }
+
+    /**
+     * Starts a new text chunk if the current one is full enough. Must only be called between tokens: nodes keep a
+     * reference to the chunk holding their text, so chunks are never moved once a token is complete.
+     */
+    private void startChunk()
+    {
+        if (this.lexsize >= CHUNK_SIZE)
+        {
+            this.lexbuf = new byte[CHUNK_SIZE];
+            this.lexlength = CHUNK_SIZE;
+            this.lexsize = 0;
+        }
+    }
+
+    /**
+     * Adds a byte to lexer buffer. If the current chunk overflows in the middle of a token, the chunk is copied to a
+     * bigger one; nodes created from earlier tokens keep pointing to the old array, which still holds their text.
      * @param c byte to add
      */
     public void addByte(final int c)
     {
-        if (this.lexsize + 1 >= this.lexlength)
+        ensureCapacity(1);
+        this.lexbuf[this.lexsize++] = (byte) c;
+        this.lexbuf[this.lexsize] = (byte) '\0'; // debug
+    }
+
+    /**
+     * Makes room in the lexer buffer for more bytes, plus the terminating '\0'.
+     * @param bytes number of bytes to be added
+     */
+    private void ensureCapacity(final int bytes)
+    {
+        if (this.lexsize + bytes >= this.lexlength)
         {
-            while (this.lexsize + 1 >= this.lexlength)
+            while (this.lexsize + bytes >= this.lexlength)
             {
                 if (this.lexlength == 0)
                 {
-                    this.lexlength = 8192;
+                    this.lexlength = CHUNK_SIZE;
                 }
                 else
                 {
@@ -606,12 +649,8 @@ public class Lexer
             if (temp != null)
             {
                 System.arraycopy(temp, 0, this.lexbuf, 0, temp.length);
-                updateNodeTextArrays(temp, this.lexbuf);
             }
         }
-
-        this.lexbuf[this.lexsize++] = (byte) c;
-        this.lexbuf[this.lexsize] = (byte) '\0'; // debug
     }
 
     /**
@@ -646,25 +685,10 @@ public class Lexer
             return;
         }
 
-        int i = 0;
-        final int[] count = new int[]{0};
-        final byte[] buf = new byte[10]; // unsigned char
-
-        final boolean err = EncodingUtils.encodeCharToUTF8Bytes(c, buf, null, count);
-        if (err)
-        {
-            // replacement char 0xFFFD encoded as UTF-8
-            buf[0] = (byte) 0xEF;
-            buf[1] = (byte) 0xBF;
-            buf[2] = (byte) 0xBD;
-            count[0] = 3;
-        }
-
-        for (i = 0; i < count[0]; i++)
-        {
-            addByte(buf[i]); // uint
-        }
-
+        // encode directly into the buffer: a UTF-8 sequence takes up to 6 bytes
+        ensureCapacity(6);
+        this.lexsize = PPrint.putUTF8(this.lexbuf, this.lexsize, c);
+        this.lexbuf[this.lexsize] = (byte) '\0'; // debug
     }
 
     /**
@@ -745,6 +769,8 @@ public class Lexer
         final boolean isXml = configuration.isXmlTags();
         final boolean preserveEntities = configuration.isPreserveEntities();
         int c, startcol;
+        final EntityTable entities = EntityTable.getDefaultEntityTable();
+        int state = EntityTable.ROOT_STATE; // named entities are looked up while they are read
 
         start = this.lexsize - 1; // to start at "&"
         startcol = this.in.getCurcol() - 1;
@@ -779,6 +805,9 @@ public class Lexer
             
             if (entState.check(c)) {
                 addCharToLexer(c);
+                if (entState == ENTState.DEFAULT) {
+                    state = entities.nextState(state, c);
+                }
                 continue;
             }
 
@@ -787,13 +816,18 @@ public class Lexer
             break;
         }
         
-        final String str = TidyUtils.getString(this.lexbuf, start, this.lexsize - start);
+        final Entity ent;
+        if (entState == ENTState.DEFAULT) {
+            ent = entities.entityAt(state);
+        } else {
+            ent = entities.entityInfo(entityText(start), isXml);
+        }
 
-        if ("&apos".equals(str) && !configuration.isXmlOut() && !this.isvoyager && !configuration.isXHTML()) {
-            report.entityError(this, ErrorCode.APOS_UNDEFINED, str, 39);
+        if (entState == ENTState.DEFAULT && ent != null && "apos".equals(ent.getName())
+                && !configuration.isXmlOut() && !this.isvoyager && !configuration.isXHTML()) {
+            report.entityError(this, ErrorCode.APOS_UNDEFINED, entityText(start), 39);
         }
 
-        final Entity ent = EntityTable.getDefaultEntityTable().entityInfo(str, isXml);
         boolean found = ent != null;
         int ch = found ? ent.getCode() : 0;
         if (found && ch == 0 && !configuration.isTidyCompat()) {
@@ -827,7 +861,7 @@ public class Lexer
                     }
 
                     if (c != ';') {/* issue warning if not terminated by ';' */
-                        report.entityError(this, ErrorCode.MISSING_SEMICOLON_NCR, str, c);
+                        report.entityError(this, ErrorCode.MISSING_SEMICOLON_NCR, entityText(start), c);
                     }
 
                     report.encodingError(this, ErrorCode.INVALID_NCR, ch, replaceMode);
@@ -843,7 +877,7 @@ public class Lexer
                         semicolon = false;
                     }
                 } else {
-                    report.entityError(this, ErrorCode.UNKNOWN_ENTITY, str, ch);
+                    report.entityError(this, ErrorCode.UNKNOWN_ENTITY, entityText(start), ch);
                 }
 
                 if (semicolon) {
@@ -851,7 +885,7 @@ public class Lexer
                 }
             } else {
                 // naked &
-                report.entityError(this, ErrorCode.UNESCAPED_AMPERSAND, str, ch);
+                report.entityError(this, ErrorCode.UNESCAPED_AMPERSAND, entityText(start), ch);
             }
         } else {
             // issue warning if not terminated by ';'
@@ -859,7 +893,7 @@ public class Lexer
                 // set error position just before offending character
             	setLocus();
                 this.columns = startcol;
-                report.entityError(this, ErrorCode.MISSING_SEMICOLON, str, c);
+                report.entityError(this, ErrorCode.MISSING_SEMICOLON, entityText(start), c);
             }
             
             if (preserveEntities) {
@@ -881,6 +915,15 @@ public class Lexer
         }
     }
 
+    /**
+     * Returns the entity or character reference read by parseEntity, for reporting.
+     * @param start position of the '&amp;' in the lexer buffer
+     * @return entity text, without the terminating ';'
+     */
+    private String entityText(final int start) {
+        return TidyUtils.getString(this.lexbuf, start, this.lexsize - start);
+    }
+
     /**
      * Parses a tag name.
      * @return first char after the tag name
@@ -1095,7 +1138,7 @@ public class Lexer
     public boolean checkDocTypeKeyWords(final Node doctype)
     {
         final int len = doctype.end - doctype.start;
-        final String s = TidyUtils.getString(this.lexbuf, doctype.start, len);
+        final String s = TidyUtils.getString(doctype.textarray, doctype.start, len);
 
         return !(TidyUtils.findBadSubString("SYSTEM", s, s.length())
             || TidyUtils.findBadSubString("PUBLIC", s, s.length())
@@ -1474,7 +1517,9 @@ public class Lexer
 
         this.lines = this.in.getCurline();
         this.columns = this.in.getCurcol();
+        this.offset = getSourceOffset();
         this.waswhite = false;
+        startChunk();
         this.txtstart = this.lexsize;
         this.txtend = this.lexsize;
 
@@ -1660,8 +1705,10 @@ public class Lexer
 
         this.lines = this.in.getCurline();
         this.columns = this.in.getCurcol();
+        this.offset = getSourceOffset();
         this.waswhite = false;
 
+        startChunk();
         this.txtstart = this.lexsize;
         this.txtend = this.lexsize;
 
@@ -1702,6 +1749,7 @@ public class Lexer
                         this.waswhite = false;
                         this.lines = this.in.getCurline();
                         this.columns = this.in.getCurcol();
+                        this.offset = getSourceOffset();
                         continue;
                     }
 
@@ -1721,6 +1769,7 @@ public class Lexer
                                 --this.lexsize;
                                 this.lines = this.in.getCurline();
                                 this.columns = this.in.getCurcol();
+                                this.offset = getSourceOffset();
                             }
                         }
                         else
@@ -2018,7 +2067,7 @@ public class Lexer
                         this.lexbuf,
                         this.txtstart,
                         this.txtend,
-                        TidyUtils.getString(this.lexbuf, this.txtstart, this.txtend - this.txtstart));
+                        names.getTagName(this.lexbuf, this.txtstart, this.txtend));
                     this.lexsize = this.txtstart;
                     this.txtend = this.txtstart;
 
@@ -2060,7 +2109,7 @@ public class Lexer
                         this.lexbuf,
                         this.txtstart,
                         this.txtend,
-                        TidyUtils.getString(this.lexbuf, this.txtstart, this.txtend - this.txtstart));
+                        names.getTagName(this.lexbuf, this.txtstart, this.txtend));
 
                     // parse attributes, consuming closing ">"
                     if (c != '>')
@@ -2764,7 +2813,7 @@ public class Lexer
 
         // #427672 - handle attribute names with multibyte chars - fix by Randy Waki - 10 Aug 00
         final int len = this.lexsize - start;
-        attr = len > 0 ? TidyUtils.getString(this.lexbuf, start, len) : null;
+        attr = len > 0 ? names.getAttributeName(this.lexbuf, start, this.lexsize) : null;
         this.lexsize = start;
 
         return attr;
@@ -3177,12 +3226,12 @@ public class Lexer
 
             if (munge && !TidyUtils.isInValuesIgnoreCase(new String[]{"alt", "title", "value", "prompt"}, name))
             {
-                while (TidyUtils.isWhite((char) this.lexbuf[start + len - 1]))
+                while (len > 0 && TidyUtils.isWhite((char) this.lexbuf[start + len - 1]))
                 {
                     --len;
                 }
 
-                while (TidyUtils.isWhite((char) this.lexbuf[start]) && start < len)
+                while (len > 0 && TidyUtils.isWhite((char) this.lexbuf[start]))
                 {
                     ++start;
                     --len;
@@ -3554,6 +3603,7 @@ public class Lexer
         {
             this.lines = this.in.getCurline();
             this.columns = this.in.getCurcol();
+            this.offset = getSourceOffset();
         }
 
         node = newNode(NodeType.StartTag, this.lexbuf, this.txtstart, this.txtend);
@@ -3813,6 +3863,7 @@ public class Lexer
                 else if (c == '>') {
                     AttVal si;
 
+                    node.textarray = lexbuf;
                     node.end = --lexsize;
 
                     si = node.getAttrByName("SYSTEM");
@@ -3905,7 +3956,7 @@ public class Lexer
         if (node.isText() && node.end > node.start) {
             int i, c = '\0'; /* initialised to avoid warnings */
             for (i = node.start; i < node.end; ++i) {
-                c = lexbuf[i] & 0xFF; // Convert to unsigned.
+                c = node.textarray[i] & 0xFF; // Convert to unsigned.
             }
 
             if (c == ' ' || c == '\n') {
@@ -4000,4 +4051,91 @@ public class Lexer
         }
         return pfx + ++classNum;
     }
+
+    /**
+     * Returns the encoder used to fix the illegal chars of URIs.
+     * @return UriEncoder reused for the whole document
+     */
+    UriEncoder getUriEncoder()
+    {
+        if (uriEncoder == null)
+        {
+            uriEncoder = new UriEncoder();
+        }
+        return uriEncoder;
+    }
+
+    /**
+     * Starts checking the error, warning, node and nesting limits of the configuration. Once a limit is exceeded, a
+     * ParseAbortedException is thrown and the limits are no longer checked.
+     */
+    void startLimits()
+    {
+        maxErrors = configuration.getAbortErrorCount();
+        maxWarnings = configuration.getAbortWarningCount();
+        maxNodes = configuration.getAbortNodeCount();
+        maxDepth = configuration.getAbortNestingDepth();
+        nodeCount = 0;
+        depth = 0;
+        checkLimits = maxErrors > 0 || maxWarnings > 0 || maxNodes > 0 || maxDepth > 0;
+    }
+
+    /**
+     * Stops checking the limits, e.g. once the document has been parsed.
+     */
+    void stopLimits()
+    {
+        checkLimits = false;
+    }
+
+    private void exceeded(final Option limit, final int value)
+    {
+        checkLimits = false;
+        throw new ParseAbortedException(limit, value);
+    }
+
+    private void countNode()
+    {
+        if (checkLimits && maxNodes > 0 && ++nodeCount > maxNodes)
+        {
+            exceeded(Option.AbortNodeCount, maxNodes);
+        }
+    }
+
+    /**
+     * Checks the error and warning limits, after a message has been reported.
+     */
+    void checkMessageLimits()
+    {
+        if (checkLimits)
+        {
+            if (maxErrors > 0 && errors > maxErrors)
+            {
+                exceeded(Option.AbortErrorCount, maxErrors);
+            }
+            if (maxWarnings > 0 && warnings > maxWarnings)
+            {
+                exceeded(Option.AbortWarningCount, maxWarnings);
+            }
+        }
+    }
+
+    /**
+     * Called before parsing the content of an element.
+     */
+    void enterElement()
+    {
+        if (++depth > maxDepth && checkLimits && maxDepth > 0)
+        {
+            exceeded(Option.AbortNestingDepth, maxDepth);
+        }
+    }
+
+    /**
+     * Called after parsing the content of an element.
+     */
+    void leaveElement()
+    {
+        depth--;
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+/**
+ * Canonical strings for the tag and attribute names read by a lexer. Known tag and attribute names resolve to the
+ * names of their definitions, shared by all documents; other names are kept in a small direct-mapped cache, so that
+ * recurring names are decoded only once and all the nodes using them share the same instance.
+ * @version $Revision$ ($Author$)
+ */
+final class NameCache
+{
+
+    /**
+     * Number of cached names, a power of two.
+     */
+    private static final int SIZE = 256;
+
+    /**
+     * cached names, by hash.
+     */
+    private final String[] names = new String[SIZE];
+
+    /**
+     * Returns a tag name.
+     * @param buf buffer holding the name as UTF-8
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return tag name
+     */
+    String getTagName(final byte[] buf, final int start, final int end)
+    {
+        final String name = TagTable.knownName(buf, start, end);
+        return name != null ? name : get(buf, start, end);
+    }
+
+    /**
+     * Returns an attribute name.
+     * @param buf buffer holding the name as UTF-8
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return attribute name
+     */
+    String getAttributeName(final byte[] buf, final int start, final int end)
+    {
+        final String name = AttributeTable.knownName(buf, start, end);
+        return name != null ? name : get(buf, start, end);
+    }
+
+    /**
+     * Returns the cached instance of a name, decoding and caching it if needed.
+     * @param buf buffer holding the name as UTF-8
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return name
+     */
+    private String get(final byte[] buf, final int start, final int end)
+    {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            if (buf[i] < 0)
+            {
+                // only ASCII names are cached, they can be compared byte by byte
+                return TidyUtils.getString(buf, start, end - start);
+            }
+            hash = 31 * hash + buf[i];
+        }
+
+        final int slot = (hash ^ hash >>> 8) & (SIZE - 1);
+        final String cached = names[slot];
+        if (cached != null && matches(cached, buf, start, end))
+        {
+            return cached;
+        }
+
+        final String name = TidyUtils.getString(buf, start, end - start);
+        names[slot] = name;
+        return name;
+    }
+
+    /**
+     * Compares an ASCII name with a byte buffer span.
+     * @param name name
+     * @param buf buffer
+     * @param start start of the span
+     * @param end end of the span (exclusive)
+     * @return true if the span holds the name
+     */
+    private static boolean matches(final String name, final byte[] buf, final int start, final int end)
+    {
+        if (name.length() != end - start)
+        {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++)
+        {
+            if (name.charAt(i) != buf[start + i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable perfect hash of a fixed set of names (the known tags and attributes), mapping each name to its position
+ * in the set. Every lookup computes one hash and compares at most one name, and names can be looked up directly in a
+ * byte buffer holding them as ASCII or UTF-8, without building a String first. Instances are never modified after
+ * construction, so they can be shared by any number of threads without locking.
+ * @version $Revision$ ($Author$)
+ */
+final class NameIndex
+{
+
+    /**
+     * indexed names.
+     */
+    private final String[] names;
+
+    /**
+     * Hash displacement for each bucket, 0 for empty buckets.
+     */
+    private final int[] displacements;
+
+    /**
+     * Position of the name stored in each slot, -1 for empty slots.
+     */
+    private final int[] slots;
+
+    /**
+     * Builds the index. The construction uses the "hash and displace" scheme: names are first distributed into
+     * buckets, then, starting with the largest bucket, a displacement is searched for each bucket so that the names in
+     * it land in free slots.
+     * @param names names to index, must be distinct
+     */
+    NameIndex(final String[] names)
+    {
+        this.names = names.clone();
+
+        final int bucketCount = Integer.highestOneBit(Math.max(1, names.length / 2)) * 2;
+        int slotCount = Integer.highestOneBit(Math.max(1, names.length)) * 4;
+
+        final List<List<Integer>> buckets = new ArrayList<List<Integer>>(bucketCount);
+        for (int i = 0; i < bucketCount; i++)
+        {
+            buckets.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < names.length; i++)
+        {
+            buckets.get(bucket(names[i].hashCode(), bucketCount)).add(Integer.valueOf(i));
+        }
+
+        final Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++)
+        {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+
+            public int compare(final Integer o1, final Integer o2)
+            {
+                return buckets.get(o2.intValue()).size() - buckets.get(o1.intValue()).size();
+            }
+        });
+
+        int[] displacementTable;
+        int[] slotTable;
+        do
+        {
+            displacementTable = new int[bucketCount];
+            slotTable = new int[slotCount];
+            Arrays.fill(slotTable, -1);
+            if (!place(buckets, order, displacementTable, slotTable))
+            {
+                displacementTable = null;
+                slotCount *= 2;
+            }
+        }
+        while (displacementTable == null);
+
+        this.displacements = displacementTable;
+        this.slots = slotTable;
+    }
+
+    /**
+     * Searches the displacements of all the buckets.
+     * @param buckets name positions in each bucket
+     * @param order buckets, largest first
+     * @param displacementTable displacements to fill
+     * @param slotTable slots to fill
+     * @return false if no displacement has been found for a bucket, and more slots are needed
+     */
+    private boolean place(final List<List<Integer>> buckets, final Integer[] order, final int[] displacementTable,
+        final int[] slotTable)
+    {
+        for (final Integer b : order)
+        {
+            final List<Integer> bucket = buckets.get(b.intValue());
+            if (bucket.isEmpty())
+            {
+                return true;
+            }
+
+            final int[] targets = new int[bucket.size()];
+            int displacement = 1;
+            while (!fits(bucket, displacement, slotTable, targets))
+            {
+                if (++displacement > 1 << 16)
+                {
+                    return false;
+                }
+            }
+
+            displacementTable[b.intValue()] = displacement;
+            for (int i = 0; i < targets.length; i++)
+            {
+                slotTable[targets[i]] = bucket.get(i).intValue();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the names in a bucket land in distinct free slots with the given displacement.
+     * @param bucket name positions in the bucket
+     * @param displacement displacement
+     * @param slotTable slots
+     * @param targets filled with the slot of each name
+     * @return true if all the slots are free and distinct
+     */
+    private boolean fits(final List<Integer> bucket, final int displacement, final int[] slotTable, final int[] targets)
+    {
+        for (int i = 0; i < targets.length; i++)
+        {
+            final String name = names[bucket.get(i).intValue()];
+            final int s = slot(name.hashCode(), displacement, slotTable.length);
+            if (slotTable[s] != -1)
+            {
+                return false;
+            }
+            for (int j = 0; j < i; j++)
+            {
+                if (targets[j] == s)
+                {
+                    if (names[bucket.get(j).intValue()].equals(name))
+                    {
+                        throw new IllegalArgumentException("Duplicate name: " + name);
+                    }
+                    return false;
+                }
+            }
+            targets[i] = s;
+        }
+        return true;
+    }
+
+    private static int bucket(final int hash, final int bucketCount)
+    {
+        final int h = hash * 0x9E3779B9;
+        return (h ^ h >>> 16) & (bucketCount - 1);
+    }
+
+    private static int slot(final int hash, final int displacement, final int slotCount)
+    {
+        int h = (hash ^ displacement * 0x85EBCA6B) * 0xC2B2AE35;
+        h ^= h >>> 15;
+        return h & (slotCount - 1);
+    }
+
+    /**
+     * Returns the number of indexed names.
+     * @return number of names
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Returns the name at the given position.
+     * @param index position
+     * @return name
+     */
+    String getName(final int index)
+    {
+        return names[index];
+    }
+
+    /**
+     * Returns the position of a name.
+     * @param name name, may be null
+     * @return position, or -1 if the name is not indexed
+     */
+    int indexOf(final String name)
+    {
+        if (name == null)
+        {
+            return -1;
+        }
+        final int index = probe(name.hashCode());
+        return index != -1 && names[index].equals(name) ? index : -1;
+    }
+
+    /**
+     * Returns the position of a name held in a byte buffer.
+     * @param buf buffer
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return position, or -1 if the name is not indexed
+     */
+    int indexOf(final byte[] buf, final int start, final int end)
+    {
+        // same as String.hashCode() for ASCII names, and indexed names are ASCII
+        int hash = 0;
+        for (int i = start; i < end; i++)
+        {
+            hash = 31 * hash + buf[i];
+        }
+
+        final int index = probe(hash);
+        if (index == -1)
+        {
+            return -1;
+        }
+        final String name = names[index];
+        if (name.length() != end - start)
+        {
+            return -1;
+        }
+        for (int i = 0; i < name.length(); i++)
+        {
+            if (name.charAt(i) != buf[start + i])
+            {
+                return -1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the only position a name with the given hash can have.
+     * @param hash name hash
+     * @return position, or -1 if no indexed name has this hash
+     */
+    private int probe(final int hash)
+    {
+        final int displacement = displacements[bucket(hash, displacements.length)];
+        return displacement == 0 ? -1 : slots[slot(hash, displacement, slots.length)];
+    }
+}
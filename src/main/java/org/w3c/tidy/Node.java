@@ -53,12 +53,19 @@
  */
 package org.w3c.tidy;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.w3c.tidy.Options.DupAttrModes;
 
 /**
- * Used for elements and text nodes element name is null for text nodes start and end are offsets into lexbuf which
- * contains the textual content of all elements in the parse tree. Parent and content allow traversal of the parse tree
- * in any direction. attributes are represented as a linked list of AttVal nodes which hold the strings for
+ * Used for elements and text nodes element name is null for text nodes start and end are offsets into textarray, a
+ * lexer chunk which contains the textual content of the elements in the parse tree. Parent and content allow
+ * traversal of the parse tree in any direction. attributes are represented as a linked list of AttVal nodes which hold the strings for
  * attribute/value pairs.
  * @author Dave Raggett <a href="mailto:dsr@w3.org">dsr@w3.org </a>
  * @author Andy Quick <a href="mailto:ac.quick@sympatico.ca">ac.quick@sympatico.ca </a> (translation to Java)
@@ -70,6 +77,11 @@ public class Node {
 		RootNode, DocTypeTag, CommentTag, ProcInsTag, TextNode, StartTag, EndTag, StartEndTag, CDATATag, SectionTag,
 		AspTag, JsteTag, PhpTag, XmlDecl
 	}
+
+    /**
+     * attribute lists up to this length are checked for repeated names pairwise, longer ones through a hash map.
+     */
+    private static final int SMALL_ATTRIBUTE_LIST = 8;
 	
     /**
      * parent node.
@@ -114,6 +126,11 @@ public class Node {
     protected int line;
     protected int column;
 
+    /**
+     * source offset of the token this node has been created from, -1 if the input stream doesn't track offsets.
+     */
+    protected int offset;
+
     /**
      * true if closed by explicit end tag.
      */
@@ -272,94 +289,177 @@ public class Node {
 
     /**
      * The same attribute name can't be used more than once in each element. Discard or join attributes according to
-     * configuration.
+     * configuration. Duplicates are found by grouping the attributes by case insensitive name, so that long attribute
+     * lists are repaired in linear time.
      * @param lexer Lexer
      */
     public void repairDuplicateAttributes(final Lexer lexer) {
-        for (AttVal first = this.attributes; first != null;) {
-        	if (!(first.asp == null && first.php == null)) {
-        		first = first.next;
-        		continue;
-        	}
-        	boolean firstRedefined = false;
-        	
-            for (AttVal second = first.next; second != null;) {
-                if (!(second.asp == null && second.php == null && first.attribute != null
-                		&& first.attribute.equalsIgnoreCase(second.attribute))) {
-                	second = second.next;
-                	continue;
-                }
-                
-                AttVal temp;
-
-                if ("class".equalsIgnoreCase(second.attribute) && lexer.configuration.isJoinClasses())
-                {
-                    // concatenate classes
-                    second.value = second.value + " " + first.value;
-
-                    temp = first.next;
-
-                    if (temp.next == null)
-                    {
-                        second = null;
-                    }
-                    else
-                    {
-                        second = second.next;
-                    }
+        final Collection<List<AttVal>> groups = groupAttributesByName();
+        if (groups == null) {
+            return;
+        }
 
-                    lexer.report.attrError(lexer, this, first, ErrorCode.JOINING_ATTRIBUTE);
+        final Map<AttVal, Boolean> removed = new IdentityHashMap<AttVal, Boolean>();
+        for (final List<AttVal> group : groups) {
+            if (group.size() < 2) {
+                continue;
+            }
+            final AttVal first = group.get(0);
 
-                    removeAttribute(first);
-                    first = temp;
+            if ("class".equalsIgnoreCase(first.attribute) && lexer.configuration.isJoinClasses())
+            {
+                // concatenate classes, each one is joined to the following one
+                AttVal joined = first;
+                for (int i = 1; i < group.size(); i++) {
+                    final AttVal second = group.get(i);
+                    final String value = second.value == null ? "" : second.value;
+                    final String joinedValue = joined.value == null ? "" : joined.value;
+                    second.value = value.length() > 0 && joinedValue.length() > 0
+                        ? value + " " + joinedValue
+                        : value + joinedValue;
+                    lexer.report.attrError(lexer, this, joined, ErrorCode.JOINING_ATTRIBUTE);
+                    removed.put(joined, Boolean.TRUE);
+                    joined = second;
                 }
-                else if (first.is(AttrId.STYLE) && lexer.configuration.isJoinStyles()) {
-                    // concatenate styles
-
-                    // this doesn't handle CSS comments and leading/trailing white-space very well see
-                    // http://www.w3.org/TR/css-style-attr
-
-                    final int end = first.value.length();
-
-                    if (end > 0 && first.value.charAt(end - 1) == ';') {
+            }
+            else if (first.is(AttrId.STYLE) && lexer.configuration.isJoinStyles()) {
+                // concatenate styles
+
+                // this doesn't handle CSS comments and leading/trailing white-space very well see
+                // http://www.w3.org/TR/css-style-attr
+                for (int i = 1; i < group.size(); i++) {
+                    final AttVal second = group.get(i);
+                    final String value = first.value == null ? "" : first.value;
+                    final int end = value.length();
+
+                    if (second.value == null || second.value.length() == 0) {
+                        // nothing to add
+                        first.value = value;
+                    }
+                    else if (end > 0 && value.charAt(end - 1) == ';') {
                         // attribute ends with declaration seperator
-                    	first.value = first.value + " " + second.value;
+                        first.value = value + " " + second.value;
                     }
-                    else if (end > 0 && first.value.charAt(end - 1) == '}') {
+                    else if (end > 0 && value.charAt(end - 1) == '}') {
                         // attribute ends with rule set
-                    	first.value = first.value + " { " + second.value + " }";
+                        first.value = value + " { " + second.value + " }";
                     }
                     else {
                         // attribute ends with property value
-                    	first.value = first.value + (end > 0 ? "; " : "") + second.value;
+                        first.value = value + (end > 0 ? "; " : "") + second.value;
                     }
 
-                    temp = second.next;
                     lexer.report.attrError(lexer, this, second, ErrorCode.JOINING_ATTRIBUTE);
-                    removeAttribute(second);
-                    second = temp;
+                    removed.put(second, Boolean.TRUE);
                 }
-                else if (lexer.configuration.getDuplicateAttrs() == DupAttrModes.KeepLast)
-                {
-                    temp = first.next;
-                    lexer.report.attrError(lexer, this, first, ErrorCode.REPEATED_ATTRIBUTE);
-                    removeAttribute(first);
-                    firstRedefined = true;
-                    first = temp;
-                    second = second.next;
+            }
+            else if (lexer.configuration.getDuplicateAttrs() == DupAttrModes.KeepLast)
+            {
+                for (int i = 0; i < group.size() - 1; i++) {
+                    lexer.report.attrError(lexer, this, group.get(i), ErrorCode.REPEATED_ATTRIBUTE);
+                    removed.put(group.get(i), Boolean.TRUE);
+                }
+            } else {
+                for (int i = 1; i < group.size(); i++) {
+                    lexer.report.attrError(lexer, this, group.get(i), ErrorCode.REPEATED_ATTRIBUTE);
+                    removed.put(group.get(i), Boolean.TRUE);
+                }
+            }
+        }
+
+        AttVal prev = null;
+        for (AttVal av = this.attributes; av != null; av = av.next) {
+            if (removed.containsKey(av)) {
+                if (prev == null) {
+                    this.attributes = av.next;
                 } else {
-                    temp = second.next;
-                    lexer.report.attrError(lexer, this, second, ErrorCode.REPEATED_ATTRIBUTE);
-                    removeAttribute(second);
-                    second = temp;
+                    prev.next = av.next;
                 }
+            } else {
+                prev = av;
             }
-            if (!firstRedefined) {
-            	first = first.next;
+        }
+    }
+
+    /**
+     * Groups the attributes by case insensitive name, in the order of their first occurrence. Asp and php sections
+     * are left out.
+     * @return groups of attributes, null if no attribute name is repeated
+     */
+    private Collection<List<AttVal>> groupAttributesByName() {
+        int count = 0;
+        for (AttVal av = this.attributes; av != null; av = av.next) {
+            count++;
+        }
+        if (count < 2) {
+            return null;
+        }
+        if (count <= SMALL_ATTRIBUTE_LIST && !hasRepeatedAttribute()) {
+            return null;
+        }
+
+        final Map<String, List<AttVal>> groups = new LinkedHashMap<String, List<AttVal>>();
+        boolean repeated = false;
+        for (AttVal av = this.attributes; av != null; av = av.next) {
+            if (av.asp != null || av.php != null || av.attribute == null) {
+                continue;
+            }
+            final String key = foldCase(av.attribute);
+            List<AttVal> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<AttVal>(1);
+                groups.put(key, group);
+            } else {
+                repeated = true;
             }
+            group.add(av);
         }
+        return repeated ? groups.values() : null;
     }
-    
+
+    /**
+     * Checks a short attribute list for repeated names, without allocating.
+     * @return true if two attributes have the same case insensitive name
+     */
+    private boolean hasRepeatedAttribute() {
+        for (AttVal first = this.attributes; first != null; first = first.next) {
+            if (first.asp != null || first.php != null || first.attribute == null) {
+                continue;
+            }
+            for (AttVal second = first.next; second != null; second = second.next) {
+                if (second.asp == null && second.php == null && first.attribute.equalsIgnoreCase(second.attribute)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a key such that two names have the same key if and only if they are equal ignoring case, as in
+     * String.equalsIgnoreCase.
+     * @param name attribute name
+     * @return name itself if it has no upper case or non-ascii char
+     */
+    private static String foldCase(final String name) {
+        int i = 0;
+        while (i < name.length()) {
+            final char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z' || c > 0x7f) {
+                break;
+            }
+            i++;
+        }
+        if (i == name.length()) {
+            return name;
+        }
+        final char[] folded = name.toCharArray();
+        for (; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(folded[i]));
+        }
+        return new String(folded);
+    }
+
     AttVal repairAttrValue(final String name, final String value) {
         final AttVal old = getAttrByName(name);
         if (old != null) {
@@ -620,7 +720,7 @@ public class Node {
             if (last.end > last.start)
 
             {
-                c = lexer.lexbuf[last.end - 1];
+                c = last.textarray[last.end - 1];
 
                 if (c == 160 || c == (byte) ' ')
                 {
@@ -663,7 +763,6 @@ public class Node {
     {
         final Node node = lexer.newNode();
         node.start = lexer.lexsize;
-        node.textarray = element.textarray; // @todo check it
         lexer.addByte('<');
 
         if (element.type == NodeType.EndTag)
@@ -691,7 +790,7 @@ public class Node {
 
             for (i = element.start; i < element.end; ++i)
             {
-                lexer.addByte(lexer.lexbuf[i]);
+                lexer.addByte(element.textarray[i]);
             }
         }
 
@@ -701,6 +800,7 @@ public class Node {
         }
 
         lexer.addByte('>');
+        node.textarray = lexer.lexbuf;
         node.end = lexer.lexsize;
 
         return node;
@@ -719,7 +819,7 @@ public class Node {
             {
                 return true;
             }
-            if (this.end == this.start + 1 && lexer.lexbuf[this.end - 1] == ' ')
+            if (this.end == this.start + 1 && this.textarray[this.end - 1] == ' ')
             {
                 return true;
             }
@@ -739,7 +839,7 @@ public class Node {
     {
         Node prev, node;
 
-        if (text.type == NodeType.TextNode && lexer.lexbuf[text.start] == (byte) ' ' && text.start < text.end)
+        if (text.type == NodeType.TextNode && text.start < text.end && text.textarray[text.start] == (byte) ' ')
         {
             if (element.hasCM(Dict.CM_INLINE) && !element.hasCM(Dict.CM_FIELD))
             {
@@ -758,9 +858,10 @@ public class Node {
                 {
                     // create new node
                     node = lexer.newNode();
+                    node.textarray = element.textarray != null ? element.textarray : lexer.lexbuf;
                     node.start = element.start++;
                     node.end = element.start;
-                    lexer.lexbuf[node.start] = (byte) ' ';
+                    node.textarray[node.start] = (byte) ' ';
                     Node.insertNodeBeforeElement(element, node);
                 }
             }
@@ -1251,6 +1352,7 @@ public class Node {
         node.element = element;
         node.line = line;
         node.column = column;
+        node.offset = offset;
         if (attributes != null) {
         	node.attributes = (AttVal) attributes.clone();
         }
@@ -152,6 +152,14 @@ enum Option {
 	IndentCdata             (MU, "indent-cdata",                BL, false,                 BOOL,                Bool.class),
 	/** Output document even if errors were found */
 	ForceOutput             (MS, "force-output",                BL, false,                 BOOL,                Bool.class),
+	/** Abort parsing after this number of errors (0 for no limit) */
+	AbortErrorCount         (MS, "abort-error-count",           IN, 0,                     INT,                 null),
+	/** Abort parsing after this number of warnings (0 for no limit) */
+	AbortWarningCount       (MS, "abort-warning-count",         IN, 0,                     INT,                 null),
+	/** Abort parsing after this number of nodes (0 for no limit) */
+	AbortNodeCount          (MS, "abort-node-count",            IN, 0,                     INT,                 null),
+	/** Abort parsing beyond this element nesting depth (0 for no limit) */
+	AbortNestingDepth       (MS, "abort-nesting-depth",         IN, 0,                     INT,                 null),
 	/** Number of errors to put out */
 	ShowErrors              (DG, "show-errors",                 IN, 6,                     INT,                 null),
 	/** Convert quotes and dashes to nearest ASCII char */
@@ -188,6 +196,8 @@ enum Option {
 	/** Accessibility check level
 	 * 0 (old style), or 1, 2, 3 */
 	AccessibilityCheckLevel (DG, "accessibility-check",         IN, 0,                     INT,                 AccessibilityLevels.class),
+	/** Accessibility checks not to make, names separated by commas or spaces */
+	AccessibilitySkipChecks (DG, "accessibility-skip-checks",   ST, null,                  STRING,              null),
 	
 	/** degree to which markup is spread out vertically */
 	VertSpace               (PP, "vertical-space",              BL, false,                 BOOL,                Bool.class),
@@ -206,6 +216,9 @@ enum Option {
 	/** Define anchors as name attributes */
 	AnchorAsName            (MU, "anchor-as-name",              BL, true,                  BOOL,                Bool.class),
 	
+	/** Check the consistency of the document tree after parsing and cleaning (a debugging aid) */
+	CheckNodeIntegrity      (MS, "check-node-integrity",        BL, true,                  BOOL,                Bool.class),
+	
 	/** Keep complete compatibility with Tidy, even for Tidy bugs that were fixed in JTidy */
 	TidyCompat				(MS, "tidy-compat",                 BL, false,                 BOOL,                Bool.class);
 	
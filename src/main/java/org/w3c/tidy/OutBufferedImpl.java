@@ -0,0 +1,366 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+
+/**
+ * Buffered output implementation. Chars are collected in a buffer and written in large blocks; when writing to an
+ * output stream they are encoded directly to the target charset, with a fast path for UTF-8. Unlike
+ * {@link OutJavaImpl}, I/O errors are not swallowed but thrown as a <code>RuntimeException</code> wrapping the
+ * original <code>IOException</code>. As with a writer, each <code>outc</code> call writes the char given by the low
+ * 16 bits of its argument, and unpaired surrogates are replaced by <code>?</code>.
+ * @version $Revision$ ($Author$)
+ */
+public class OutBufferedImpl implements Out
+{
+
+    /**
+     * buffer size, in chars or bytes.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * replacement for unpaired surrogates.
+     */
+    private static final byte REPLACEMENT = (byte) '?';
+
+    /**
+     * target stream, <code>null</code> when writing to a writer.
+     */
+    private final OutputStream stream;
+
+    /**
+     * target writer, <code>null</code> when writing to a stream.
+     */
+    private final Writer writer;
+
+    /**
+     * encoder for the output encoding, <code>null</code> for UTF-8 or when writing to a writer.
+     */
+    private final CharsetEncoder encoder;
+
+    /**
+     * Newline chars.
+     */
+    private final char[] newline;
+
+    /**
+     * pending chars, not used by the UTF-8 fast path.
+     */
+    private final char[] chars;
+
+    /**
+     * number of pending chars.
+     */
+    private int charCount;
+
+    /**
+     * encoded bytes, <code>null</code> when writing to a writer.
+     */
+    private final byte[] bytes;
+
+    /**
+     * number of encoded bytes.
+     */
+    private int byteCount;
+
+    /**
+     * high surrogate waiting for its low surrogate (UTF-8 fast path only), 0 if none.
+     */
+    private char highSurrogate;
+
+    /**
+     * Constructor.
+     * @param configuration actual configuration instance (needed for newline configuration)
+     * @param encoding encoding name
+     * @param out output stream
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    protected OutBufferedImpl(final Configuration configuration, final String encoding, final OutputStream out)
+        throws UnsupportedEncodingException
+    {
+        final Charset charset;
+        try
+        {
+            charset = Charset.forName(encoding);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            throw new UnsupportedEncodingException(encoding);
+        }
+        this.stream = out;
+        this.writer = null;
+        this.newline = configuration.getNewline().getValue().toCharArray();
+        this.bytes = new byte[BUFFER_SIZE];
+        if ("UTF-8".equals(charset.name()))
+        {
+            this.encoder = null;
+            this.chars = null;
+        }
+        else
+        {
+            this.encoder = charset
+                .newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.chars = new char[BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param configuration actual configuration instance (needed for newline configuration)
+     * @param out Writer
+     */
+    protected OutBufferedImpl(final Configuration configuration, final Writer out)
+    {
+        this.stream = null;
+        this.writer = out;
+        this.encoder = null;
+        this.newline = configuration.getNewline().getValue().toCharArray();
+        this.chars = new char[BUFFER_SIZE];
+        this.bytes = null;
+    }
+
+    /**
+     * @see org.w3c.tidy.Out#outc(int)
+     */
+    public void outc(final int c)
+    {
+        final char ch = (char) c;
+        if (this.chars != null)
+        {
+            if (this.charCount == BUFFER_SIZE)
+            {
+                flushChars();
+            }
+            this.chars[this.charCount++] = ch;
+        }
+        else if (ch < 0x80 && this.highSurrogate == 0)
+        {
+            if (this.byteCount == BUFFER_SIZE)
+            {
+                flushBytes();
+            }
+            this.bytes[this.byteCount++] = (byte) ch;
+        }
+        else
+        {
+            putUTF8(ch);
+        }
+    }
+
+    /**
+     * @see org.w3c.tidy.Out#outc(byte)
+     */
+    public void outc(final byte c)
+    {
+        outc((int) c);
+    }
+
+    /**
+     * @see org.w3c.tidy.Out#newline()
+     */
+    public void newline()
+    {
+        for (int i = 0; i < this.newline.length; i++)
+        {
+            outc(this.newline[i]);
+        }
+    }
+
+    /**
+     * Writes pending output and flushes the target.
+     * @see org.w3c.tidy.Out#flush()
+     * @throws RuntimeException wrapping the <code>IOException</code> thrown by the target
+     */
+    public void flush()
+    {
+        if (this.chars != null)
+        {
+            flushChars();
+        }
+        try
+        {
+            if (this.writer != null)
+            {
+                this.writer.flush();
+            }
+            else
+            {
+                flushBytes();
+                this.stream.flush();
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Encodes a non ASCII char, or any char following a high surrogate, as UTF-8.
+     * @param ch char
+     */
+    private void putUTF8(final char ch)
+    {
+        if (this.byteCount > BUFFER_SIZE - 4)
+        {
+            flushBytes();
+        }
+
+        if (this.highSurrogate != 0)
+        {
+            final char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(ch))
+            {
+                final int c = Character.toCodePoint(high, ch);
+                this.bytes[this.byteCount++] = (byte) (0xF0 | (c >> 18));
+                this.bytes[this.byteCount++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                this.bytes[this.byteCount++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                this.bytes[this.byteCount++] = (byte) (0x80 | (c & 0x3F));
+                return;
+            }
+            this.bytes[this.byteCount++] = REPLACEMENT;
+        }
+
+        if (ch < 0x80)
+        {
+            this.bytes[this.byteCount++] = (byte) ch;
+        }
+        else if (ch < 0x800)
+        {
+            this.bytes[this.byteCount++] = (byte) (0xC0 | (ch >> 6));
+            this.bytes[this.byteCount++] = (byte) (0x80 | (ch & 0x3F));
+        }
+        else if (Character.isHighSurrogate(ch))
+        {
+            this.highSurrogate = ch;
+        }
+        else if (Character.isLowSurrogate(ch))
+        {
+            this.bytes[this.byteCount++] = REPLACEMENT;
+        }
+        else
+        {
+            this.bytes[this.byteCount++] = (byte) (0xE0 | (ch >> 12));
+            this.bytes[this.byteCount++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+            this.bytes[this.byteCount++] = (byte) (0x80 | (ch & 0x3F));
+        }
+    }
+
+    /**
+     * Writes or encodes the pending chars. A trailing high surrogate is kept until its low surrogate arrives.
+     */
+    private void flushChars()
+    {
+        if (this.writer != null)
+        {
+            try
+            {
+                this.writer.write(this.chars, 0, this.charCount);
+            }
+            catch (final IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+            this.charCount = 0;
+            return;
+        }
+
+        final CharBuffer in = CharBuffer.wrap(this.chars, 0, this.charCount);
+        while (true)
+        {
+            final ByteBuffer out = ByteBuffer.wrap(this.bytes, this.byteCount, BUFFER_SIZE - this.byteCount);
+            final CoderResult result = this.encoder.encode(in, out, false);
+            this.byteCount = out.position();
+            if (result.isUnderflow())
+            {
+                break;
+            }
+            flushBytes();
+        }
+
+        this.charCount = in.remaining();
+        System.arraycopy(this.chars, in.position(), this.chars, 0, this.charCount);
+    }
+
+    /**
+     * Writes the encoded bytes to the target stream.
+     */
+    private void flushBytes()
+    {
+        try
+        {
+            this.stream.write(this.bytes, 0, this.byteCount);
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        this.byteCount = 0;
+    }
+}
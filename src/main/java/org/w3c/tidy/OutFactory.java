@@ -75,7 +75,8 @@ public final class OutFactory
     }
 
     /**
-     * Returns the appropriate Out implementation.
+     * Returns the appropriate Out implementation. Output is buffered until <code>flush()</code> is called, and I/O
+     * errors are thrown as a <code>RuntimeException</code>.
      * @param config configuration instance
      * @param stream output stream
      * @return out instance
@@ -84,7 +85,7 @@ public final class OutFactory
     {
         try
         {
-            return new OutJavaImpl(config, config.getOutCharEncodingName(), stream);
+            return new OutBufferedImpl(config, config.getOutCharEncodingName(), stream);
         }
         catch (final UnsupportedEncodingException e)
         {
@@ -93,13 +94,14 @@ public final class OutFactory
     }
 
     /**
-     * Returns the appropriate Out implementation.
+     * Returns the appropriate Out implementation. Output is buffered until <code>flush()</code> is called, and I/O
+     * errors are thrown as a <code>RuntimeException</code>.
      * @param config configuration instance
      * @param writer Writer
      * @return out instance
      */
     public static Out getOut(final Configuration config, final Writer writer)
     {
-        return new OutJavaImpl(config, writer);
+        return new OutBufferedImpl(config, writer);
     }
 }
@@ -148,6 +148,28 @@ public class PPrint
      */
     private static final String DEFAULT_COMMENT_END = "";
 
+    /**
+     * Output encodings which need a special treatment in printChar.
+     */
+    private static final int OUT_OTHER = 0;
+
+    private static final int OUT_ASCII = 1;
+
+    private static final int OUT_ISO8859_1 = 2;
+
+    private static final int OUT_UTF8 = 3;
+
+    /**
+     * UTF16, UTF16LE and UTF16BE.
+     */
+    private static final int OUT_UTF = 4;
+
+    private static final int OUT_BIG5 = 5;
+
+    private static final int OUT_SHIFTJIS = 6;
+
+    private static final int OUT_ISO2022 = 7;
+
     private int[] linebuf;
 
     private int lbufsize;
@@ -182,6 +204,39 @@ public class PPrint
      */
     private final Configuration configuration;
 
+    /**
+     * Output of the characters below 256 (but the non-breaking space) in text, compiled from the configuration. A
+     * <code>null</code> entry means that the character is printed raw.
+     */
+    private final String[] charEntities = new String[256];
+
+    /**
+     * Entity used for non-breaking spaces: XML doesn't define &amp;nbsp;.
+     */
+    private final String nbspEntity;
+
+    /**
+     * One of the OUT_* constants for the output encoding.
+     */
+    private final int outEncoding;
+
+    private final boolean rawOut;
+
+    private final boolean makeBare;
+
+    private final boolean quoteNbsp;
+
+    private final boolean punctWrap;
+
+    private final boolean numEntities;
+
+    private final boolean xmlTags;
+
+    /**
+     * Convert smart quotes and dashes to their ASCII equivalent.
+     */
+    private final boolean asciiChars;
+
     /**
      * Instantiates a new PPrint.
      * @param configuration configuration
@@ -191,6 +246,124 @@ public class PPrint
         this.configuration = configuration;
         indent[0] = new TidyIndent();
         indent[1] = new TidyIndent();
+
+        rawOut = configuration.isRawOut();
+        makeBare = configuration.isMakeBare();
+        quoteNbsp = configuration.isQuoteNbsp();
+        punctWrap = configuration.isPunctWrap();
+        numEntities = configuration.isNumEntities();
+        xmlTags = configuration.isXmlTags();
+        asciiChars = configuration.isMakeClean() && configuration.isAsciiChars() || makeBare;
+        nbspEntity = numEntities || xmlTags ? "&#160;" : "&nbsp;";
+        outEncoding = getOutEncoding(configuration.getOutCharEncodingName());
+        compileCharEntities();
+    }
+
+    private static int getOutEncoding(final String name)
+    {
+        if ("ASCII".equals(name))
+        {
+            return OUT_ASCII;
+        }
+        if ("ISO8859_1".equals(name))
+        {
+            return OUT_ISO8859_1;
+        }
+        if ("UTF8".equals(name))
+        {
+            return OUT_UTF8;
+        }
+        if (name.startsWith("UTF"))
+        {
+            return OUT_UTF;
+        }
+        if ("BIG5".equals(name))
+        {
+            return OUT_BIG5;
+        }
+        if ("SHIFTJIS".equals(name))
+        {
+            return OUT_SHIFTJIS;
+        }
+        if ("ISO2022".equals(name))
+        {
+            return OUT_ISO2022;
+        }
+        return OUT_OTHER;
+    }
+
+    /**
+     * Fills charEntities with the same decisions the general path of printChar takes for text characters below 256,
+     * so that printing them is a single table lookup.
+     */
+    private void compileCharEntities()
+    {
+        for (int c = 0; c < 256; c++)
+        {
+            if (c == 160)
+            {
+                // depends on the mode, always handled by printChar
+                continue;
+            }
+
+            if (outEncoding == OUT_ISO8859_1)
+            {
+                if (c > 126 && c < 160)
+                {
+                    charEntities[c] = "&#" + c + ";";
+                }
+            }
+            else if (outEncoding == OUT_UTF8 || outEncoding == OUT_UTF)
+            {
+                // raw
+            }
+            else if (xmlTags)
+            {
+                if (c > 127 && outEncoding == OUT_ASCII)
+                {
+                    charEntities[c] = "&#" + c + ";";
+                }
+            }
+            else if (outEncoding == OUT_ASCII && (c > 126 || c < ' ' && c != '\t'))
+            {
+                charEntities[c] = getEntity(c);
+            }
+        }
+
+        charEntities['<'] = "&lt;";
+        charEntities['>'] = "&gt;";
+
+        // naked '&' chars can be left alone or quoted as &amp;
+        // The latter is required for XML where naked '&' are illegal.
+        if (configuration.isQuoteAmpersand() && !configuration.isPreserveEntities())
+        {
+            charEntities['&'] = "&amp;";
+        }
+
+        if (configuration.isQuoteMarks())
+        {
+            charEntities['"'] = "&quot;";
+            charEntities['\''] = "&#39;";
+        }
+    }
+
+    /**
+     * Returns the named entity for a character, or a numeric one if there is none or numeric entities have been
+     * requested.
+     * @param c character
+     * @return entity
+     */
+    private String getEntity(final int c)
+    {
+        if (!numEntities)
+        {
+            final String name = EntityTable.getDefaultEntityTable().entityName((short) c);
+            if (name != null)
+            {
+                return "&" + name + ";";
+            }
+        }
+        return "&#" + c + ";";
     }
 
     /**
@@ -225,56 +398,31 @@ public class PPrint
      */
     public static int getUTF8(final byte[] str, final int start, final int[] ch)
     {
-
-        final int[] n = new int[1];
-
-        final int[] bytes = new int[]{0};
-
-        // first byte "str[0]" is passed in separately from the
-        // rest of the UTF-8 byte sequence starting at "str[1]"
-        final byte[] successorBytes = str;
-
-        final boolean err = EncodingUtils.decodeUTF8BytesToChar(
-            n,
-            TidyUtils.toUnsigned(str[start]),
-            successorBytes,
-            null,
-            bytes,
-            start + 1);
-
-        if (err)
-        {
-            n[0] = 0xFFFD; // replacement char
-        }
-        ch[0] = n[0];
-        return bytes[0] - 1;
-
+        final long result = EncodingUtils.decodeUTF8BytesToChar(str, start);
+        ch[0] = (int) result;
+        return (int) (result >>> 32) - 1;
     }
 
     /**
      * store char c as UTF-8 encoded byte stream.
-     * @param buf
-     * @param start
-     * @param c
-     * @return
+     * @param buf destination array
+     * @param start offset in buf
+     * @param c char to store
+     * @return offset following the stored bytes
      */
-    public static int putUTF8(final byte[] buf, int start, final int c)
+    public static int putUTF8(final byte[] buf, final int start, final int c)
     {
-        final int[] count = new int[]{0};
-
-        final boolean err = EncodingUtils.encodeCharToUTF8Bytes(c, buf, null, count);
-        if (err)
+        int count = EncodingUtils.encodeCharToUTF8Bytes(c, buf, start);
+        if (count <= 0)
         {
             // replacement char 0xFFFD encoded as UTF-8
-            buf[0] = (byte) 0xEF;
-            buf[1] = (byte) 0xBF;
-            buf[2] = (byte) 0xBD;
-            count[0] = 3;
+            buf[start] = (byte) 0xEF;
+            buf[start + 1] = (byte) 0xBF;
+            buf[start + 2] = (byte) 0xBD;
+            count = 3;
         }
 
-        start += count[0];
-
-        return start;
+        return start + count;
     }
     
     private void expand(final int len) {
@@ -630,14 +778,7 @@ public class PPrint
         if (c == ' ' && !TidyUtils.toBoolean(mode & (PREFORMATTED | COMMENT | ATTRIBVALUE | CDATA))) {
             // coerce a space character to a non-breaking space
             if (TidyUtils.toBoolean(mode & NOWRAP)) {
-                // by default XML doesn't define &nbsp;
-                if (this.configuration.isNumEntities() || this.configuration.isXmlTags()) {
-                    addString("&#160;");
-                }
-                else {
-                    // otherwise use named entity
-                    addString("&nbsp;");
-                }
+                addString(nbspEntity);
                 return;
             }
             wraphere = linelen;
@@ -649,66 +790,44 @@ public class PPrint
             return;
         }
 
-        // except in CDATA map < to &lt; etc.
-        if (!TidyUtils.toBoolean(mode & CDATA)) {
-            if (c == '<') {
-                addString("&lt;");
-                return;
+        // the output of chars below 256 only depends on the configuration, apart from the non-breaking space
+        if (c < 256 && c != 160) {
+            entity = charEntities[c];
+            if (entity == null) {
+                addC(c, linelen++);
             }
-
-            if (c == '>') {
-                addString("&gt;");
-                return;
+            else {
+                addString(entity);
             }
+            return;
+        }
 
-            // naked '&' chars can be left alone or quoted as &amp;
-            // The latter is required for XML where naked '&' are illegal.
-            if (c == '&' && this.configuration.isQuoteAmpersand() && !configuration.isPreserveEntities()) {
-                addString("&amp;");
-                return;
+        // non-breaking space, depending on the mode
+        if (c == 160 && !rawOut) {
+            if (makeBare) {
+                addChar(' ');
             }
-
-            if (c == '"' && this.configuration.isQuoteMarks()) {
-                addString("&quot;");
-                return;
+            else if (quoteNbsp) {
+                addString(nbspEntity);
             }
-
-            if (c == '\'' && this.configuration.isQuoteMarks()) {
-                addString("&#39;");
-                return;
+            else {
+                addChar(c);
             }
 
-            if (c == 160 && !this.configuration.isRawOut()) {
-                if (this.configuration.isMakeBare()) {
-                    addChar(' ');
-                }
-                else if (this.configuration.isQuoteNbsp()) {
-                    if (this.configuration.isNumEntities() || this.configuration.isXmlTags()) {
-                        addString("&#160;");
-                    }
-                    else {
-                        addString("&nbsp;");
-                    }
-                }
-                else {
-                    addChar(c);
-                }
-
-                return;
-            }
+            return;
         }
 
         // #431953 - start RJ
         // Handle encoding-specific issues
 
-        if ("UTF8".equals(this.configuration.getOutCharEncodingName()))
+        if (outEncoding == OUT_UTF8)
         {
             // Chinese doesn't have spaces, so it needs other kinds of breaks
             // This will also help documents using nice Unicode punctuation
             // But we leave the ASCII range punctuation untouched
 
             // Break after any punctuation or spaces characters
-            if (c >= 0x2000 && !TidyUtils.toBoolean(mode & PREFORMATTED) && configuration.isPunctWrap())
+            if (c >= 0x2000 && !TidyUtils.toBoolean(mode & PREFORMATTED) && punctWrap)
             {
                 if (c >= 0x2000 && c <= 0x2006
                     || c >= 0x2008 && c <= 0x2010
@@ -798,7 +917,7 @@ public class PPrint
                     }
                 }
             }
-            else if ("BIG5".equals(this.configuration.getOutCharEncodingName()))
+            else if (outEncoding == OUT_BIG5)
             {
                 // Allow linebreak at Chinese punctuation characters
                 // There are not many spaces in Chinese
@@ -814,8 +933,7 @@ public class PPrint
                 }
                 return;
             }
-            else if ("SHIFTJIS".equals(this.configuration.getOutCharEncodingName())
-                || "ISO2022".equals(this.configuration.getOutCharEncodingName()))
+            else if (outEncoding == OUT_SHIFTJIS || outEncoding == OUT_ISO2022)
             {
                 // ISO 2022 characters are passed raw
                 addC(c, linelen++);
@@ -823,7 +941,7 @@ public class PPrint
             }
             else
             {
-                if (this.configuration.isRawOut())
+                if (rawOut)
                 {
                     addC(c, linelen++);
                     return;
@@ -844,7 +962,7 @@ public class PPrint
         // The following converts dashes and quotation marks to the nearest ASCII equivalent.
         // My thanks to Andrzej Novosiolov for his help with this code.
 
-        if (this.configuration.isMakeClean() && this.configuration.isAsciiChars() || this.configuration.isMakeBare())
+        if (asciiChars)
         {
             if (c >= 0x2013 && c <= 0x201E)
             {
@@ -869,44 +987,17 @@ public class PPrint
         }
 
         // don't map latin-1 chars to entities
-        if ("ISO8859_1".equals(this.configuration.getOutCharEncodingName()))
+        if (outEncoding == OUT_ISO8859_1)
         {
             if (c > 255) /* multi byte chars */
             {
-                if (!this.configuration.isNumEntities())
-                {
-                    entity = EntityTable.getDefaultEntityTable().entityName((short) c);
-                    if (entity != null)
-                    {
-                        entity = "&" + entity + ";";
-                    }
-                    else
-                    {
-                        entity = "&#" + c + ";";
-                    }
-                }
-                else
-                {
-                    entity = "&#" + c + ";";
-                }
-
-                for (int i = 0; i < entity.length(); i++)
-                {
-                    addC(entity.charAt(i), linelen++);
-                }
-
+                addString(getEntity(c));
                 return;
             }
 
             if (c > 126 && c < 160)
             {
-                entity = "&#" + c + ";";
-
-                for (int i = 0; i < entity.length(); i++)
-                {
-                    addC(entity.charAt(i), linelen++);
-                }
-
+                addString("&#" + c + ";");
                 return;
             }
 
@@ -915,25 +1006,19 @@ public class PPrint
         }
 
         // don't map utf8 or utf16 chars to entities
-        if (this.configuration.getOutCharEncodingName().startsWith("UTF"))
+        if (outEncoding == OUT_UTF8 || outEncoding == OUT_UTF)
         {
             addC(c, linelen++);
             return;
         }
 
         // use numeric entities only for XML
-        if (this.configuration.isXmlTags())
+        if (xmlTags)
         {
             // if ASCII use numeric entities for chars > 127
-            if (c > 127 && "ASCII".equals(this.configuration.getOutCharEncodingName()))
+            if (c > 127 && outEncoding == OUT_ASCII)
             {
-                entity = "&#" + c + ";";
-
-                for (int i = 0; i < entity.length(); i++)
-                {
-                    addC(entity.charAt(i), linelen++);
-                }
-
+                addString("&#" + c + ";");
                 return;
             }
 
@@ -943,30 +1028,9 @@ public class PPrint
         }
 
         // default treatment for ASCII
-        if ("ASCII".equals(this.configuration.getOutCharEncodingName()) && (c > 126 || c < ' ' && c != '\t'))
+        if (outEncoding == OUT_ASCII && (c > 126 || c < ' ' && c != '\t'))
         {
-            if (!this.configuration.isNumEntities())
-            {
-                entity = EntityTable.getDefaultEntityTable().entityName((short) c);
-                if (entity != null)
-                {
-                    entity = "&" + entity + ";";
-                }
-                else
-                {
-                    entity = "&#" + c + ";";
-                }
-            }
-            else
-            {
-                entity = "&#" + c + ";";
-            }
-
-            for (int i = 0; i < entity.length(); i++)
-            {
-                addC(entity.charAt(i), linelen++);
-            }
-
+            addString(getEntity(c));
             return;
         }
 
@@ -1005,10 +1069,10 @@ public class PPrint
 
         for (ix = start; ix < end; ++ix) {
         	checkWrapIndent(fout, indent);
-        	c = lexer.lexbuf[ix] & 0xFF;
+        	c = node.textarray[ix] & 0xFF;
             // look for UTF-8 multibyte character
             if (c > 0x7F) {
-                ix += getUTF8(lexer.lexbuf, ix, ci);
+                ix += getUTF8(node.textarray, ix, ci);
                 c = ci[0];
             }
             if (c == '\n') {
@@ -1525,7 +1589,7 @@ public class PPrint
         /* restore old config value */
         configuration.setUpperCaseAttrs(ucAttrs);
 
-        if (node.end <= 0 || lexer.lexbuf[node.end - 1] != '?') {
+        if (node.end <= 0 || node.textarray[node.end - 1] != '?') {
             addChar('?');
         }
         addChar('>');
@@ -1713,11 +1777,11 @@ public class PPrint
     	if ((mode & (CDATA|COMMENT)) != 0 && node.isText() && node.end > node.start) {
     		int ch, ix = node.end - 1;
     		// Skip non-newline whitespace
-            while (ix >= node.start && (ch = lexer.lexbuf[ix] & 0xff) != 0
+            while (ix >= node.start && (ch = node.textarray[ix] & 0xff) != 0
                     && (ch == ' ' || ch == '\t' || ch == '\r')) {
                 --ix;
             }
-            if (lexer.lexbuf[ix] == '\n') {
+            if (ix >= node.start && node.textarray[ix] == '\n') {
             	return node.end - ix - 1; // #543262 tidy eats all memory
             }
         }
@@ -1729,7 +1793,7 @@ public class PPrint
         if ((mode & (CDATA|COMMENT)) != 0 && node.isText() && node.end > node.start && start >= node.start) {
             int ch, ix = start;
             /* Skip whitespace. */
-            while (ix < node.end && (ch = lexer.lexbuf[ix] & 0xff) != 0
+            while (ix < node.end && (ch = node.textarray[ix] & 0xff) != 0
                     && (ch==' ' || ch=='\t' || ch=='\r')) {
                 ++ix;
             }
@@ -207,7 +207,9 @@ public final class ParserImpl
             return;
         }
 
+        lexer.enterElement();
         node.tag.getParser().parse(lexer, node, mode);
+        lexer.leaveElement();
     }
 
     /**
@@ -1422,6 +1424,7 @@ public final class ParserImpl
                         }
 
                         element = lexer.cloneNode(element);
+                        element.textarray = lexer.lexbuf;
                         element.start = lexer.lexsize;
                         element.end = lexer.lexsize;
                         node.insertNodeAtEnd(element);
@@ -1454,6 +1457,7 @@ public final class ParserImpl
                         }
 
                         element = lexer.cloneNode(element);
+                        element.textarray = lexer.lexbuf;
                         element.start = lexer.lexsize;
                         element.end = lexer.lexsize;
                         node.insertNodeAfterElement(element);
@@ -1494,6 +1498,7 @@ public final class ParserImpl
                         }
 
                         element = lexer.cloneNode(element);
+                        element.textarray = lexer.lexbuf;
                         element.start = lexer.lexsize;
                         element.end = lexer.lexsize;
                         dd.insertNodeAfterElement(element);
@@ -3444,7 +3449,7 @@ public final class ParserImpl
         }
         /* evil adjacent text nodes, Tidy should not generate these :-( */
         if (next.isText() && next.start < next.end
-            && TidyUtils.isWhite((char) lexer.lexbuf[next.start])) {
+            && TidyUtils.isWhite((char) next.textarray[next.start])) {
             return true;
         }
         return false;
@@ -3489,12 +3494,12 @@ public final class ParserImpl
             next = node.next;
 
             if (node.isText() && cleanLeadingWhitespace(node)) {
-                while (node.start < node.end && TidyUtils.isWhite((char) lexer.lexbuf[node.start])) {
+                while (node.start < node.end && TidyUtils.isWhite((char) node.textarray[node.start])) {
                     ++node.start;
                 }
             }
             if (node.isText() && cleanTrailingWhitespace(lexer, node)) {
-                while (node.end > node.start && TidyUtils.isWhite((char) lexer.lexbuf[node.end - 1])) {
+                while (node.end > node.start && TidyUtils.isWhite((char) node.textarray[node.end - 1])) {
                     --node.end;
                 }
             }
@@ -3586,6 +3591,7 @@ public final class ParserImpl
         document.type = NodeType.RootNode;
 
         lexer.root = document;
+        lexer.document = document;
 
         while ((node = lexer.getToken(Lexer.IGNORE_WHITESPACE)) != null)
         {
@@ -3786,7 +3792,9 @@ public final class ParserImpl
             // parse content on seeing start tag
             if (node.type == NodeType.StartTag)
             {
+                lexer.enterElement();
                 parseXMLElement(lexer, node, mode);
+                lexer.leaveElement();
             }
 
             element.insertNodeAtEnd(node);
@@ -3833,6 +3841,7 @@ public final class ParserImpl
 
         document = lexer.newNode();
         document.type = NodeType.RootNode;
+        lexer.document = document;
         doctype = null;
         lexer.configuration.setXmlTags(true);
 
@@ -3875,7 +3884,9 @@ public final class ParserImpl
             if (node.type == NodeType.StartTag)
             {
                 document.insertNodeAtEnd(node);
+                lexer.enterElement();
                 parseXMLElement(lexer, node, Lexer.IGNORE_WHITESPACE);
+                lexer.leaveElement();
             }
 
         }
@@ -56,9 +56,13 @@ package org.w3c.tidy;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.w3c.tidy.Node.NodeType;
 import org.w3c.tidy.TidyMessage.Level;
@@ -203,6 +207,17 @@ public final class Report
      */
     private static ResourceBundle res;
 
+    /**
+     * Compiled message patterns, by message key. They are only cloned, never used for formatting, so that sessions
+     * running concurrently don't share a pattern.
+     */
+    private static final ConcurrentMap<String, MessageFormat> PATTERNS = new ConcurrentHashMap<String, MessageFormat>();
+
+    /**
+     * Message keys, by error code.
+     */
+    private static final ConcurrentMap<IErrorCode, String> KEYS = new ConcurrentHashMap<IErrorCode, String>();
+
     /**
      * Printed in GNU Emacs messages.
      */
@@ -213,6 +228,16 @@ public final class Report
      */
     private TidyMessageListener listener;
 
+    /**
+     * log recording the messages instead of printing them, if any.
+     */
+    private TidyMessageLog messageLog;
+
+    /**
+     * message patterns used by this instance, by message key.
+     */
+    private final Map<String, MessageFormat> formats = new HashMap<String, MessageFormat>();
+
     static
     {
         try
@@ -296,15 +321,70 @@ public final class Report
  		return go;
  	}
     
+    /**
+     * Returns the compiled pattern of a message, owned by this instance.
+     * @param messageKey key for the ResourceBundle
+     * @return message pattern
+     * @throws MissingResourceException if <code>messageKey</code> is not available in jtidy resource bundle.
+     */
+    private MessageFormat getFormat(final String messageKey) throws MissingResourceException {
+    	MessageFormat format = formats.get(messageKey);
+    	if (format == null) {
+    		MessageFormat pattern = PATTERNS.get(messageKey);
+    		if (pattern == null) {
+    			pattern = new MessageFormat(res.getString(messageKey));
+    			PATTERNS.putIfAbsent(messageKey, pattern);
+    		}
+    		format = (MessageFormat) pattern.clone();
+    		formats.put(messageKey, format);
+    	}
+    	return format;
+    }
+
+    /**
+     * Formats a message with a cached pattern.
+     * @param format message pattern
+     * @param args message arguments
+     * @return message text
+     */
+    static String format(final MessageFormat format, final Object[] args) {
+    	// MessageFormat instances are not thread safe: messages and logs may be formatted lazily, on another thread
+    	// than the session which owns the pattern
+    	synchronized (format) {
+    		return format.format(args);
+    	}
+    }
+
+    private static String getKey(final IErrorCode errorCode) {
+    	String key = KEYS.get(errorCode);
+    	if (key == null) {
+    		key = errorCode.name().toLowerCase();
+    		KEYS.putIfAbsent(errorCode, key);
+    	}
+    	return key;
+    }
+
+    /**
+     * Formats a message, or records it in the message log if there is one and the message is about a document.
+     * @return the message to print, or null if there is nothing to print
+     */
     private String getMessagePos(final int errorCode, final Lexer lexer, final Level level, final int line, final int col,
     		final String messageKey, final Object... args) throws MissingResourceException {
     	final boolean go = updateCount(lexer, level);
     	if (go) {
+    		final MessageFormat format = getFormat(messageKey);
+    		if (messageLog != null && lexer != null) {
+    			messageLog.add(errorCode, line, col, level, format, args);
+    			if (listener != null) {
+    				listener.messageReceived(new TidyMessage(errorCode, line, col, level, format, args, null));
+    			}
+    			return null;
+    		}
 	    	final String position = line > 0 && col > 0 ? getPosition(lexer, line, col) : "";
 	        final String prefix = level == Level.SUMMARY ? "" : level + ": ";
-	        final String messageString = MessageFormat.format(res.getString(messageKey), args);
+	        final String messageString = format(format, args);
 	        if (listener != null) {
-	            final TidyMessage msg = new TidyMessage(errorCode, line, col, level, messageString);
+	            final TidyMessage msg = new TidyMessage(errorCode, line, col, level, format, args, messageString);
 	            listener.messageReceived(msg);
 	        }
 	        return position + prefix + messageString;
@@ -323,7 +403,7 @@ public final class Report
      */
     private void messageLexer(final Lexer lexer, final Level level, final IErrorCode errorCode,
     		final Object... params) {
-    	messageLexer(errorCode.code(), lexer, level, errorCode.name().toLowerCase(), params);
+    	messageLexer(errorCode.code(), lexer, level, getKey(errorCode), params);
     }
     
     private void messageNode(final Lexer lexer, final Level level, final Node node, final IErrorCode errorCode,
@@ -331,7 +411,7 @@ public final class Report
     	if (node == null) {
     		messageLexer(lexer, level, errorCode, params);
     	} else {
-    		messagePos(errorCode.code(), lexer, level, node.line, node.column, errorCode.name().toLowerCase(), params);
+    		messagePos(errorCode.code(), lexer, level, node.line, node.column, getKey(errorCode), params);
     	}
     }
     
@@ -349,6 +429,9 @@ public final class Report
         } catch (final MissingResourceException e) {
             lexer.errout.println("Can't find message string for \"" + messageKey + "\"!");
         }
+        if (lexer != null) {
+        	lexer.checkMessageLimits();
+        }
     }
     
     private void messageLexer(final int errorCode, final Lexer lexer, final Level level, final String messageKey,
@@ -451,11 +534,10 @@ public final class Report
     private String getPosition(final Lexer lexer, final int line, final int col) {
         // Change formatting to be parsable by GNU Emacs
         if (lexer.configuration.isEmacs()) {
-            return MessageFormat.format(res.getString("emacs_format"), this.currentFile,
-                line, col) + " ";
+            return format(getFormat("emacs_format"), new Object[] {this.currentFile, line, col}) + " ";
         }
         // traditional format
-        return MessageFormat.format(res.getString("line_column"), line, col);
+        return format(getFormat("line_column"), new Object[] {line, col});
     }
 
     /**
@@ -982,6 +1064,19 @@ public final class Report
         printMessage(errout, Level.ERROR, "unknown_file", "Tidy", file);
     }
 
+    /**
+     * Prints the "duplicate output file" message.
+     * @param errout PrintWriter
+     * @param file input file name
+     * @param otherFile name of the other input file with the same output file
+     * @param outputFile output file name
+     */
+    public void duplicateOutputFile(final PrintWriter errout, final String file, final String otherFile,
+        final String outputFile)
+    {
+        printMessage(errout, Level.ERROR, "duplicate_output_file", "Tidy", otherFile, file, outputFile);
+    }
+
     /**
      * Prints the "needs author intervention" message.
      * @param errout PrintWriter
@@ -1010,6 +1105,26 @@ public final class Report
         printMessage(errout, Level.SUMMARY, "slides_found", new Integer(count));
     }
 
+    /**
+     * Prints the summary of a multi-file run.
+     * @param errout PrintWriter
+     * @param summary run summary
+     */
+    public void batchSummary(final PrintWriter errout, final TidyBatch.Summary summary)
+    {
+        printMessage(
+            errout,
+            Level.SUMMARY,
+            "batch_summary",
+            new Integer(summary.getDocuments()),
+            new Double(summary.getNanos() / 1e9),
+            new Double(summary.getDocumentsPerSecond()),
+            new Double(summary.getBytesPerSecond() / (1024 * 1024)),
+            new Integer(summary.getParseErrors()),
+            new Integer(summary.getParseWarnings()),
+            new Integer(summary.getFailures()));
+    }
+
     /**
      * Prints tidy general info.
      * @param errout PrintWriter
@@ -1028,6 +1143,16 @@ public final class Report
         this.currentFile = filename; // for use with Gnu Emacs
     }
 
+    /**
+     * Prints the reason for aborting the parse.
+     * @param lexer Lexer
+     * @param limit option of the exceeded limit
+     * @param value limit value
+     */
+    public void parseAborted(final Lexer lexer, final Option limit, final int value) {
+    	messageLexer(lexer, Level.ERROR, PARSE_ABORTED, limit.getName(), value);
+    }
+
     /**
      * Prints information for html version in input file.
      * @param lexer Lexer
@@ -1092,6 +1217,15 @@ public final class Report
         this.listener = listener;
     }
 
+    /**
+     * Records the messages about the document in a log instead of printing them.
+     * @param messageLog message log, null to print the messages
+     */
+    public void setMessageLog(final TidyMessageLog messageLog)
+    {
+        this.messageLog = messageLog;
+    }
+
 	public void accessWarning(final Lexer lexer, final Node node, final AccessErrorCode code) {
 		lexer.badAccess |= WAI;
 		messageNode(lexer, Level.ACCESS, node, code);
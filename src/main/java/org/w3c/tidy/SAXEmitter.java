@@ -0,0 +1,338 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import org.w3c.tidy.Node.NodeType;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reports a tidied document to a SAX content handler, as a sequence of events instead of a printed document or a DOM.
+ * Comments, CDATA sections and the document type are reported to the handler only if it also implements
+ * {@link LexicalHandler}. Server side script sections, marked sections and the xml declaration are not reported.
+ * The document is dismantled while it is reported: a node is unlinked from the tree as soon as its events have been
+ * sent, so that the part of the document already reported can be garbage collected.
+ * @version $Revision$ ($Author$)
+ */
+final class SAXEmitter
+{
+
+    /**
+     * attribute type reported for all the attributes.
+     */
+    private static final String CDATA = "CDATA";
+
+    /**
+     * receives the document events.
+     */
+    private final ContentHandler handler;
+
+    /**
+     * receives comments, CDATA sections and doctype, null if the handler is not a LexicalHandler.
+     */
+    private final LexicalHandler lexicalHandler;
+
+    /**
+     * true if comments must not be reported.
+     */
+    private final boolean hideComments;
+
+    /**
+     * attributes of the current element, reused for all the elements.
+     */
+    private final AttributesImpl attributes = new AttributesImpl();
+
+    /**
+     * decoded text of the current node, reused for all the text nodes.
+     */
+    private char[] chars = new char[256];
+
+    /**
+     * Instantiates a new emitter.
+     * @param configuration configuration
+     * @param handler receives the document events
+     */
+    SAXEmitter(final Configuration configuration, final ContentHandler handler)
+    {
+        this.handler = handler;
+        this.lexicalHandler = handler instanceof LexicalHandler ? (LexicalHandler) handler : null;
+        this.hideComments = configuration.isHideComments();
+    }
+
+    /**
+     * Reports a document, dismantling it.
+     * @param document root node
+     * @param bodyOnly if true only the content of the body element is reported
+     * @throws SAXException if thrown by the handler
+     */
+    void emit(final Node document, final boolean bodyOnly) throws SAXException
+    {
+        handler.startDocument();
+        if (!bodyOnly)
+        {
+            emitContent(document);
+        }
+        else
+        {
+            final Node body = document.findBody();
+            if (body != null)
+            {
+                emitContent(body);
+            }
+        }
+        handler.endDocument();
+    }
+
+    /**
+     * Reports the content of a node, without recursion, and unlinks the reported nodes.
+     * @param parent node
+     * @throws SAXException if thrown by the handler
+     */
+    private void emitContent(final Node parent) throws SAXException
+    {
+        Node node = parent.content;
+        while (node != null)
+        {
+            if (node.content != null && isElement(node))
+            {
+                startElement(node);
+                node = node.content;
+                continue;
+            }
+
+            emitNode(node);
+
+            // close the elements whose content is complete
+            while (node.next == null && node.parent != null && node.parent != parent)
+            {
+                node = node.parent;
+                node.content = null;
+                node.last = null;
+                handler.endElement("", node.element, node.element);
+            }
+
+            final Node next = node.next;
+            if (next != null)
+            {
+                next.parent.content = next;
+                next.prev = null;
+            }
+            node = next;
+        }
+        parent.content = null;
+        parent.last = null;
+    }
+
+    /**
+     * Reports a node without content.
+     * @param node node
+     * @throws SAXException if thrown by the handler
+     */
+    private void emitNode(final Node node) throws SAXException
+    {
+        switch (node.type)
+        {
+            case StartTag :
+            case StartEndTag :
+                startElement(node);
+                handler.endElement("", node.element, node.element);
+                break;
+
+            case TextNode :
+                final int length = decode(node);
+                if (length > 0)
+                {
+                    handler.characters(chars, 0, length);
+                }
+                break;
+
+            case CDATATag :
+                if (lexicalHandler != null)
+                {
+                    lexicalHandler.startCDATA();
+                }
+                // decode first, it may replace the buffer
+                final int cdataLength = decode(node);
+                handler.characters(chars, 0, cdataLength);
+                if (lexicalHandler != null)
+                {
+                    lexicalHandler.endCDATA();
+                }
+                break;
+
+            case CommentTag :
+                if (lexicalHandler != null && !hideComments)
+                {
+                    final int commentLength = decode(node);
+                    lexicalHandler.comment(chars, 0, commentLength);
+                }
+                break;
+
+            case ProcInsTag :
+                emitProcessingInstruction(node);
+                break;
+
+            case DocTypeTag :
+                if (lexicalHandler != null)
+                {
+                    final AttVal publicId = node.getAttrByName("PUBLIC");
+                    final AttVal systemId = node.getAttrByName("SYSTEM");
+                    lexicalHandler.startDTD(
+                        node.element != null ? node.element : "html",
+                        publicId != null ? publicId.value : null,
+                        systemId != null ? systemId.value : null);
+                    lexicalHandler.endDTD();
+                }
+                break;
+
+            default :
+                // xml declaration, marked sections and server side scripts have no SAX counterpart
+                break;
+        }
+    }
+
+    /**
+     * Reports the start of an element with its attributes. Attributes without a value get an empty value, or their
+     * name if they are boolean attributes, as in xml output.
+     * @param node element
+     * @throws SAXException if thrown by the handler
+     */
+    private void startElement(final Node node) throws SAXException
+    {
+        attributes.clear();
+        for (AttVal attr = node.attributes; attr != null; attr = attr.next)
+        {
+            if (attr.attribute == null)
+            {
+                continue; // asp or php code in the start tag
+            }
+            String value = attr.value;
+            if (value == null)
+            {
+                value = attr.isBoolAttribute() ? attr.attribute : "";
+            }
+            attributes.addAttribute("", attr.attribute, attr.attribute, CDATA, value);
+        }
+        handler.startElement("", node.element, node.element, attributes);
+    }
+
+    /**
+     * Reports a processing instruction, splitting its text in target and data at the first white space.
+     * @param node processing instruction
+     * @throws SAXException if thrown by the handler
+     */
+    private void emitProcessingInstruction(final Node node) throws SAXException
+    {
+        int end = node.end;
+        if (end > node.start && node.textarray[end - 1] == '?')
+        {
+            end--;
+        }
+        final String text = TidyUtils.getString(node.textarray, node.start, end - node.start);
+
+        int split = 0;
+        while (split < text.length() && !Character.isWhitespace(text.charAt(split)))
+        {
+            split++;
+        }
+        handler.processingInstruction(text.substring(0, split), text.substring(split).trim());
+    }
+
+    /**
+     * Decodes the UTF-8 text of a node in the reused char buffer.
+     * @param node text, comment or CDATA node
+     * @return number of decoded chars
+     */
+    private int decode(final Node node)
+    {
+        final byte[] text = node.textarray;
+        final int end = node.end;
+
+        // a UTF-8 sequence never decodes to more chars than it has bytes
+        if (chars.length < end - node.start)
+        {
+            chars = new char[Math.max(end - node.start, chars.length * 2)];
+        }
+
+        int length = 0;
+        for (int i = node.start; i < end;)
+        {
+            final long decoded = EncodingUtils.decodeUTF8BytesToChar(text, i);
+            final int c = (int) decoded;
+            i += (int) (decoded >>> 32);
+            if (c > 0xFFFF)
+            {
+                chars[length++] = (char) ((c - 0x10000 >> 10) + 0xD800);
+                chars[length++] = (char) ((c - 0x10000 & 0x3FF) + 0xDC00);
+            }
+            else
+            {
+                chars[length++] = (char) c;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns true if the node is an element.
+     * @param node node
+     * @return true for start tags and empty elements
+     */
+    private static boolean isElement(final Node node)
+    {
+        return node.type == NodeType.StartTag || node.type == NodeType.StartEndTag;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+
+/**
+ * Buffered StreamIn implementation over a NIO channel or byte buffer. Bytes are decoded in bulk into a char window,
+ * with fast paths for ASCII, ISO-8859-1 and the ASCII runs of UTF-8 input; other encodings and the non ASCII parts of
+ * UTF-8 go through a <code>CharsetDecoder</code>. Decoding errors are replaced the same way
+ * <code>InputStreamReader</code> does, so the produced chars are the same as with {@link StreamInJavaImpl}. Line,
+ * column and <code>ungetChar</code> handling is inherited from {@link StreamInJavaImpl}. Read errors are not taken as
+ * the end of the input but thrown as a <code>RuntimeException</code> wrapping the original <code>IOException</code>.
+ * @version $Revision$ ($Author$)
+ */
+public class StreamInChannelImpl extends StreamInJavaImpl
+{
+
+    /**
+     * size of the byte and char buffers.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * no fast path, always use the decoder.
+     */
+    private static final int FAST_NONE = 0;
+
+    /**
+     * US-ASCII: bytes below 0x80 are chars, others are replaced.
+     */
+    private static final int FAST_ASCII = 1;
+
+    /**
+     * ISO-8859-1: every byte is a char.
+     */
+    private static final int FAST_LATIN1 = 2;
+
+    /**
+     * UTF-8: ASCII runs are copied, the decoder takes over at the first non ASCII byte.
+     */
+    private static final int FAST_UTF8 = 3;
+
+    /**
+     * replacement for malformed input, as used by the JDK decoders.
+     */
+    private static final char REPLACEMENT = '\uFFFD';
+
+    /**
+     * source channel, <code>null</code> if all the input is already in <code>bytes</code>.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * undecoded input, ready for reading.
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * decoder for the input encoding.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * one of the FAST_* constants.
+     */
+    private final int fastPath;
+
+    /**
+     * decoded chars.
+     */
+    private final char[] chars = new char[BUFFER_SIZE];
+
+    /**
+     * buffer view over <code>chars</code>, used by the decoder.
+     */
+    private final CharBuffer charBuffer = CharBuffer.wrap(this.chars);
+
+    /**
+     * position of the next char to return.
+     */
+    private int charpos;
+
+    /**
+     * number of valid chars in <code>chars</code>.
+     */
+    private int charlimit;
+
+    /**
+     * no more bytes can be read from the channel.
+     */
+    private boolean endOfInput;
+
+    /**
+     * the decoder has been flushed.
+     */
+    private boolean flushed;
+
+    /**
+     * Instantiates a new StreamInChannelImpl reading from a channel. The channel should be blocking.
+     * @param channel input channel
+     * @param encoding input encoding name
+     * @param tabsize tab size in chars
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    protected StreamInChannelImpl(final ReadableByteChannel channel, final String encoding, final int tabsize)
+        throws UnsupportedEncodingException
+    {
+        this(channel, (ByteBuffer) ByteBuffer.allocate(BUFFER_SIZE).flip(), encoding, tabsize);
+    }
+
+    /**
+     * Instantiates a new StreamInChannelImpl reading the remaining content of a byte buffer, which may be a direct or
+     * mapped buffer. The buffer position is advanced while reading.
+     * @param buffer input bytes
+     * @param encoding input encoding name
+     * @param tabsize tab size in chars
+     * @throws UnsupportedEncodingException if the encoding is not supported
+     */
+    protected StreamInChannelImpl(final ByteBuffer buffer, final String encoding, final int tabsize)
+        throws UnsupportedEncodingException
+    {
+        this(null, buffer, encoding, tabsize);
+    }
+
+    private StreamInChannelImpl(final ReadableByteChannel channel, final ByteBuffer bytes, final String encoding,
+        final int tabsize) throws UnsupportedEncodingException
+    {
+        super(tabsize);
+        final Charset charset;
+        try
+        {
+            charset = Charset.forName(encoding);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            throw new UnsupportedEncodingException(encoding);
+        }
+        this.channel = channel;
+        this.bytes = bytes;
+        this.endOfInput = channel == null;
+        this.decoder = charset
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        final String name = charset.name();
+        if ("UTF-8".equals(name))
+        {
+            this.fastPath = FAST_UTF8;
+        }
+        else if ("US-ASCII".equals(name))
+        {
+            this.fastPath = FAST_ASCII;
+        }
+        else if ("ISO-8859-1".equals(name))
+        {
+            this.fastPath = FAST_LATIN1;
+        }
+        else
+        {
+            this.fastPath = FAST_NONE;
+        }
+    }
+
+    /**
+     * @see org.w3c.tidy.StreamIn#readCharFromStream()
+     */
+    @Override
+    public int readCharFromStream()
+    {
+        if (this.charpos == this.charlimit && !fill())
+        {
+            this.endOfStream = true;
+            return END_OF_STREAM;
+        }
+        return this.chars[this.charpos++];
+    }
+
+    /**
+     * Refills the char window.
+     * @return <code>false</code> if there are no more chars
+     */
+    private boolean fill()
+    {
+        while (true)
+        {
+            decode();
+            if (this.charlimit > 0)
+            {
+                return true;
+            }
+            if (this.endOfInput)
+            {
+                return false;
+            }
+            readBytes();
+        }
+    }
+
+    /**
+     * Decodes as many bytes as possible into the char window.
+     */
+    private void decode()
+    {
+        int n = 0;
+        this.charpos = 0;
+
+        if (this.fastPath != FAST_NONE)
+        {
+            int pos = this.bytes.position();
+            final int limit = this.bytes.limit();
+            while (pos < limit && n < BUFFER_SIZE)
+            {
+                final byte b = this.bytes.get(pos);
+                if (b >= 0)
+                {
+                    this.chars[n++] = (char) b;
+                }
+                else if (this.fastPath == FAST_LATIN1)
+                {
+                    this.chars[n++] = (char) (b & 0xFF);
+                }
+                else if (this.fastPath == FAST_ASCII)
+                {
+                    this.chars[n++] = REPLACEMENT;
+                }
+                else
+                {
+                    break;
+                }
+                pos++;
+            }
+            this.bytes.position(pos);
+            if (this.fastPath != FAST_UTF8 || pos == limit || n == BUFFER_SIZE)
+            {
+                this.charlimit = n;
+                return;
+            }
+        }
+
+        if (this.flushed)
+        {
+            this.charlimit = n;
+            return;
+        }
+
+        this.charBuffer.clear();
+        this.charBuffer.position(n);
+        // malformed and unmappable input is replaced, so the result is always underflow or overflow
+        if (this.decoder.decode(this.bytes, this.charBuffer, this.endOfInput).isUnderflow()
+            && this.endOfInput
+            && !this.flushed)
+        {
+            this.flushed = this.decoder.flush(this.charBuffer).isUnderflow();
+        }
+        this.charlimit = this.charBuffer.position();
+    }
+
+    /**
+     * Reads more bytes from the channel, keeping any undecoded bytes.
+     */
+    private void readBytes()
+    {
+        this.bytes.compact();
+        try
+        {
+            int read;
+            do
+            {
+                read = this.channel.read(this.bytes);
+            }
+            while (read == 0);
+
+            if (read < 0)
+            {
+                this.endOfInput = true;
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            this.bytes.flip();
+        }
+    }
+}
@@ -56,6 +56,9 @@ package org.w3c.tidy;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 
 /**
@@ -75,12 +78,60 @@ public final class StreamInFactory
     }
 
     /**
-     * Returns the appropriate StreamIn implementation.
+     * Returns the appropriate StreamIn implementation. Byte streams are read through a buffered channel
+     * implementation.
      * @param config configuration instance
      * @param stream input stream
      * @return StreamIn instance
      */
     public static StreamIn getStreamIn(final Configuration config, final InputStream stream)
+    {
+        return getStreamIn(config, Channels.newChannel(stream));
+    }
+
+    /**
+     * Returns the appropriate StreamIn implementation.
+     * @param config configuration instance
+     * @param channel blocking input channel
+     * @return StreamIn instance
+     */
+    public static StreamIn getStreamIn(final Configuration config, final ReadableByteChannel channel)
+    {
+        try
+        {
+            return new StreamInChannelImpl(channel, config.getInCharEncodingName(), config.getTabsize());
+        }
+        catch (final UnsupportedEncodingException e)
+        {
+            throw new RuntimeException("Unsupported encoding: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the appropriate StreamIn implementation.
+     * @param config configuration instance
+     * @param buffer input bytes, read from the current position to the limit
+     * @return StreamIn instance
+     */
+    public static StreamIn getStreamIn(final Configuration config, final ByteBuffer buffer)
+    {
+        try
+        {
+            return new StreamInChannelImpl(buffer, config.getInCharEncodingName(), config.getTabsize());
+        }
+        catch (final UnsupportedEncodingException e)
+        {
+            throw new RuntimeException("Unsupported encoding: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the unbuffered, reader based StreamIn implementation, decoding one char at a time.
+     * @param config configuration instance
+     * @param stream input stream
+     * @return StreamIn instance
+     */
+    public static StreamIn getReaderStreamIn(final Configuration config, final InputStream stream)
     {
         try
         {
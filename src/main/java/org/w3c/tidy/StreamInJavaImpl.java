@@ -79,6 +79,11 @@ public class StreamInJavaImpl implements StreamIn
      */
     private final int[] charbuf = new int[CHARBUF_SIZE];
 
+    /**
+     * source offsets following the pushed back characters.
+     */
+    private final int[] charoffsets = new int[CHARBUF_SIZE];
+
     /**
      * actual position in buffer.
      */
@@ -92,7 +97,7 @@ public class StreamInJavaImpl implements StreamIn
     /**
      * has end of stream been reached?
      */
-    private boolean endOfStream;
+    protected boolean endOfStream;
 
     /**
      * Is char pushed?
@@ -107,6 +112,17 @@ public class StreamInJavaImpl implements StreamIn
     private final int lastcols[] = new int[LASTPOS_SIZE];
     private int curlastpos; /* current last position in lastcols */ 
     private int firstlastpos; /* first valid last position in lastcols */ 
+    private final int lastoffsets[] = new int[LASTPOS_SIZE];
+
+    /**
+     * offset of the next character in the source.
+     */
+    private int offset;
+
+    /**
+     * number of characters read from the underlying stream.
+     */
+    private int rawoffset;
 
     /**
      * current line number.
@@ -153,6 +169,16 @@ public class StreamInJavaImpl implements StreamIn
         this.curcol = 1;
     }
 
+    /**
+     * Instantiates a new StreamInJavaImpl for subclasses which override <code>readCharFromStream()</code> and don't
+     * need a reader.
+     * @param tabsize
+     */
+    protected StreamInJavaImpl(final int tabsize)
+    {
+        this(null, tabsize);
+    }
+
     /**
      * @see org.w3c.tidy.StreamIn#readCharFromStream()
      */
@@ -188,6 +214,7 @@ public class StreamInJavaImpl implements StreamIn
     private void saveLastPos() {
         popLastPos();
         lastcols[curlastpos] = curcol;
+        lastoffsets[curlastpos] = offset;
     }
     
     private int popChar() {
@@ -195,6 +222,7 @@ public class StreamInJavaImpl implements StreamIn
         if (pushed) {
             assert bufpos > 0;
             c = charbuf[--bufpos];
+            offset = charoffsets[bufpos];
             if (bufpos == 0) {
                 pushed = false;
             }
@@ -228,7 +256,7 @@ public class StreamInJavaImpl implements StreamIn
             return ' ';
         }
 
-        c = readCharFromStream();
+        c = nextChar();
 
         if (END_OF_STREAM == c) {
             endOfStream = true;
@@ -249,10 +277,11 @@ public class StreamInJavaImpl implements StreamIn
             return c;
         }
         if (c == '\r') {
-            c = readCharFromStream();
+            c = nextChar();
             if (c != '\n') {
                 if (c != END_OF_STREAM) {
                     ungetChar(c);
+                    offset = rawoffset - 1;
                 }
                 c = '\n';
             } else {
@@ -300,11 +329,25 @@ public class StreamInJavaImpl implements StreamIn
         return c;
     }
 
+    /**
+     * Reads a char from the stream, keeping track of the source offset.
+     * @return char
+     */
+    private int nextChar() {
+        final int c = readCharFromStream();
+        if (c != END_OF_STREAM) {
+            offset = ++rawoffset;
+        }
+        return c;
+    }
+
     private void restoreLastPos() {
         if (firstlastpos == curlastpos) {
             curcol = 0;
+            offset = Math.max(offset - 1, 0);
         } else {
             curcol = lastcols[curlastpos];
+            offset = lastoffsets[curlastpos];
             if (curlastpos == 0) {
                 curlastpos = LASTPOS_SIZE;
             }
@@ -325,8 +368,10 @@ public class StreamInJavaImpl implements StreamIn
         {
             // pop last element
             System.arraycopy(this.charbuf, 0, this.charbuf, 1, CHARBUF_SIZE - 1);
+            System.arraycopy(this.charoffsets, 0, this.charoffsets, 1, CHARBUF_SIZE - 1);
             this.bufpos--;
         }
+        this.charoffsets[this.bufpos] = this.offset;
         this.charbuf[this.bufpos++] = c;
 
         if (c == '\n')
@@ -366,6 +411,16 @@ public class StreamInJavaImpl implements StreamIn
         return this.curline;
     }
 
+    /**
+     * Getter for the source offset, i.e. the number of characters consumed from the underlying stream, not counting
+     * pushed back characters.
+     * @return offset of the next character to be read
+     */
+    public int getOffset()
+    {
+        return this.offset;
+    }
+
     /**
      * @see org.w3c.tidy.StreamIn#setLexer(org.w3c.tidy.Lexer)
      */
@@ -54,8 +54,9 @@
 package org.w3c.tidy;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -213,25 +214,114 @@ public final class TagTable
     protected Map<String, Node> anchorMap = new HashMap<String, Node>();
     protected Map<Node, String> anchorByNode = new HashMap<Node, String>();
 
+    /**
+     * Names of the known tags, indexed by their position in TAGS.
+     */
+    private static final NameIndex TAG_NAMES;
+
+    /**
+     * Position in TAGS of the known tag with a given id, indexed by the id's ordinal.
+     */
+    private static final int[] TAG_INDEX_BY_ID = new int[TagId.values().length];
+
+    static
+    {
+        final String[] names = new String[TAGS.length];
+        Arrays.fill(TAG_INDEX_BY_ID, -1);
+        for (int i = 0; i < TAGS.length; i++)
+        {
+            names[i] = TAGS[i].name;
+            if (TAGS[i].id != TagId.UNKNOWN)
+            {
+                TAG_INDEX_BY_ID[TAGS[i].id.ordinal()] = i;
+            }
+        }
+        TAG_NAMES = new NameIndex(names);
+    }
+
     /**
      * configuration.
      */
     private Configuration configuration;
 
     /**
-     * hashTable containing tags.
+     * Definitions of the known tags, indexed by their position in TAGS. These are the TAGS definitions themselves,
+     * unless the table has been copied.
      */
-    private final Map<String, Dict> tagHashtable = new Hashtable<String, Dict>();
+    private Dict[] knownTags;
+
+    /**
+     * user-defined tags, by name.
+     */
+    private Map<String, Dict> userTags;
+
+    /**
+     * true if <code>knownTags</code> and <code>userTags</code> are shared with other tag tables, and must be copied
+     * before being modified.
+     */
+    private boolean sharedTags;
 
     /**
      * Instantiates a new tag table with known tags.
      */
     protected TagTable()
     {
-        for (int i = 0; i < TAGS.length; i++)
+        this(TAGS.clone(), new LinkedHashMap<String, Dict>(), false);
+    }
+
+    /**
+     * Instantiates a new tag table using the given tag definitions.
+     * @param knownTags definitions of the known tags
+     * @param userTags user-defined tags
+     * @param shared if true the definitions are shared with other tag tables and will be copied on first modification
+     */
+    private TagTable(final Dict[] knownTags, final Map<String, Dict> userTags, final boolean shared)
+    {
+        this.knownTags = knownTags;
+        this.userTags = userTags;
+        this.sharedTags = shared;
+    }
+
+    /**
+     * Returns a new tag table with a private copy of the tag definitions of this one, including user-defined tags.
+     * Anchors are not copied.
+     * @return tag table copy
+     */
+    TagTable copy()
+    {
+        final Dict[] tags = new Dict[knownTags.length];
+        for (int i = 0; i < tags.length; i++)
         {
-            install(TAGS[i]);
+            tags[i] = copyDict(knownTags[i]);
         }
+        final Map<String, Dict> user = new LinkedHashMap<String, Dict>();
+        for (final Dict dict : userTags.values())
+        {
+            user.put(dict.name, copyDict(dict));
+        }
+        return new TagTable(tags, user, false);
+    }
+
+    /**
+     * Returns a new tag table sharing the tag definitions of this one. This table must not be modified anymore; the
+     * returned table copies the definitions before modifying them, and has its own anchors, so it can be used to parse a
+     * document while other threads are using other tag tables sharing the same definitions.
+     * @return tag table sharing the definitions of this one
+     */
+    TagTable share()
+    {
+        return new TagTable(knownTags, userTags, true);
+    }
+
+    /**
+     * Returns a copy of a tag definition.
+     * @param dict tag definition
+     * @return copy
+     */
+    private static Dict copyDict(final Dict dict)
+    {
+        return new Dict(dict.id, dict.name, dict.versions, dict.attrvers, dict.model, dict.getParser(), dict
+            .getChkattrs());
     }
 
     /**
@@ -250,19 +340,50 @@ public final class TagTable
      */
     public Dict lookup(final String name)
     {
-        return tagHashtable.get(name);
+        final int index = TAG_NAMES.indexOf(name);
+        if (index != -1)
+        {
+            return knownTags[index];
+        }
+        return userTags.isEmpty() ? null : userTags.get(name);
+    }
+
+    /**
+     * Lookup a tag definition by its name, held in a byte buffer. Known tags are found without building a string.
+     * @param buf buffer
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return tag definition (Dict), or null if the tag is unknown
+     */
+    Dict lookup(final byte[] buf, final int start, final int end)
+    {
+        final int index = TAG_NAMES.indexOf(buf, start, end);
+        if (index != -1)
+        {
+            return knownTags[index];
+        }
+        return userTags.isEmpty() ? null : userTags.get(TidyUtils.getString(buf, start, end - start));
+    }
+
+    /**
+     * Returns the canonical instance of a known tag name held in a byte buffer.
+     * @param buf buffer
+     * @param start start of the name in the buffer
+     * @param end end of the name in the buffer (exclusive)
+     * @return tag name, or null if the name is not the name of a known tag
+     */
+    static String knownName(final byte[] buf, final int start, final int end)
+    {
+        final int index = TAG_NAMES.indexOf(buf, start, end);
+        return index == -1 ? null : TAG_NAMES.getName(index);
     }
-    
+
     public Dict lookup(final TagId tid) {
     	if (tid == TagId.UNKNOWN) {
     		return null;
     	}
-        for (final Dict np : tagHashtable.values()) {
-            if (np.id == tid) {
-                return np;
-            }
-        }
-        return null;
+        final int index = TAG_INDEX_BY_ID[tid.ordinal()];
+        return index == -1 ? null : knownTags[index];
     }
 
     /**
@@ -272,7 +393,27 @@ public final class TagTable
      */
     public Dict install(final Dict dict)
     {
-        final Dict d = tagHashtable.get(dict.name);
+        Dict d = lookup(dict.name);
+        if (d != null
+            && d.versions == dict.versions
+            && (d.model | dict.model) == d.model
+            && d.getParser() == dict.getParser()
+            && d.getChkattrs() == dict.getChkattrs())
+        {
+            // already installed, nothing to change
+            return d;
+        }
+
+        if (sharedTags)
+        {
+            // don't modify definitions other tag tables are using, neither now nor later
+            final TagTable copy = copy();
+            knownTags = copy.knownTags;
+            userTags = copy.userTags;
+            sharedTags = false;
+            d = lookup(dict.name);
+        }
+
         if (d != null)
         {
             d.versions = dict.versions;
@@ -282,7 +423,7 @@ public final class TagTable
             return d;
         }
 
-        tagHashtable.put(dict.name, dict);
+        userTags.put(dict.name, dict);
         return dict;
 
     }
@@ -382,8 +523,11 @@ public final class TagTable
     List<String> findAllDefinedTag(final short tagType)
     {
         final List<String> tagNames = new ArrayList<String>();
+        final List<Dict> tags = new ArrayList<Dict>(knownTags.length + userTags.size());
+        tags.addAll(Arrays.asList(knownTags));
+        tags.addAll(userTags.values());
 
-        for (final Dict curDictEntry : tagHashtable.values())
+        for (final Dict curDictEntry : tags)
         {
             if (curDictEntry != null)
             {
@@ -53,6 +53,7 @@
  */
 package org.w3c.tidy;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -64,6 +65,7 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -77,6 +79,8 @@ import org.w3c.tidy.Options.AttrSortStrategy;
 import org.w3c.tidy.Options.DoctypeModes;
 import org.w3c.tidy.Options.DupAttrModes;
 import org.w3c.tidy.Options.TriState;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 
 /**
  * HTML parser and pretty printer.
@@ -134,12 +138,15 @@ public class Tidy implements Serializable
 
     private int parseWarnings;
 
+    private Option abortReason;
+
     private final Report report;
     
     private Lexer lexer;
 
     /**
-     * Instantiates a new Tidy instance. It's reccomended that a new instance is used at each parsing.
+     * Instantiates a new Tidy instance. It's reccomended that a new instance is used at each parsing. When many documents
+     * are parsed with the same configuration, possibly from many threads, use a <code>TidyEngine</code> instead.
      */
     public Tidy()
     {
@@ -155,6 +162,24 @@ public class Tidy implements Serializable
         errout = stderr;
     }
 
+    /**
+     * Instantiates a new Tidy instance for a TidyEngine session. The configuration is copied from the engine one and
+     * the tag definitions are shared with it, so no setup is needed besides the per-document state.
+     * @param engineConfiguration configuration of the engine, which must not be modified anymore
+     */
+    Tidy(final Configuration engineConfiguration)
+    {
+        this.report = new Report();
+        configuration = new Configuration(engineConfiguration, this.report);
+
+        final TagTable tt = engineConfiguration.tt.share();
+        tt.setConfiguration(configuration);
+        configuration.tt = tt;
+
+        stderr = new PrintWriter(System.err, true);
+        errout = stderr;
+    }
+
     /**
      * Returns the actual configuration
      * @return tidy configuration
@@ -187,6 +212,31 @@ public class Tidy implements Serializable
         return parseWarnings;
     }
 
+    /**
+     * AbortReason - the limit which aborted the most recent parse operation, one of the options
+     * <code>abort-error-count</code>, <code>abort-warning-count</code>, <code>abort-node-count</code> and
+     * <code>abort-nesting-depth</code>. The document returned by an aborted parse contains only the nodes parsed so far.
+     * @return exceeded limit, or null if the most recent parse operation was not aborted
+     */
+    public Option getAbortReason()
+    {
+        return abortReason;
+    }
+
+    /**
+     * AccessibilityCheckTimes - the time spent in each accessibility check during the most recent parse operation,
+     * by check name (the names accepted by the <code>accessibility-skip-checks</code> option).
+     * @return time in nanoseconds by check name, empty if no accessibility check was made
+     */
+    public Map<String, Long> getAccessibilityCheckTimes()
+    {
+        if (lexer == null || lexer.accessibilityCheckTimes == null)
+        {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(lexer.accessibilityCheckTimes);
+    }
+
     /**
      * InputStreamName - the name of the input stream (printed in the header information).
      * @param name input stream name
@@ -335,6 +385,54 @@ public class Tidy implements Serializable
         return parse(streamIn, o);
     }
 
+    /**
+     * Reads from the given file and returns the root Node. If out is non-null, pretty prints to out. The file is
+     * memory mapped and scanned in place, without being copied to heap buffers. Warning: caller is responsible for
+     * calling close() on output after calling this method.
+     * @param file input file
+     * @param out optional destination for pretty-printed document
+     * @return parsed org.w3c.tidy.Node
+     * @throws IOException if the file can't be read
+     */
+    public Node parse(final File file, final OutputStream out) throws IOException
+    {
+        final FileInputStream in = new FileInputStream(file);
+        try
+        {
+            final StreamIn streamIn = getStreamIn(in);
+
+            Out o = null;
+            if (out != null)
+            {
+                o = OutFactory.getOut(this.configuration, out); // normal output stream
+            }
+
+            return parse(streamIn, o);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns a StreamIn reading a file. Files up to 2GB are memory mapped, larger ones are read through their
+     * channel.
+     * @param in file input stream
+     * @return StreamIn instance
+     * @throws IOException if the file can't be mapped
+     */
+    private StreamIn getStreamIn(final FileInputStream in) throws IOException
+    {
+        final FileChannel channel = in.getChannel();
+        final long size = channel.size();
+        if (size <= Integer.MAX_VALUE)
+        {
+            return StreamInFactory.getStreamIn(configuration, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+        return StreamInFactory.getStreamIn(configuration, channel);
+    }
+
     /**
      * Parses InputStream in and returns a DOM Document node. If out is non-null, pretty prints to OutputStream out.
      * @param in input stream
@@ -359,6 +457,86 @@ public class Tidy implements Serializable
         return null;
     }
 
+    /**
+     * Parses InputStream in and returns a read-only DOM Document. If out is non-null, pretty prints to OutputStream
+     * out. Unlike {@link #parseDOM(InputStream, OutputStream)}, the returned document doesn't wrap the tidy nodes: it
+     * is a compact copy, with constant time access to the children of a node by position, which doesn't keep the tidy
+     * nodes reachable. Methods which would modify it throw a DOMException with code NO_MODIFICATION_ALLOWED_ERR.
+     * @param in input stream
+     * @param out optional output stream
+     * @return parsed org.w3c.dom.Document, read-only
+     */
+    public org.w3c.dom.Document parseCompactDOM(final InputStream in, final OutputStream out)
+    {
+        final Node document = parse(in, out);
+        if (document != null)
+        {
+            return new CompactDOM(document).getDocument();
+        }
+        return null;
+    }
+
+    /**
+     * Parses Reader in and returns a read-only DOM Document. If out is non-null, pretty prints to Writer out.
+     * @param in input reader
+     * @param out optional output writer
+     * @return parsed org.w3c.dom.Document, read-only
+     * @see #parseCompactDOM(InputStream, OutputStream)
+     */
+    public org.w3c.dom.Document parseCompactDOM(final Reader in, final Writer out)
+    {
+        final Node document = parse(in, out);
+        if (document != null)
+        {
+            return new CompactDOM(document).getDocument();
+        }
+        return null;
+    }
+
+    /**
+     * Parses InputStream in and reports the tidied document to a SAX content handler instead of printing it. Comments,
+     * CDATA sections and the document type are reported only if the handler also implements
+     * <code>org.xml.sax.ext.LexicalHandler</code>. As for printing, nothing is reported if the document has errors,
+     * unless <code>force-output</code> is set. Warning: caller is responsible for calling close() on input after
+     * calling this method.
+     * @param in input stream
+     * @param handler receives the document events
+     * @throws SAXException if thrown by the handler
+     */
+    public void parseSAX(final InputStream in, final ContentHandler handler) throws SAXException
+    {
+        emitSAX(parse(StreamInFactory.getStreamIn(configuration, in), null), handler);
+    }
+
+    /**
+     * Parses Reader in and reports the tidied document to a SAX content handler instead of printing it.
+     * @param in input reader
+     * @param handler receives the document events
+     * @throws SAXException if thrown by the handler
+     * @see #parseSAX(InputStream, ContentHandler)
+     */
+    public void parseSAX(final Reader in, final ContentHandler handler) throws SAXException
+    {
+        emitSAX(parse(StreamInFactory.getStreamIn(configuration, in), null), handler);
+    }
+
+    /**
+     * Reports a parsed document to a SAX content handler. The document is dismantled while it is reported, so that
+     * memory is released as events are sent.
+     * @param document root node, null if the parse failed
+     * @param handler receives the document events
+     * @throws SAXException if thrown by the handler
+     */
+    private void emitSAX(final Node document, final ContentHandler handler) throws SAXException
+    {
+        if (document != null && configuration.isShowMarkup() && (lexer.errors == 0 || configuration.isForceOutput()))
+        {
+            prepareOutput();
+            configuration.tt.freeAnchors(); // anchors would keep the whole tree reachable
+            new SAXEmitter(configuration, handler).emit(document, showBodyOnly(lexer));
+        }
+    }
+
     /**
      * Pretty-prints a DOM Document. Must be an instance of org.w3c.tidy.DOMDocumentImpl. Caller is responsible for
      * closing the outputStream after calling this method.
@@ -417,7 +595,6 @@ public class Tidy implements Serializable
     {
         Node document = null;
         Node doctype;
-        PPrint pprint;
 
         if (errout == null)
         {
@@ -429,6 +606,7 @@ public class Tidy implements Serializable
 
         parseErrors = 0;
         parseWarnings = 0;
+        abortReason = null;
 
         lexer = new Lexer(streamIn, configuration, this.report);
         lexer.errout = errout;
@@ -441,8 +619,17 @@ public class Tidy implements Serializable
         // Tidy doesn't alter the doctype for generic XML docs
         if (configuration.isXmlTags())
         {
-            document = ParserImpl.parseXMLDocument(lexer);
-            if (!document.checkNodeIntegrity())
+            lexer.startLimits();
+            try
+            {
+                document = ParserImpl.parseXMLDocument(lexer);
+            }
+            catch (final ParseAbortedException e)
+            {
+                return abortParse(e, o);
+            }
+            lexer.stopLimits();
+            if (configuration.isCheckNodeIntegrity() && !document.checkNodeIntegrity())
             {
                 if (!configuration.isQuiet()) {
                     report.badTree(errout);
@@ -455,9 +642,18 @@ public class Tidy implements Serializable
         {
             lexer.warnings = 0;
 
-            document = ParserImpl.parseDocument(lexer);
+            lexer.startLimits();
+            try
+            {
+                document = ParserImpl.parseDocument(lexer);
+            }
+            catch (final ParseAbortedException e)
+            {
+                return abortParse(e, o);
+            }
+            lexer.stopLimits();
 
-            if (!document.checkNodeIntegrity())
+            if (configuration.isCheckNodeIntegrity() && !document.checkNodeIntegrity())
             {
                 if (!configuration.isQuiet()) {
                     report.badTree(errout);
@@ -470,18 +666,9 @@ public class Tidy implements Serializable
 
             final Clean cleaner = new Clean(configuration.tt);
 
-            // simplifies <b><b> ... </b> ... </b> etc.
-            cleaner.nestedEmphasis(document);
-
-            // cleans up <dir> indented text </dir> etc.
-            cleaner.list2BQ(document);
-            cleaner.bQ2Div(document);
-
-            // replaces i by em and b by strong
-            if (configuration.isLogicalEmphasis())
-            {
-                cleaner.emFromI(document);
-            }
+            // simplifies <b><b> ... </b> ... </b> etc., cleans up <dir> indented text </dir> etc.
+            // and replaces i by em and b by strong if requested
+            cleaner.cleanStructure(document, configuration.isLogicalEmphasis());
 
             if (configuration.isWord2000() && cleaner.isWord2000(document))
             {
@@ -503,7 +690,7 @@ public class Tidy implements Serializable
             	Clean.verifyHTTPEquiv(lexer, document.findHEAD());
             }
 
-            if (!document.checkNodeIntegrity())
+            if (configuration.isCheckNodeIntegrity() && !document.checkNodeIntegrity())
             {
                 this.report.badTree(errout);
                 errout.flush();
@@ -524,18 +711,21 @@ public class Tidy implements Serializable
 
             if (document.content != null)
             {
-                if (configuration.isXHTML() && !configuration.isHtmlOut()) {
+                final boolean xhtml = configuration.isXHTML() && !configuration.isHtmlOut();
+                if (xhtml) {
                     lexer.setXHTMLDocType(document);
-                    cleaner.fixAnchors(lexer, lexer.root, wantNameAttr, true);
-                    Clean.fixXhtmlNamespace(lexer.root, true);
-                    Clean.fixLanguageInformation(lexer, lexer.root, true, true);
                 } else {
                     lexer.fixDocType(document);
-                    cleaner.fixAnchors(lexer, lexer.root, wantNameAttr, true);
-                    Clean.fixXhtmlNamespace(lexer.root, false);
-                    Clean.fixLanguageInformation(lexer, lexer.root, false, true);
                 }
 
+                // the html element is not an anchor, so its namespace can be fixed first,
+                // and anchors and language information in a single traversal
+                Clean.fixXhtmlNamespace(lexer.root, xhtml);
+                new CleanPipeline()
+                    .add(cleaner.fixAnchorsHandler(lexer, wantNameAttr, true))
+                    .add(Clean.fixLanguageInformationHandler(lexer, xhtml, true))
+                    .run(lexer.root);
+
                 if (configuration.isTidyMark())
                 {
                     lexer.addGenerator(document);
@@ -556,6 +746,30 @@ public class Tidy implements Serializable
             }
         }
 
+        return finishParse(document, o);
+    }
+
+    /**
+     * Reports an aborted parse and finishes it with the part of the document parsed so far, without cleaning it up.
+     * @param e exception thrown for the exceeded limit
+     * @param o tidy Out
+     * @return partially parsed document
+     */
+    private Node abortParse(final ParseAbortedException e, final Out o)
+    {
+        abortReason = e.getLimit();
+        this.report.parseAborted(lexer, e.getLimit(), e.getValue());
+        return finishParse(lexer.document, o);
+    }
+
+    /**
+     * Reports the number of errors and warnings and prints the parsed document.
+     * @param document parsed document
+     * @param o tidy Out
+     * @return document
+     */
+    private Node finishParse(final Node document, final Out o)
+    {
         parseWarnings = lexer.warnings;
         parseErrors = lexer.errors;
         if (!configuration.isQuiet()) {
@@ -568,35 +782,7 @@ public class Tidy implements Serializable
         }
 
         if (configuration.isShowMarkup() && (lexer.errors == 0 || configuration.isForceOutput()) && o != null) {
-        	
-        	// tidySaveStream
-        	
-        	if (configuration.isMakeClean()) {
-        		Clean.wbrToSpace(lexer, lexer.root);
-        	}
-        	
-        	final AttrSortStrategy sortAttrStrat = configuration.getSortAttributes();
-			if (sortAttrStrat != AttrSortStrategy.None) {
-                sortAttributes(lexer.root, sortAttrStrat);
-        	}
-			
-            pprint = new PPrint(configuration);
-
-            if (showBodyOnly(lexer)) {
-                // Feature request #434940 - fix by Dave Raggett/Ignacio Vazquez-Abrams 21 Jun 01
-                pprint.printBody(o, lexer, document, configuration.isXmlOut());
-            }
-            else if (configuration.isXmlOut() && !configuration.isXHTML())
-            {
-                pprint.printXMLTree(o, (short) 0, 0, lexer, document);
-            }
-            else
-            {
-                pprint.printTree(o, (short) 0, 0, lexer, document);
-            }
-
-            pprint.flushLine(o, 0);
-            o.flush();
+            printDocument(document, o);
         }
 
         // Tidy only shows the error summary when there are errors and/or warnings,
@@ -612,6 +798,69 @@ public class Tidy implements Serializable
         return document;
     }
     
+    /**
+     * Pretty-prints a document produced by the last parse of this instance.
+     * @param document document node
+     * @param o output
+     */
+    void printDocument(final Node document, final Out o)
+    {
+        // tidySaveStream
+
+        prepareOutput();
+
+        final PPrint pprint = new PPrint(configuration);
+
+        if (showBodyOnly(lexer)) {
+            // Feature request #434940 - fix by Dave Raggett/Ignacio Vazquez-Abrams 21 Jun 01
+            pprint.printBody(o, lexer, document, configuration.isXmlOut());
+        }
+        else if (configuration.isXmlOut() && !configuration.isXHTML())
+        {
+            pprint.printXMLTree(o, (short) 0, 0, lexer, document);
+        }
+        else
+        {
+            pprint.printTree(o, (short) 0, 0, lexer, document);
+        }
+
+        pprint.flushLine(o, 0);
+        o.flush();
+    }
+
+    /**
+     * Applies the transformations which only concern the output of a document: replacement of wbr elements and
+     * sorting of attributes.
+     */
+    private void prepareOutput()
+    {
+        final CleanPipeline pipeline = new CleanPipeline();
+        if (configuration.isMakeClean()) {
+            pipeline.add(Clean.wbrToSpaceHandler(lexer));
+        }
+
+        final AttrSortStrategy sortAttrStrat = configuration.getSortAttributes();
+        if (sortAttrStrat != AttrSortStrategy.None) {
+            pipeline.add(new CleanPipeline.Handler() {
+                @Override
+                Node enter(final Node node) {
+                    node.attributes = sortAttVal(node.attributes, sortAttrStrat);
+                    return node;
+                }
+            });
+        }
+        pipeline.run(lexer.root);
+    }
+
+    /**
+     * Returns the lexer used by the last parse.
+     * @return Lexer, or <code>null</code> if nothing has been parsed yet
+     */
+    Lexer getLexer()
+    {
+        return lexer;
+    }
+
     private AttVal sortAttVal(final AttVal list, final AttrSortStrategy strat) {
     	// quick hack for now
     	final List<AttVal> l = new ArrayList<AttVal>();
@@ -639,17 +888,6 @@ public class Tidy implements Serializable
 		return l.get(0);
 	}
     
-    private void sortAttributes(final Node node, final AttrSortStrategy strat) {
-    	Node x = node;
-    	while (x != null) {
-	        x.attributes = sortAttVal(x.attributes, strat);
-	        if (x.content != null) {
-	            sortAttributes(x.content, strat);
-	        }
-	        x = x.next;
-    	}
-    }
-
 	/**
      * Internal routine that actually does the parsing. The caller can pass either an InputStream or file name. If both
      * are passed, the file name is preferred.
@@ -670,18 +908,26 @@ public class Tidy implements Serializable
 
         if (file != null)
         {
-            in = new FileInputStream(file);
+            final FileInputStream fileIn = new FileInputStream(file);
+            in = fileIn;
             inputStreamOpen = true;
             inputStreamName = file;
+
+            // with writeback the file is truncated before it is read, so it can't be mapped
+            streamIn = configuration.isWriteback()
+                ? StreamInFactory.getStreamIn(configuration, in)
+                : getStreamIn(fileIn);
         }
-        else if (in == null)
+        else
         {
-            in = System.in;
-            inputStreamName = "stdin";
+            if (in == null)
+            {
+                in = System.in;
+                inputStreamName = "stdin";
+            }
+            streamIn = StreamInFactory.getStreamIn(configuration, in);
         }
 
-        streamIn = StreamInFactory.getStreamIn(configuration, in);
-
         if (configuration.isWriteback() && file != null)
         {
             out = new FileOutputStream(file);
@@ -725,6 +971,17 @@ public class Tidy implements Serializable
 
     }
 
+    /**
+     * Pretty-prints a compact copy of a document. Caller is responsible for closing the outputStream after calling this
+     * method.
+     * @param tree compact copy of a document
+     * @param out output stream
+     */
+    public void pprint(final CompactNodeTree tree, final OutputStream out)
+    {
+        pprint(tree.toNode(), out);
+    }
+
     /**
      * Pretty-prints a tidy Node.
      * @param node org.w3c.tidy.Node
@@ -779,6 +1036,10 @@ public class Tidy implements Serializable
         int argCount = argv.length;
         int argIndex = 0;
 
+        // multi-file mode settings
+        int threads = 0;
+        String outputDirectory = null;
+
         // read command line
         final Properties properties = new Properties();
 
@@ -847,6 +1108,14 @@ public class Tidy implements Serializable
                 {
                     properties.setProperty("char-encoding", argName);
                 }
+                else if (argName.equals("threads")) // multi-file mode
+                {
+                    threads = parseThreads(argValue);
+                }
+                else if (argName.equals("out-dir")) // multi-file mode
+                {
+                    outputDirectory = argValue;
+                }
                 else
                 {
 
@@ -941,6 +1210,32 @@ public class Tidy implements Serializable
                 }
             }
 
+            if (threads > 0 || outputDirectory != null || isMultiFile(argv, argIndex))
+            {
+                // all the remaining arguments are processed together, in parallel
+                final BatchCommand command = new BatchCommand(
+                    this,
+                    threads > 0 ? threads : parseThreads(null),
+                    outputDirectory);
+                for (; argIndex < argv.length; argIndex++)
+                {
+                    if (!argv[argIndex].startsWith("-"))
+                    {
+                        command.addArgument(argv[argIndex]);
+                    }
+                }
+                final TidyBatch.Summary summary = command.run(this.errout, this.report);
+                if (summary == null)
+                {
+                    // output files would have overwritten each other
+                    this.parseErrors = 1;
+                    break;
+                }
+                this.parseErrors = summary.getParseErrors();
+                this.parseWarnings = summary.getParseWarnings();
+                break;
+            }
+
             if (argCount > 0)
             {
                 file = argv[argIndex];
@@ -997,6 +1292,49 @@ public class Tidy implements Serializable
         return 0;
     }
 
+    /**
+     * Parses the value of the <code>threads</code> command line option.
+     * @param value option value, may be <code>null</code>
+     * @return number of threads, defaulting to the number of available processors
+     */
+    private static int parseThreads(final String value)
+    {
+        if (value != null)
+        {
+            try
+            {
+                final int threads = Integer.parseInt(value);
+                if (threads > 0)
+                {
+                    return threads;
+                }
+            }
+            catch (final NumberFormatException e)
+            {
+                // use default
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Do the remaining command line arguments need the multi-file mode?
+     * @param argv command line parameters
+     * @param argIndex index of the first file argument
+     * @return <code>true</code> if any of the remaining arguments is a directory or a glob pattern
+     */
+    private static boolean isMultiFile(final String[] argv, final int argIndex)
+    {
+        for (int i = argIndex; i < argv.length; i++)
+        {
+            if (!argv[i].startsWith("-") && BatchCommand.isMultiFileArgument(argv[i]))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Attach a TidyMessageListener which will be notified for messages and errors.
      * @param listener TidyMessageListener implementation
@@ -1006,6 +1344,17 @@ public class Tidy implements Serializable
         this.report.addMessageListener(listener);
     }
 
+    /**
+     * Records the messages about the parsed documents in a log instead of printing them to the error output. The
+     * messages are only formatted when read from the log, or when a listener asks for their text. Summary messages not
+     * related to a document are still printed.
+     * @param messageLog message log, null to print the messages again
+     */
+    public void setMessageLog(final TidyMessageLog messageLog)
+    {
+        this.report.setMessageLog(messageLog);
+    }
+
     /**
      * <code>indent-spaces</code>- default indentation.
      * @param spaces number of spaces used for indentation
@@ -2330,6 +2679,20 @@ public class Tidy implements Serializable
         return configuration.getMergeDivs();
     }
     
+    /**
+     * @see Option#CheckNodeIntegrity
+     */
+    public void setCheckNodeIntegrity(final boolean checkNodeIntegrity) {
+        configuration.setCheckNodeIntegrity(checkNodeIntegrity);
+    }
+
+    /**
+     * @see Option#CheckNodeIntegrity
+     */
+    public boolean isCheckNodeIntegrity() {
+        return configuration.isCheckNodeIntegrity();
+    }
+
     /**
      * @see Option#TidyCompat
      */
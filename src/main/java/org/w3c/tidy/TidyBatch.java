@@ -0,0 +1,901 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Tidies many documents in parallel. Each document is parsed by its own session of a shared {@link TidyEngine}, on a
+ * configurable executor: either a fixed pool of platform threads created for each run, or any executor supplied by
+ * the caller (for example a virtual thread per task executor, on runtimes which support them).
+ * <p>
+ * Messages of each document are collected in its {@link Result} instead of being written to the error stream, so
+ * that the output of concurrent documents is not interleaved. Results are returned in input order, together with
+ * aggregate statistics, or passed in input order to a {@link ResultListener} so that a run over many documents doesn't
+ * keep all of them in memory. Only a bounded number of documents is submitted to the executor at any time.
+ * </p>
+ *
+ * <pre>
+ * final TidyBatch batch = new TidyBatch(new TidyEngine(prototype), 8);
+ * batch.setOutput(TidyBatch.toDirectory(new File("out")));
+ * final TidyBatch.Summary summary = batch.run(inputs);
+ * </pre>
+ *
+ * @version $Revision$ ($Author$)
+ */
+public final class TidyBatch
+{
+
+    /**
+     * Default number of documents submitted at the same time, for each thread.
+     */
+    private static final int PENDING_PER_THREAD = 4;
+
+    /**
+     * Engine creating the sessions.
+     */
+    private final TidyEngine engine;
+
+    /**
+     * Caller supplied executor, <code>null</code> if a pool is created for each run.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Number of threads of the pool created for each run.
+     */
+    private final int threads;
+
+    /**
+     * Destination of the tidied documents, <code>null</code> to discard them.
+     */
+    private Output output;
+
+    /**
+     * Maximum number of documents submitted and not yet returned.
+     */
+    private int maxPending;
+
+    /**
+     * Creates a batch running on a pool of platform threads, created for each run and shut down at its end.
+     * @param engine engine creating the sessions
+     * @param threads number of threads
+     */
+    public TidyBatch(final TidyEngine engine, final int threads)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.engine = engine;
+        this.executor = null;
+        this.threads = threads;
+        this.maxPending = threads * PENDING_PER_THREAD;
+    }
+
+    /**
+     * Creates a batch running on the given executor. The executor is not shut down by the batch.
+     * @param engine engine creating the sessions
+     * @param executor executor running the documents
+     */
+    public TidyBatch(final TidyEngine engine, final ExecutorService executor)
+    {
+        this.engine = engine;
+        this.executor = executor;
+        this.threads = 0;
+        this.maxPending = Runtime.getRuntime().availableProcessors() * PENDING_PER_THREAD;
+    }
+
+    /**
+     * Sets the destination of the tidied documents. By default documents are only parsed and checked.
+     * @param output output destination, <code>null</code> to discard the tidied documents
+     */
+    public void setOutput(final Output output)
+    {
+        this.output = output;
+    }
+
+    /**
+     * Sets the maximum number of documents submitted to the executor and not yet returned. Inputs are taken from the
+     * iterable only when the number of pending documents drops below this limit. Defaults to four documents per thread.
+     * @param maxPending maximum number of pending documents
+     */
+    public void setMaxPending(final int maxPending)
+    {
+        if (maxPending < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of pending documents: " + maxPending);
+        }
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Tidies the given documents, waiting for all of them to complete. Failures of single documents are reported in
+     * their results and don't stop the run. All the results are kept until the end of the run: use
+     * {@link #run(Iterable, ResultListener)} for a large number of documents.
+     * @param inputs documents to tidy
+     * @return results and statistics
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the documents
+     */
+    public Summary run(final Iterable<? extends Input> inputs) throws InterruptedException
+    {
+        final List<Result> results = new ArrayList<Result>();
+        final Summary summary = run(inputs, new ResultListener()
+        {
+
+            public void resultReceived(final Result result)
+            {
+                results.add(result);
+            }
+        });
+        return new Summary(results, summary);
+    }
+
+    /**
+     * Tidies the given documents, passing each result to the listener in input order, on the calling thread. Inputs
+     * are consumed lazily, so the iterable may produce them on the fly, and results are not kept by the batch: memory
+     * use is bounded by the number of pending documents (see {@link #setMaxPending(int)}). Failures of single
+     * documents, including errors such as a <code>StackOverflowError</code> on a deeply nested document, are reported
+     * in their results and don't stop the run; other virtual machine errors, such as an <code>OutOfMemoryError</code>,
+     * are rethrown. An exception thrown by the listener stops the run.
+     * @param inputs documents to tidy
+     * @param listener listener receiving the results
+     * @return statistics, without results
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the documents
+     */
+    public Summary run(final Iterable<? extends Input> inputs, final ResultListener listener)
+        throws InterruptedException
+    {
+        final long start = System.nanoTime();
+        final Summary summary = new Summary();
+        final ExecutorService service = this.executor != null ? this.executor : Executors
+            .newFixedThreadPool(this.threads);
+        final LinkedList<Future<Result>> pending = new LinkedList<Future<Result>>();
+        try
+        {
+            final Iterator<? extends Input> iterator = inputs.iterator();
+            while (iterator.hasNext())
+            {
+                pending.add(service.submit(new Task(iterator.next())));
+                if (pending.size() >= this.maxPending)
+                {
+                    receive(pending.removeFirst(), summary, listener);
+                }
+            }
+            while (!pending.isEmpty())
+            {
+                receive(pending.removeFirst(), summary, listener);
+            }
+            summary.nanos = System.nanoTime() - start;
+            return summary;
+        }
+        finally
+        {
+            if (this.executor == null)
+            {
+                service.shutdownNow();
+            }
+            else
+            {
+                // the run stopped early, don't leave its documents on a shared executor
+                for (final Future<Result> future : pending)
+                {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a document, adds it to the statistics and passes it to the listener.
+     * @param future pending document
+     * @param summary statistics of the run
+     * @param listener listener receiving the results
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the document
+     */
+    private static void receive(final Future<Result> future, final Summary summary, final ResultListener listener)
+        throws InterruptedException
+    {
+        final Result result;
+        try
+        {
+            result = future.get();
+        }
+        catch (final ExecutionException e)
+        {
+            // Task records the failures of its document, only virtual machine errors are expected here
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        summary.add(result);
+        listener.resultReceived(result);
+    }
+
+    /**
+     * Returns an output writing each document to the given directory. Documents named by a relative path, such as
+     * <code>site/index.html</code>, keep that path under the directory; documents named by an absolute path or a path
+     * going up with <code>..</code> are written using their file name only. A document whose file would already have
+     * been written for a document of another name fails with an <code>IOException</code> instead of overwriting it.
+     * @param directory output directory, created if missing
+     * @return output
+     */
+    public static Output toDirectory(final File directory)
+    {
+        return new Output()
+        {
+
+            /**
+             * names of the documents written, by output file.
+             */
+            private final Map<File, String> written = new HashMap<File, String>();
+
+            public OutputStream open(final Input input) throws IOException
+            {
+                final File file = new File(directory, outputPath(input.getName())).getAbsoluteFile();
+                synchronized (this.written)
+                {
+                    final String other = this.written.get(file);
+                    if (other != null && !other.equals(input.getName()))
+                    {
+                        throw new IOException("Output file " + file + " already written for " + other);
+                    }
+                    this.written.put(file, input.getName());
+                }
+                final File parent = file.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs())
+                {
+                    throw new IOException("Can't create directory " + parent);
+                }
+                return new FileOutputStream(file);
+            }
+        };
+    }
+
+    /**
+     * Returns the path of the output file of a document, relative to the output directory.
+     * @param name document name
+     * @return the name if it is a relative path staying below the output directory, else the file name
+     */
+    static String outputPath(final String name)
+    {
+        final File file = new File(name);
+        if (file.isAbsolute() || name.startsWith("/") || name.startsWith("\\"))
+        {
+            return file.getName();
+        }
+        final String[] segments = name.split("[/\\\\]");
+        for (int i = 0; i < segments.length; i++)
+        {
+            if ("..".equals(segments[i]))
+            {
+                return file.getName();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Parses a single document in a new session.
+     */
+    private final class Task implements Callable<Result>
+    {
+
+        /**
+         * document.
+         */
+        private final Input input;
+
+        /**
+         * Creates a task.
+         * @param input document
+         */
+        Task(final Input input)
+        {
+            this.input = input;
+        }
+
+        /**
+         * @see java.util.concurrent.Callable#call()
+         */
+        public Result call()
+        {
+            final long start = System.nanoTime();
+            final Tidy session = TidyBatch.this.engine.newSession();
+            final StringWriter messages = new StringWriter();
+            session.setErrout(new PrintWriter(messages));
+            session.setInputStreamName(this.input.getName());
+
+            Throwable failure = null;
+            OutputStream out = null;
+            try
+            {
+                if (TidyBatch.this.output != null)
+                {
+                    out = TidyBatch.this.output.open(this.input);
+                }
+                this.input.parse(session, out);
+                if (out != null)
+                {
+                    out.close();
+                }
+            }
+            catch (final StackOverflowError e)
+            {
+                // a deeply nested document, the stack has been unwound
+                failure = e;
+            }
+            catch (final VirtualMachineError e)
+            {
+                throw e;
+            }
+            catch (final Throwable e)
+            {
+                failure = e;
+            }
+
+            if (failure != null && out != null)
+            {
+                try
+                {
+                    out.close();
+                }
+                catch (final IOException e)
+                {
+                    // ignore, the first failure is reported
+                }
+            }
+
+            session.getErrout().flush();
+            return new Result(
+                this.input,
+                session.getParseErrors(),
+                session.getParseWarnings(),
+                messages.toString(),
+                failure,
+                System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Receives the results of a run, in input order.
+     */
+    public interface ResultListener
+    {
+
+        /**
+         * Called on the thread running the batch when a document has been tidied, and all the previous ones too.
+         * @param result result of the document
+         */
+        void resultReceived(Result result);
+    }
+
+    /**
+     * Destination of the tidied documents.
+     */
+    public interface Output
+    {
+
+        /**
+         * Opens the output for a document. The batch closes the returned stream once the document has been written.
+         * @param input document
+         * @return output stream, or <code>null</code> to discard the document
+         * @throws IOException if the output can't be opened
+         */
+        OutputStream open(Input input) throws IOException;
+    }
+
+    /**
+     * A document to tidy.
+     */
+    public abstract static class Input
+    {
+
+        /**
+         * Document name, used in messages.
+         */
+        private final String name;
+
+        /**
+         * Creates a document.
+         * @param name document name, used in messages
+         */
+        protected Input(final String name)
+        {
+            this.name = name;
+        }
+
+        /**
+         * Returns the document name.
+         * @return document name
+         */
+        public String getName()
+        {
+            return this.name;
+        }
+
+        /**
+         * Returns the input size in bytes, if known.
+         * @return input size, or -1 if unknown
+         */
+        public long getSize()
+        {
+            return -1;
+        }
+
+        /**
+         * Parses the document.
+         * @param session session to use
+         * @param out optional destination for the tidied document
+         * @throws IOException if the document can't be read
+         */
+        protected abstract void parse(Tidy session, OutputStream out) throws IOException;
+
+        /**
+         * Returns a document read from a file.
+         * @param file file
+         * @return document
+         */
+        public static Input of(final File file)
+        {
+            return new Input(file.getPath())
+            {
+
+                @Override
+                public long getSize()
+                {
+                    return file.length();
+                }
+
+                @Override
+                protected void parse(final Tidy session, final OutputStream out) throws IOException
+                {
+                    session.parse(file, out);
+                }
+            };
+        }
+
+        /**
+         * Returns a document held in memory. The content is released once the document has been tidied, so the
+         * document can be tidied only once.
+         * @param name document name
+         * @param content document bytes
+         * @return document
+         */
+        public static Input of(final String name, final byte[] content)
+        {
+            return new BytesInput(name, content);
+        }
+
+        /**
+         * Returns a document read from a reader. The reader is closed once the document has been parsed.
+         * @param name document name
+         * @param reader reader
+         * @return document
+         */
+        public static Input of(final String name, final Reader reader)
+        {
+            return new Input(name)
+            {
+
+                @Override
+                protected void parse(final Tidy session, final OutputStream out) throws IOException
+                {
+                    try
+                    {
+                        session.parse(reader, out);
+                    }
+                    finally
+                    {
+                        reader.close();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * A document held in memory, which releases its content once parsed so that results don't keep it.
+     */
+    private static final class BytesInput extends Input
+    {
+
+        /**
+         * document size.
+         */
+        private final long size;
+
+        /**
+         * document bytes, <code>null</code> once parsed.
+         */
+        private byte[] content;
+
+        /**
+         * Creates a document.
+         * @param name document name
+         * @param content document bytes
+         */
+        BytesInput(final String name, final byte[] content)
+        {
+            super(name);
+            this.size = content.length;
+            this.content = content;
+        }
+
+        /**
+         * @see org.w3c.tidy.TidyBatch.Input#getSize()
+         */
+        @Override
+        public long getSize()
+        {
+            return this.size;
+        }
+
+        /**
+         * @see org.w3c.tidy.TidyBatch.Input#parse(org.w3c.tidy.Tidy, java.io.OutputStream)
+         */
+        @Override
+        protected synchronized void parse(final Tidy session, final OutputStream out) throws IOException
+        {
+            if (this.content == null)
+            {
+                throw new IOException("Document " + getName() + " has already been tidied");
+            }
+            final byte[] bytes = this.content;
+            this.content = null;
+            session.parse(new ByteArrayInputStream(bytes), out);
+        }
+    }
+
+    /**
+     * Outcome of a single document.
+     */
+    public static final class Result
+    {
+
+        /**
+         * document.
+         */
+        private final Input input;
+
+        /**
+         * number of errors.
+         */
+        private final int parseErrors;
+
+        /**
+         * number of warnings.
+         */
+        private final int parseWarnings;
+
+        /**
+         * messages written while parsing.
+         */
+        private final String messages;
+
+        /**
+         * exception or error which stopped the document, if any.
+         */
+        private final Throwable failure;
+
+        /**
+         * time spent on the document.
+         */
+        private final long nanos;
+
+        /**
+         * Creates a result.
+         * @param input document
+         * @param parseErrors number of errors
+         * @param parseWarnings number of warnings
+         * @param messages messages written while parsing
+         * @param failure exception or error which stopped the document, if any
+         * @param nanos time spent on the document
+         */
+        Result(final Input input, final int parseErrors, final int parseWarnings, final String messages,
+            final Throwable failure, final long nanos)
+        {
+            this.input = input;
+            this.parseErrors = parseErrors;
+            this.parseWarnings = parseWarnings;
+            this.messages = messages;
+            this.failure = failure;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Returns the document.
+         * @return document
+         */
+        public Input getInput()
+        {
+            return this.input;
+        }
+
+        /**
+         * Returns the number of errors, see <code>Tidy.getParseErrors()</code>.
+         * @return number of errors
+         */
+        public int getParseErrors()
+        {
+            return this.parseErrors;
+        }
+
+        /**
+         * Returns the number of warnings, see <code>Tidy.getParseWarnings()</code>.
+         * @return number of warnings
+         */
+        public int getParseWarnings()
+        {
+            return this.parseWarnings;
+        }
+
+        /**
+         * Returns the messages written while parsing the document, as they would have been written to the error
+         * stream.
+         * @return messages
+         */
+        public String getMessages()
+        {
+            return this.messages;
+        }
+
+        /**
+         * Returns the exception or error which stopped the document, if any.
+         * @return failure, or <code>null</code> if the document has been tidied
+         */
+        public Throwable getFailure()
+        {
+            return this.failure;
+        }
+
+        /**
+         * Returns the time spent on the document.
+         * @return time in nanoseconds
+         */
+        public long getNanos()
+        {
+            return this.nanos;
+        }
+    }
+
+    /**
+     * Results of a run, in input order, and aggregate statistics.
+     */
+    public static final class Summary
+    {
+
+        /**
+         * results in input order, empty if they were passed to a listener.
+         */
+        private final List<Result> results;
+
+        /**
+         * number of documents.
+         */
+        private int documents;
+
+        /**
+         * number of documents which failed with an exception.
+         */
+        private int failures;
+
+        /**
+         * total number of errors.
+         */
+        private int parseErrors;
+
+        /**
+         * total number of warnings.
+         */
+        private int parseWarnings;
+
+        /**
+         * total size of the inputs whose size is known.
+         */
+        private long bytes;
+
+        /**
+         * elapsed time of the run.
+         */
+        private long nanos;
+
+        /**
+         * Creates an empty summary, updated while the documents are returned.
+         */
+        Summary()
+        {
+            this.results = Collections.emptyList();
+        }
+
+        /**
+         * Creates a summary with the results of a run.
+         * @param results results in input order
+         * @param statistics statistics of the run
+         */
+        Summary(final List<Result> results, final Summary statistics)
+        {
+            this.results = Collections.unmodifiableList(results);
+            this.documents = statistics.documents;
+            this.failures = statistics.failures;
+            this.parseErrors = statistics.parseErrors;
+            this.parseWarnings = statistics.parseWarnings;
+            this.bytes = statistics.bytes;
+            this.nanos = statistics.nanos;
+        }
+
+        /**
+         * Adds a document to the statistics.
+         * @param result result of the document
+         */
+        void add(final Result result)
+        {
+            this.documents++;
+            if (result.getFailure() != null)
+            {
+                this.failures++;
+            }
+            this.parseErrors += result.getParseErrors();
+            this.parseWarnings += result.getParseWarnings();
+            final long size = result.getInput().getSize();
+            if (size > 0)
+            {
+                this.bytes += size;
+            }
+        }
+
+        /**
+         * Returns the results of the documents, in input order.
+         * @return results, empty if the results were passed to a {@link ResultListener}
+         */
+        public List<Result> getResults()
+        {
+            return this.results;
+        }
+
+        /**
+         * Returns the number of documents.
+         * @return number of documents
+         */
+        public int getDocuments()
+        {
+            return this.documents;
+        }
+
+        /**
+         * Returns the number of documents which failed with an exception.
+         * @return number of failed documents
+         */
+        public int getFailures()
+        {
+            return this.failures;
+        }
+
+        /**
+         * Returns the total number of errors.
+         * @return number of errors
+         */
+        public int getParseErrors()
+        {
+            return this.parseErrors;
+        }
+
+        /**
+         * Returns the total number of warnings.
+         * @return number of warnings
+         */
+        public int getParseWarnings()
+        {
+            return this.parseWarnings;
+        }
+
+        /**
+         * Returns the total size of the inputs whose size is known.
+         * @return size in bytes
+         */
+        public long getBytes()
+        {
+            return this.bytes;
+        }
+
+        /**
+         * Returns the elapsed (wall clock) time of the run.
+         * @return time in nanoseconds
+         */
+        public long getNanos()
+        {
+            return this.nanos;
+        }
+
+        /**
+         * Returns the throughput in documents.
+         * @return documents per second
+         */
+        public double getDocumentsPerSecond()
+        {
+            return this.nanos > 0 ? getDocuments() * 1e9 / this.nanos : 0;
+        }
+
+        /**
+         * Returns the throughput in bytes, counting only the inputs whose size is known.
+         * @return bytes per second
+         */
+        public double getBytesPerSecond()
+        {
+            return this.nanos > 0 ? getBytes() * 1e9 / this.nanos : 0;
+        }
+    }
+}
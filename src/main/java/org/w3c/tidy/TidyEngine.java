@@ -0,0 +1,161 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+
+/**
+ * Reusable, thread-safe tidy engine. The engine takes a snapshot of a configuration (including the user-defined tags)
+ * once, and creates lightweight sessions sharing it. A session is a <code>Tidy</code> instance with its own copy of the
+ * option values, its own message counts, anchors and message listener; sessions created from the same engine can run
+ * concurrently in different threads, but a single session must not be used by more than one thread at a time.
+ * <p>
+ * Typical usage:
+ * </p>
+ *
+ * <pre>
+ * final Tidy prototype = new Tidy();
+ * prototype.setXHTML(true);
+ * final TidyEngine engine = new TidyEngine(prototype); // once
+ *
+ * // in any thread
+ * final Tidy session = engine.newSession();
+ * session.parse(in, out);
+ * </pre>
+ *
+ * @version $Revision$ ($Author$)
+ */
+public final class TidyEngine
+{
+
+    /**
+     * Configuration snapshot, never modified after the engine has been built.
+     */
+    private final Configuration configuration;
+
+    /**
+     * Builds a new engine from the current configuration of the given Tidy instance. Later changes to the prototype
+     * don't affect the engine.
+     * @param prototype Tidy instance holding the configuration to use
+     */
+    public TidyEngine(final Tidy prototype)
+    {
+        final Configuration source = prototype.getConfiguration();
+        this.configuration = new Configuration(source, new Report());
+
+        final TagTable tt = source.tt.copy();
+        tt.setConfiguration(this.configuration);
+        this.configuration.tt = tt;
+
+        // ensure config is self-consistent, so that sessions don't need to modify shared tag definitions
+        this.configuration.adjust();
+    }
+
+    /**
+     * Builds a new engine from configuration properties.
+     * @param props configuration properties
+     */
+    public TidyEngine(final Properties props)
+    {
+        this(createPrototype(props));
+    }
+
+    /**
+     * Creates a Tidy instance using the given properties.
+     * @param props configuration properties
+     * @return Tidy instance
+     */
+    private static Tidy createPrototype(final Properties props)
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setConfigurationFromProps(props);
+        return tidy;
+    }
+
+    /**
+     * Creates a new session. Creating a session is cheap: tag definitions are shared with the engine, and only the
+     * option values are copied.
+     * @return a new Tidy instance, configured as the engine
+     */
+    public Tidy newSession()
+    {
+        return new Tidy(this.configuration);
+    }
+
+    /**
+     * Parses a document using a new session. See <code>Tidy.parse(InputStream, OutputStream)</code>.
+     * @param in input
+     * @param out optional destination for pretty-printed document
+     * @return parsed org.w3c.tidy.Node
+     */
+    public Node parse(final InputStream in, final OutputStream out)
+    {
+        return newSession().parse(in, out);
+    }
+
+    /**
+     * Parses a document using a new session and returns a DOM Document node. See
+     * <code>Tidy.parseDOM(InputStream, OutputStream)</code>.
+     * @param in input stream
+     * @param out optional output stream
+     * @return parsed org.w3c.dom.Document
+     */
+    public org.w3c.dom.Document parseDOM(final InputStream in, final OutputStream out)
+    {
+        return newSession().parseDOM(in, out);
+    }
+}
@@ -53,6 +53,8 @@
  */
 package org.w3c.tidy;
 
+import java.text.MessageFormat;
+
 /**
  * Message sent to listeners for validation errors/warnings and info.
  * @see Tidy#setMessageListener(TidyMessageListener)
@@ -80,9 +82,19 @@ public final class TidyMessage
     private final Level level;
 
     /**
-     * Formatted text for this message.
+     * Formatted text for this message, null until first needed if the message has a pattern.
+     */
+    private String message;
+
+    /**
+     * Pattern of the message text, null if the message was created with its text.
+     */
+    private final MessageFormat format;
+
+    /**
+     * Arguments of the message pattern.
      */
-    private final String message;
+    private final Object[] arguments;
 
     /**
      * Tidy internal error code.
@@ -104,6 +116,30 @@ public final class TidyMessage
         this.column = column;
         this.level = level;
         this.message = message;
+        this.format = null;
+        this.arguments = null;
+    }
+
+    /**
+     * Instantiates a new message, whose text is formatted on first use.
+     * @param errorCode Tidy internal error code.
+     * @param line Line number in the source file
+     * @param column Column number in the source file
+     * @param level severity
+     * @param format message pattern
+     * @param arguments message arguments
+     * @param message message text if already formatted, or null
+     */
+    TidyMessage(final int errorCode, final int line, final int column, final Level level, final MessageFormat format,
+        final Object[] arguments, final String message)
+    {
+        this.errorCode = errorCode;
+        this.line = line;
+        this.column = column;
+        this.level = level;
+        this.format = format;
+        this.arguments = arguments;
+        this.message = message;
     }
 
     /**
@@ -148,9 +184,22 @@ public final class TidyMessage
      */
     public String getMessage()
     {
+        if (this.message == null && this.format != null)
+        {
+            this.message = Report.format(this.format, this.arguments);
+        }
         return this.message;
     }
 
+    /**
+     * Getter for the message arguments, such as tag and attribute names.
+     * @return a copy of the arguments, or null if the message was created with its text only
+     */
+    public Object[] getArguments()
+    {
+        return this.arguments == null ? null : this.arguments.clone();
+    }
+
     /**
      * Message severity enumeration.
      * @author fgiust
@@ -0,0 +1,251 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.text.MessageFormat;
+
+import org.w3c.tidy.TidyMessage.Level;
+
+/**
+ * Records the messages reported while tidying a document, without formatting them. Each message is kept as its error
+ * code, position, level and arguments in parallel arrays, and its text is only formatted when asked for, so documents
+ * with many warnings don't pay for texts that are never read.
+ * @see Tidy#setMessageLog(TidyMessageLog)
+ * @version $Revision$ ($Author$)
+ */
+public final class TidyMessageLog
+{
+
+    /**
+     * number of recorded messages.
+     */
+    private int size;
+
+    private int[] errorCodes = new int[16];
+
+    private int[] lines = new int[16];
+
+    private int[] columns = new int[16];
+
+    private Level[] levels = new Level[16];
+
+    /**
+     * compiled patterns of the messages, shared with the Report cache.
+     */
+    private MessageFormat[] formats = new MessageFormat[16];
+
+    private Object[][] arguments = new Object[16][];
+
+    /**
+     * Records a message.
+     * @param errorCode Tidy internal error code
+     * @param line line in the source file, 0 if unknown
+     * @param column column in the source file, 0 if unknown
+     * @param level severity
+     * @param format message pattern
+     * @param args message arguments
+     */
+    void add(final int errorCode, final int line, final int column, final Level level, final MessageFormat format,
+        final Object[] args)
+    {
+        if (size == errorCodes.length)
+        {
+            grow();
+        }
+        errorCodes[size] = errorCode;
+        lines[size] = line;
+        columns[size] = column;
+        levels[size] = level;
+        formats[size] = format;
+        arguments[size] = args;
+        size++;
+    }
+
+    private void grow()
+    {
+        final int capacity = size * 2;
+
+        final int[] newErrorCodes = new int[capacity];
+        System.arraycopy(errorCodes, 0, newErrorCodes, 0, size);
+        errorCodes = newErrorCodes;
+
+        final int[] newLines = new int[capacity];
+        System.arraycopy(lines, 0, newLines, 0, size);
+        lines = newLines;
+
+        final int[] newColumns = new int[capacity];
+        System.arraycopy(columns, 0, newColumns, 0, size);
+        columns = newColumns;
+
+        final Level[] newLevels = new Level[capacity];
+        System.arraycopy(levels, 0, newLevels, 0, size);
+        levels = newLevels;
+
+        final MessageFormat[] newFormats = new MessageFormat[capacity];
+        System.arraycopy(formats, 0, newFormats, 0, size);
+        formats = newFormats;
+
+        final Object[][] newArguments = new Object[capacity][];
+        System.arraycopy(arguments, 0, newArguments, 0, size);
+        arguments = newArguments;
+    }
+
+    private void checkIndex(final int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Returns the number of recorded messages.
+     * @return number of messages
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Discards all the recorded messages.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            formats[i] = null;
+            arguments[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the Tidy internal error code of a message.
+     * @param index message index
+     * @return error code
+     */
+    public int getErrorCode(final int index)
+    {
+        checkIndex(index);
+        return errorCodes[index];
+    }
+
+    /**
+     * Returns the line of a message.
+     * @param index message index
+     * @return line in the source file, 0 if the message is not related to a particular line
+     */
+    public int getLine(final int index)
+    {
+        checkIndex(index);
+        return lines[index];
+    }
+
+    /**
+     * Returns the column of a message.
+     * @param index message index
+     * @return column in the source file, 0 if the message is not related to a particular column
+     */
+    public int getColumn(final int index)
+    {
+        checkIndex(index);
+        return columns[index];
+    }
+
+    /**
+     * Returns the level of a message.
+     * @param index message index
+     * @return severity
+     */
+    public Level getLevel(final int index)
+    {
+        checkIndex(index);
+        return levels[index];
+    }
+
+    /**
+     * Returns the arguments of a message, such as tag and attribute names.
+     * @param index message index
+     * @return a copy of the arguments
+     */
+    public Object[] getArguments(final int index)
+    {
+        checkIndex(index);
+        return arguments[index].clone();
+    }
+
+    /**
+     * Formats the text of a message, without position and level prefix.
+     * @param index message index
+     * @return message text
+     */
+    public String getMessage(final int index)
+    {
+        checkIndex(index);
+        return Report.format(formats[index], arguments[index]);
+    }
+
+    /**
+     * Returns a message as sent to listeners, its text being formatted on first use.
+     * @param index message index
+     * @return message
+     */
+    public TidyMessage getTidyMessage(final int index)
+    {
+        checkIndex(index);
+        return new TidyMessage(errorCodes[index], lines[index], columns[index], levels[index], formats[index],
+            arguments[index], null);
+    }
+}
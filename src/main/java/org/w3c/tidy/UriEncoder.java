@@ -0,0 +1,185 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ * 
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights. 
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ * 
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+/**
+ * Percent-encodes the chars which are not allowed in URIs: controls, spaces, non-ascii chars, &lt; and &gt;. Non-ascii
+ * chars are encoded as their UTF-8 bytes, a surrogate pair as the 4 bytes of its code point. The encoded value is
+ * built in a buffer reused by the following calls, so an instance must not be shared between threads.
+ * @version $Revision$ ($Author$)
+ */
+final class UriEncoder
+{
+
+    /**
+     * hex digits.
+     */
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * a single char never takes more than 9 chars once encoded (3 UTF-8 bytes), a surrogate pair 12.
+     */
+    private static final int MAX_ENCODED_LENGTH = 12;
+
+    /**
+     * larger buffers, needed by long URIs such as data: URIs, are not kept for the following calls.
+     */
+    private static final int MAX_RETAINED_LENGTH = 4096;
+
+    /**
+     * reused output buffer.
+     */
+    private char[] buffer = new char[256];
+
+    /**
+     * Returns true if a char must be escaped in a URI.
+     * @param c char
+     * @return true for controls, space, non-ascii chars, &lt; and &gt;
+     */
+    static boolean isIllegal(final char c)
+    {
+        return c > 0x7e || c <= 0x20 || c == '<' || c == '>';
+    }
+
+    /**
+     * Encodes the illegal chars of a URI.
+     * @param uri URI
+     * @return encoded URI, <code>uri</code> itself if it has no illegal char
+     */
+    String encode(final String uri)
+    {
+        final int length = uri.length();
+        int i = 0;
+        while (i < length && !isIllegal(uri.charAt(i)))
+        {
+            i++;
+        }
+        if (i == length)
+        {
+            return uri;
+        }
+
+        // sized for a few encoded chars, grown while writing if needed
+        char[] out = buffer;
+        if (out.length < length + MAX_ENCODED_LENGTH)
+        {
+            out = new char[length + (length >> 3) + MAX_ENCODED_LENGTH];
+        }
+        uri.getChars(0, i, out, 0);
+        int n = i;
+
+        for (; i < length; i++)
+        {
+            if (n + MAX_ENCODED_LENGTH > out.length)
+            {
+                final char[] larger = new char[out.length * 2];
+                System.arraycopy(out, 0, larger, 0, n);
+                out = larger;
+            }
+            final char c = uri.charAt(i);
+            if (!isIllegal(c))
+            {
+                out[n++] = c;
+            }
+            else if (c < 0x80)
+            {
+                n = appendByte(out, n, c);
+            }
+            else if (c < 0x800)
+            {
+                n = appendByte(out, n, 0xC0 | c >> 6);
+                n = appendByte(out, n, 0x80 | c & 0x3F);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(uri.charAt(i + 1)))
+            {
+                final int cp = Character.toCodePoint(c, uri.charAt(++i));
+                n = appendByte(out, n, 0xF0 | cp >> 18);
+                n = appendByte(out, n, 0x80 | cp >> 12 & 0x3F);
+                n = appendByte(out, n, 0x80 | cp >> 6 & 0x3F);
+                n = appendByte(out, n, 0x80 | cp & 0x3F);
+            }
+            else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+            {
+                // unpaired surrogate, replaced by '?' as String.getBytes does
+                n = appendByte(out, n, '?');
+            }
+            else
+            {
+                n = appendByte(out, n, 0xE0 | c >> 12);
+                n = appendByte(out, n, 0x80 | c >> 6 & 0x3F);
+                n = appendByte(out, n, 0x80 | c & 0x3F);
+            }
+        }
+        if (out.length <= MAX_RETAINED_LENGTH)
+        {
+            buffer = out;
+        }
+        return new String(out, 0, n);
+    }
+
+    /**
+     * Appends a percent-encoded byte.
+     * @param out buffer
+     * @param n current length
+     * @param b byte
+     * @return new length
+     */
+    private static int appendByte(final char[] out, final int n, final int b)
+    {
+        out[n] = '%';
+        out[n + 1] = HEX[b >> 4 & 0xF];
+        out[n + 2] = HEX[b & 0xF];
+        return n + 3;
+    }
+}
@@ -64,7 +64,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.apache.tools.ant.BuildException;
@@ -77,6 +79,8 @@ import org.apache.tools.ant.util.FileNameMapper;
 import org.apache.tools.ant.util.FlatFileNameMapper;
 import org.apache.tools.ant.util.IdentityMapper;
 import org.w3c.tidy.Tidy;
+import org.w3c.tidy.TidyBatch;
+import org.w3c.tidy.TidyEngine;
 
 
 /**
@@ -121,6 +125,12 @@ import org.w3c.tidy.Tidy;
  * <code>true</code> errors in input files which tidy is enable to fix will cause a failure.</td>
  * <td>No; defaults to false.</td>
  * </tr>
+ * <tr>
+ * <td>threads</td>
+ * <td>Number of files of the nested <code>&lt;fileset></code> elements tidied concurrently. Log messages and
+ * failures are still reported in file order.</td>
+ * <td>No; defaults to 1.</td>
+ * </tr>
  * </tbody> </table>
  * <h3>Nested elements</h3>
  * <ul>
@@ -210,6 +220,11 @@ public class JTidyTask extends Task
      */
     private File properties;
 
+    /**
+     * Number of files tidied concurrently.
+     */
+    private int threads = 1;
+
     /**
      * @param destdir The destdir to set.
      */
@@ -258,6 +273,14 @@ public class JTidyTask extends Task
         this.properties = properties;
     }
 
+    /**
+     * @param threads The number of files tidied concurrently.
+     */
+    public void setThreads(final int threads)
+    {
+        this.threads = threads;
+    }
+
     /**
      * Adds a fileset to be processed Fileset
      * @param fileSet
@@ -324,6 +347,11 @@ public class JTidyTask extends Task
             throw new BuildException("Invalid properties file specified: " + properties.getPath());
         }
 
+        if (threads < 1)
+        {
+            throw new BuildException("threads must be at least 1.");
+        }
+
     }
 
     /**
@@ -404,6 +432,9 @@ public class JTidyTask extends Task
 
         mapper.setTo(this.destdir.getAbsolutePath());
 
+        // input and output file pairs
+        final List<File[]> files = new ArrayList<File[]>();
+
         for (final FileSet fileSet : filesets) {
             final DirectoryScanner directoryScanner = fileSet.getDirectoryScanner(getProject());
             final String[] sourceFiles = directoryScanner.getIncludedFiles();
@@ -415,8 +446,87 @@ public class JTidyTask extends Task
             {
                 final String[] mapped = mapper.mapFileName(sourceFiles[j]);
 
-                processFile(new File(inputdir, sourceFiles[j]), new File(this.destdir, mapped[0]));
+                files.add(new File[]{new File(inputdir, sourceFiles[j]), new File(this.destdir, mapped[0])});
+            }
+        }
+
+        if (threads > 1)
+        {
+            processFiles(files);
+        }
+        else
+        {
+            for (final File[] pair : files)
+            {
+                processFile(pair[0], pair[1]);
+            }
+        }
+    }
+
+    /**
+     * Returns the tidy instance configured by this task.
+     * @return tidy instance
+     */
+    Tidy getTidy()
+    {
+        return tidy;
+    }
+
+    /**
+     * Run tidy concurrently on many files, using one session per file. Messages are written and results are checked in
+     * file order as soon as each file and the previous ones have been processed; the first failure stops the run.
+     * @param files input and output file pairs
+     */
+    protected void processFiles(final List<File[]> files)
+    {
+        final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>(files.size());
+        final Map<TidyBatch.Input, File[]> pairs = new IdentityHashMap<TidyBatch.Input, File[]>();
+        for (final File[] pair : files)
+        {
+            final TidyBatch.Input input = TidyBatch.Input.of(pair[0]);
+            inputs.add(input);
+            pairs.put(input, pair);
+        }
+
+        final TidyBatch batch = new TidyBatch(new TidyEngine(tidy), threads);
+        batch.setOutput(new TidyBatch.Output()
+        {
+
+            public OutputStream open(final TidyBatch.Input input) throws IOException
+            {
+                final File outputFile = pairs.get(input)[1];
+                outputFile.getParentFile().mkdirs();
+                return new BufferedOutputStream(new FileOutputStream(outputFile));
             }
+        });
+
+        try
+        {
+            batch.run(inputs, new TidyBatch.ResultListener()
+            {
+
+                public void resultReceived(final TidyBatch.Result result)
+                {
+                    final File[] pair = pairs.get(result.getInput());
+
+                    log("Processing " + pair[0].getAbsolutePath(), Project.MSG_DEBUG);
+
+                    tidy.getErrout().print(result.getMessages());
+                    tidy.getErrout().flush();
+
+                    if (result.getFailure() != null)
+                    {
+                        throw new BuildException("Unable to process file " + pair[0], result.getFailure());
+                    }
+
+                    checkResult(pair[0], pair[1], result.getParseErrors());
+                }
+            });
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while running tidy", e);
         }
     }
 
@@ -472,18 +582,29 @@ public class JTidyTask extends Task
             // ignore
         }
 
+        checkResult(inputFile, outputFile, tidy.getParseErrors());
+    }
+
+    /**
+     * Removes the output of a file tidy was unable to fix, and fails if requested.
+     * @param inputFile input file
+     * @param outputFile output file
+     * @param parseErrors number of errors
+     */
+    private void checkResult(final File inputFile, final File outputFile, final int parseErrors)
+    {
         // cleanup empty files
-        if (tidy.getParseErrors() > 0 && !tidy.getForceOutput())
+        if (parseErrors > 0 && !tidy.getForceOutput())
         {
             outputFile.delete();
         }
 
-        if (failonerror && tidy.getParseErrors() > 0)
+        if (failonerror && parseErrors > 0)
         {
             throw new BuildException("Tidy was unable to process file "
                 + inputFile
                 + ", "
-                + tidy.getParseErrors()
+                + parseErrors
                 + " returned.");
         }
 
@@ -0,0 +1,136 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the single traversal accessibility checks.
+ * @version $Revision$ ($Author$)
+ */
+public class AccessibilityTest extends TestCase
+{
+
+    private static final String HTML = "<html><head><title>t</title></head><body>"
+        + "<p style=\"color: red\" onclick=\"f()\">x</p><center>c</center><img src=\"a.gif\">"
+        + "<div style=\"margin: 0\">y</div></body></html>";
+
+    private Tidy tidy;
+
+    private String check(final String html, final String disabledChecks)
+    {
+        tidy = new Tidy();
+        tidy.setQuiet(true);
+        final Properties properties = new Properties();
+        properties.setProperty("accessibility-check", "3");
+        properties.setProperty("show-errors", "100");
+        if (disabledChecks != null)
+        {
+            properties.setProperty("accessibility-skip-checks", disabledChecks);
+        }
+        tidy.setConfigurationFromProps(properties);
+        final StringWriter errout = new StringWriter();
+        tidy.setErrout(new PrintWriter(errout));
+        tidy.parse(new StringReader(html), new StringWriter());
+        return errout.toString();
+    }
+
+    public void testMessageOrder()
+    {
+        final String messages = check(HTML, null);
+        final int script = messages.indexOf("(onclick)");
+        final int style = messages.indexOf("style attribute");
+        final int secondStyle = messages.indexOf("style attribute", style + 1);
+        final int doctype = messages.indexOf("<doctype> missing");
+        final int deprecated = messages.indexOf("deprecated html <center>");
+        final int image = messages.indexOf("<img> missing alt text");
+        assertTrue(messages, script >= 0);
+        assertTrue(messages, script < style);
+        assertTrue(messages, style < secondStyle);
+        assertTrue(messages, secondStyle < doctype);
+        assertTrue(messages, doctype < deprecated);
+        assertTrue(messages, deprecated < image);
+    }
+
+    public void testDisabledChecks()
+    {
+        final String messages = check(HTML, "style-attribute, deprecated image");
+        assertTrue(messages, messages.indexOf("(onclick)") >= 0);
+        assertEquals(messages, -1, messages.indexOf("style attribute"));
+        assertEquals(messages, -1, messages.indexOf("deprecated html"));
+        assertEquals(messages, -1, messages.indexOf("missing alt text"));
+        assertTrue(messages, messages.indexOf("<doctype> missing") >= 0);
+    }
+
+    public void testCheckTimes()
+    {
+        check(HTML, "image");
+        final Map<String, Long> times = tidy.getAccessibilityCheckTimes();
+        assertEquals(Accessibility.Check.values().length, times.size());
+        assertTrue(times.get("deprecated").longValue() > 0);
+        assertEquals(0, times.get("image").longValue());
+
+        final Tidy plain = new Tidy();
+        plain.setQuiet(true);
+        plain.setErrout(new PrintWriter(new StringWriter()));
+        plain.parse(new StringReader(HTML), new StringWriter());
+        assertTrue(plain.getAccessibilityCheckTimes().isEmpty());
+    }
+}
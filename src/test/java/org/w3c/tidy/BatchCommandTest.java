@@ -0,0 +1,199 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Tests for the multi-file mode of the command line interface.
+ * @version $Revision$ ($Author$)
+ */
+public class BatchCommandTest extends TestCase
+{
+
+    /**
+     * Reads a file.
+     * @param file file
+     * @return file content
+     * @throws IOException if the file can't be read
+     */
+    private static byte[] read(final File file) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final InputStream in = new FileInputStream(file);
+        try
+        {
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Test for globToPattern().
+     */
+    public void testGlobToPattern()
+    {
+        final Pattern html = BatchCommand.globToPattern("*.html");
+        assertTrue(html.matcher("a.html").matches());
+        assertFalse(html.matcher("sub/a.html").matches());
+        assertFalse(html.matcher("a.htm").matches());
+
+        final Pattern any = BatchCommand.globToPattern("**/*.htm?");
+        assertTrue(any.matcher("a.html").matches());
+        assertTrue(any.matcher("sub/dir/a.html").matches());
+        assertFalse(any.matcher("a.xhtml1").matches());
+    }
+
+    /**
+     * Tidies a directory to an output directory, in parallel.
+     * @throws Exception any exception generated during the test
+     */
+    public void testOutputDirectory() throws Exception
+    {
+        final File input = new File(new URI(getClass().getClassLoader().getResource("ant/file1.html").toString()))
+            .getParentFile();
+        final File output = new File(System.getProperty("java.io.tmpdir"), "jtidy-batch-command-test");
+
+        final Tidy tidy = new Tidy();
+        final StringWriter messages = new StringWriter();
+        tidy.setErrout(new PrintWriter(messages));
+        final int status = tidy.mainExec(new String[]{
+            "-q",
+            "-threads",
+            "2",
+            "-out-dir",
+            output.getPath(),
+            input.getPath()});
+
+        // file3.html has errors
+        assertEquals(2, status);
+        assertTrue(messages.toString().indexOf("Error:") != -1);
+        assertFalse(new File(output, "file3.html").exists());
+
+        final String[] names = {"file1.html", "file2.html"};
+        for (int i = 0; i < names.length; i++)
+        {
+            final Tidy reference = new Tidy();
+            reference.setQuiet(true);
+            reference.setErrout(new PrintWriter(new StringWriter()));
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            reference.parse(new File(input, names[i]), expected);
+
+            final File tidied = new File(output, names[i]);
+            assertEquals(names[i], expected.toString("UTF-8"), new String(read(tidied), "UTF-8"));
+            tidied.delete();
+        }
+        output.delete();
+    }
+
+    /**
+     * Files of the same name can't be written to the same output directory.
+     * @throws Exception any exception generated during the test
+     */
+    public void testDuplicateOutputFile() throws Exception
+    {
+        final File base = new File(System.getProperty("java.io.tmpdir"), "jtidy-batch-command-duplicates");
+        final File[] inputs = {new File(base, "a/index.html"), new File(base, "b/index.html")};
+        for (int i = 0; i < inputs.length; i++)
+        {
+            inputs[i].getParentFile().mkdirs();
+            final FileOutputStream out = new FileOutputStream(inputs[i]);
+            out.write("<title>t</title><p>x".getBytes("US-ASCII"));
+            out.close();
+        }
+        final File output = new File(base, "out");
+
+        final Tidy tidy = new Tidy();
+        final StringWriter messages = new StringWriter();
+        tidy.setErrout(new PrintWriter(messages));
+        final int status = tidy.mainExec(new String[]{
+            "-q",
+            "-out-dir",
+            output.getPath(),
+            inputs[0].getPath(),
+            inputs[1].getPath()});
+
+        assertEquals(2, status);
+        assertTrue(messages.toString(), messages.toString().indexOf("would both be written to") != -1);
+        assertFalse(new File(output, "index.html").exists());
+
+        for (int i = 0; i < inputs.length; i++)
+        {
+            inputs[i].delete();
+            inputs[i].getParentFile().delete();
+        }
+        base.delete();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.w3c.tidy.Node.NodeType;
+
+/**
+ * Tests for CleanPipeline.
+ * @version $Revision$ ($Author$)
+ */
+public class CleanPipelineTest extends TestCase
+{
+
+    /**
+     * Creates an element.
+     * @param tt tag table
+     * @param name element name
+     * @param children child nodes
+     * @return element
+     */
+    private static Node element(final TagTable tt, final String name, final Node... children)
+    {
+        final Node node = new Node(NodeType.StartTag, new byte[0], 0, 0, name, tt);
+        for (final Node child : children)
+        {
+            node.insertNodeAtEnd(child);
+        }
+        return node;
+    }
+
+    /**
+     * Records the calls of a handler.
+     */
+    private static class Recorder extends CleanPipeline.Handler
+    {
+
+        private final String prefix;
+
+        private final StringBuilder log;
+
+        Recorder(final String prefix, final StringBuilder log)
+        {
+            this.prefix = prefix;
+            this.log = log;
+        }
+
+        @Override
+        Node enter(final Node node)
+        {
+            log.append(prefix).append('<').append(node.element).append(' ');
+            return node;
+        }
+
+        @Override
+        void leave(final Node node)
+        {
+            log.append(prefix).append('>').append(node.element).append(' ');
+        }
+    }
+
+    /**
+     * Handlers are called in registration order, in a single depth-first traversal, and a replaced node is skipped by
+     * the following handlers.
+     */
+    public void testTraversal()
+    {
+        final TagTable tt = new TagTable();
+        final Node body = element(tt, "body", element(tt, "p", element(tt, "wbr")), element(tt, "div"));
+        final StringBuilder log = new StringBuilder();
+
+        new CleanPipeline()
+            .add(new Recorder("1", log))
+            .add(new CleanPipeline.Handler()
+            {
+
+                @Override
+                Node enter(final Node node)
+                {
+                    if (node.is(TagId.WBR))
+                    {
+                        final Node next = node.next;
+                        node.removeNode();
+                        return next;
+                    }
+                    return node;
+                }
+            })
+            .add(new Recorder("2", log))
+            .run(body);
+
+        assertEquals("1<body 2<body 1<p 2<p 1<wbr 1>p 2>p 1<div 2<div 1>div 2>div 1>body 2>body ", log.toString());
+        assertNull(body.content.content);
+    }
+
+    /**
+     * The cleanup gives the same result with and without the integrity checks.
+     * @throws Exception any exception generated during the test
+     */
+    public void testWithoutIntegrityCheck() throws Exception
+    {
+        final String html = "<html><head><title>t</title></head><body>"
+            + "<b>a<b>b</b></b><dir>indented</dir><ul><ul><li>x</li></ul></ul><i lang=\"en\">c</i><a name=\"x\">y</a>"
+            + "</body></html>";
+        final String expected = tidy(html, true);
+        assertTrue(expected, expected.indexOf("<strong>a</strong>") != -1);
+        assertTrue(expected, expected.indexOf("margin-left: 2em") != -1);
+        assertTrue(expected, expected.indexOf("<em lang=\"en\" xml:lang=\"en\">c</em>") != -1);
+        assertTrue(expected, expected.indexOf("<a name=\"x\" id=\"x\">y</a>") != -1);
+        assertEquals(expected, tidy(html, false));
+    }
+
+    /**
+     * Tidy a document to XHTML, with logical emphasis.
+     * @param html input document
+     * @param check check the node integrity
+     * @return output
+     * @throws Exception any exception generated during the test
+     */
+    private static String tidy(final String html, final boolean check) throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty("output-xhtml", "yes");
+        props.setProperty("logical-emphasis", "yes");
+        props.setProperty("tidy-mark", "no");
+        final Tidy tidy = new Tidy();
+        tidy.setConfigurationFromProps(props);
+        tidy.setCheckNodeIntegrity(check);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tidy.parse(new ByteArrayInputStream(html.getBytes("US-ASCII")), out);
+        return out.toString("US-ASCII");
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests for the read-only DOM returned by Tidy.parseCompactDOM.
+ * @version $Revision$ ($Author$)
+ */
+public class CompactDOMTest extends TestCase
+{
+
+    private static final String HTML = "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\">"
+        + "<title>t</title><!-- c --><ul id=list><li class=a>one<li>two <b>2</b></ul>"
+        + "<p>x<br>y<form><input type=checkbox checked></form>";
+
+    private static Tidy newTidy()
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        tidy.setTidyMark(false);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        return tidy;
+    }
+
+    /**
+     * Checks that two DOM subtrees have the same structure and content.
+     * @param expected node of the tidy DOM
+     * @param actual node of the compact DOM
+     */
+    private static void assertSameTree(final org.w3c.dom.Node expected, final org.w3c.dom.Node actual)
+    {
+        assertEquals(expected.getNodeType(), actual.getNodeType());
+        switch (expected.getNodeType())
+        {
+            case org.w3c.dom.Node.ELEMENT_NODE :
+                assertEquals(expected.getNodeName(), actual.getNodeName());
+                final NamedNodeMap expectedAttributes = expected.getAttributes();
+                final NamedNodeMap actualAttributes = actual.getAttributes();
+                assertEquals(expectedAttributes.getLength(), actualAttributes.getLength());
+                for (int i = 0; i < expectedAttributes.getLength(); i++)
+                {
+                    assertEquals(expectedAttributes.item(i).getNodeName(), actualAttributes.item(i).getNodeName());
+                    assertEquals(expectedAttributes.item(i).getNodeValue(), actualAttributes.item(i).getNodeValue());
+                }
+                break;
+            case org.w3c.dom.Node.TEXT_NODE :
+            case org.w3c.dom.Node.COMMENT_NODE :
+                assertEquals(expected.getNodeValue(), actual.getNodeValue());
+                break;
+            default :
+                break;
+        }
+
+        final NodeList expectedChildren = expected.getChildNodes();
+        final NodeList actualChildren = actual.getChildNodes();
+        assertEquals(expectedChildren.getLength(), actualChildren.getLength());
+        for (int i = 0; i < expectedChildren.getLength(); i++)
+        {
+            final org.w3c.dom.Node child = actualChildren.item(i);
+            assertSame(actual, child.getParentNode());
+            assertSame(i == 0 ? null : actualChildren.item(i - 1), child.getPreviousSibling());
+            assertSame(i + 1 == actualChildren.getLength() ? null : actualChildren.item(i + 1), child.getNextSibling());
+            assertSameTree(expectedChildren.item(i), child);
+        }
+    }
+
+    public void testSameTreeAsDOM()
+    {
+        final Document expected = newTidy().parseDOM(new StringReader(HTML), (Writer) null);
+        final Document actual = newTidy().parseCompactDOM(new StringReader(HTML), null);
+        assertSameTree(expected, actual);
+    }
+
+    public void testDocument()
+    {
+        final Document document = newTidy().parseCompactDOM(new StringReader(HTML), null);
+        assertEquals("HTML", document.getDoctype().getName());
+        assertEquals("-//W3C//DTD HTML 4.01//EN", document.getDoctype().getPublicId());
+        assertEquals("html", document.getDocumentElement().getTagName());
+        assertSame(document, document.getDocumentElement().getOwnerDocument());
+        assertSame(document.getDocumentElement(), document.getDocumentElement());
+
+        final Element list = document.getElementById("list");
+        assertEquals("ul", list.getTagName());
+        assertEquals("one", list.getFirstChild().getTextContent());
+        assertEquals("onetwo 2", list.getTextContent());
+        assertEquals("a", ((Element) list.getFirstChild()).getAttribute("class"));
+        assertEquals("", ((Element) list.getLastChild()).getAttribute("class"));
+        assertSame(list, list.getAttributeNode("id").getOwnerElement());
+
+        final NodeList items = document.getElementsByTagName("li");
+        assertEquals(2, items.getLength());
+        assertSame(list.getFirstChild(), items.item(0));
+        assertSame(list.getLastChild(), items.item(1));
+        assertNull(items.item(2));
+
+        final NodeList all = document.getDocumentElement().getElementsByTagName("*");
+        assertEquals("head", all.item(0).getNodeName());
+        assertEquals("title", all.item(1).getNodeName());
+        assertEquals("body", all.item(2).getNodeName());
+        assertEquals("ul", all.item(3).getNodeName());
+
+        assertEquals("checked", ((Element) document.getElementsByTagName("input").item(0)).getAttribute("checked"));
+    }
+
+    public void testReadOnly()
+    {
+        final Document document = newTidy().parseCompactDOM(new StringReader(HTML), null);
+        final Element html = document.getDocumentElement();
+        try
+        {
+            html.setAttribute("lang", "en");
+            fail("read-only document modified");
+        }
+        catch (final DOMException e)
+        {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, e.code);
+        }
+        try
+        {
+            html.removeChild(html.getFirstChild());
+            fail("read-only document modified");
+        }
+        catch (final DOMException e)
+        {
+            assertEquals(DOMException.NO_MODIFICATION_ALLOWED_ERR, e.code);
+        }
+    }
+}
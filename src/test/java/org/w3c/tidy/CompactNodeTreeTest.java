@@ -0,0 +1,127 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for CompactNodeTree.
+ * @version $Revision$ ($Author$)
+ */
+public class CompactNodeTreeTest extends TestCase
+{
+
+    private static final String HTML = "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\">"
+        + "<title>t</title><!-- c --><ul id=list><li class=a>one<li>t&eacute;o <b>2</b></ul>"
+        + "<p <% a %>>x<br>y<form><input type=checkbox checked></form><?php echo 1 ?>";
+
+    private static Tidy newTidy()
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        return tidy;
+    }
+
+    private static Node parse(final Tidy tidy) throws Exception
+    {
+        return tidy.parse(new ByteArrayInputStream(HTML.getBytes("ISO-8859-1")), (OutputStream) null);
+    }
+
+    public void testRoundTrip() throws Exception
+    {
+        final Tidy tidy = newTidy();
+        final Node document = parse(tidy);
+        final CompactNodeTree tree = new CompactNodeTree(document);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        tidy.pprint((org.w3c.dom.Document) document.getAdapter(), expected);
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        tidy.pprint(tree, actual);
+        assertEquals(expected.toString("ISO-8859-1"), actual.toString("ISO-8859-1"));
+
+        final Node copy = tree.toNode();
+        assertNotSame(document, copy);
+        assertNotSame(copy, tree.toNode());
+        assertEquals(count(document), tree.getNodeCount());
+        assertEquals(tree.getNodeCount(), count(copy));
+
+        final Node ul = copy.findBody().content;
+        assertEquals("ul", ul.element);
+        assertSame(ul.tag, document.findBody().content.tag);
+        assertEquals("list", ul.getAttrByName("id").value);
+        assertSame(ul, ul.content.parent);
+        assertSame(ul.content, ul.last.prev);
+
+        final Node asp = ul.next.attributes.asp;
+        assertEquals(" a ", TidyUtils.getString(asp.textarray, asp.start, asp.end - asp.start));
+    }
+
+    private static int count(final Node node)
+    {
+        int count = 1;
+        for (Node child = node.content; child != null; child = child.next)
+        {
+            count += count(child);
+        }
+        return count;
+    }
+}
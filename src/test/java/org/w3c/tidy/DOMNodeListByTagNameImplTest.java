@@ -0,0 +1,161 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests for DOMNodeListByTagNameImpl.
+ * @version $Revision$ ($Author$)
+ */
+public class DOMNodeListByTagNameImplTest extends TestCase
+{
+
+    private static Document parse(final String html)
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        tidy.setTidyMark(false);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        return tidy.parseDOM(new StringReader(html), (Writer) null);
+    }
+
+    private static String names(final NodeList list)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < list.getLength(); i++)
+        {
+            final Element element = (Element) list.item(i);
+            sb.append(element.getTagName()).append(element.getAttribute("id")).append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    public void testDocumentOrder()
+    {
+        final Document document = parse("<div id=1><p id=2>a<b id=3>b</b></p><p id=4>c</p></div>");
+        assertEquals("p2 p4", names(document.getElementsByTagName("p")));
+        assertEquals("html head title body div1 p2 b3 p4", names(document.getElementsByTagName("*")));
+        assertEquals("div1 p2 b3 p4", names(((Element) document.getElementsByTagName("div").item(0)).getElementsByTagName("*")));
+        assertEquals("b3", names(((Element) document.getElementsByTagName("p").item(0)).getElementsByTagName("b")));
+        assertEquals(0, document.getElementsByTagName("table").getLength());
+        assertNull(document.getElementsByTagName("p").item(2));
+        assertNull(document.getElementsByTagName("p").item(-1));
+    }
+
+    public void testModifications()
+    {
+        final Document document = parse("<div id=1><p id=2>a</p><p id=3>c</p></div>");
+        final NodeList paragraphs = document.getElementsByTagName("p");
+        final Element div = (Element) document.getElementsByTagName("div").item(0);
+        final NodeList inDiv = div.getElementsByTagName("p");
+        assertEquals("p2 p3", names(paragraphs));
+        assertEquals("p2 p3", names(inDiv));
+
+        final Element p = document.createElement("p");
+        p.setAttribute("id", "4");
+        div.insertBefore(p, div.getFirstChild());
+        assertEquals("p4 p2 p3", names(paragraphs));
+        assertEquals("p4 p2 p3", names(inDiv));
+
+        div.removeChild(div.getLastChild());
+        assertEquals("p4 p2", names(paragraphs));
+        assertEquals("p4 p2", names(inDiv));
+
+        final Element other = document.createElement("p");
+        other.setAttribute("id", "5");
+        div.appendChild(other);
+        assertEquals("p4 p2 p5", names(paragraphs));
+        assertEquals("p4 p2 p5", names(inDiv));
+    }
+
+    public void testModificationsOfOtherTrees()
+    {
+        final Document document = parse("<div id=1><p id=2>a</p></div>");
+        final Document other = parse("<p id=3>b</p>");
+        final NodeList paragraphs = document.getElementsByTagName("p");
+        assertEquals("p2", names(paragraphs));
+        final int version = ((DOMNodeImpl) document).getStructureVersion();
+
+        // a modification of another document doesn't invalidate the lists of this one
+        final Element body = (Element) other.getElementsByTagName("body").item(0);
+        body.appendChild(other.createElement("p"));
+        assertEquals(version, ((DOMNodeImpl) document).getStructureVersion());
+
+        // a detached element has its own version, and lists on it follow it when it is attached
+        final Element div = document.createElement("div");
+        final NodeList inDiv = div.getElementsByTagName("p");
+        assertEquals(0, inDiv.getLength());
+        final Element p = document.createElement("p");
+        p.setAttribute("id", "4");
+        div.appendChild(p);
+        assertEquals("p4", names(inDiv));
+
+        ((Element) document.getElementsByTagName("div").item(0)).appendChild(div);
+        assertEquals("p2 p4", names(paragraphs));
+        div.removeChild(p);
+        assertEquals(0, inDiv.getLength());
+        assertEquals("p2", names(paragraphs));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the UTF-8 encoding and decoding methods of EncodingUtils, and for the allocation rate of the character
+ * paths built on them.
+ * @version $Revision$ ($Author$)
+ */
+public class EncodingUtilsTest extends TestCase
+{
+
+    /**
+     * Number of chars processed by the allocation tests.
+     */
+    private static final int MEGABYTE = 1024 * 1024;
+
+    /**
+     * Bytes allowed per MB for the measurement itself (boxing of the counter values).
+     */
+    private static final long ALLOCATION_TOLERANCE = 1024;
+
+    /**
+     * Sample chars: ASCII, Latin-1, BMP, supplementary, invalid.
+     */
+    private static final int[] CHARS = {'a', '<', 0xA0, 0xE9, 0x3B1, 0x20AC, 0x4E2D, 0xFFFD, 0x1F600, 0x10FFFF,
+        0xD800, 0xFFFE, 0x110000};
+
+    /**
+     * The primitive encoder writes the same bytes as the array based one, at the requested offset.
+     */
+    public void testEncodeCharToUTF8Bytes()
+    {
+        for (final int c : CHARS)
+        {
+            final byte[] expected = new byte[10];
+            final int[] count = new int[1];
+            final boolean error = EncodingUtils.encodeCharToUTF8Bytes(c, expected, null, count);
+
+            final byte[] buf = new byte[12];
+            final int result = EncodingUtils.encodeCharToUTF8Bytes(c, buf, 2);
+            assertEquals(Integer.toHexString(c), error, result <= 0);
+            assertEquals(Integer.toHexString(c), count[0], Math.abs(result));
+            for (int i = 0; i < count[0]; i++)
+            {
+                assertEquals(expected[i], buf[2 + i]);
+            }
+        }
+    }
+
+    /**
+     * The primitive decoder returns the char and the length of the sequence.
+     */
+    public void testDecodeUTF8BytesToChar()
+    {
+        for (final int c : CHARS)
+        {
+            final byte[] buf = new byte[8];
+            buf[0] = 'x';
+            final int bytes = Math.abs(EncodingUtils.encodeCharToUTF8Bytes(c, buf, 1));
+
+            final long result = EncodingUtils.decodeUTF8BytesToChar(buf, 1);
+            assertEquals(Integer.toHexString(c), bytes, (int) (result >>> 32));
+            final boolean valid = c < 0xD800 || c > 0xDFFF && c != 0xFFFE && c <= 0x10FFFF;
+            assertEquals(Integer.toHexString(c), valid ? c : EncodingUtils.UTF8_REPLACEMENT_CHAR, (int) result);
+        }
+
+        // truncated sequence at the end of the array
+        final long truncated = EncodingUtils.decodeUTF8BytesToChar(new byte[]{'a', (byte) 0xE2, (byte) 0x82}, 1);
+        assertEquals(2, (int) (truncated >>> 32));
+        assertEquals(EncodingUtils.UTF8_REPLACEMENT_CHAR, (int) truncated);
+
+        // invalid successor byte
+        final long invalid = EncodingUtils.decodeUTF8BytesToChar(new byte[]{(byte) 0xC3, 'a'}, 0);
+        assertEquals(1, (int) (invalid >>> 32));
+        assertEquals(EncodingUtils.UTF8_REPLACEMENT_CHAR, (int) invalid);
+
+        // overlong sequence
+        final long overlong = EncodingUtils.decodeUTF8BytesToChar(new byte[]{(byte) 0xC0, (byte) 0xBC}, 0);
+        assertEquals(EncodingUtils.UTF8_REPLACEMENT_CHAR, (int) overlong);
+    }
+
+    /**
+     * Lexer.addCharToLexer() doesn't allocate once the buffer has grown.
+     */
+    public void testAddCharToLexerAllocation()
+    {
+        final Lexer lexer = new Lexer(null, new Configuration(new Report()), new Report());
+        final long allocated = allocatedPerMegabyte(new Runnable()
+        {
+
+            public void run()
+            {
+                for (int i = 0; i < MEGABYTE; i++)
+                {
+                    if (lexer.lexsize > 4096)
+                    {
+                        lexer.lexsize = 0;
+                    }
+                    lexer.addCharToLexer(CHARS[i % 10]);
+                }
+            }
+        });
+        if (allocated >= 0)
+        {
+            assertTrue("Allocated " + allocated + " bytes per MB", allocated < ALLOCATION_TOLERANCE);
+        }
+    }
+
+    /**
+     * PPrint.getUTF8() and putUTF8() don't allocate.
+     */
+    public void testGetPutUTF8Allocation()
+    {
+        final byte[] buf = new byte[64];
+        final int[] ch = new int[1];
+        final int[] mismatches = new int[1];
+        final long allocated = allocatedPerMegabyte(new Runnable()
+        {
+
+            public void run()
+            {
+                for (int i = 0; i < MEGABYTE; i++)
+                {
+                    // no assertEquals() in the loop: boxing its arguments would be counted as well
+                    final int end = PPrint.putUTF8(buf, 0, CHARS[i % 10]);
+                    if (PPrint.getUTF8(buf, 0, ch) != end - 1)
+                    {
+                        mismatches[0]++;
+                    }
+                }
+            }
+        });
+        assertEquals(0, mismatches[0]);
+        if (allocated >= 0)
+        {
+            assertTrue("Allocated " + allocated + " bytes per MB", allocated < ALLOCATION_TOLERANCE);
+        }
+    }
+
+    /**
+     * Measures the bytes allocated by the current thread while running a task processing one MB of chars. The task is
+     * run once before measuring, so that one-time allocations (class loading, buffer growth) are not counted.
+     * @param task task
+     * @return allocated bytes, -1 if the JVM doesn't support measuring allocations
+     */
+    static long allocatedPerMegabyte(final Runnable task)
+    {
+        final Object bean = ManagementFactory.getThreadMXBean();
+        final Long threadId = Long.valueOf(Thread.currentThread().getId());
+        final Method getAllocatedBytes;
+        try
+        {
+            getAllocatedBytes = Class.forName("com.sun.management.ThreadMXBean").getMethod(
+                "getThreadAllocatedBytes",
+                long.class);
+            getAllocatedBytes.invoke(bean, threadId);
+        }
+        catch (final Exception e)
+        {
+            return -1;
+        }
+
+        try
+        {
+            task.run();
+            final long before = ((Long) getAllocatedBytes.invoke(bean, threadId)).longValue();
+            task.run();
+            final long after = ((Long) getAllocatedBytes.invoke(bean, threadId)).longValue();
+            return before < 0 ? -1 : after - before;
+        }
+        catch (final Exception e)
+        {
+            return -1;
+        }
+    }
+}
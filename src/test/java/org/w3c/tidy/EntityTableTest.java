@@ -0,0 +1,126 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for EntityTable.
+ * @version $Revision$ ($Author$)
+ */
+public class EntityTableTest extends TestCase
+{
+
+    /**
+     * Some entity names, from all the indexed ranges.
+     */
+    private static final String[] NAMES = {"quot", "amp", "lt", "nbsp", "eacute", "yuml", "OElig", "fnof", "Alpha",
+        "piv", "ensp", "mdash", "euro", "lang", "diams"};
+
+    /**
+     * Looks up a name using the trie.
+     * @param table entity table
+     * @param name entity name
+     * @return entity or null
+     */
+    private static Entity lookupByState(final EntityTable table, final String name)
+    {
+        int state = EntityTable.ROOT_STATE;
+        for (int i = 0; i < name.length(); i++)
+        {
+            state = table.nextState(state, name.charAt(i));
+        }
+        return table.entityAt(state);
+    }
+
+    /**
+     * entityName() returns the name of the entity with the given code.
+     */
+    public void testEntityName()
+    {
+        final EntityTable table = EntityTable.getDefaultEntityTable();
+        for (int i = 0; i < NAMES.length; i++)
+        {
+            final Entity ent = table.lookup(NAMES[i]);
+            assertNotNull(NAMES[i], ent);
+            assertEquals(NAMES[i], table.entityName(ent.getCode()));
+        }
+        assertNull(table.entityName((short) 0));
+        assertNull(table.entityName((short) 'a'));
+        assertNull(table.entityName((short) 0x3001));
+        assertNull(table.entityName((short) -1));
+    }
+
+    /**
+     * The trie finds the same entities as lookup().
+     */
+    public void testNextState()
+    {
+        final EntityTable table = EntityTable.getDefaultEntityTable();
+        for (int i = 0; i < NAMES.length; i++)
+        {
+            assertSame(NAMES[i], table.lookup(NAMES[i]), lookupByState(table, NAMES[i]));
+        }
+
+        // prefixes, extensions and case
+        assertNull(lookupByState(table, ""));
+        assertNull(lookupByState(table, "eacut"));
+        assertNull(lookupByState(table, "nbspx"));
+        assertNull(lookupByState(table, "NBSP"));
+        assertNull(lookupByState(table, "foo"));
+        assertEquals(EntityTable.NO_STATE, table.nextState(EntityTable.NO_STATE, 'a'));
+        assertEquals(EntityTable.NO_STATE, table.nextState(EntityTable.ROOT_STATE, 0x10000));
+        assertNull(table.entityAt(EntityTable.NO_STATE));
+    }
+}
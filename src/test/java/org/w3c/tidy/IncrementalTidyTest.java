@@ -0,0 +1,220 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.w3c.tidy.Options.TriState;
+
+/**
+ * Tests for IncrementalTidy.
+ * @version $Revision$ ($Author$)
+ */
+public class IncrementalTidyTest extends TestCase
+{
+
+    /**
+     * Test document.
+     */
+    private static final String DOCUMENT = "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\">\n"
+        + "<html><head><title>test</title></head>\n"
+        + "<body>\n"
+        + "<p>first paragraph</p>\n"
+        + "<div>\n"
+        + "<p>second <b>bold</b></p>\n"
+        + "<p>third\n"
+        + "<ul><li>one</li><li>two</li></ul>\n"
+        + "</div>\n"
+        + "<p>last</p>\n"
+        + "</body></html>\n";
+
+    /**
+     * Engine used by the tests.
+     */
+    private TidyEngine engine;
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        final Tidy prototype = new Tidy();
+        prototype.setIndentContent(TriState.Yes);
+        engine = new TidyEngine(prototype);
+    }
+
+    /**
+     * Prints the current document.
+     * @param doc incremental document
+     * @return printed document
+     */
+    private static String print(final IncrementalTidy doc)
+    {
+        final StringWriter out = new StringWriter();
+        doc.print(out);
+        return out.toString();
+    }
+
+    /**
+     * Tidies the whole source of a document.
+     * @param source source text
+     * @return printed document
+     */
+    private String tidy(final String source)
+    {
+        final Tidy session = engine.newSession();
+        session.setErrout(new PrintWriter(new StringWriter()));
+        final Node document = session.parse(new StringReader(source), (OutputStream) null);
+        final StringWriter out = new StringWriter();
+        session.printDocument(document, OutFactory.getOut(session.getConfiguration(), out));
+        return out.toString();
+    }
+
+    /**
+     * Applies an edit replacing the first occurrence of a string.
+     * @param doc incremental document
+     * @param text text to replace
+     * @param replacement new text
+     * @return <code>true</code> if the edit has been applied incrementally
+     */
+    private static boolean replace(final IncrementalTidy doc, final String text, final String replacement)
+    {
+        return doc.edit(doc.getSource().indexOf(text), text.length(), replacement);
+    }
+
+    /**
+     * Edits enclosed by a block only re-parse the block, with the same result as tidying the whole document.
+     */
+    public void testBlockEdits()
+    {
+        final IncrementalTidy doc = new IncrementalTidy(engine, DOCUMENT);
+        final Node first = doc.getDocument().findBody().content;
+
+        assertTrue(replace(doc, "first", "1st <i>changed</i>"));
+        assertEquals(tidy(doc.getSource()), print(doc));
+
+        assertTrue(replace(doc, "bold", "bo<em>ld</em>"));
+        assertTrue(replace(doc, "third", "3rd\nline"));
+        assertTrue(replace(doc, "one", "uno"));
+        assertEquals(tidy(doc.getSource()), print(doc));
+
+        // following blocks have been reused
+        assertNotSame(first, doc.getDocument().findBody().content);
+        assertEquals("div", doc.getDocument().findBody().content.next.element);
+    }
+
+    /**
+     * Messages about the document structure don't prevent incremental edits.
+     */
+    public void testNoDoctype()
+    {
+        final String source = DOCUMENT.substring(DOCUMENT.indexOf('\n') + 1)
+            .replace("<html><head><title>test</title></head>\n<body>\n", "");
+        final IncrementalTidy doc = new IncrementalTidy(engine, source);
+
+        assertTrue(replace(doc, "first", "1st"));
+        assertTrue(replace(doc, "bold", "strong"));
+        assertEquals(tidy(doc.getSource()), print(doc));
+    }
+
+    /**
+     * Edits which may change the following content re-parse the whole document.
+     */
+    public void testFallbackEdits()
+    {
+        final IncrementalTidy doc = new IncrementalTidy(engine, DOCUMENT);
+
+        // the unclosed inline element would be inferred in the following blocks
+        assertFalse(replace(doc, "</b>", ""));
+        assertEquals(tidy(doc.getSource()), print(doc));
+
+        // warnings before the block may affect it
+        assertFalse(replace(doc, "one", "uno"));
+        assertEquals(tidy(doc.getSource()), print(doc));
+
+        // the last block is not delimited by a following sibling
+        final IncrementalTidy other = new IncrementalTidy(engine, DOCUMENT);
+        assertFalse(replace(other, "last", "end"));
+        assertEquals(tidy(other.getSource()), print(other));
+
+        // an explicitly closed block must stay closed
+        assertFalse(replace(other, "paragraph</p>", "paragraph"));
+        assertEquals(tidy(other.getSource()), print(other));
+    }
+
+    /**
+     * Edits outside of the source text are rejected.
+     */
+    public void testInvalidEdit()
+    {
+        final IncrementalTidy doc = new IncrementalTidy(engine, DOCUMENT);
+        try
+        {
+            doc.edit(DOCUMENT.length() - 1, 2, "");
+            fail("Expected IndexOutOfBoundsException");
+        }
+        catch (final IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+        assertEquals(DOCUMENT, doc.getSource());
+    }
+}
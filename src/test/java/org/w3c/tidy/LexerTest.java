@@ -53,8 +53,16 @@
  */
 package org.w3c.tidy;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
 import junit.framework.TestCase;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
 
 /**
  * Tests for utility methods in Lexer.
@@ -112,4 +120,97 @@ public class LexerTest extends TestCase
         assertTrue("abc\\8 is a valid css selector", Lexer.isCSS1Selector("abc\\8"));
     }
 
-}
\ No newline at end of file
+    /**
+     * Text of nodes lexed from different chunks, and of tokens larger than a chunk, must survive the whole parse.
+     */
+    public final void testTextSpanningChunks() throws Exception
+    {
+        final StringBuilder longText = new StringBuilder();
+        for (int j = 0; longText.length() < 20000; j++)
+        {
+            longText.append("word").append(j).append(' ');
+        }
+        final String big = longText.toString().trim();
+
+        final StringBuilder html = new StringBuilder("<html><head><title>chunks</title></head><body>");
+        for (int j = 0; j < 2000; j++)
+        {
+            html.append("<p>paragraph ").append(j).append("</p>\n");
+            if (j == 1000)
+            {
+                html.append("<p>").append(big).append("</p>\n");
+            }
+        }
+        html.append("</body></html>");
+
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        final Document doc = tidy.parseDOM(new ByteArrayInputStream(html.toString().getBytes("US-ASCII")), null);
+
+        final NodeList paragraphs = doc.getElementsByTagName("p");
+        assertEquals(2001, paragraphs.getLength());
+        assertEquals("paragraph 0", paragraphs.item(0).getFirstChild().getNodeValue());
+        assertEquals("paragraph 1000", paragraphs.item(1000).getFirstChild().getNodeValue());
+        assertEquals(big, paragraphs.item(1001).getFirstChild().getNodeValue());
+        assertEquals("paragraph 1999", paragraphs.item(2000).getFirstChild().getNodeValue());
+    }
+
+    /**
+     * Leading and trailing white space of attribute values is trimmed wherever the tag sits in the lexer chunks.
+     */
+    public final void testAttributeValueSpanningChunks() throws Exception
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        for (int filler = 4050; filler < 4150; filler++)
+        {
+            final StringBuilder text = new StringBuilder();
+            while (text.length() < filler)
+            {
+                text.append('x');
+            }
+            final String html = "<html><head><title>chunks</title></head><body>"
+                + "<p>" + text + "</p><p class=\" a \">first</p>"
+                + "<p>" + text + "</p><p class=\" a \">second</p>"
+                + "</body></html>";
+            final Document doc = tidy.parseDOM(new ByteArrayInputStream(html.getBytes("US-ASCII")), null);
+
+            final NodeList paragraphs = doc.getElementsByTagName("p");
+            assertEquals(4, paragraphs.getLength());
+            assertEquals("a", ((Element) paragraphs.item(1)).getAttribute("class"));
+            assertEquals("a", ((Element) paragraphs.item(3)).getAttribute("class"));
+        }
+    }
+
+    /**
+     * Recurring tag and attribute names are shared instances, for known and unknown names.
+     */
+    public final void testInternedNames() throws Exception
+    {
+        final String html = "<html><head><title>names</title></head><body>"
+            + "<p class=\"a\" bar=\"1\"><foo bar=\"2\">x</foo></p>"
+            + "<p class=\"b\" bar=\"3\"><foo bar=\"4\">y</foo></p>"
+            + "</body></html>";
+
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        final Properties props = new Properties();
+        props.setProperty("new-inline-tags", "foo");
+        tidy.setConfigurationFromProps(props);
+        final Node document = tidy.parse(new ByteArrayInputStream(html.getBytes("US-ASCII")), (OutputStream) null);
+
+        final Node body = document.findBody();
+        final Node p1 = body.content;
+        final Node p2 = p1.next;
+        assertSame(p1.element, p2.element);
+        assertSame(p1.attributes.attribute, p2.attributes.attribute);
+        assertSame(p1.attributes.next.attribute, p2.attributes.next.attribute);
+        assertSame(p1.content.element, p2.content.element);
+        assertSame(p1.content.attributes.attribute, p2.content.attributes.attribute);
+        assertSame(p1.attributes.next.attribute, p1.content.attributes.attribute);
+    }
+
+}
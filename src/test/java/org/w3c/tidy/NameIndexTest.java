@@ -0,0 +1,154 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for NameIndex and the tag and attribute lookups using it.
+ * @version $Revision$ ($Author$)
+ */
+public class NameIndexTest extends TestCase
+{
+
+    /**
+     * Every name is found at its position, as string and in a byte buffer.
+     * @throws Exception any exception generated during the test
+     */
+    public void testIndexOf() throws Exception
+    {
+        final String[] names = new String[500];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = "n" + Integer.toString(i * 7919, 36) + "_";
+        }
+        final NameIndex index = new NameIndex(names);
+        assertEquals(names.length, index.size());
+
+        for (int i = 0; i < names.length; i++)
+        {
+            assertEquals(i, index.indexOf(names[i]));
+            assertEquals(names[i], index.getName(i));
+
+            final byte[] buf = ("<" + names[i] + ">").getBytes("US-ASCII");
+            assertEquals(i, index.indexOf(buf, 1, buf.length - 1));
+            assertEquals(-1, index.indexOf(buf, 1, buf.length - 2));
+            assertEquals(-1, index.indexOf(names[i] + "x"));
+        }
+        assertEquals(-1, index.indexOf((String) null));
+        assertEquals(-1, index.indexOf(""));
+        assertEquals(-1, index.indexOf("N0"));
+        final byte[] utf8 = "né".getBytes("UTF-8");
+        assertEquals(-1, index.indexOf(utf8, 0, utf8.length));
+    }
+
+    /**
+     * Duplicate names are rejected.
+     */
+    public void testDuplicates()
+    {
+        try
+        {
+            new NameIndex(new String[]{"a", "b", "a"});
+            fail("Expected IllegalArgumentException");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Known and user-defined tags are found by name and from a byte buffer, and definitions shared between tag tables
+     * are not modified.
+     * @throws Exception any exception generated during the test
+     */
+    public void testTagTable() throws Exception
+    {
+        final TagTable tt = new TagTable();
+        tt.defineTag(Dict.TAGTYPE_BLOCK, "foo");
+
+        final byte[] buf = "<table><foo><bar>".getBytes("US-ASCII");
+        assertSame(tt.lookup(TagId.TABLE), tt.lookup("table"));
+        assertSame(tt.lookup("table"), tt.lookup(buf, 1, 6));
+        assertSame(tt.lookup("foo"), tt.lookup(buf, 8, 11));
+        assertNull(tt.lookup(buf, 13, 16));
+        assertNull(tt.lookup("bar"));
+
+        final TagTable shared = tt.share();
+        shared.defineTag(Dict.TAGTYPE_INLINE, "bar");
+        shared.defineTag(Dict.TAGTYPE_INLINE, "foo");
+        assertNotNull(shared.lookup("bar"));
+        assertNull(tt.lookup("bar"));
+        assertTrue((shared.lookup("foo").model & Dict.CM_INLINE) != 0);
+        assertTrue((tt.lookup("foo").model & Dict.CM_INLINE) == 0);
+        assertSame(tt.lookup("table"), tt.share().lookup("table"));
+    }
+
+    /**
+     * Attributes are found by name and from a byte buffer.
+     * @throws Exception any exception generated during the test
+     */
+    public void testAttributeTable() throws Exception
+    {
+        final AttributeTable table = AttributeTable.getDefaultAttributeTable();
+        final byte[] buf = " href=x onclick=y".getBytes("US-ASCII");
+        assertEquals("href", table.lookup("href").getName());
+        assertSame(table.lookup("href"), table.lookup(buf, 1, 5));
+        assertSame(table.lookup("onclick"), table.lookup(buf, 8, 15));
+        assertNull(table.lookup(buf, 8, 14));
+        assertTrue(table.isUrl("href"));
+        assertTrue(table.isScript("onclick"));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.w3c.tidy.Options.DupAttrModes;
+import org.w3c.tidy.Options.TriState;
+
+/**
+ * Tests for Node.repairDuplicateAttributes.
+ * @version $Revision$ ($Author$)
+ */
+public class NodeTest extends TestCase
+{
+
+    private String messages;
+
+    private String tidy(final String html, final DupAttrModes mode, final boolean joinClasses,
+        final boolean joinStyles)
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setPrintBodyOnly(TriState.Yes);
+        tidy.setWraplen(0);
+        tidy.setRepeatedAttributes(mode);
+        tidy.setJoinClasses(joinClasses);
+        tidy.setJoinStyles(joinStyles);
+        final StringWriter errout = new StringWriter();
+        tidy.setErrout(new PrintWriter(errout));
+        final StringWriter out = new StringWriter();
+        tidy.parse(new StringReader(html), out);
+        messages = errout.toString();
+        return out.toString().trim();
+    }
+
+    private int count(final String message)
+    {
+        int n = 0;
+        for (int i = messages.indexOf(message); i >= 0; i = messages.indexOf(message, i + 1))
+        {
+            n++;
+        }
+        return n;
+    }
+
+    public void testKeepFirst()
+    {
+        assertEquals("<p title=\"a\" id=\"x\">x</p>",
+            tidy("<p title=\"a\" id=\"x\" TITLE=\"b\" title=\"c\">x</p>", DupAttrModes.KeepFirst, false, false));
+        assertEquals(1, count("dropping value \"b\" for repeated attribute"));
+        assertEquals(1, count("dropping value \"c\" for repeated attribute"));
+    }
+
+    public void testKeepLast()
+    {
+        assertEquals("<p id=\"x\" title=\"c\">x</p>",
+            tidy("<p title=\"a\" id=\"x\" TITLE=\"b\" title=\"c\">x</p>", DupAttrModes.KeepLast, false, false));
+        assertEquals(1, count("dropping value \"a\" for repeated attribute"));
+        assertEquals(1, count("dropping value \"b\" for repeated attribute"));
+    }
+
+    public void testJoinClasses()
+    {
+        assertEquals("<p id=\"x\" class=\"c b a\">x</p>",
+            tidy("<p class=\"a\" id=\"x\" CLASS=\"b\" class=\"c\">x</p>", DupAttrModes.KeepFirst, true, false));
+        assertEquals(2, count("joining values of repeated attribute \"class\""));
+    }
+
+    public void testJoinStyles()
+    {
+        assertEquals("<p style=\"color: red; font-weight: bold; margin: 0\" id=\"x\">x</p>",
+            tidy("<p style=\"color: red\" id=\"x\" style=\"font-weight: bold;\" style=\"margin: 0\">x</p>",
+                DupAttrModes.KeepLast, false, true));
+        assertEquals(2, count("joining values of repeated attribute \"style\""));
+    }
+
+    public void testJoinWithoutValue()
+    {
+        assertEquals("<p style=\"a:b\">x</p>",
+            tidy("<p style style=\"a:b\">x</p>", DupAttrModes.KeepLast, true, true));
+        assertEquals("<p style=\"a:b\">x</p>",
+            tidy("<p style=\"a:b\" style>x</p>", DupAttrModes.KeepLast, true, true));
+        assertEquals("<p class=\"a\">x</p>",
+            tidy("<p class class=\"a\">x</p>", DupAttrModes.KeepLast, true, true));
+        assertEquals("<p class=\"a\">x</p>",
+            tidy("<p class=\"a\" class>x</p>", DupAttrModes.KeepLast, true, true));
+    }
+
+    public void testManyAttributes()
+    {
+        final StringBuilder html = new StringBuilder("<p");
+        final StringBuilder expected = new StringBuilder("<p");
+        for (int i = 0; i < 500; i++)
+        {
+            html.append(" data-a").append(i).append("=\"").append(i).append('"');
+            expected.append(" data-a").append(i).append("=\"").append(i).append('"');
+        }
+        for (int i = 0; i < 500; i += 2)
+        {
+            html.append(" DATA-A").append(i).append("=\"x\"");
+        }
+        html.append(">x</p>");
+        expected.append(">x</p>");
+        assertEquals(expected.toString(), tidy(html.toString(), DupAttrModes.KeepFirst, false, false));
+        assertEquals(250, count("for repeated attribute"));
+    }
+}
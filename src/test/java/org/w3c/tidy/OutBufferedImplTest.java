@@ -0,0 +1,173 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Test cases for OutBufferedImpl, checked against the writer based OutJavaImpl.
+ * @version $Revision$ ($Author$)
+ */
+public class OutBufferedImplTest extends TestCase
+{
+
+    /**
+     * Chars written by the tests: ASCII, latin, BMP, a surrogate pair, unpaired surrogates and a code point truncated
+     * to its low 16 bits.
+     */
+    private static final int[] CHARS = {'a', '<', 0xE9, 0x20AC, 0xD83D, 0xDE00, 0xD800, 'b', 0xDC00, 0x1F600, '\n'};
+
+    /**
+     * configuration.
+     */
+    private Configuration configuration;
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        this.configuration = new Tidy().getConfiguration();
+    }
+
+    /**
+     * Writes the test chars, enough times to fill several buffers.
+     * @param out Out
+     */
+    private static void write(final Out out)
+    {
+        for (int j = 0; j < 3000; j++)
+        {
+            for (int i = 0; i < CHARS.length; i++)
+            {
+                out.outc(CHARS[i]);
+            }
+            out.outc((byte) 'x');
+            out.newline();
+        }
+        out.flush();
+    }
+
+    /**
+     * Encoded output is the same as OutJavaImpl's.
+     * @throws Exception any exception generated during the test
+     */
+    public void testSameBytesAsWriter() throws Exception
+    {
+        final String[] encodings = {"UTF8", "ASCII", "ISO8859_1", "Cp1252", "UnicodeBig"};
+        for (int i = 0; i < encodings.length; i++)
+        {
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            write(new OutJavaImpl(this.configuration, encodings[i], expected));
+
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            write(new OutBufferedImpl(this.configuration, encodings[i], actual));
+
+            assertTrue(encodings[i], Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+        }
+    }
+
+    /**
+     * Writer output is the same as OutJavaImpl's.
+     */
+    public void testSameCharsAsWriter()
+    {
+        final StringWriter expected = new StringWriter();
+        write(new OutJavaImpl(this.configuration, expected));
+
+        final StringWriter actual = new StringWriter();
+        write(new OutBufferedImpl(this.configuration, actual));
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * Nothing is written before flush, I/O errors reach the caller.
+     * @throws Exception any exception generated during the test
+     */
+    public void testErrorPropagation() throws Exception
+    {
+        final IOException failure = new IOException("disk full");
+        final OutputStream failing = new OutputStream()
+        {
+
+            @Override
+            public void write(final int b) throws IOException
+            {
+                throw failure;
+            }
+        };
+
+        final Out out = new OutBufferedImpl(this.configuration, "UTF8", failing);
+        out.outc('a');
+        try
+        {
+            out.flush();
+            fail("expected RuntimeException");
+        }
+        catch (final RuntimeException e)
+        {
+            assertSame(failure, e.getCause());
+        }
+    }
+}
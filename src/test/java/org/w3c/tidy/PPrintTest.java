@@ -0,0 +1,139 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the character escaping in PPrint.
+ * @version $Revision$ ($Author$)
+ */
+public class PPrintTest extends TestCase
+{
+
+    /**
+     * Text with markup characters, quotes, latin-1 and other characters.
+     */
+    private static final String TEXT = "a&lt;b&gt;c&d \"q\" 'r' \u00a0\u00e9\u00ff \u2014\u201c\u0152\u3001x";
+
+    /**
+     * Tidy the given text as body of a paragraph and returns the printed paragraph content.
+     * @param encoding output encoding
+     * @param options configuration options, as name/value pairs
+     * @return paragraph content
+     * @throws Exception any exception generated during the test
+     */
+    private static String print(final String encoding, final String... options) throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty("show-body-only", "yes");
+        props.setProperty("wrap", "0");
+        for (int i = 0; i < options.length; i += 2)
+        {
+            props.setProperty(options[i], options[i + 1]);
+        }
+        final Tidy tidy = new Tidy();
+        tidy.setConfigurationFromProps(props);
+        tidy.setInputEncoding("UTF-8");
+        tidy.setOutputEncoding(encoding);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tidy.parse(new ByteArrayInputStream(("<p>" + TEXT + "</p>").getBytes("UTF-8")), out);
+        final String result = out.toString(encoding).trim();
+        return result.substring("<p>".length(), result.length() - "</p>".length());
+    }
+
+    /**
+     * ASCII output uses named entities where available.
+     * @throws Exception any exception generated during the test
+     */
+    public void testAscii() throws Exception
+    {
+        assertEquals("a&lt;b&gt;c&amp;d \"q\" 'r' &nbsp;&eacute;&yuml; &mdash;&ldquo;&OElig;&#12289;x",
+            print("US-ASCII"));
+        assertEquals("a&lt;b&gt;c&amp;d &quot;q&quot; &#39;r&#39; &#160;&#233;&#255; &#8212;&#8220;&#338;&#12289;x",
+            print("US-ASCII", "numeric-entities", "yes", "quote-marks", "yes"));
+    }
+
+    /**
+     * ISO-8859-1 output leaves latin-1 characters alone, and escapes the other ones.
+     * @throws Exception any exception generated during the test
+     */
+    public void testLatin1() throws Exception
+    {
+        assertEquals("a&lt;b&gt;c&amp;d \"q\" 'r' &nbsp;\u00e9\u00ff &mdash;&ldquo;&OElig;&#12289;x",
+            print("ISO-8859-1"));
+        assertEquals("a&lt;b&gt;c&d \"q\" 'r' &nbsp;\u00e9\u00ff &mdash;&ldquo;&OElig;&#12289;x",
+            print("ISO-8859-1", "quote-ampersand", "no"));
+    }
+
+    /**
+     * UTF-8 output only escapes markup characters.
+     * @throws Exception any exception generated during the test
+     */
+    public void testUtf8() throws Exception
+    {
+        assertEquals("a&lt;b&gt;c&amp;d \"q\" 'r' &nbsp;\u00e9\u00ff \u2014\u201c\u0152\u3001x", print("UTF-8"));
+        assertEquals("a&lt;b&gt;c&amp;d \"q\" 'r' &#160;\u00e9\u00ff \u2014\u201c\u0152\u3001x",
+            print("UTF-8", "numeric-entities", "yes"));
+        assertEquals("a&lt;b&gt;c&amp;d \"q\" 'r'  \u00e9\u00ff -\"\u0152\u3001x", print("UTF-8", "bare", "yes"));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the parse limits which abort parsing of hostile documents.
+ * @version $Revision$ ($Author$)
+ */
+public class ParseLimitsTest extends TestCase
+{
+
+    private Tidy tidy;
+
+    private String messages;
+
+    private String output;
+
+    private Node parse(final String html, final String limit, final int value)
+    {
+        tidy = new Tidy();
+        tidy.setQuiet(true);
+        final Properties properties = new Properties();
+        properties.setProperty("force-output", "yes");
+        properties.setProperty("show-errors", "100000");
+        if (limit != null)
+        {
+            properties.setProperty(limit, String.valueOf(value));
+        }
+        tidy.setConfigurationFromProps(properties);
+        final StringWriter errout = new StringWriter();
+        tidy.setErrout(new PrintWriter(errout));
+        final StringWriter out = new StringWriter();
+        final Node document = tidy.parse(new StringReader(html), out);
+        messages = errout.toString();
+        output = out.toString();
+        return document;
+    }
+
+    private static String repeat(final String s, final int count)
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static int count(final String s, final String part)
+    {
+        int n = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1))
+        {
+            n++;
+        }
+        return n;
+    }
+
+    public void testNodeCount()
+    {
+        final String html = "<html><head><title>t</title></head><body>" + repeat("<p>x</p>", 1000) + "</body></html>";
+        final Node document = parse(html, "abort-node-count", 100);
+        assertNotNull(document);
+        assertEquals(Option.AbortNodeCount, tidy.getAbortReason());
+        assertTrue(messages, messages.indexOf("abort-node-count limit of 100 exceeded") >= 0);
+        final int paragraphs = count(output, "<p>");
+        assertTrue(output, paragraphs > 0 && paragraphs < 100);
+    }
+
+    public void testNestingDepth()
+    {
+        final String html = "<html><head><title>t</title></head><body>" + repeat("<div>", 500) + "x</body></html>";
+        final Node document = parse(html, "abort-nesting-depth", 20);
+        assertNotNull(document);
+        assertEquals(Option.AbortNestingDepth, tidy.getAbortReason());
+        assertTrue(messages, messages.indexOf("abort-nesting-depth limit of 20 exceeded") >= 0);
+        assertTrue(output, count(output, "<div>") <= 20);
+    }
+
+    public void testNestingDepthXml()
+    {
+        tidy = new Tidy();
+        final Properties properties = new Properties();
+        properties.setProperty("input-xml", "yes");
+        properties.setProperty("abort-nesting-depth", "20");
+        tidy.setConfigurationFromProps(properties);
+        tidy.setQuiet(true);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        final Node document = tidy.parse(new StringReader(repeat("<a>", 500)), new StringWriter());
+        assertNotNull(document);
+        assertEquals(Option.AbortNestingDepth, tidy.getAbortReason());
+    }
+
+    public void testErrorCount()
+    {
+        final String html = "<html><head><title>t</title></head><body>" + repeat("<p><blah>x</blah></p>", 200)
+            + "</body></html>";
+        parse(html, "abort-error-count", 10);
+        assertEquals(Option.AbortErrorCount, tidy.getAbortReason());
+        assertTrue(messages, messages.indexOf("abort-error-count limit of 10 exceeded") >= 0);
+        // the ten errors allowed, the one exceeding the limit and the abort message
+        assertEquals(12, tidy.getParseErrors());
+    }
+
+    public void testWarningCount()
+    {
+        final String html = "<html><head><title>t</title></head><body>" + repeat("<p foo=\"1\">x</p>", 200)
+            + "</body></html>";
+        parse(html, "abort-warning-count", 10);
+        assertEquals(Option.AbortWarningCount, tidy.getAbortReason());
+        assertEquals(11, tidy.getParseWarnings());
+    }
+
+    public void testNoLimits()
+    {
+        final String html = "<html><head><title>t</title></head><body>" + repeat("<div>", 200)
+            + repeat("<p foo=\"1\"><blah>x</blah></p>", 200) + "</body></html>";
+        final Node document = parse(html, null, 0);
+        assertNotNull(document);
+        assertNull(tidy.getAbortReason());
+        assertEquals(-1, messages.indexOf("parsing aborted"));
+        assertEquals(200, count(output, "<div>"));
+    }
+
+    public void testLimitNotReached()
+    {
+        parse("<html><head><title>t</title></head><body><p>x</p></body></html>", "abort-node-count", 100);
+        assertNull(tidy.getAbortReason());
+        assertTrue(output, output.indexOf("<p>x</p>") >= 0);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.w3c.tidy.Options.TriState;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.DefaultHandler2;
+
+/**
+ * Tests for the SAX output of Tidy.
+ * @version $Revision$ ($Author$)
+ */
+public class SAXEmitterTest extends TestCase
+{
+
+    /**
+     * Records the events as a compact string.
+     */
+    private static class Recorder extends DefaultHandler2
+    {
+
+        final StringBuilder log = new StringBuilder();
+
+        @Override
+        public void startDocument()
+        {
+            log.append('[');
+        }
+
+        @Override
+        public void endDocument()
+        {
+            log.append(']');
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+        {
+            log.append('<').append(qName);
+            for (int i = 0; i < atts.getLength(); i++)
+            {
+                log.append(' ').append(atts.getQName(i)).append('=').append(atts.getValue(i));
+            }
+            log.append('>');
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName)
+        {
+            log.append("</").append(qName).append('>');
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length)
+        {
+            log.append(ch, start, length);
+        }
+
+        @Override
+        public void comment(final char[] ch, final int start, final int length)
+        {
+            log.append("<!--").append(ch, start, length).append("-->");
+        }
+
+        @Override
+        public void startDTD(final String name, final String publicId, final String systemId)
+        {
+            log.append("<!DOCTYPE ").append(name).append('>');
+        }
+
+        @Override
+        public void processingInstruction(final String target, final String data)
+        {
+            log.append("<?").append(target).append('|').append(data).append("?>");
+        }
+    }
+
+    private static Tidy newTidy()
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        tidy.setShowWarnings(false);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        return tidy;
+    }
+
+    private static String events(final Tidy tidy, final String html) throws SAXException
+    {
+        final Recorder recorder = new Recorder();
+        tidy.parseSAX(new StringReader(html), recorder);
+        return recorder.log.toString();
+    }
+
+    public void testImpliedElements() throws SAXException
+    {
+        final Tidy tidy = newTidy();
+        tidy.setPrintBodyOnly(TriState.Yes);
+        assertEquals(
+            "[<ul><li>one</li><li>t\u00e9\u20ac</li></ul><p>a <b>b</b></p><p>c</p>]",
+            events(tidy, "<ul><li>one<li>t&eacute;&euro;</ul><p>a <b>b</b><p>c"));
+    }
+
+    public void testAttributes() throws SAXException
+    {
+        final Tidy tidy = newTidy();
+        tidy.setPrintBodyOnly(TriState.Yes);
+        tidy.setHideComments(true);
+        assertEquals(
+            "[<form action=x><input type=checkbox checked=checked></input><select><option value=>a</option></select></form>]",
+            events(tidy, "<form action=x><input type=checkbox checked><!-- c --><select><option value>a</select></form>"));
+    }
+
+    public void testDocument() throws SAXException
+    {
+        final Tidy tidy = newTidy();
+        tidy.setTidyMark(false);
+        assertEquals(
+            "[<!DOCTYPE HTML><html><head><title>t</title><!-- c --></head><body><p>x</p></body></html>]",
+            events(tidy, "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\"><title>t</title><!-- c --><p>x"));
+    }
+
+    public void testProcessingInstruction() throws SAXException
+    {
+        final Tidy tidy = newTidy();
+        tidy.setXmlTags(true);
+        assertEquals("[<?pi|a b?><r>x</r>]", events(tidy, "<?pi a b?><r>x</r>"));
+    }
+
+    public void testLongCommentAndCData() throws SAXException
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 60; i++)
+        {
+            sb.append("0123456789");
+        }
+        final String text = sb.toString();
+        final Tidy tidy = newTidy();
+        tidy.setXmlTags(true);
+        assertEquals(
+            "[<r><!--" + text + "-->" + text + text + "</r>]",
+            events(tidy, "<r><!--" + text + "--><![CDATA[" + text + text + "]]></r>"));
+    }
+
+    public void testErrorsWithoutForceOutput() throws SAXException
+    {
+        final Tidy tidy = newTidy();
+        assertEquals("", events(tidy, "<p><foo>x</foo>"));
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Test cases for the buffered StreamInChannelImpl, checked against the reader based StreamInJavaImpl.
+ * @version $Revision$ ($Author$)
+ */
+public class StreamInChannelImplTest extends TestCase
+{
+
+    /**
+     * Builds mostly ASCII input with multibyte and malformed sequences spread over several buffers.
+     * @return input bytes
+     */
+    private static byte[] mixedInput()
+    {
+        final Random random = new Random(42);
+        final byte[] input = new byte[40000];
+        for (int j = 0; j < input.length; j++)
+        {
+            final int r = random.nextInt(100);
+            if (r < 80)
+            {
+                input[j] = (byte) ('a' + random.nextInt(26));
+            }
+            else if (r < 85)
+            {
+                input[j] = (byte) '\n';
+            }
+            else if (r < 95 && j + 2 < input.length)
+            {
+                // euro sign in UTF-8
+                input[j++] = (byte) 0xE2;
+                input[j++] = (byte) 0x82;
+                input[j] = (byte) 0xAC;
+            }
+            else
+            {
+                input[j] = (byte) (0x80 + random.nextInt(128));
+            }
+        }
+        // truncated sequence at end of input
+        input[input.length - 1] = (byte) 0xE2;
+        return input;
+    }
+
+    /**
+     * Reads all the chars decoded by a StreamIn.
+     * @param in StreamIn
+     * @return decoded chars
+     */
+    private static String readAll(final StreamIn in)
+    {
+        final StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.readCharFromStream()) != StreamIn.END_OF_STREAM)
+        {
+            sb.append((char) c);
+        }
+        assertEquals(StreamIn.END_OF_STREAM, in.readCharFromStream());
+        return sb.toString();
+    }
+
+    /**
+     * Asserts that channel and buffer input decode the same chars as the reader implementation.
+     * @param input input bytes
+     * @param encoding encoding name
+     * @throws Exception any exception generated during the test
+     */
+    private static void assertSameChars(final byte[] input, final String encoding) throws Exception
+    {
+        final String expected = readAll(new StreamInJavaImpl(new ByteArrayInputStream(input), encoding, 4));
+
+        final StreamIn channelIn = new StreamInChannelImpl(
+            Channels.newChannel(new ByteArrayInputStream(input)),
+            encoding,
+            4);
+        assertEquals(encoding, expected, readAll(channelIn));
+        assertTrue(channelIn.isEndOfStream());
+
+        assertEquals(encoding, expected, readAll(new StreamInChannelImpl(ByteBuffer.wrap(input), encoding, 4)));
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+        direct.put(input).flip();
+        assertEquals(encoding, expected, readAll(new StreamInChannelImpl(direct, encoding, 4)));
+    }
+
+    /**
+     * Decoded chars are the same as InputStreamReader's, including replaced malformed input.
+     * @throws Exception any exception generated during the test
+     */
+    public void testSameCharsAsReader() throws Exception
+    {
+        final byte[] input = mixedInput();
+        assertSameChars(input, "UTF8");
+        assertSameChars(input, "ASCII");
+        assertSameChars(input, "ISO8859_1");
+        assertSameChars(input, "Cp1252");
+        assertSameChars(input, "UnicodeBig");
+        assertSameChars(new byte[0], "UTF8");
+    }
+
+    /**
+     * Line, column and ungetChar handling is unchanged.
+     * @throws Exception any exception generated during the test
+     */
+    public void testLineColumnAndUnget() throws Exception
+    {
+        final byte[] input = "a\tb\r\ncd\re\n\tf".getBytes("US-ASCII");
+        final StreamIn expected = new StreamInJavaImpl(new ByteArrayInputStream(input), "ASCII", 4);
+        final StreamIn actual = new StreamInChannelImpl(ByteBuffer.wrap(input), "ASCII", 4);
+
+        int c;
+        int count = 0;
+        do
+        {
+            c = expected.readChar();
+            assertEquals(c, actual.readChar());
+            assertEquals(expected.getCurline(), actual.getCurline());
+            assertEquals(expected.getCurcol(), actual.getCurcol());
+            if (++count % 3 == 0)
+            {
+                expected.ungetChar(c);
+                actual.ungetChar(c);
+                assertEquals(expected.getCurline(), actual.getCurline());
+                assertEquals(expected.getCurcol(), actual.getCurcol());
+                assertEquals(expected.readChar(), actual.readChar());
+            }
+        }
+        while (c != StreamIn.END_OF_STREAM);
+        assertTrue(actual.isEndOfStream());
+    }
+
+    /**
+     * Unknown encodings are reported like the reader implementation does.
+     */
+    public void testUnsupportedEncoding()
+    {
+        try
+        {
+            new StreamInChannelImpl(ByteBuffer.wrap(new byte[0]), "no-such-encoding", 4);
+            fail("expected UnsupportedEncodingException");
+        }
+        catch (final UnsupportedEncodingException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Read errors reach the caller instead of ending the input, also when parsing a stream.
+     * @throws Exception any exception generated during the test
+     */
+    public void testErrorPropagation() throws Exception
+    {
+        final IOException failure = new IOException("connection reset");
+        final ReadableByteChannel failing = new ReadableByteChannel()
+        {
+
+            private boolean read;
+
+            public int read(final ByteBuffer dst) throws IOException
+            {
+                if (this.read)
+                {
+                    throw failure;
+                }
+                this.read = true;
+                dst.put("<p>partial".getBytes("US-ASCII"));
+                return 10;
+            }
+
+            public boolean isOpen()
+            {
+                return true;
+            }
+
+            public void close()
+            {
+                // nothing to close
+            }
+        };
+
+        final StreamIn in = new StreamInChannelImpl(failing, "ASCII", 4);
+        for (int j = 0; j < 10; j++)
+        {
+            assertTrue(in.readCharFromStream() != StreamIn.END_OF_STREAM);
+        }
+        try
+        {
+            in.readCharFromStream();
+            fail("expected RuntimeException");
+        }
+        catch (final RuntimeException e)
+        {
+            assertSame(failure, e.getCause());
+        }
+
+        final InputStream failingStream = new InputStream()
+        {
+
+            @Override
+            public int read() throws IOException
+            {
+                throw failure;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException
+            {
+                throw failure;
+            }
+        };
+        final Tidy tidy = new Tidy();
+        tidy.setQuiet(true);
+        try
+        {
+            tidy.parse(failingStream, new ByteArrayOutputStream());
+            fail("expected RuntimeException");
+        }
+        catch (final RuntimeException e)
+        {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    /**
+     * Parsing a memory mapped file gives the same output as parsing a stream.
+     * @throws Exception any exception generated during the test
+     */
+    public void testMappedFile() throws Exception
+    {
+        final String[] encodings = {"utf8", "latin1", "ascii"};
+        final File file = new File(new URI(getClass().getClassLoader().getResource("658230.html").toString()));
+        for (int i = 0; i < encodings.length; i++)
+        {
+            final Tidy tidy = new Tidy();
+            tidy.setQuiet(true);
+            tidy.setShowWarnings(false);
+            tidy.setInputEncoding(encodings[i]);
+
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            final InputStream in = file.toURI().toURL().openStream();
+            try
+            {
+                tidy.parse(in, expected);
+            }
+            finally
+            {
+                in.close();
+            }
+
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            tidy.parse(file, actual);
+
+            assertEquals(encodings[i], expected.toString("UTF-8"), actual.toString("UTF-8"));
+        }
+    }
+}
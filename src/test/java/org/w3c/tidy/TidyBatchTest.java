@@ -0,0 +1,387 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for TidyBatch.
+ * @version $Revision$ ($Author$)
+ */
+public class TidyBatchTest extends TestCase
+{
+
+    /**
+     * Builds a test document.
+     * @param i document number
+     * @return document
+     */
+    private static String document(final int i)
+    {
+        final StringBuilder sb = new StringBuilder("<html><head><title>doc ").append(i).append("</title></head><body>");
+        for (int j = 0; j < i % 7; j++)
+        {
+            sb.append("<p>para <b>bold <i>both</b> italic</i> ").append(j);
+        }
+        return sb.append("</body></html>").toString();
+    }
+
+    /**
+     * Output collecting the documents in memory.
+     */
+    private static final class MemoryOutput implements TidyBatch.Output
+    {
+
+        /**
+         * tidied documents by name.
+         */
+        final Map<String, ByteArrayOutputStream> documents = new HashMap<String, ByteArrayOutputStream>();
+
+        /**
+         * @see org.w3c.tidy.TidyBatch.Output#open(org.w3c.tidy.TidyBatch.Input)
+         */
+        public synchronized OutputStream open(final TidyBatch.Input input)
+        {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            this.documents.put(input.getName(), out);
+            return out;
+        }
+    }
+
+    /**
+     * Results match sequential runs and are returned in input order.
+     * @throws Exception any exception generated during the test
+     */
+    public void testSameResultsAsSequential() throws Exception
+    {
+        final Tidy prototype = new Tidy();
+        prototype.setTidyMark(false);
+        final TidyEngine engine = new TidyEngine(prototype);
+
+        final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>();
+        for (int i = 0; i < 100; i++)
+        {
+            if (i % 2 == 0)
+            {
+                inputs.add(TidyBatch.Input.of("doc" + i, document(i).getBytes("UTF-8")));
+            }
+            else
+            {
+                inputs.add(TidyBatch.Input.of("doc" + i, new StringReader(document(i))));
+            }
+        }
+
+        final TidyBatch batch = new TidyBatch(engine, 4);
+        final MemoryOutput output = new MemoryOutput();
+        batch.setOutput(output);
+        final TidyBatch.Summary summary = batch.run(inputs);
+
+        assertEquals(100, summary.getDocuments());
+        assertEquals(0, summary.getFailures());
+        int errors = 0;
+        int warnings = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            final TidyBatch.Result result = summary.getResults().get(i);
+            assertSame(inputs.get(i), result.getInput());
+
+            final Tidy tidy = engine.newSession();
+            final StringWriter messages = new StringWriter();
+            tidy.setErrout(new PrintWriter(messages));
+            tidy.setInputStreamName("doc" + i);
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            tidy.parse(new ByteArrayInputStream(document(i).getBytes("UTF-8")), expected);
+
+            assertEquals(expected.toString("UTF-8"), output.documents.get("doc" + i).toString("UTF-8"));
+            assertEquals(tidy.getParseErrors(), result.getParseErrors());
+            assertEquals(tidy.getParseWarnings(), result.getParseWarnings());
+            assertEquals(messages.toString(), result.getMessages());
+            errors += result.getParseErrors();
+            warnings += result.getParseWarnings();
+        }
+        assertTrue(warnings > 0);
+        assertEquals(errors, summary.getParseErrors());
+        assertEquals(warnings, summary.getParseWarnings());
+        assertTrue(summary.getBytes() > 0);
+        assertTrue(summary.getDocumentsPerSecond() > 0);
+    }
+
+    /**
+     * A failing document is reported in its result and doesn't stop the others; a caller supplied executor is not
+     * shut down.
+     * @throws Exception any exception generated during the test
+     */
+    public void testFailureAndExecutor() throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            final TidyBatch batch = new TidyBatch(new TidyEngine(new Tidy()), executor);
+            final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>();
+            inputs.add(TidyBatch.Input.of(new File("no/such/file.html")));
+            inputs.add(TidyBatch.Input.of("ok", document(3).getBytes("UTF-8")));
+
+            final TidyBatch.Summary summary = batch.run(inputs);
+
+            assertEquals(2, summary.getDocuments());
+            assertEquals(1, summary.getFailures());
+            assertTrue(summary.getResults().get(0).getFailure() instanceof IOException);
+            assertNull(summary.getResults().get(1).getFailure());
+            assertFalse(executor.isShutdown());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns a document whose parsing throws the given error.
+     * @param name document name
+     * @param error error to throw
+     * @return document
+     */
+    private static TidyBatch.Input failing(final String name, final Error error)
+    {
+        return new TidyBatch.Input(name)
+        {
+
+            @Override
+            protected void parse(final Tidy session, final OutputStream out)
+            {
+                throw error;
+            }
+        };
+    }
+
+    /**
+     * Errors of a document, such as a stack overflow, are reported in its result; other virtual machine errors stop
+     * the run.
+     * @throws Exception any exception generated during the test
+     */
+    public void testErrors() throws Exception
+    {
+        final TidyBatch batch = new TidyBatch(new TidyEngine(new Tidy()), 2);
+        final StackOverflowError overflow = new StackOverflowError();
+        final Error error = new AssertionError("broken");
+        final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>();
+        inputs.add(failing("deep", overflow));
+        inputs.add(failing("broken", error));
+        inputs.add(TidyBatch.Input.of("ok", document(3).getBytes("UTF-8")));
+
+        final TidyBatch.Summary summary = batch.run(inputs);
+
+        assertEquals(3, summary.getDocuments());
+        assertEquals(2, summary.getFailures());
+        assertSame(overflow, summary.getResults().get(0).getFailure());
+        assertSame(error, summary.getResults().get(1).getFailure());
+        assertNull(summary.getResults().get(2).getFailure());
+
+        final OutOfMemoryError outOfMemory = new OutOfMemoryError();
+        inputs.clear();
+        inputs.add(TidyBatch.Input.of("ok", document(3).getBytes("UTF-8")));
+        inputs.add(failing("memory", outOfMemory));
+        try
+        {
+            batch.run(inputs);
+            fail("expected OutOfMemoryError");
+        }
+        catch (final OutOfMemoryError e)
+        {
+            assertSame(outOfMemory, e);
+        }
+    }
+
+    /**
+     * Results are passed to the listener in input order, without being kept, and inputs are taken from the iterable
+     * only when there is room for them.
+     * @throws Exception any exception generated during the test
+     */
+    public void testListenerAndMaxPending() throws Exception
+    {
+        final int count = 50;
+        final int[] taken = new int[1];
+        final Iterable<TidyBatch.Input> inputs = new Iterable<TidyBatch.Input>()
+        {
+
+            public Iterator<TidyBatch.Input> iterator()
+            {
+                return new Iterator<TidyBatch.Input>()
+                {
+
+                    public boolean hasNext()
+                    {
+                        return taken[0] < count;
+                    }
+
+                    public TidyBatch.Input next()
+                    {
+                        try
+                        {
+                            return TidyBatch.Input.of("doc" + taken[0], document(taken[0]++).getBytes("UTF-8"));
+                        }
+                        catch (final IOException e)
+                        {
+                            throw new RuntimeException(e);
+                        }
+                    }
+
+                    public void remove()
+                    {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        final TidyBatch batch = new TidyBatch(new TidyEngine(new Tidy()), 2);
+        batch.setMaxPending(3);
+        final List<String> received = new ArrayList<String>();
+        final TidyBatch.Summary summary = batch.run(inputs, new TidyBatch.ResultListener()
+        {
+
+            public void resultReceived(final TidyBatch.Result result)
+            {
+                assertTrue(taken[0] <= received.size() + 3);
+                received.add(result.getInput().getName());
+            }
+        });
+
+        assertEquals(count, received.size());
+        for (int i = 0; i < count; i++)
+        {
+            assertEquals("doc" + i, received.get(i));
+        }
+        assertEquals(count, summary.getDocuments());
+        assertTrue(summary.getResults().isEmpty());
+        assertTrue(summary.getParseWarnings() > 0);
+        assertTrue(summary.getBytes() > 0);
+    }
+
+    /**
+     * The content of a document held in memory is released once tidied.
+     * @throws Exception any exception generated during the test
+     */
+    public void testContentReleased() throws Exception
+    {
+        final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>();
+        inputs.add(TidyBatch.Input.of("doc", document(1).getBytes("UTF-8")));
+        final TidyBatch batch = new TidyBatch(new TidyEngine(new Tidy()), 1);
+
+        assertNull(batch.run(inputs).getResults().get(0).getFailure());
+        final TidyBatch.Summary again = batch.run(inputs);
+        assertTrue(again.getResults().get(0).getFailure() instanceof IOException);
+        assertEquals(document(1).getBytes("UTF-8").length, again.getBytes());
+    }
+
+    /**
+     * Documents keep their relative path in the output directory, and a document is not overwritten by another one
+     * with the same file name.
+     * @throws Exception any exception generated during the test
+     */
+    public void testToDirectory() throws Exception
+    {
+        assertEquals("a/index.html", TidyBatch.outputPath("a/index.html"));
+        assertEquals("c.html", TidyBatch.outputPath(new File("c.html").getAbsolutePath()));
+        assertEquals("c.html", TidyBatch.outputPath("../up/c.html"));
+
+        final File directory = new File(System.getProperty("java.io.tmpdir"), "jtidy-batch-to-directory");
+        final List<TidyBatch.Input> inputs = new ArrayList<TidyBatch.Input>();
+        inputs.add(TidyBatch.Input.of("a/index.html", document(1).getBytes("UTF-8")));
+        inputs.add(TidyBatch.Input.of("b/index.html", document(2).getBytes("UTF-8")));
+        inputs.add(TidyBatch.Input.of(new File("x/c.html").getAbsolutePath(), document(3).getBytes("UTF-8")));
+        inputs.add(TidyBatch.Input.of("../up/c.html", document(4).getBytes("UTF-8")));
+
+        final Tidy prototype = new Tidy();
+        prototype.setQuiet(true);
+        final TidyBatch batch = new TidyBatch(new TidyEngine(prototype), 1);
+        batch.setOutput(TidyBatch.toDirectory(directory));
+        final TidyBatch.Summary summary = batch.run(inputs);
+
+        final File[] files = {
+            new File(directory, "a/index.html"),
+            new File(directory, "b/index.html"),
+            new File(directory, "c.html")};
+        for (int i = 0; i < files.length; i++)
+        {
+            assertTrue(files[i].getPath(), files[i].exists());
+        }
+        assertEquals(1, summary.getFailures());
+        assertTrue(summary.getResults().get(3).getFailure() instanceof IOException);
+
+        for (int i = 0; i < files.length; i++)
+        {
+            files[i].delete();
+        }
+        new File(directory, "a").delete();
+        new File(directory, "b").delete();
+        directory.delete();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for TidyEngine.
+ * @version $Revision$ ($Author$)
+ */
+public class TidyEngineTest extends TestCase
+{
+
+    /**
+     * Test input.
+     */
+    private static final String INPUT = "<html><head><title>test</title></head><body>"
+        + "<p>para<b>bold <i>both</b> italic</i><p><foo>custom</foo> <a name=\"x\">x</a><a name=\"x\">y</a>"
+        + "</body></html>";
+
+    /**
+     * Tidy a document using the given instance.
+     * @param tidy Tidy instance
+     * @param input input document
+     * @return output
+     * @throws Exception any exception generated during the test
+     */
+    private static String tidy(final Tidy tidy, final String input) throws Exception
+    {
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        tidy.parse(new ByteArrayInputStream(input.getBytes("UTF-8")), out);
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * Creates the Tidy instance used as prototype and reference.
+     * @return Tidy instance
+     */
+    private static Tidy newTidy()
+    {
+        final Properties props = new Properties();
+        props.setProperty("output-xhtml", "yes");
+        props.setProperty("char-encoding", "utf8");
+        props.setProperty("new-inline-tags", "foo");
+        props.setProperty("tidy-mark", "no");
+        final Tidy tidy = new Tidy();
+        tidy.setConfigurationFromProps(props);
+        return tidy;
+    }
+
+    /**
+     * A session produces the same output and messages as a plain Tidy instance with the same configuration.
+     * @throws Exception any exception generated during the test
+     */
+    public void testSameOutput() throws Exception
+    {
+        final Tidy reference = newTidy();
+        final String expected = tidy(reference, INPUT);
+
+        final TidyEngine engine = new TidyEngine(newTidy());
+        final Tidy session = engine.newSession();
+        final String result = tidy(session, INPUT);
+
+        assertEquals(expected, result);
+        assertTrue(result.indexOf("<foo>custom</foo>") != -1);
+        assertEquals(reference.getParseErrors(), session.getParseErrors());
+        assertEquals(reference.getParseWarnings(), session.getParseWarnings());
+
+        // anchors are per session: the second session reports the same duplicate anchor, not two
+        final Tidy other = engine.newSession();
+        tidy(other, INPUT);
+        assertEquals(reference.getParseWarnings(), other.getParseWarnings());
+    }
+
+    /**
+     * Changes to the prototype or to a session don't affect the engine.
+     * @throws Exception any exception generated during the test
+     */
+    public void testSnapshot() throws Exception
+    {
+        final Tidy prototype = newTidy();
+        final TidyEngine engine = new TidyEngine(prototype);
+        final String expected = tidy(engine.newSession(), INPUT);
+
+        prototype.setUpperCaseTags(true);
+        prototype.getConfiguration().tt.defineTag(Dict.TAGTYPE_BLOCK, "foo");
+        final Tidy session = engine.newSession();
+        session.setXHTML(false);
+        session.setConfigurationFromProps(propsOf("new-blocklevel-tags", "bar"));
+        tidy(session, INPUT);
+
+        assertEquals(expected, tidy(engine.newSession(), INPUT));
+        assertNull(engine.newSession().getConfiguration().tt.lookup("bar"));
+    }
+
+    /**
+     * Sessions can run concurrently.
+     * @throws Exception any exception generated during the test
+     */
+    public void testConcurrentSessions() throws Exception
+    {
+        final TidyEngine engine = new TidyEngine(newTidy());
+        final String expected = tidy(engine.newSession(), INPUT);
+
+        final List<String> results = new ArrayList<String>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++)
+        {
+            final Thread thread = new Thread()
+            {
+
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < 50; j++)
+                        {
+                            final String result = tidy(engine.newSession(), INPUT);
+                            synchronized (results)
+                            {
+                                results.add(result);
+                            }
+                        }
+                    }
+                    catch (final Exception e)
+                    {
+                        synchronized (results)
+                        {
+                            results.add(e.toString());
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(400, results.size());
+        for (final String result : results)
+        {
+            assertEquals(expected, result);
+        }
+    }
+
+    /**
+     * Creates a Properties instance with a single property.
+     * @param key property name
+     * @param value property value
+     * @return properties
+     */
+    private static Properties propsOf(final String key, final String value)
+    {
+        final Properties props = new Properties();
+        props.setProperty(key, value);
+        return props;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.w3c.tidy.TidyMessage.Level;
+
+/**
+ * Tests for TidyMessageLog.
+ * @version $Revision$ ($Author$)
+ */
+public class TidyMessageLogTest extends TestCase
+{
+
+    private static String noisyDocument()
+    {
+        final StringBuilder html = new StringBuilder("<html><head><title>t</title></head><body>");
+        for (int i = 0; i < 100; i++)
+        {
+            html.append("<p><foo").append(i).append(" bar=1 bar=2>x</foo").append(i).append("></b>\n");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private static Tidy newTidy(final List<TidyMessage> received)
+    {
+        final Tidy tidy = new Tidy();
+        tidy.setForceOutput(true);
+        tidy.setShowErrors(10000);
+        tidy.setMessageListener(new TidyMessageListener()
+        {
+
+            public void messageReceived(final TidyMessage message)
+            {
+                received.add(message);
+            }
+        });
+        return tidy;
+    }
+
+    public void testSameMessages()
+    {
+        final List<TidyMessage> printed = new ArrayList<TidyMessage>();
+        final Tidy plain = newTidy(printed);
+        final StringWriter plainErrout = new StringWriter();
+        plain.setErrout(new PrintWriter(plainErrout));
+        plain.parse(new StringReader(noisyDocument()), new StringWriter());
+
+        final List<TidyMessage> logged = new ArrayList<TidyMessage>();
+        final Tidy tidy = newTidy(logged);
+        final TidyMessageLog log = new TidyMessageLog();
+        tidy.setMessageLog(log);
+        final StringWriter errout = new StringWriter();
+        tidy.setErrout(new PrintWriter(errout));
+        tidy.parse(new StringReader(noisyDocument()), new StringWriter());
+
+        assertTrue(log.size() > 300);
+        assertEquals(printed.size(), logged.size());
+        // the final summary is still printed
+        assertEquals(printed.size() - 1, log.size());
+        assertEquals(Level.SUMMARY, printed.get(log.size()).getLevel());
+        assertEquals(plain.getParseWarnings(), tidy.getParseWarnings());
+        assertEquals(plain.getParseErrors(), tidy.getParseErrors());
+        assertTrue(plainErrout.toString().indexOf("Warning: ") >= 0);
+        assertEquals(-1, errout.toString().indexOf("Warning: "));
+
+        for (int i = 0; i < log.size(); i++)
+        {
+            final TidyMessage expected = printed.get(i);
+            assertEquals(expected.getErrorCode(), log.getErrorCode(i));
+            assertEquals(expected.getLine(), log.getLine(i));
+            assertEquals(expected.getColumn(), log.getColumn(i));
+            assertEquals(expected.getLevel(), log.getLevel(i));
+            assertEquals(expected.getMessage(), log.getMessage(i));
+            assertEquals(expected.getMessage(), log.getTidyMessage(i).getMessage());
+            assertEquals(expected.getMessage(), logged.get(i).getMessage());
+            assertTrue(plainErrout.toString().indexOf(expected.getMessage()) >= 0);
+        }
+    }
+
+    public void testArguments()
+    {
+        final Tidy tidy = newTidy(new ArrayList<TidyMessage>());
+        final TidyMessageLog log = new TidyMessageLog();
+        tidy.setMessageLog(log);
+        tidy.setErrout(new PrintWriter(new StringWriter()));
+        tidy.parse(new StringReader("<p foo=1>x</p>"), new StringWriter());
+
+        boolean found = false;
+        for (int i = 0; i < log.size(); i++)
+        {
+            if (log.getErrorCode(i) == ErrorCode.PROPRIETARY_ATTRIBUTE.code())
+            {
+                assertEquals(Level.WARNING, log.getLevel(i));
+                assertEquals("<p>", log.getArguments(i)[0]);
+                assertEquals("foo", log.getArguments(i)[1]);
+                found = true;
+            }
+        }
+        assertTrue(found);
+
+        log.clear();
+        assertEquals(0, log.size());
+        try
+        {
+            log.getMessage(0);
+            fail();
+        }
+        catch (final IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *  Java HTML Tidy - JTidy
+ *  HTML parser and pretty printer
+ *
+ *  Copyright (c) 1998-2000 World Wide Web Consortium (Massachusetts
+ *  Institute of Technology, Institut National de Recherche en
+ *  Informatique et en Automatique, Keio University). All Rights
+ *  Reserved.
+ *
+ *  Contributing Author(s):
+ *
+ *     Dave Raggett <dsr@w3.org>
+ *     Andy Quick <ac.quick@sympatico.ca> (translation to Java)
+ *     Gary L Peskin <garyp@firstech.com> (Java development)
+ *     Sami Lempinen <sami@lempinen.net> (release management)
+ *     Fabrizio Giustina <fgiust at users.sourceforge.net>
+ *
+ *  The contributing author(s) would like to thank all those who
+ *  helped with testing, bug fixes, and patience.  This wouldn't
+ *  have been possible without all of you.
+ *
+ *  COPYRIGHT NOTICE:
+ *
+ *  This software and documentation is provided "as is," and
+ *  the copyright holders and contributing author(s) make no
+ *  representations or warranties, express or implied, including
+ *  but not limited to, warranties of merchantability or fitness
+ *  for any particular purpose or that the use of the software or
+ *  documentation will not infringe any third party patents,
+ *  copyrights, trademarks or other rights.
+ *
+ *  The copyright holders and contributing author(s) will not be
+ *  liable for any direct, indirect, special or consequential damages
+ *  arising out of any use of the software or documentation, even if
+ *  advised of the possibility of such damage.
+ *
+ *  Permission is hereby granted to use, copy, modify, and distribute
+ *  this source code, or portions hereof, documentation and executables,
+ *  for any purpose, without fee, subject to the following restrictions:
+ *
+ *  1. The origin of this source code must not be misrepresented.
+ *  2. Altered versions must be plainly marked as such and must
+ *     not be misrepresented as being the original source.
+ *  3. This Copyright notice may not be removed or altered from any
+ *     source or altered source distribution.
+ *
+ *  The copyright holders and contributing author(s) specifically
+ *  permit, without fee, and encourage the use of this source code
+ *  as a component for supporting the Hypertext Markup Language in
+ *  commercial products. If you use this source code in a product,
+ *  acknowledgment is not required but would be appreciated.
+ *
+ */
+package org.w3c.tidy;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for UriEncoder.
+ * @version $Revision$ ($Author$)
+ */
+public class UriEncoderTest extends TestCase
+{
+
+    /**
+     * Encodes a URI with the JDK UTF-8 encoder, one code point at a time.
+     * @param uri URI
+     * @return encoded URI
+     */
+    private static String reference(final String uri) throws UnsupportedEncodingException
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < uri.length(); i = uri.offsetByCodePoints(i, 1))
+        {
+            final int cp = uri.codePointAt(i);
+            if (cp > 0xFFFF || UriEncoder.isIllegal((char) cp))
+            {
+                for (final byte b : new String(Character.toChars(cp)).getBytes("UTF-8"))
+                {
+                    sb.append(String.format("%%%02X", b));
+                }
+            }
+            else
+            {
+                sb.append((char) cp);
+            }
+        }
+        return sb.toString();
+    }
+
+    public void testEncode()
+    {
+        final UriEncoder encoder = new UriEncoder();
+        final String plain = "http://example.com/a?b=c&d=e#f";
+        assertSame(plain, encoder.encode(plain));
+        assertEquals("/a%20b%3C%3E%C3%A9%E2%82%AC", encoder.encode("/a b<>é€"));
+        assertEquals("%F0%9D%84%9E", encoder.encode("𝄞"));
+        assertEquals("x%3Fy%3F", encoder.encode("x\ud834y\udd1e"));
+    }
+
+    public void testRandom() throws UnsupportedEncodingException
+    {
+        final UriEncoder encoder = new UriEncoder();
+        final Random random = new Random(42);
+        final char[] chars = {'a', '/', ' ', '<', 'é', '߿', 'ࠀ', '￿', '\u007f', '\u0001'};
+        for (int n = 0; n < 1000; n++)
+        {
+            final StringBuilder uri = new StringBuilder();
+            final int length = random.nextInt(40);
+            for (int i = 0; i < length; i++)
+            {
+                if (random.nextInt(8) == 0)
+                {
+                    uri.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                }
+                else
+                {
+                    uri.append(chars[random.nextInt(chars.length)]);
+                }
+            }
+            assertEquals(reference(uri.toString()), encoder.encode(uri.toString()));
+        }
+    }
+
+    public void testLongUris() throws UnsupportedEncodingException
+    {
+        final UriEncoder encoder = new UriEncoder();
+        final StringBuilder data = new StringBuilder("data:text/plain,");
+        while (data.length() < 1000000)
+        {
+            data.append("abcdefghij");
+        }
+        data.append(' ');
+        assertEquals(data.substring(0, data.length() - 1) + "%20", encoder.encode(data.toString()));
+
+        // the buffer grows while writing
+        final Random random = new Random(7);
+        for (int n = 0; n < 20; n++)
+        {
+            final StringBuilder uri = new StringBuilder();
+            final int length = random.nextInt(3000);
+            for (int i = 0; i < length; i++)
+            {
+                uri.append(random.nextBoolean() ? 'a' : '€');
+            }
+            uri.appendCodePoint(0x1D11E);
+            assertEquals(reference(uri.toString()), encoder.encode(uri.toString()));
+            assertEquals("/a%20b", encoder.encode("/a b"));
+        }
+    }
+}
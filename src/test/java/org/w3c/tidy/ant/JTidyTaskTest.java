@@ -55,8 +55,12 @@ package org.w3c.tidy.ant;
 
 import java.io.File;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 
 import junit.framework.TestCase;
 
@@ -294,6 +298,126 @@ public class JTidyTaskTest extends TestCase
         new File(tempDir, "file2.html").delete();
     }
 
+    /**
+     * Task recording the messages written by tidy.
+     */
+    private static class RecordingTask extends JTidyTask
+    {
+
+        final StringWriter messages = new StringWriter();
+
+        @Override
+        protected void executeSet()
+        {
+            getTidy().setErrout(new PrintWriter(messages));
+            super.executeSet();
+        }
+    }
+
+    /**
+     * Test with a fileset tidied by many threads.
+     * @throws IOException if the output files can't be read
+     */
+    public void testFilesetWithThreads() throws IOException
+    {
+        final FileSet fileset = new FileSet();
+        fileset.setDir(new File(testDir, "ant"));
+        fileset.setIncludes("*.html");
+
+        final RecordingTask threadedTask = new RecordingTask();
+        threadedTask.setProject(task.getProject());
+        threadedTask.init();
+        threadedTask.addFileset(fileset);
+        threadedTask.setDestdir(new File(tempDir, "threads"));
+        threadedTask.setThreads(4);
+        threadedTask.execute();
+
+        final RecordingTask sequential = new RecordingTask();
+        sequential.setProject(task.getProject());
+        sequential.init();
+        sequential.addFileset(fileset);
+        sequential.setDestdir(new File(tempDir, "sequential"));
+        sequential.execute();
+
+        // the same messages, in file order
+        final String messages = threadedTask.messages.toString();
+        assertTrue(messages, messages.indexOf("Warning:") >= 0);
+        assertEquals(sequential.messages.toString(), messages);
+
+        final String[] names = {"file1.html", "file2.html"};
+        for (int j = 0; j < names.length; j++)
+        {
+            final File threaded = new File(new File(tempDir, "threads"), names[j]);
+            final File expected = new File(new File(tempDir, "sequential"), names[j]);
+            assertTrue("Expected output file not created", threaded.exists());
+
+            final Reader reader1 = new FileReader(expected);
+            final Reader reader2 = new FileReader(threaded);
+            assertEquals(FileUtils.readFully(reader1), FileUtils.readFully(reader2));
+            reader1.close();
+            reader2.close();
+
+            threaded.delete();
+            expected.delete();
+        }
+        new File(tempDir, "threads").delete();
+        new File(tempDir, "sequential").delete();
+    }
+
+    /**
+     * With many threads, failonerror stops the run at the first file with errors.
+     * @throws IOException if the input files can't be written
+     */
+    public void testFailonerrorWithThreads() throws IOException
+    {
+        final Reader reader = new FileReader(new File(testDir, "ant/file3.html"));
+        final String content = FileUtils.readFully(reader);
+        reader.close();
+
+        final File inputDir = new File(tempDir, "failing");
+        inputDir.mkdirs();
+        for (int j = 0; j < 40; j++)
+        {
+            final Writer writer = new FileWriter(new File(inputDir, "file" + j + ".html"));
+            writer.write(content);
+            writer.close();
+        }
+
+        final FileSet fileset = new FileSet();
+        fileset.setDir(inputDir);
+        fileset.setIncludes("*.html");
+
+        final RecordingTask threadedTask = new RecordingTask();
+        threadedTask.setProject(task.getProject());
+        threadedTask.init();
+        threadedTask.addFileset(fileset);
+        threadedTask.setDestdir(new File(tempDir, "failing-out"));
+        threadedTask.setThreads(2);
+        threadedTask.setFailonerror(true);
+        try
+        {
+            threadedTask.execute();
+            fail("Expected BuildException not thrown.");
+        }
+        catch (final BuildException e)
+        {
+            // ok if buildexception IS thrown
+        }
+
+        // only the messages of the first file were written
+        final String messages = threadedTask.messages.toString();
+        final String error = "<some> is not recognized!";
+        assertTrue(messages, messages.indexOf(error) >= 0);
+        assertEquals(messages, messages.indexOf(error), messages.lastIndexOf(error));
+
+        for (int j = 0; j < 40; j++)
+        {
+            new File(inputDir, "file" + j + ".html").delete();
+        }
+        inputDir.delete();
+        new File(tempDir, "failing-out").delete();
+    }
+
     /**
      * Test nested parameter element.
      */